@@ -21,10 +21,20 @@ public class DataQuery {
     String layerName;
     Integer offset;
     Integer limit;
+    /**
+     * Opaque keyset paging token, alternative to {@link #getOffset() offset} for
+     * backends that support it
+     */
+    String cursor;
     String filter;
     @NonNull List<SortBy> sortBy;
     String targetCrs;
     List<BigDecimal> bbox;
+    /**
+     * Number of decimals to round output coordinates to, or {@code null} for the
+     * collection's default
+     */
+    Integer coordPrecision;
 
     public static DataQuery fromUri(URI dataUri) {
         DataSource dataSource = DataSource.fromUri(dataUri);
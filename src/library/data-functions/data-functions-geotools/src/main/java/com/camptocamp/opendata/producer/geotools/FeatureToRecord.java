@@ -27,6 +27,8 @@ public class FeatureToRecord implements Function<SimpleFeature, GeodataRecord> {
 
     private Map<CoordinateReferenceSystem, String> crsToSrs = new IdentityHashMap<>();
 
+    static final String CRS84 = "http://www.opengis.net/def/crs/OGC/1.3/CRS84";
+
     @Override
     public GeodataRecord apply(SimpleFeature f) {
         log.trace("Mapping feature {} to GeodataRecord", f.getID());
@@ -45,7 +47,7 @@ public class FeatureToRecord implements Function<SimpleFeature, GeodataRecord> {
      * GeoTools has an abstraction leak on its data access API by which it prepends
      * the FeatureType name to the Feature ids. We don't need that.
      */
-    private String stripTypeNameFromFeatureId(String typeName, String fid) {
+    static String stripTypeNameFromFeatureId(String typeName, String fid) {
         if (fid.startsWith(typeName) && fid.length() > typeName.length() + 1 && fid.charAt(typeName.length()) == '.') {
             fid = fid.substring(typeName.length() + 1);
         }
@@ -88,13 +90,17 @@ public class FeatureToRecord implements Function<SimpleFeature, GeodataRecord> {
         String name = geometry.getName().getLocalPart();
         Geometry value = (Geometry) geometry.getValue();
         CoordinateReferenceSystem crs = geometry.getType().getCoordinateReferenceSystem();
-        String srs = crsToSrs.computeIfAbsent(crs, this::toSrs);
+        String srs = crsToSrs.computeIfAbsent(crs, FeatureToRecord::toSrs);
         return GeometryProperty.builder().name(name).value(value).srs(srs).build();
     }
 
-    private String toSrs(CoordinateReferenceSystem crs) {
+    /**
+     * @return the identifier of {@code crs}, {@literal CRS84} if {@code null}, or
+     *         {@code null} if it can't be determined
+     */
+    public static String toSrs(CoordinateReferenceSystem crs) {
         if (null == crs)
-            return "http://www.opengis.net/def/crs/OGC/1.3/CRS84";
+            return CRS84;
         boolean fullScan = true;
         try {
             return CRS.lookupIdentifier(crs, fullScan);
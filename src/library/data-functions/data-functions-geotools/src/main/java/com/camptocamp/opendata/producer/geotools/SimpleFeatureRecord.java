@@ -0,0 +1,272 @@
+package com.camptocamp.opendata.producer.geotools;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.locationtech.jts.geom.Geometry;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.model.GeometryProperty;
+import com.camptocamp.opendata.model.SimpleProperty;
+
+import lombok.NonNull;
+
+/**
+ * {@link GeodataRecord} view over a {@link SimpleFeature}, reading the feature
+ * attributes by index when accessed instead of copying them upfront like
+ * {@link FeatureToRecord} does.
+ * <p>
+ * Property names, positions, and SRS identifiers are computed once per feature
+ * type, see {@link Layout}, so a record costs the view itself, its properties
+ * list, and one small object per property actually accessed. The
+ * {@code with*} methods return detached copies, except
+ * {@link #withGeometry(GeometryProperty)} that keeps reading the other
+ * properties from the feature.
+ *
+ * @see SimpleFeatureRecordMapper
+ */
+public class SimpleFeatureRecord implements GeodataRecord {
+
+    private final Layout layout;
+    private final SimpleFeature feature;
+    private final GeometryProperty geometry;
+
+    private String id;
+    private List<SimpleProperty<?>> properties;
+
+    SimpleFeatureRecord(@NonNull Layout layout, @NonNull SimpleFeature feature) {
+        this(layout, feature, null);
+    }
+
+    private SimpleFeatureRecord(Layout layout, SimpleFeature feature, GeometryProperty geometry) {
+        this.layout = layout;
+        this.feature = feature;
+        this.geometry = geometry;
+    }
+
+    @Override
+    public String getTypeName() {
+        return layout.typeName;
+    }
+
+    @Override
+    public String getId() {
+        if (null == id) {
+            id = FeatureToRecord.stripTypeNameFromFeatureId(layout.typeName, feature.getID());
+        }
+        return id;
+    }
+
+    @Override
+    public GeometryProperty getGeometry() {
+        if (null != geometry) {
+            return geometry;
+        }
+        if (layout.geometryIndex == -1) {
+            return null;
+        }
+        return new GeometryAttribute(feature, layout.geometryName, layout.geometryIndex, layout.geometrySrs);
+    }
+
+    @Override
+    public List<? extends SimpleProperty<?>> getProperties() {
+        if (null == properties) {
+            properties = new Properties();
+        }
+        return properties;
+    }
+
+    @Override
+    public <V> Optional<? extends SimpleProperty<?>> getProperty(@NonNull String name) {
+        Integer position = layout.positions.get(name);
+        return null == position ? Optional.empty() : Optional.of(property(position));
+    }
+
+    @Override
+    public GeodataRecord withGeometry(GeometryProperty geom) {
+        return new SimpleFeatureRecord(layout, feature, geom);
+    }
+
+    @Override
+    public GeodataRecord withProperty(SimpleProperty<?> prop) {
+        return GeodataRecord.builder().typeName(getTypeName()).id(getId()).geometry(getGeometry())
+                .properties(new ArrayList<>(getProperties())).build().withProperty(prop);
+    }
+
+    private SimpleProperty<?> property(int position) {
+        int index = layout.indexes[position];
+        String name = layout.names[position];
+        String srs = layout.srs[position];
+        return null == srs ? new Attribute(feature, name, index) : new GeometryAttribute(feature, name, index, srs);
+    }
+
+    @Override
+    public String toString() {
+        return "SimpleFeatureRecord[%s]".formatted(feature.getID());
+    }
+
+    private class Properties extends AbstractList<SimpleProperty<?>> implements RandomAccess {
+
+        @Override
+        public SimpleProperty<?> get(int position) {
+            return property(position);
+        }
+
+        @Override
+        public int size() {
+            return layout.names.length;
+        }
+    }
+
+    /**
+     * Feature type properties, in {@link FeatureToRecord} order: all the
+     * attributes but the default geometry
+     */
+    static class Layout {
+
+        final SimpleFeatureType type;
+        final String typeName;
+        final String[] names;
+        final int[] indexes;
+
+        /**
+         * SRS identifier of geometry attributes, {@code null} for other attributes
+         */
+        final String[] srs;
+        final Map<String, Integer> positions = new HashMap<>();
+
+        final int geometryIndex;
+        final String geometryName;
+        final String geometrySrs;
+
+        /**
+         * @param geometrySrs SRS identifier of the default geometry, or {@code null}
+         *                    to use the one of its descriptor
+         */
+        Layout(SimpleFeatureType type, String geometrySrs) {
+            this.type = type;
+            this.typeName = type.getTypeName();
+            GeometryDescriptor geometry = type.getGeometryDescriptor();
+            this.geometryName = null == geometry ? null : geometry.getLocalName();
+            this.geometryIndex = null == geometry ? -1 : type.indexOf(geometryName);
+            this.geometrySrs = null == geometry || null != geometrySrs ? geometrySrs
+                    : FeatureToRecord.toSrs(geometry.getCoordinateReferenceSystem());
+
+            int count = type.getAttributeCount() - (null == geometry ? 0 : 1);
+            names = new String[count];
+            indexes = new int[count];
+            srs = new String[count];
+            int position = 0;
+            for (int i = 0; i < type.getAttributeCount(); i++) {
+                if (i == geometryIndex) {
+                    continue;
+                }
+                AttributeDescriptor att = type.getDescriptor(i);
+                names[position] = att.getLocalName();
+                indexes[position] = i;
+                if (att instanceof GeometryDescriptor geom) {
+                    srs[position] = FeatureToRecord.toSrs(geom.getCoordinateReferenceSystem());
+                }
+                positions.putIfAbsent(names[position], position);
+                position++;
+            }
+        }
+    }
+
+    private static class Attribute implements SimpleProperty<Object> {
+
+        private final SimpleFeature feature;
+        private final String name;
+        private final int index;
+
+        Attribute(SimpleFeature feature, String name, int index) {
+            this.feature = feature;
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getValue() {
+            return feature.getAttribute(index);
+        }
+
+        @Override
+        public SimpleProperty<Object> withName(String name) {
+            return SimpleProperty.builder().name(name).value(getValue()).build();
+        }
+
+        @Override
+        public SimpleProperty<Object> withValue(Object value) {
+            return SimpleProperty.builder().name(name).value(value).build();
+        }
+
+        @Override
+        public String toString() {
+            return "%s=%s".formatted(name, getValue());
+        }
+    }
+
+    private static class GeometryAttribute implements GeometryProperty {
+
+        private final SimpleFeature feature;
+        private final String name;
+        private final int index;
+        private final String srs;
+
+        GeometryAttribute(SimpleFeature feature, String name, int index, String srs) {
+            this.feature = feature;
+            this.name = name;
+            this.index = index;
+            this.srs = srs;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Geometry getValue() {
+            return (Geometry) feature.getAttribute(index);
+        }
+
+        @Override
+        public String getSrs() {
+            return srs;
+        }
+
+        @Override
+        public GeometryProperty withName(String name) {
+            return GeometryProperty.builder().name(name).value(getValue()).srs(srs).build();
+        }
+
+        @Override
+        public GeometryProperty withValue(Geometry value) {
+            return GeometryProperty.builder().name(name).value(value).srs(srs).build();
+        }
+
+        @Override
+        public GeometryProperty withSrs(String srs) {
+            return GeometryProperty.builder().name(name).value(getValue()).srs(srs).build();
+        }
+
+        @Override
+        public String toString() {
+            return "%s=%s".formatted(name, getValue());
+        }
+    }
+}
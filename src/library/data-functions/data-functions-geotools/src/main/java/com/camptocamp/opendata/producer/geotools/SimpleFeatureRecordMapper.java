@@ -0,0 +1,52 @@
+package com.camptocamp.opendata.producer.geotools;
+
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+
+/**
+ * Maps {@link SimpleFeature}s to lazy {@link SimpleFeatureRecord} views, as a
+ * lighter alternative to {@link FeatureToRecord} when the records are consumed
+ * right away, e.g. to encode them.
+ * <p>
+ * The feature type {@link SimpleFeatureRecord.Layout layout} is computed on
+ * the first feature and reused as long as the following features share the
+ * same feature type instance, as is the case for the features of a
+ * collection.
+ */
+public class SimpleFeatureRecordMapper implements Function<SimpleFeature, GeodataRecord> {
+
+    private final String geometrySrs;
+
+    private volatile SimpleFeatureRecord.Layout layout;
+
+    public SimpleFeatureRecordMapper() {
+        this(null);
+    }
+
+    /**
+     * @param geometrySrs SRS identifier reported for the default geometries, for
+     *                    features reprojected beforehand, or {@code null} to use
+     *                    the one of the feature type
+     */
+    public SimpleFeatureRecordMapper(String geometrySrs) {
+        this.geometrySrs = geometrySrs;
+    }
+
+    @Override
+    public GeodataRecord apply(SimpleFeature feature) {
+        return new SimpleFeatureRecord(layout(feature.getFeatureType()), feature);
+    }
+
+    private SimpleFeatureRecord.Layout layout(SimpleFeatureType type) {
+        SimpleFeatureRecord.Layout current = layout;
+        if (null == current || current.type != type) {
+            current = new SimpleFeatureRecord.Layout(type, geometrySrs);
+            layout = current;
+        }
+        return current;
+    }
+}
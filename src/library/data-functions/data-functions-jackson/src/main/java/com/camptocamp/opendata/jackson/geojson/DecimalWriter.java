@@ -0,0 +1,100 @@
+package com.camptocamp.opendata.jackson.geojson;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes doubles rounded to a fixed number of decimals as JSON numbers,
+ * formatting their digits into a reusable buffer instead of going through the
+ * {@link String} or {@link java.math.BigDecimal} representations
+ * {@link JsonGenerator#writeNumber(double)} would allocate for each of them.
+ * <p>
+ * Trailing zeros are dropped (e.g. {@code 6.5} is written as {@code 6.5} and
+ * not {@code 6.5000000}), and values too large to be scaled to a {@code long}
+ * are written at full precision. Not thread-safe, meant to be created once for
+ * each serialization.
+ */
+final class DecimalWriter {
+
+    static final int MAX_PRECISION = 15;
+
+    /**
+     * Scaled values are rounded through a {@code long}, beyond this magnitude
+     * they'd lose precision
+     */
+    private static final double MAX_SCALED = 1e17;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_PRECISION + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int precision;
+    private final long scale;
+
+    /**
+     * Sign, up to 17 digits, and the decimal point
+     */
+    private final char[] buffer = new char[24];
+
+    DecimalWriter(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                    "precision must be between 0 and %d: %d".formatted(MAX_PRECISION, precision));
+        }
+        this.precision = precision;
+        this.scale = POWERS_OF_TEN[precision];
+    }
+
+    int precision() {
+        return precision;
+    }
+
+    public void write(double value, JsonGenerator generator) throws IOException {
+        final double scaled = value * scale;
+        if (Double.isNaN(scaled) || Math.abs(scaled) >= MAX_SCALED) {
+            generator.writeNumber(value);
+            return;
+        }
+        final int start = format(Math.round(scaled));
+        generator.writeRawValue(buffer, start, buffer.length - start);
+    }
+
+    /**
+     * Formats {@code rounded / scale} right-aligned in {@link #buffer}
+     *
+     * @return the index of the first character
+     */
+    private int format(long rounded) {
+        final boolean negative = rounded < 0;
+        final long abs = Math.abs(rounded);
+        long integer = abs / scale;
+        long fraction = abs % scale;
+
+        int pos = buffer.length;
+        if (fraction != 0) {
+            int digits = precision;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            for (int i = 0; i < digits; i++) {
+                buffer[--pos] = (char) ('0' + fraction % 10);
+                fraction /= 10;
+            }
+            buffer[--pos] = '.';
+        }
+        do {
+            buffer[--pos] = (char) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer != 0);
+        if (negative) {
+            buffer[--pos] = '-';
+        }
+        return pos;
+    }
+}
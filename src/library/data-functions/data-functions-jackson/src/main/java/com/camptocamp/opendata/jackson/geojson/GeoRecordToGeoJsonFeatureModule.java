@@ -3,7 +3,7 @@ package com.camptocamp.opendata.jackson.geojson;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -52,7 +52,7 @@ public class GeoRecordToGeoJsonFeatureModule extends SimpleModule {
 
             WritableTypeId typeIdDef = typeSer.writeTypePrefix(gen, typeSer.typeId(record, JsonToken.START_OBJECT));
 
-            serializeContent(record, gen);
+            serializeContent(record, gen, serializers);
 
             typeSer.writeTypeSuffix(gen, typeIdDef);
         }
@@ -65,11 +65,12 @@ public class GeoRecordToGeoJsonFeatureModule extends SimpleModule {
                 return;
             }
             generator.writeStartObject();
-            serializeContent(record, generator);
+            serializeContent(record, generator, serializers);
             generator.writeEndObject();
         }
 
-        private void serializeContent(GeodataRecord record, JsonGenerator generator) throws IOException {
+        private void serializeContent(GeodataRecord record, JsonGenerator generator, SerializerProvider serializers)
+                throws IOException {
 
             generator.writeStringField("type", "Feature");
             if (null != record.getTypeName()) {
@@ -78,7 +79,7 @@ public class GeoRecordToGeoJsonFeatureModule extends SimpleModule {
             if (null != record.getId()) {
                 generator.writeStringField("@id", record.getId());
             }
-            writeGeometryProperty(generator, record.getGeometry());
+            writeGeometryProperty(generator, record.getGeometry(), serializers);
             writeProperties(generator, record.getProperties());
         }
 
@@ -92,7 +93,8 @@ public class GeoRecordToGeoJsonFeatureModule extends SimpleModule {
             generator.writeEndObject();
         }
 
-        private void writeGeometryProperty(JsonGenerator generator, GeometryProperty geometryProp) throws IOException {
+        private void writeGeometryProperty(JsonGenerator generator, GeometryProperty geometryProp,
+                SerializerProvider serializers) throws IOException {
 
             if (null == geometryProp || geometryProp.getValue() == null) {
                 generator.writeNullField("geometry");
@@ -104,7 +106,8 @@ public class GeoRecordToGeoJsonFeatureModule extends SimpleModule {
                 Object oldUserData = value.getUserData();
                 value.setUserData(createNameAndSrsUserData(name, srs));
                 try {
-                    generator.writeObjectField("geometry", value);
+                    // through the provider for serialization attributes to apply
+                    serializers.defaultSerializeField("geometry", value, generator);
                 } finally {
                     value.setUserData(oldUserData);
                 }
@@ -112,7 +115,7 @@ public class GeoRecordToGeoJsonFeatureModule extends SimpleModule {
         }
 
         private Map<String, String> createNameAndSrsUserData(String name, String srs) {
-            Map<String, String> customProperties = new HashMap<>(2);
+            Map<String, String> customProperties = new LinkedHashMap<>(2);
             customProperties.put("@name", name);
             customProperties.put("@srs", srs);
             return customProperties;
@@ -77,6 +77,16 @@ import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
  * objectMapper.registerModule(new GeoToolsGeoJsonModule());
  * </code>
  * </pre>
+ *
+ * <p>
+ * Coordinates are written at full double precision, unless rounded to a
+ * number of decimals given by the {@link #COORDINATE_PRECISION} attribute:
+ *
+ * <pre>
+ * <code>
+ * objectMapper.writer().withAttribute(JtsGeoJsonModule.COORDINATE_PRECISION, 7).writeValue(out, geometry);
+ * </code>
+ * </pre>
  */
 @Slf4j(topic = "com.camptocamp.opendata.jackson.geojson")
 public class JtsGeoJsonModule extends SimpleModule {
@@ -84,6 +94,16 @@ public class JtsGeoJsonModule extends SimpleModule {
 
     private static final Version VERSION = new Version(1, 0, 0, null, null, null);
 
+    /**
+     * Serialization attribute holding the {@link Integer} number of decimals to
+     * round coordinates to, between {@literal 0} and {@literal 15}. Coordinates
+     * are written at full precision if unset.
+     *
+     * @see com.fasterxml.jackson.databind.ObjectWriter#withAttribute(Object,
+     *      Object)
+     */
+    public static final String COORDINATE_PRECISION = "coord-precision";
+
     public JtsGeoJsonModule() {
         super(JtsGeoJsonModule.class.getSimpleName(), VERSION);
 
@@ -112,7 +132,7 @@ public class JtsGeoJsonModule extends SimpleModule {
             WritableTypeId typeIdDef = typeSer.writeTypePrefix(gen, typeSer.typeId(value, JsonToken.START_OBJECT));
 
             if (value != null) {
-                serializeContent(value, gen);
+                serializeContent(value, gen, decimalWriter(serializers));
             }
             typeSer.writeTypeSuffix(gen, typeIdDef);
         }
@@ -120,20 +140,47 @@ public class JtsGeoJsonModule extends SimpleModule {
         public @Override void serialize(Geometry value, JsonGenerator gen, SerializerProvider serializers)
                 throws IOException {
 
-            serialize(value, gen);
+            serialize(value, gen, decimalWriter(serializers));
         }
 
         public void serialize(Geometry geometry, JsonGenerator generator) throws IOException {
+            serialize(geometry, generator, null);
+        }
+
+        /**
+         * @return the writer for the {@link JtsGeoJsonModule#COORDINATE_PRECISION
+         *         requested precision}, or {@code null} for full precision. It's
+         *         created once and kept as a per-call attribute of the provider, so
+         *         it's reused for all the geometries of a serialization and never
+         *         shared across threads.
+         */
+        private DecimalWriter decimalWriter(SerializerProvider serializers) {
+            Object precision = null == serializers ? null : serializers.getAttribute(COORDINATE_PRECISION);
+            if (!(precision instanceof Integer decimals)) {
+                return null;
+            }
+            if (serializers.getAttribute(DecimalWriter.class) instanceof DecimalWriter cached
+                    && cached.precision() == decimals) {
+                return cached;
+            }
+            DecimalWriter writer = new DecimalWriter(decimals);
+            serializers.setAttribute(DecimalWriter.class, writer);
+            return writer;
+        }
+
+        private void serialize(Geometry geometry, JsonGenerator generator, DecimalWriter ordinates)
+                throws IOException {
             if (geometry == null) {
                 generator.writeNull();
                 return;
             }
             generator.writeStartObject();
-            serializeContent(geometry, generator);
+            serializeContent(geometry, generator, ordinates);
             generator.writeEndObject();
         }
 
-        private void serializeContent(Geometry geometry, JsonGenerator generator) throws IOException {
+        private void serializeContent(Geometry geometry, JsonGenerator generator, DecimalWriter ordinates)
+                throws IOException {
             generator.writeStringField("type", geometry.getGeometryType());
 
             writeCustomFieldsFromUserData(geometry.getUserData(), generator);
@@ -146,13 +193,13 @@ public class JtsGeoJsonModule extends SimpleModule {
                 generator.writeFieldName("geometries");
                 generator.writeStartArray();
                 for (int i = 0; i < geometry.getNumGeometries(); i++) {
-                    serialize(geometry.getGeometryN(i), generator);
+                    serialize(geometry.getGeometryN(i), generator, ordinates);
                 }
                 generator.writeEndArray();
                 return;
             }
             generator.writeFieldName("coordinates");
-            writeGeometry(geometry, generator);
+            writeGeometry(geometry, generator, ordinates);
         }
 
         private void writeCustomFieldsFromUserData(Object userData, JsonGenerator generator) {
@@ -201,23 +248,26 @@ public class JtsGeoJsonModule extends SimpleModule {
             return null;
         }
 
-        private void writeGeometry(Geometry geometry, JsonGenerator generator) throws IOException {
+        private void writeGeometry(Geometry geometry, JsonGenerator generator, DecimalWriter ordinates)
+                throws IOException {
             if (geometry instanceof GeometryCollection) {
-                writeMultiGeom((GeometryCollection) geometry, generator);
+                writeMultiGeom((GeometryCollection) geometry, generator, ordinates);
             } else {
-                writeSimpleGeom(geometry, generator);
+                writeSimpleGeom(geometry, generator, ordinates);
             }
         }
 
-        private void writeMultiGeom(GeometryCollection multi, JsonGenerator generator) throws IOException {
+        private void writeMultiGeom(GeometryCollection multi, JsonGenerator generator, DecimalWriter ordinates)
+                throws IOException {
             generator.writeStartArray();
             for (int i = 0; i < multi.getNumGeometries(); i++) {
-                writeGeometry(multi.getGeometryN(i), generator);
+                writeGeometry(multi.getGeometryN(i), generator, ordinates);
             }
             generator.writeEndArray();
         }
 
-        private void writeSimpleGeom(Geometry geometry, JsonGenerator generator) throws IOException {
+        private void writeSimpleGeom(Geometry geometry, JsonGenerator generator, DecimalWriter ordinates)
+                throws IOException {
             if (geometry.isEmpty()) {
                 generator.writeStartArray();
                 generator.writeEndArray();
@@ -225,21 +275,22 @@ public class JtsGeoJsonModule extends SimpleModule {
             }
             if (geometry instanceof Point) {
                 Point p = (Point) geometry;
-                writeCoordinate(p.getCoordinateSequence(), 0, generator);
+                writeCoordinate(p.getCoordinateSequence(), 0, generator, ordinates);
             } else if (geometry instanceof Polygon) {
                 Polygon poly = (Polygon) geometry;
                 generator.writeStartArray();
-                writeCoordinateSequence(poly.getExteriorRing(), generator);
+                writeCoordinateSequence(poly.getExteriorRing(), generator, ordinates);
                 for (int r = 0; r < poly.getNumInteriorRing(); r++) {
-                    writeCoordinateSequence(poly.getInteriorRingN(r), generator);
+                    writeCoordinateSequence(poly.getInteriorRingN(r), generator, ordinates);
                 }
                 generator.writeEndArray();
             } else {
-                writeCoordinateSequence(geometry, generator);
+                writeCoordinateSequence(geometry, generator, ordinates);
             }
         }
 
-        private void writeCoordinateSequence(Geometry simpleGeom, JsonGenerator generator) throws IOException {
+        private void writeCoordinateSequence(Geometry simpleGeom, JsonGenerator generator, DecimalWriter ordinates)
+                throws IOException {
             final AtomicReference<CoordinateSequence> seqRef = new AtomicReference<>();
             simpleGeom.apply(new CoordinateSequenceFilter() {
                 public @Override void filter(CoordinateSequence seq, int i) {
@@ -259,16 +310,22 @@ public class JtsGeoJsonModule extends SimpleModule {
             int size = seq.size();
             generator.writeStartArray();
             for (int i = 0; i < size; i++) {
-                writeCoordinate(seq, i, generator);
+                writeCoordinate(seq, i, generator, ordinates);
             }
             generator.writeEndArray();
         }
 
-        private void writeCoordinate(CoordinateSequence seq, int index, JsonGenerator generator) throws IOException {
+        private void writeCoordinate(CoordinateSequence seq, int index, JsonGenerator generator,
+                DecimalWriter ordinates) throws IOException {
             int dimension = seq.getDimension();
             generator.writeStartArray();
-            for (int i = 0; i < dimension; i++)
-                generator.writeNumber(seq.getOrdinate(index, i));
+            for (int i = 0; i < dimension; i++) {
+                if (null == ordinates) {
+                    generator.writeNumber(seq.getOrdinate(index, i));
+                } else {
+                    ordinates.write(seq.getOrdinate(index, i), generator);
+                }
+            }
             generator.writeEndArray();
         }
     }
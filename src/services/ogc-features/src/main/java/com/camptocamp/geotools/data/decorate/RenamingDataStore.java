@@ -1,7 +1,10 @@
 package com.camptocamp.geotools.data.decorate;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
@@ -23,13 +26,28 @@ import lombok.NonNull;
 
 /**
  * Decorates a single {@link DataStore} to retype it's {@link FeatureTypes} by
- * applying a transformation to the type name
+ * applying a transformation to the type name.
+ * <p>
+ * The renamed {@link SimpleFeatureType}s and {@link RenamingFeatureSource}s are
+ * cached by type name, so that the same instances are reused across calls.
+ * Since the decorated store may change its schemas, {@link #evict(Collection)}
+ * shall be called accordingly.
  */
 public class RenamingDataStore extends DecoratingReadOnlyDataStore {
 
     private final UnaryOperator<String> rename;
     private final UnaryOperator<String> undoRename;
 
+    /**
+     * Renamed feature types keyed by renamed type name
+     */
+    private final ConcurrentMap<String, SimpleFeatureType> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * Renaming feature sources keyed by renamed type name
+     */
+    private final ConcurrentMap<String, RenamingFeatureSource> featureSources = new ConcurrentHashMap<>();
+
     /**
      * @param delegate   the DataStore to decorate
      * @param rename     function applied to FeatureType names before returning them
@@ -86,12 +104,16 @@ public class RenamingDataStore extends DecoratingReadOnlyDataStore {
     @Override
     public SimpleFeatureType getSchema(String typeName) throws IOException {
         final String origTypeName = undoRename.apply(typeName);
-        SimpleFeatureType featureType = super.getSchema(origTypeName);
-        if (!typeName.equals(origTypeName)) {
+        if (typeName.equals(origTypeName)) {
+            return super.getSchema(origTypeName);
+        }
+        SimpleFeatureType featureType = schemas.get(typeName);
+        if (null == featureType) {
             SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
-            builder.init(featureType);
+            builder.init(super.getSchema(origTypeName));
             builder.setName(typeName);
             featureType = builder.buildFeatureType();
+            schemas.put(typeName, featureType);
         }
         return featureType;
     }
@@ -107,9 +129,13 @@ public class RenamingDataStore extends DecoratingReadOnlyDataStore {
     @Override
     public SimpleFeatureSource getFeatureSource(String typeName) throws IOException {
         String unprefixedTypeName = undoRename.apply(typeName);
-        var featureSource = super.getFeatureSource(unprefixedTypeName);
-        if (!typeName.equals(unprefixedTypeName)) {
-            featureSource = new RenamingFeatureSource(typeName, featureSource, this);
+        if (typeName.equals(unprefixedTypeName)) {
+            return super.getFeatureSource(unprefixedTypeName);
+        }
+        RenamingFeatureSource featureSource = featureSources.get(typeName);
+        if (null == featureSource) {
+            featureSource = new RenamingFeatureSource(typeName, super.getFeatureSource(unprefixedTypeName), this);
+            featureSources.put(typeName, featureSource);
         }
         return featureSource;
     }
@@ -144,8 +170,19 @@ public class RenamingDataStore extends DecoratingReadOnlyDataStore {
         }
         Query unprefixedQuery = new Query(query);
         unprefixedQuery.setTypeName(unprefixedTypeName);
+        SimpleFeatureType prefixedSchema = ((RenamingFeatureSource) getFeatureSource(typeName)).getSchema(query);
         var reader = super.getFeatureReader(unprefixedQuery, transaction);
-        SimpleFeatureType prefixedSchema = getSchema(typeName);
         return new ReTypeFeatureReader(reader, prefixedSchema);
     }
+
+    /**
+     * Discards the cached feature types and feature sources for the given type
+     * names of the decorated data store (i.e. before renaming)
+     */
+    public void evict(@NonNull Collection<String> origTypeNames) {
+        origTypeNames.stream().map(rename).forEach(typeName -> {
+            schemas.remove(typeName);
+            featureSources.remove(typeName);
+        });
+    }
 }
@@ -2,6 +2,7 @@ package com.camptocamp.geotools.data.decorate;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.List;
 
 import org.geotools.api.data.DataAccess;
 import org.geotools.api.data.Query;
@@ -12,16 +13,32 @@ import org.geotools.api.feature.type.Name;
 import org.geotools.api.filter.Filter;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.store.ReTypingFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import lombok.NonNull;
 
+/**
+ * {@link SimpleFeatureSource} decorator for {@link RenamingDataStore}. Memoizes
+ * the renamed schema, as well as the schemas retyped to the property names of
+ * the most recent queries.
+ */
 class RenamingFeatureSource extends DecoratingFeatureSource implements SimpleFeatureSource {
 
     private final String typeName;
     private final RenamingDataStore renamingStore;
 
-    private SimpleFeatureType schema;
+    private volatile SimpleFeatureType schema;
+
+    /**
+     * Retyped schemas keyed by query property names, bounded as these come from
+     * client requests
+     */
+    private final Cache<List<String>, SimpleFeatureType> retyped = CacheBuilder.newBuilder().maximumSize(64)
+            .build();
 
     public RenamingFeatureSource(@NonNull String typeName, @NonNull SimpleFeatureSource delegate,
             @NonNull RenamingDataStore renamingStore) {
@@ -37,14 +54,16 @@ class RenamingFeatureSource extends DecoratingFeatureSource implements SimpleFea
 
     @Override
     public SimpleFeatureType getSchema() {
-        if (null == schema) {
+        SimpleFeatureType featureType = schema;
+        if (null == featureType) {
             try {
-                schema = renamingStore.getSchema(typeName);
+                featureType = renamingStore.getSchema(typeName);
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
+            schema = featureType;
         }
-        return schema;
+        return featureType;
     }
 
     @Override
@@ -74,7 +93,23 @@ class RenamingFeatureSource extends DecoratingFeatureSource implements SimpleFea
 
     @Override
     public SimpleFeatureCollection getFeatures(Query query) throws IOException {
-        return new ReTypingFeatureCollection(delegate.getFeatures(toSourceQuery(query)), getSchema());
+        return new ReTypingFeatureCollection(delegate.getFeatures(toSourceQuery(query)), getSchema(query));
+    }
+
+    /**
+     * @return the schema restricted to the query properties, if any
+     */
+    SimpleFeatureType getSchema(Query query) {
+        if (query.retrieveAllProperties()) {
+            return getSchema();
+        }
+        List<String> propertyNames = List.of(query.getPropertyNames());
+        SimpleFeatureType featureType = retyped.getIfPresent(propertyNames);
+        if (null == featureType) {
+            featureType = SimpleFeatureTypeBuilder.retype(getSchema(), query.getPropertyNames());
+            retyped.put(propertyNames, featureType);
+        }
+        return featureType;
     }
 
     Query toSourceQuery(Query query) {
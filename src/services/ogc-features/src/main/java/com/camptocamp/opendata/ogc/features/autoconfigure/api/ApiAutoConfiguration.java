@@ -9,9 +9,12 @@ import java.util.Enumeration;
 import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -19,15 +22,30 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 
 import com.camptocamp.opendata.ogc.features.autoconfigure.geotools.SampleDataBackendAutoConfiguration;
 import com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisBackendAutoConfiguration;
+import com.camptocamp.opendata.ogc.features.exports.ExportJobs;
+import com.camptocamp.opendata.ogc.features.exports.ExportsConfiguration;
+import com.camptocamp.opendata.ogc.features.http.admission.AdmissionConfiguration;
+import com.camptocamp.opendata.ogc.features.http.admission.AdmissionFilter;
 import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.http.codec.arrow.ArrowConfiguration;
+import com.camptocamp.opendata.ogc.features.http.codec.arrow.ArrowFeatureCollectionHttpMessageConverter;
 import com.camptocamp.opendata.ogc.features.http.codec.csv.CsvFeatureCollectionHttpMessageConverter;
+import com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf.FlatGeobufConfiguration;
+import com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf.FlatGeobufFeatureCollectionHttpMessageConverter;
+import com.camptocamp.opendata.ogc.features.http.codec.json.GeoJsonFeatureCollectionHttpMessageConverter;
 import com.camptocamp.opendata.ogc.features.http.codec.json.SimpleJsonFeatureCollectionHttpMessageConverter;
+import com.camptocamp.opendata.ogc.features.http.codec.parquet.GeoParquetFeatureCollectionHttpMessageConverter;
 import com.camptocamp.opendata.ogc.features.http.codec.shp.ShapefileFeatureCollectionHttpMessageConverter;
 import com.camptocamp.opendata.ogc.features.http.codec.xls.Excel2007FeatureCollectionHttpMessageConverter;
+import com.camptocamp.opendata.ogc.features.http.codec.xls.OoxmlConfiguration;
+import com.camptocamp.opendata.ogc.features.http.compression.CompressionConfiguration;
+import com.camptocamp.opendata.ogc.features.http.compression.CompressionFilter;
 import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
 import com.camptocamp.opendata.ogc.features.server.api.CapabilitiesApiController;
 import com.camptocamp.opendata.ogc.features.server.api.CapabilitiesApiDelegate;
 import com.camptocamp.opendata.ogc.features.server.api.DataApiController;
@@ -36,7 +54,11 @@ import com.camptocamp.opendata.ogc.features.server.config.HomeController;
 import com.camptocamp.opendata.ogc.features.server.config.SpringDocConfiguration;
 import com.camptocamp.opendata.ogc.features.server.impl.CapabilitiesApiImpl;
 import com.camptocamp.opendata.ogc.features.server.impl.DataApiImpl;
+import com.camptocamp.opendata.ogc.features.tiles.TilesConfiguration;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -51,12 +73,16 @@ import jakarta.servlet.http.HttpServletRequestWrapper;
  * Requires the following beans:
  * <ul>
  * <li>{@link CollectionRepository}
+ * <li>{@link CollectionsConfiguration}
  * </ul>
  *
  * @see PostgisBackendAutoConfiguration
  * @see SampleDataBackendAutoConfiguration
  */
 @AutoConfiguration
+@EnableConfigurationProperties({ CompressionConfiguration.class, OoxmlConfiguration.class,
+        FlatGeobufConfiguration.class, ArrowConfiguration.class, TilesConfiguration.class,
+        AdmissionConfiguration.class, ExportsConfiguration.class })
 @Import(SpringDocConfiguration.class)
 @Slf4j
 public class ApiAutoConfiguration implements WebMvcConfigurer {
@@ -77,21 +103,39 @@ public class ApiAutoConfiguration implements WebMvcConfigurer {
     }
 
     @Bean
-    CapabilitiesApiDelegate capabilitiesApiDelegate(CollectionRepository repo, NativeWebRequest req) {
-        return new CapabilitiesApiImpl(repo, req);
+    CapabilitiesApiDelegate capabilitiesApiDelegate(CollectionRepository repo, NativeWebRequest req,
+            CollectionsConfiguration collectionsConfig) {
+        return new CapabilitiesApiImpl(repo, req, collectionsConfig);
     }
 
     @Bean
-    DataApiDelegate dataApiDelegate(CollectionRepository repo, NativeWebRequest req) {
-        return new DataApiImpl(repo, req);
+    DataApiDelegate dataApiDelegate(CollectionRepository repo, NativeWebRequest req, TilesConfiguration tilesConfig,
+            ExportJobs exports, CollectionsConfiguration collectionsConfig) {
+        return new DataApiImpl(repo, req, tilesConfig, exports, collectionsConfig);
+    }
+
+    /**
+     * Export jobs encoding the features with the same message converters as the
+     * synchronous responses, looked up once the first job runs
+     */
+    @Bean
+    ExportJobs exportJobs(ExportsConfiguration config, CollectionRepository repo,
+            ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter, ObjectProvider<MeterRegistry> meterRegistry) {
+        ExportJobs exports = new ExportJobs(config, repo, () -> handlerAdapter.getObject().getMessageConverters());
+        exports.bindTo(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        return exports;
     }
 
     /**
      * {@inheritDoc}
      *
+     * @see GeoJsonFeatureCollectionHttpMessageConverter
      * @see CsvFeatureCollectionHttpMessageConverter
      * @see ShapefileFeatureCollectionHttpMessageConverter
      * @see Excel2007FeatureCollectionHttpMessageConverter
+     * @see GeoParquetFeatureCollectionHttpMessageConverter
+     * @see FlatGeobufFeatureCollectionHttpMessageConverter
+     * @see ArrowFeatureCollectionHttpMessageConverter
      */
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
@@ -99,6 +143,18 @@ public class ApiAutoConfiguration implements WebMvcConfigurer {
         converters.add(csvFeatureCollectionHttpMessageConverter());
         converters.add(shapefileFeatureCollectionHttpMessageConverter());
         converters.add(excel2007FeatureCollectionHttpMessageConverter());
+        converters.add(geoParquetFeatureCollectionHttpMessageConverter());
+        converters.add(flatGeobufFeatureCollectionHttpMessageConverter());
+        converters.add(arrowFeatureCollectionHttpMessageConverter());
+    }
+
+    /**
+     * Declared as a bean for Spring Boot to place it ahead of the default Jackson
+     * converter
+     */
+    @Bean
+    GeoJsonFeatureCollectionHttpMessageConverter geoJsonFeatureCollectionHttpMessageConverter(ObjectMapper mapper) {
+        return new GeoJsonFeatureCollectionHttpMessageConverter(mapper);
     }
 
     @Bean
@@ -108,7 +164,7 @@ public class ApiAutoConfiguration implements WebMvcConfigurer {
 
     @Bean
     Excel2007FeatureCollectionHttpMessageConverter excel2007FeatureCollectionHttpMessageConverter() {
-        return new Excel2007FeatureCollectionHttpMessageConverter();
+        return new Excel2007FeatureCollectionHttpMessageConverter(ooxmlConfiguration.getMaxRowsPerSheet());
     }
 
     @Bean
@@ -121,6 +177,23 @@ public class ApiAutoConfiguration implements WebMvcConfigurer {
         return new CsvFeatureCollectionHttpMessageConverter();
     }
 
+    @Bean
+    GeoParquetFeatureCollectionHttpMessageConverter geoParquetFeatureCollectionHttpMessageConverter() {
+        return new GeoParquetFeatureCollectionHttpMessageConverter();
+    }
+
+    @Bean
+    FlatGeobufFeatureCollectionHttpMessageConverter flatGeobufFeatureCollectionHttpMessageConverter() {
+        int indexNodeSize = flatGeobufConfiguration.isSpatialIndex() ? flatGeobufConfiguration.getIndexNodeSize() : 0;
+        return new FlatGeobufFeatureCollectionHttpMessageConverter(indexNodeSize);
+    }
+
+    @Bean
+    ArrowFeatureCollectionHttpMessageConverter arrowFeatureCollectionHttpMessageConverter() {
+        return new ArrowFeatureCollectionHttpMessageConverter(arrowConfiguration.getBatchSize(),
+                arrowConfiguration.getBatchMaxSize().toBytes());
+    }
+
     /**
      * Filter that replaces the {@literal Accept} request header by the MimeType of
      * a matching collection items {@link MimeTypes supported format}, if the
@@ -142,6 +215,43 @@ public class ApiAutoConfiguration implements WebMvcConfigurer {
         return registrationBean;
     }
 
+    /**
+     * Admits collection items requests through separate bulkheads for bulk
+     * exports and interactive paging, registered first so rejections are cheap
+     */
+    @Bean
+    FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionConfiguration config,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        FilterRegistrationBean<AdmissionFilter> registrationBean = new FilterRegistrationBean<>();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        registrationBean.setFilter(new AdmissionFilter(config, registry));
+        registrationBean.addUrlPatterns("/ogcapi/collections/*");
+        registrationBean.setOrder(-2);
+        registrationBean.setEnabled(config.isEnabled());
+
+        return registrationBean;
+    }
+
+    /**
+     * Compresses collections responses, registered after
+     * {@link #forceItemsContentTypeFilter()} so the requested format is resolved
+     * already
+     */
+    @Bean
+    FilterRegistrationBean<CompressionFilter> compressionFilter(CompressionConfiguration config,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        FilterRegistrationBean<CompressionFilter> registrationBean = new FilterRegistrationBean<>();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        registrationBean.setFilter(new CompressionFilter(config, registry));
+        registrationBean.addUrlPatterns("/ogcapi/collections/*");
+        registrationBean.setOrder(0);
+        registrationBean.setEnabled(config.isEnabled());
+
+        return registrationBean;
+    }
+
     static class CollectionItemsFormatParamContentTypeFilter implements Filter {
 
         @Override
@@ -192,6 +302,15 @@ public class ApiAutoConfiguration implements WebMvcConfigurer {
         }
     }
 
+    @Autowired
+    private OoxmlConfiguration ooxmlConfiguration;
+
+    @Autowired
+    private FlatGeobufConfiguration flatGeobufConfiguration;
+
+    @Autowired
+    private ArrowConfiguration arrowConfiguration;
+
     @Value("${cors.allowed-origins:}")
     private String[] allowedOrigins;
 
@@ -1,13 +1,19 @@
 package com.camptocamp.opendata.ogc.features.autoconfigure.geotools;
 
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 
 import com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisBackendAutoConfiguration;
 import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
+import com.camptocamp.opendata.ogc.features.repository.CountEstimator;
 import com.camptocamp.opendata.ogc.features.repository.DataStoreCollectionRepository;
+import com.camptocamp.opendata.ogc.features.repository.UniqueKeyResolver;
 import com.camptocamp.opendata.ogc.features.sampledata.SampleData;
+import com.camptocamp.opendata.ogc.features.tiles.TileCache;
+import com.camptocamp.opendata.ogc.features.tiles.TilesConfiguration;
 import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
 
 import lombok.extern.slf4j.Slf4j;
@@ -21,14 +27,27 @@ import lombok.extern.slf4j.Slf4j;
  * {@link PostgisBackendAutoConfiguration}
  */
 @AutoConfiguration
+@EnableConfigurationProperties({ CollectionsConfiguration.class, TilesConfiguration.class })
 @Profile("sample-data")
 @Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.geotools")
 public class SampleDataBackendAutoConfiguration {
 
     @Bean
-    CollectionRepository sampleDataDataStoreCollectionRepository(SampleData dsProvider) {
+    DataStoreCollectionRepository sampleDataDataStoreCollectionRepository(SampleData dsProvider,
+            CollectionsConfiguration collectionsConfig, TileCache tileCache) {
         log.info("Using geotools sample data CollectionRepository");
-        return new DataStoreCollectionRepository(dsProvider, new FeatureToRecord());
+        DataStoreCollectionRepository repo = new DataStoreCollectionRepository(dsProvider, new FeatureToRecord(),
+                collectionsConfig, CountEstimator.NONE, UniqueKeyResolver.NONE);
+        repo.setTileCache(tileCache);
+        return repo;
+    }
+
+    /**
+     * Declared as a bean for its disk cache directory to be deleted on shutdown
+     */
+    @Bean
+    TileCache sampleDataTileCache(TilesConfiguration tilesConfig) {
+        return new TileCache(tilesConfig.getCache());
     }
 
     @Bean
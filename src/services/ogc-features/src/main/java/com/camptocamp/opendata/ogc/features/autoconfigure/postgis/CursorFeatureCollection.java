@@ -0,0 +1,205 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.FeatureReader;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.postgis.SchemaUnawarePostGISDialect;
+import org.geotools.data.postgis.SchemaUnawarePostGISDialect.SelectListener;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+
+import com.camptocamp.opendata.ogc.features.model.Cancellable;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decorates the features matching a query for them to be read within a
+ * transaction, rather than in auto-commit mode.
+ * <p>
+ * The PostgreSQL driver only honours the statement fetch size with auto-commit
+ * off, using a server side cursor (portal) to fetch the rows in batches.
+ * Otherwise it loads the whole result set in memory before returning the first
+ * row. The transaction is read-only in practice, and rolled back when the
+ * iterator is closed.
+ * <p>
+ * {@link #cancel() Cancelling} the collection cancels the statements of the
+ * open iterators, as captured through
+ * {@link SchemaUnawarePostGISDialect#listenSelects}, and closes them. That
+ * includes the statements still executing, e.g. sorting the whole table before
+ * returning the first row, in which case the iterating thread gets the
+ * cancellation error, and closes the iterator itself.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class CursorFeatureCollection extends DecoratingSimpleFeatureCollection implements Cancellable {
+
+    private final DataStore dataStore;
+    private final Query query;
+
+    private final Set<CursorIterator> open = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param features  the features matching {@code query}, also used for
+     *                  everything but {@link #features() iterating} over them
+     * @param dataStore the data store to read the features from
+     * @param query     the query to read the features with
+     */
+    CursorFeatureCollection(@NonNull SimpleFeatureCollection features, @NonNull DataStore dataStore,
+            @NonNull Query query) {
+        super(features);
+        this.dataStore = dataStore;
+        this.query = query;
+    }
+
+    @Override
+    public SimpleFeatureIterator features() {
+        // registered before running the query, for it to be cancellable while
+        // executing
+        CursorIterator it = new CursorIterator(new DefaultTransaction("cursor"));
+        open.add(it);
+        try {
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+            try (SelectListener listener = SchemaUnawarePostGISDialect.listenSelects(it::executing)) {
+                reader = dataStore.getFeatureReader(query, it.transaction);
+            }
+            if (!it.opened(reader)) {
+                throw new IOException("query cancelled");
+            }
+            return it;
+        } catch (IOException e) {
+            it.close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            it.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        open.forEach(CursorIterator::cancel);
+    }
+
+    private static void close(Transaction transaction) {
+        try {
+            transaction.rollback();
+        } catch (IOException e) {
+            log.debug("Error rolling back read transaction: {}", e.getMessage());
+        } finally {
+            try {
+                transaction.close();
+            } catch (IOException e) {
+                log.debug("Error closing read transaction: {}", e.getMessage());
+            }
+        }
+    }
+
+    private class CursorIterator implements SimpleFeatureIterator {
+
+        private final Transaction transaction;
+
+        /**
+         * The statement running the query, {@code null} until captured
+         */
+        private Statement statement;
+
+        /**
+         * The reader over the query results, {@code null} while the query is
+         * executing
+         */
+        private FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+        private boolean cancelled;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        CursorIterator(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        synchronized void executing(Statement statement) {
+            this.statement = statement;
+        }
+
+        /**
+         * @return {@code false} if the iterator was cancelled while the query was
+         *         executing
+         */
+        synchronized boolean opened(FeatureReader<SimpleFeatureType, SimpleFeature> reader) {
+            this.reader = reader;
+            return !cancelled;
+        }
+
+        /**
+         * Cancels the statement, in case it's executing or fetching rows, then
+         * closes the iterator, unless the query is still executing, for the
+         * connection not to be released under the thread waiting for it
+         */
+        void cancel() {
+            final Statement running;
+            final boolean executing;
+            synchronized (this) {
+                cancelled = true;
+                running = statement;
+                executing = null == reader;
+            }
+            if (null != running && !closed.get()) {
+                try {
+                    running.cancel();
+                } catch (SQLException e) {
+                    log.debug("Error cancelling query: {}", e.getMessage());
+                }
+            }
+            if (!executing) {
+                close();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return reader.hasNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public SimpleFeature next() throws NoSuchElementException {
+            try {
+                return reader.next();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            open.remove(this);
+            try {
+                if (null != reader) {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                log.debug("Error closing feature reader: {}", e.getMessage());
+            } finally {
+                CursorFeatureCollection.close(transaction);
+            }
+        }
+    }
+}
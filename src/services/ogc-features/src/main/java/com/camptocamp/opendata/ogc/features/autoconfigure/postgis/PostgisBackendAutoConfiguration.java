@@ -3,6 +3,7 @@ package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
 import javax.sql.DataSource;
 
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.DependsOn;
@@ -10,30 +11,80 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.support.DatabaseStartupValidator;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration.Paging;
 import com.camptocamp.opendata.ogc.features.repository.DataStoreCollectionRepository;
-import com.camptocamp.opendata.ogc.features.repository.DataStoreProvider;
+import com.camptocamp.opendata.ogc.features.tiles.TileCache;
+import com.camptocamp.opendata.ogc.features.tiles.TilesConfiguration;
 import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
 
 import lombok.extern.slf4j.Slf4j;
 
 @AutoConfiguration
-@EnableConfigurationProperties(PostgisSchemasConfiguration.class)
+@EnableConfigurationProperties({ PostgisSchemasConfiguration.class, PostgisFetchConfiguration.class,
+        CollectionsConfiguration.class, TilesConfiguration.class })
 @Profile("postgis")
 @Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.geotools")
 public class PostgisBackendAutoConfiguration implements WebMvcConfigurer {
 
+    /**
+     * Declared as {@link DataStoreCollectionRepository} for its cache metrics to
+     * be bound to the actuator's meter registry
+     */
     @Bean
-    CollectionRepository postgisDataStoreCollectionRepository(DataStoreProvider dsProvider) {
+    DataStoreCollectionRepository postgisDataStoreCollectionRepository(SchemaMultiplexingPostgisDataStoreProvider dsProvider,
+            CollectionsConfiguration collectionsConfig, TilesConfiguration tilesConfig,
+            PostgisFetchConfiguration fetchConfig, TileCache tileCache) {
         log.info("Using GeoTools PostGIS CollectionRepository");
-        return new DataStoreCollectionRepository(dsProvider, new FeatureToRecord());
+        DataStoreCollectionRepository repo = new DataStoreCollectionRepository(dsProvider, new FeatureToRecord(),
+                collectionsConfig, new PostgisCountEstimator(dsProvider), new PostgisUniqueKeyResolver(dsProvider));
+        repo.setGeoJsonEncoder(new PostgisGeoJsonEncoder(dsProvider));
+        repo.setReprojector(new PostgisGeometryReprojector(dsProvider));
+        repo.setBulkReader(new PostgisBulkFeatureReader(dsProvider, fetchConfig));
+        repo.setChangeVersions(new PostgisChangeVersionResolver(dsProvider));
+        if (tilesConfig.isNativeMvt()) {
+            repo.setTileEncoder(new PostgisTileEncoder(dsProvider));
+        }
+        repo.setTileCache(tileCache);
+        return repo;
+    }
+
+    /**
+     * Declared as a bean for its disk cache directory to be deleted on shutdown
+     */
+    @Bean
+    TileCache postgisTileCache(TilesConfiguration tilesConfig) {
+        return new TileCache(tilesConfig.getCache());
     }
 
     @Bean(name = "indexDataStore")
     @DependsOn("databaseStartupValidator")
     SchemaMultiplexingPostgisDataStoreProvider schemaMultiplexingPostgisDataStoreProvider(
-            PostgisSchemasConfiguration config, DataSource dataSource) {
-        return new SchemaMultiplexingPostgisDataStoreProvider(config, dataSource);
+            PostgisSchemasConfiguration config, CollectionsConfiguration collectionsConfig,
+            PostgisFetchConfiguration fetchConfig, DataSource dataSource) {
+        var provider = new SchemaMultiplexingPostgisDataStoreProvider(config, dataSource);
+        // primary keys are needed to filter and sort on for keyset paging, they're
+        // hidden from the published properties by the PostgisUniqueKeyResolver
+        provider.setExposePrimaryKeys(collectionId -> collectionsConfig.paging(collectionId) == Paging.KEYSET);
+        provider.setFetch(fetchConfig);
+        return provider;
+    }
+
+    /**
+     * Always created, since {@literal postgis.schemas.refresh.enabled} may change
+     * at runtime
+     */
+    @Bean
+    PostgisSchemasRefresher postgisSchemasRefresher(SchemaMultiplexingPostgisDataStoreProvider dsProvider,
+            PostgisSchemasConfiguration config) {
+        return new PostgisSchemasRefresher(dsProvider, config.getRefresh().getInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "postgis.schemas.change-detection.enabled", havingValue = "true", matchIfMissing = true)
+    PostgisCatalogChangeDetector postgisCatalogChangeDetector(SchemaMultiplexingPostgisDataStoreProvider dsProvider,
+            PostgisSchemasConfiguration config) {
+        return new PostgisCatalogChangeDetector(dsProvider, config.getChangeDetection().getInterval());
     }
 
     @Bean
@@ -0,0 +1,31 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import org.geotools.api.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+
+import com.camptocamp.opendata.ogc.features.repository.BulkFeatureReader;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * {@link BulkFeatureReader} reading queries for more features than the fetch
+ * size through a server side cursor, see {@link CursorFeatureCollection}.
+ * Smaller queries are fetched in a single round trip anyway, and read as usual.
+ *
+ * @see PostgisFetchConfiguration
+ */
+@RequiredArgsConstructor
+class PostgisBulkFeatureReader implements BulkFeatureReader {
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+    private final @NonNull PostgisFetchConfiguration fetch;
+
+    @Override
+    public SimpleFeatureCollection read(@NonNull Query query, @NonNull SimpleFeatureCollection features) {
+        if (query.isMaxFeaturesUnlimited() || query.getMaxFeatures() > fetch.getSize()) {
+            return new CursorFeatureCollection(features, provider.get(), query);
+        }
+        return features;
+    }
+}
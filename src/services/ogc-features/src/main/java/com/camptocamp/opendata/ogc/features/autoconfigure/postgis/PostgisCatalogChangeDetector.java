@@ -0,0 +1,171 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.sql.Array;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically polls the PostgreSQL catalog for changes to the structure of the
+ * tables in the schemas being served, and discards the cached feature types of
+ * the changed or dropped tables only.
+ * <p>
+ * Each table's signature is a hash of its oid and its columns names, types,
+ * and nullability, so renaming, adding, dropping, or altering a column, as well
+ * as re-creating a table, are noticed within the polling interval. This
+ * replaces the need to issue a probe query before each request to detect stale
+ * feature types (see {@link SchemaMultiplexingPostgisDataStoreProvider#tracksSchemaChanges()}).
+ * <p>
+ * The signatures of the visible schemas are taken at startup, before any
+ * feature type is cached, so that the first poll only evicts what actually
+ * changed.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+public class PostgisCatalogChangeDetector implements InitializingBean, DisposableBean {
+
+    private static final String SIGNATURES_QUERY = """
+            SELECT n.nspname, c.relname, md5(c.oid::text || ':' || string_agg(
+                a.attname::text || ':' || a.atttypid::text || ':' || a.atttypmod::text || ':' || a.attnotnull::text,
+                ',' ORDER BY a.attnum))
+            FROM pg_catalog.pg_class c
+            JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace
+            JOIN pg_catalog.pg_attribute a ON a.attrelid = c.oid AND a.attnum > 0 AND NOT a.attisdropped
+            WHERE c.relkind IN ('r', 'v', 'm', 'p', 'f') AND n.nspname = ANY (?)
+            GROUP BY n.nspname, c.oid, c.relname
+            """;
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+    private final @NonNull Duration interval;
+
+    /**
+     * Last known table signatures by schema and table name
+     */
+    private final Map<String, Map<String, String>> signatures = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    PostgisCatalogChangeDetector(@NonNull SchemaMultiplexingPostgisDataStoreProvider provider,
+            @NonNull Duration interval) {
+        this.provider = provider;
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        log.info("Polling the PostgreSQL catalog for table changes every {}", interval);
+        seed();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "postgis-change-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        provider.setTracksSchemaChanges(true);
+    }
+
+    @Override
+    public void destroy() {
+        provider.setTracksSchemaChanges(false);
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.warn("Error polling the PostgreSQL catalog for table changes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes the initial signatures of the visible schemas' tables, without
+     * evicting anything
+     */
+    private synchronized void seed() {
+        try {
+            Set<String> schemas = Set.copyOf(provider.getSchemas());
+            if (!schemas.isEmpty()) {
+                Map<String, Map<String, String>> current = loadSignatures(provider.getDataSource(), schemas);
+                schemas.forEach(schema -> signatures.put(schema, current.getOrDefault(schema, Map.of())));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error taking the initial PostgreSQL table signatures: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Compares the table signatures of the schemas being served or seen before
+     * with the last known ones, and evicts the cached feature types of the tables
+     * that changed. Called periodically, exposed for tests to drive it
+     * deterministically.
+     */
+    @VisibleForTesting
+    public synchronized void poll() {
+        final Set<String> active = provider.getProvidersBySchema().keySet();
+        final Set<String> schemas = Sets.union(active, signatures.keySet()).immutableCopy();
+        if (schemas.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, String>> current = loadSignatures(provider.getDataSource(), schemas);
+        for (String schema : schemas) {
+            Map<String, String> actual = current.getOrDefault(schema, Map.of());
+            if (actual.isEmpty() && !active.contains(schema)) {
+                // dropped schema, nothing cached
+                signatures.remove(schema);
+                continue;
+            }
+            Map<String, String> previous = signatures.put(schema, actual);
+            // a schema that appeared after startup may have had feature types
+            // cached before its signatures were taken
+            Set<String> changed = null == previous ? actual.keySet() : changedTables(previous, actual);
+            if (!changed.isEmpty()) {
+                if (null != previous) {
+                    log.info("Detected changes to tables {} in schema {}", changed, schema);
+                }
+                provider.evict(schema, changed);
+            }
+        }
+    }
+
+    private Set<String> changedTables(Map<String, String> previous, Map<String, String> actual) {
+        Set<String> changed = new HashSet<>();
+        for (String table : Sets.union(previous.keySet(), actual.keySet())) {
+            if (!Objects.equals(previous.get(table), actual.get(table))) {
+                changed.add(table);
+            }
+        }
+        return changed;
+    }
+
+    private Map<String, Map<String, String>> loadSignatures(DataSource dataSource, Set<String> schemas) {
+        Map<String, Map<String, String>> bySchema = new HashMap<>();
+        new JdbcTemplate(dataSource).query(SIGNATURES_QUERY, ps -> {
+            Array array = ps.getConnection().createArrayOf("text", schemas.toArray());
+            ps.setArray(1, array);
+        }, rs -> {
+            bySchema.computeIfAbsent(rs.getString(1), s -> new HashMap<>()).put(rs.getString(2), rs.getString(3));
+        });
+        return bySchema;
+    }
+}
@@ -0,0 +1,56 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.camptocamp.opendata.ogc.features.repository.ChangeVersionResolver;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ChangeVersionResolver} using PostgreSQL cumulative statistics.
+ * <p>
+ * The version combines the table's oid and file node, which change when the
+ * table is recreated or truncated, the latest transaction ids of its
+ * {@code pg_class} and {@code pg_attribute} rows, which change with
+ * {@literal ALTER TABLE} statements, e.g. when columns are added, renamed, or
+ * dropped, and the number of rows inserted, updated, and deleted from
+ * {@code pg_stat_user_tables}. Statistics are reported when transactions end,
+ * with a delay of up to half a second before PostgreSQL 15. No version is
+ * returned for views and other relations without statistics.
+ */
+@RequiredArgsConstructor
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class PostgisChangeVersionResolver implements ChangeVersionResolver {
+
+    private static final String VERSION_QUERY = """
+            SELECT concat_ws('.', c.oid, pg_relation_filenode(c.oid), c.xmin,
+              (SELECT max(a.xmin::text::bigint) FROM pg_attribute a WHERE a.attrelid = c.oid),
+              s.n_tup_ins, s.n_tup_upd, s.n_tup_del)
+            FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            JOIN pg_stat_user_tables s ON s.relid = c.oid
+            WHERE n.nspname = ? AND c.relname = ? AND c.relkind = 'r'
+            """;
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+
+    @Override
+    public Optional<String> changeVersion(@NonNull String collectionId) {
+        try {
+            PostgisTable table = provider.resolveTable(collectionId);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(provider.getDataSource());
+            List<String> versions = jdbcTemplate.queryForList(VERSION_QUERY, String.class, table.schema(),
+                    table.table());
+            return versions.stream().findFirst();
+        } catch (DataAccessException | IllegalArgumentException e) {
+            log.debug("Unable to get the change version of {}: {}", collectionId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
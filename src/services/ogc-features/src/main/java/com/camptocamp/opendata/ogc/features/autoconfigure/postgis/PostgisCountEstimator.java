@@ -0,0 +1,116 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.util.OptionalLong;
+
+import javax.sql.DataSource;
+
+import org.geotools.api.data.Query;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.filter.Filter;
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PreparedFilterToSQL;
+import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.camptocamp.opendata.ogc.features.repository.CountEstimator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link CountEstimator} using PostgreSQL planner statistics.
+ * <p>
+ * Unfiltered queries are estimated from the table's {@code pg_class.reltuples},
+ * filtered ones from the row estimate of the query plan as returned by
+ * {@code EXPLAIN}, the filter being encoded by the data store, with
+ * prepared statement parameters if its dialect uses them. Either way, the estimate is only as good as the table
+ * statistics, and no estimate is returned for tables that haven't been
+ * analyzed yet, or for filters that can't be fully encoded to SQL.
+ */
+@RequiredArgsConstructor
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class PostgisCountEstimator implements CountEstimator {
+
+    private static final String RELTUPLES_QUERY = """
+            SELECT c.reltuples::bigint FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = ? AND c.relname = ?
+            """;
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile JdbcTemplate jdbcTemplate;
+
+    @Override
+    public OptionalLong estimate(Query query) {
+        PostgisTable table = provider.resolveTable(query.getTypeName());
+        Filter filter = query.getFilter() == null ? Filter.INCLUDE : query.getFilter();
+        try {
+            if (Filter.INCLUDE.equals(filter)) {
+                return tableEstimate(table);
+            }
+            return plannerEstimate(table, filter);
+        } catch (IOException | FilterToSQLException | DataAccessException e) {
+            log.debug("Unable to estimate count for {}: {}", query.getTypeName(), e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    private OptionalLong tableEstimate(PostgisTable table) {
+        Long reltuples = jdbcTemplate().queryForObject(RELTUPLES_QUERY, Long.class, table.schema(), table.table());
+        // -1 (or 0 before PostgreSQL 14) if the table was never vacuumed or analyzed
+        if (null == reltuples || reltuples <= 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(reltuples);
+    }
+
+    private OptionalLong plannerEstimate(PostgisTable table, Filter filter) throws IOException, FilterToSQLException {
+        final JDBCDataStore dataStore = table.dataStore();
+        final SimpleFeatureType schema = dataStore.getSchema(table.table());
+        final FilterToSQL toSQL = dataStore.getSQLDialect() instanceof PreparedStatementSQLDialect
+                ? dataStore.createPreparedFilterToSQL(schema)
+                : dataStore.createFilterToSQL(schema);
+        if (!toSQL.getCapabilities().fullySupports(filter)) {
+            return OptionalLong.empty();
+        }
+        final String sql = "EXPLAIN (FORMAT JSON) SELECT 1 FROM %s %s".formatted(table.qualifiedName(),
+                toSQL.encodeToString(filter));
+        String plan = jdbcTemplate().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            if (toSQL instanceof PreparedFilterToSQL prepared) {
+                dataStore.setPreparedFilterValues(statement, prepared, 0, connection);
+            }
+            return statement;
+        }, rs -> rs.next() ? rs.getString(1) : null);
+        if (null == plan) {
+            return OptionalLong.empty();
+        }
+        JsonNode rows = mapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+        return rows.isNumber() ? OptionalLong.of(rows.asLong()) : OptionalLong.empty();
+    }
+
+    /**
+     * @return the template for the provider's current data source, only rebuilt
+     *         if the data source is replaced
+     */
+    private JdbcTemplate jdbcTemplate() {
+        JdbcTemplate template = this.jdbcTemplate;
+        DataSource dataSource = provider.getDataSource();
+        if (null == template || template.getDataSource() != dataSource) {
+            template = new JdbcTemplate(dataSource);
+            this.jdbcTemplate = template;
+        }
+        return template;
+    }
+}
@@ -2,27 +2,44 @@ package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import javax.sql.DataSource;
 
 import org.geotools.api.data.DataStore;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.type.Name;
 import org.geotools.data.postgis.PostgisNGDataStoreFactory;
 import org.geotools.data.postgis.SchemaUnawarePostgisNGDataStoreFactory;
+import org.geotools.data.store.ContentDataStore;
+import org.geotools.data.store.ContentEntry;
+import org.geotools.feature.NameImpl;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.JDBCDataStoreFactory;
+import org.geotools.jdbc.JDBCState;
 import org.springframework.lang.Nullable;
 
 import com.camptocamp.opendata.ogc.features.repository.DefaultDataStoreProvider;
 import com.camptocamp.opendata.ogc.features.repository.JdbcDataStoreProvider;
 
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.geotools")
 public class PostgisDataStoreProvider extends DefaultDataStoreProvider implements JdbcDataStoreProvider {
 
+    /**
+     * The tables whose primary key columns shall be exposed as attributes, on top
+     * of all of them if the data store's {@link PostgisNGDataStoreFactory#EXPOSE_PK
+     * EXPOSE_PK} parameter is set. Only affects data stores created and feature
+     * types evicted afterwards.
+     */
+    private @Setter @NonNull Predicate<String> exposePrimaryKeys = table -> false;
+
     PostgisDataStoreProvider(@NonNull Map<String, Object> connectionParams) {
         super(new HashMap<>(connectionParams));
     }
@@ -36,8 +53,9 @@ public class PostgisDataStoreProvider extends DefaultDataStoreProvider implement
     @Override
     public void setDataSource(DataSource ds) {
         super.connectionParams.put(JDBCDataStoreFactory.DATASOURCE.key, ds);
-        if (null != super.store) {
-            ((JDBCDataStore) super.store).setDataSource(ds);
+        DataStore store = getIfCreated();
+        if (null != store) {
+            ((JDBCDataStore) store).setDataSource(ds);
         }
     }
 
@@ -45,20 +63,101 @@ public class PostgisDataStoreProvider extends DefaultDataStoreProvider implement
     protected @NonNull DataStore create() {
         PostgisNGDataStoreFactory fac = new SchemaUnawarePostgisNGDataStoreFactory();
         try {
-            return fac.createDataStore(connectionParams);
+            JDBCDataStore store = fac.createDataStore(connectionParams);
+            for (Name name : store.getNames()) {
+                applyExposePrimaryKeys(store, name);
+            }
+            return store;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Whether the data store exposes the primary key columns of the given table as
+     * feature type attributes
+     */
+    public static boolean isExposePrimaryKeyColumns(@NonNull JDBCDataStore store, @NonNull String tableName) {
+        ContentEntry entry = store.getEntry(new NameImpl(store.getNamespaceURI(), tableName));
+        if (null == entry) {
+            return store.isExposePrimaryKeyColumns();
+        }
+        return ((JDBCState) entry.getState(Transaction.AUTO_COMMIT)).isExposePrimaryKeyColumns();
+    }
+
+    /**
+     * Overrides the data store setting for the table if it matches
+     * {@link #exposePrimaryKeys}, before its feature type is built
+     */
+    private void applyExposePrimaryKeys(ContentDataStore store, Name name) {
+        if (!exposePrimaryKeys.test(name.getLocalPart())) {
+            return;
+        }
+        try {
+            // creates the entry of a table not accessed so far
+            store.getFeatureSource(name);
+        } catch (IOException e) {
+            log.debug("Not exposing the primary key columns of {}: {}", name.getLocalPart(), e.getMessage());
+            return;
+        }
+        JDBCState state = (JDBCState) store.getEntry(name).getState(Transaction.AUTO_COMMIT);
+        if (!state.isExposePrimaryKeyColumns()) {
+            log.debug("Exposing the primary key columns of {}", name.getLocalPart());
+            state.setExposePrimaryKeyColumns(true);
+            state.flush();
+        }
+    }
+
+    /**
+     * Discards the cached feature types of the given tables, if any, for them to be
+     * rebuilt from the database catalog on next access
+     */
+    public void evict(@NonNull Collection<String> tableNames) {
+        if (getIfCreated() instanceof ContentDataStore contentStore) {
+            String namespaceURI = contentStore.getNamespaceURI();
+            for (String tableName : tableNames) {
+                NameImpl name = new NameImpl(namespaceURI, tableName);
+                ContentEntry entry = contentStore.getEntry(name);
+                if (null != entry) {
+                    log.debug("Evicting cached feature type {}", tableName);
+                    entry.getState(Transaction.AUTO_COMMIT).flush();
+                }
+                // new tables have no entry yet
+                applyExposePrimaryKeys(contentStore, name);
+            }
+        }
+    }
+
     public static PostgisDataStoreProvider newInstance(DataSource dataSource, @Nullable String schema) {
+        return newInstance(dataSource, schema, false);
+    }
+
+    /**
+     * @param exposePrimaryKeys whether to expose the primary key columns as
+     *                          feature type attributes, so they can be used in
+     *                          filters and sort orders (e.g. for keyset paging)
+     */
+    public static PostgisDataStoreProvider newInstance(DataSource dataSource, @Nullable String schema,
+            boolean exposePrimaryKeys) {
+        return newInstance(dataSource, schema, exposePrimaryKeys, new PostgisFetchConfiguration());
+    }
+
+    /**
+     * @param fetch the fetch size settings, see
+     *              {@link SchemaUnawarePostgisNGDataStoreFactory#FETCH_BYTES}
+     */
+    public static PostgisDataStoreProvider newInstance(DataSource dataSource, @Nullable String schema,
+            boolean exposePrimaryKeys, @NonNull PostgisFetchConfiguration fetch) {
         Map<String, Object> params = new HashMap<>(Map.of(//
                 PostgisNGDataStoreFactory.DBTYPE.key, "postgis", //
                 JDBCDataStoreFactory.DATASOURCE.key, dataSource, //
                 PostgisNGDataStoreFactory.PREPARED_STATEMENTS.key, true, //
                 PostgisNGDataStoreFactory.ENCODE_FUNCTIONS.key, true, //
                 PostgisNGDataStoreFactory.ESTIMATED_EXTENTS.key, true, //
-                PostgisNGDataStoreFactory.LOOSEBBOX.key, true//
+                PostgisNGDataStoreFactory.LOOSEBBOX.key, true, //
+                PostgisNGDataStoreFactory.EXPOSE_PK.key, exposePrimaryKeys, //
+                PostgisNGDataStoreFactory.FETCHSIZE.key, fetch.getSize(), //
+                SchemaUnawarePostgisNGDataStoreFactory.FETCH_BYTES.key, (int) fetch.getMaxBytes().toBytes()//
         ));
 
         if (schema != null) {
@@ -0,0 +1,53 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Configuration properties for reading the features out of the PostGIS tables.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * postgis:
+ *   fetch:
+ *     size: 1000
+ *     max-bytes: 4MB
+ * </code>
+ * </pre>
+ * <p>
+ * {@code size} is the maximum number of rows fetched from the database per
+ * round trip, lowered for wide rows so that a round trip fetches about
+ * {@code max-bytes}, as estimated from the collection's attribute types.
+ * <p>
+ * Queries for more than {@code size} features, including the unlimited ones
+ * (i.e. {@literal limit=-1}), are read through a server side cursor, in a
+ * read-only transaction, so they take a bounded amount of memory whatever the
+ * number of features. Otherwise the PostgreSQL driver loads the whole result set
+ * before the first feature is encoded.
+ *
+ * @see PostgisBulkFeatureReader
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "postgis.fetch")
+public class PostgisFetchConfiguration {
+
+    /**
+     * Maximum number of rows fetched per round trip
+     */
+    @Min(1)
+    private int size = 1000;
+
+    /**
+     * Approximate number of bytes fetched per round trip
+     */
+    @NotNull
+    private DataSize maxBytes = DataSize.ofMegabytes(4);
+}
@@ -0,0 +1,369 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import static com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisTable.quote;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.geotools.api.data.Query;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.api.filter.Filter;
+import org.geotools.api.filter.sort.SortBy;
+import org.geotools.api.filter.sort.SortOrder;
+import org.geotools.util.factory.Hints;
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.jdbc.JDBCDataStore;
+import org.springframework.dao.DataAccessException;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.model.Cancellable;
+import com.camptocamp.opendata.ogc.features.model.GeoJsonFeatureWriter;
+import com.camptocamp.opendata.ogc.features.repository.GeoJsonEncoder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link GeoJsonEncoder} having PostGIS encode the feature geometries with
+ * {@code ST_AsGeoJSON(ST_Transform(...))}, so that they're copied to the
+ * response as is instead of being decoded from WKB, reprojected, and encoded
+ * again by Jackson.
+ * <p>
+ * The {@literal Feature} objects written have the same members as the ones
+ * encoded from {@link GeodataRecord}s ({@literal @typeName}, {@literal @id},
+ * and the {@literal @name} and {@literal @srs} geometry members, following
+ * {@literal type} as {@code JtsGeoJsonModule} writes them), and the property
+ * values are written by the same {@link JsonGenerator}. Queries are only pushed
+ * down if:
+ * <ul>
+ * <li>the table has a single-column primary key, for the feature ids to match
+ * the ones of the data store
+ * <li>the geometry column has a known SRID and the target CRS is an EPSG code
+ * <li>the geometry column is 2D, {@code JtsGeoJsonModule} writes extra
+ * {@literal dimensions} and {@literal hasM} members otherwise
+ * <li>the filter and sort order can be fully encoded to SQL
+ * <li>the default geometry is the only geometry property, and all the other
+ * properties are of simple types (strings, numbers, booleans, dates, uuids)
+ * </ul>
+ * and fall back to the regular encoding otherwise.
+ */
+@RequiredArgsConstructor
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class PostgisGeoJsonEncoder implements GeoJsonEncoder {
+
+    /**
+     * PostGIS' maximum, used at full precision so coordinates aren't rounded any
+     * more than Jackson does
+     */
+    static final int MAX_DECIMAL_DIGITS = 15;
+
+    /**
+     * Rows fetched at a time, so the results are streamed instead of loaded
+     * all at once
+     */
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * Property types read straight from the result set, also the ones
+     * {@link PostgisTileEncoder} knows ST_AsMVT can encode
+     */
+    static final Set<Class<?>> SIMPLE_BINDINGS = Set.of(String.class, Boolean.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class, BigDecimal.class, java.sql.Date.class,
+            java.sql.Time.class, java.sql.Timestamp.class, UUID.class);
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+
+    /**
+     * Single-column primary key by table, primary keys hardly ever change
+     */
+    private final Cache<String, Optional<String>> primaryKeys = CacheBuilder.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1)).maximumSize(10_000).build();
+
+    @Override
+    public Optional<GeoJsonFeatureWriter> encoder(@NonNull Query query, @NonNull String targetSrs,
+            Integer coordPrecision) {
+        try {
+            int decimals = null == coordPrecision ? MAX_DECIMAL_DIGITS : Math.min(coordPrecision, MAX_DECIMAL_DIGITS);
+            return prepare(query, targetSrs, decimals).map(CancellableWriter::new);
+        } catch (IOException | FilterToSQLException | DataAccessException e) {
+            log.debug("Unable to encode {} as GeoJSON in the database: {}", query.getTypeName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<EncodingStatement> prepare(Query query, String targetSrs, int decimals)
+            throws IOException, FilterToSQLException {
+
+        final PostgisTable table = provider.resolveTable(query.getTypeName());
+        final SimpleFeatureType schema = table.dataStore().getSchema(table.table());
+        final GeometryDescriptor geometry = schema.getGeometryDescriptor();
+        final Integer targetSrid = epsgCode(targetSrs);
+        if (null == geometry || null == targetSrid || !isPostgisGeometry(geometry) || !is2D(geometry)) {
+            return Optional.empty();
+        }
+        final Optional<String> primaryKey = primaryKey(table);
+        final Optional<List<AttributeDescriptor>> properties = properties(query, schema, geometry);
+        final Optional<String> orderBy = orderBy(query, schema, primaryKey.orElse(null));
+        if (primaryKey.isEmpty() || properties.isEmpty() || orderBy.isEmpty()) {
+            return Optional.empty();
+        }
+        final Filter filter = null == query.getFilter() ? Filter.INCLUDE : query.getFilter();
+        final FilterToSQL toSQL = table.filterToSQL(schema);
+        if (!toSQL.getCapabilities().fullySupports(filter)) {
+            return Optional.empty();
+        }
+
+        final int srid = (Integer) geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        String geometryColumn = quote(geometry.getLocalName());
+        if (srid != targetSrid) {
+            geometryColumn = "ST_Transform(%s, %d)".formatted(geometryColumn, targetSrid);
+        }
+        StringBuilder sql = new StringBuilder("SELECT ").append(quote(primaryKey.get())).append("::text");
+        // options 0: no bbox nor crs members
+        sql.append(", ST_AsGeoJSON(%s, %d, 0)".formatted(geometryColumn, decimals));
+        properties.get().forEach(p -> sql.append(", ").append(quote(p.getLocalName())));
+        sql.append(" FROM ").append(table.qualifiedName()).append(' ').append(toSQL.encodeToString(filter));
+        sql.append(orderBy.get());
+        if (!query.isMaxFeaturesUnlimited()) {
+            sql.append(" LIMIT ").append(query.getMaxFeatures());
+        }
+        if (null != query.getStartIndex() && query.getStartIndex() > 0) {
+            sql.append(" OFFSET ").append(query.getStartIndex());
+        }
+
+        String geometryMembers = ",\"@name\":%s,\"@srs\":%s".formatted(jsonString(geometry.getLocalName()),
+                jsonString(targetSrs));
+        return Optional.of(new EncodingStatement(provider.getDataSource(), sql.toString(), query.getTypeName(),
+                table.table() + ".", geometryMembers, properties.get()));
+    }
+
+    static boolean isPostgisGeometry(GeometryDescriptor geometry) {
+        // geography columns can't be transformed
+        Object nativeType = geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME);
+        Object srid = geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        return "geometry".equalsIgnoreCase(String.valueOf(nativeType)) && srid instanceof Integer i && i > 0;
+    }
+
+    static boolean is2D(GeometryDescriptor geometry) {
+        Object dimension = geometry.getUserData().get(Hints.COORDINATE_DIMENSION);
+        return !(dimension instanceof Integer d && d > 2);
+    }
+
+    /**
+     * @return the properties to write besides the default geometry, in output
+     *         order, or empty if any of them is not supported
+     */
+    static Optional<List<AttributeDescriptor>> properties(Query query, SimpleFeatureType schema,
+            GeometryDescriptor geometry) {
+        List<AttributeDescriptor> selected = query.retrieveAllProperties() ? schema.getAttributeDescriptors()
+                : Stream.of(query.getPropertyNames()).map(schema::getDescriptor).toList();
+        if (selected.contains(null) || !selected.contains(geometry)) {
+            return Optional.empty();
+        }
+        List<AttributeDescriptor> properties = selected.stream().filter(d -> !d.equals(geometry)).toList();
+        boolean simple = properties.stream().allMatch(d -> SIMPLE_BINDINGS.contains(d.getType().getBinding()));
+        return simple ? Optional.of(properties) : Optional.empty();
+    }
+
+    /**
+     * @return the {@code ORDER BY} clause, possibly empty, or empty if the sort
+     *         order can't be encoded
+     */
+    private Optional<String> orderBy(Query query, SimpleFeatureType schema, String primaryKey) {
+        SortBy[] sortBy = query.getSortBy();
+        if (null == sortBy || sortBy.length == 0) {
+            return Optional.of("");
+        }
+        List<String> orderBy = new ArrayList<>();
+        for (SortBy sort : sortBy) {
+            String direction = sort.getSortOrder() == SortOrder.DESCENDING ? "DESC" : "ASC";
+            if (sort == SortBy.NATURAL_ORDER || sort == SortBy.REVERSE_ORDER) {
+                if (null == primaryKey) {
+                    return Optional.empty();
+                }
+                orderBy.add("%s %s".formatted(quote(primaryKey), direction));
+            } else {
+                String property = null == sort.getPropertyName() ? null : sort.getPropertyName().getPropertyName();
+                if (null == property || null == schema.getDescriptor(property)) {
+                    return Optional.empty();
+                }
+                orderBy.add("%s %s".formatted(quote(property), direction));
+            }
+        }
+        return Optional.of(" ORDER BY " + String.join(", ", orderBy));
+    }
+
+    private Optional<String> primaryKey(PostgisTable table) {
+        try {
+            return primaryKeys.get(table.qualifiedName(), () -> {
+                List<String> columns = table.primaryKeyColumns(provider.getDataSource());
+                return columns.size() == 1 ? Optional.of(columns.get(0)) : Optional.empty();
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    static Integer epsgCode(String srs) {
+        if (!srs.toUpperCase().startsWith("EPSG:")) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(srs.substring("EPSG:".length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String jsonString(String value) {
+        return "\"%s\"".formatted(new String(JsonStringEncoder.getInstance().quoteAsString(value)));
+    }
+
+    /**
+     * @param typeName        the collection id, as written to {@literal @typeName}
+     * @param fidPrefix       the prefix the data store applies to primary key
+     *                        values to build feature ids
+     * @param geometryMembers the {@literal @name} and {@literal @srs} members,
+     *                        inserted right after the {@literal type} member
+     *                        encoded by PostGIS
+     */
+    /**
+     * Runs an {@link EncodingStatement}, cancelling it if the features are
+     * cancelled while it's executing or fetching rows, e.g. on client disconnect
+     */
+    private static class CancellableWriter implements GeoJsonFeatureWriter, Cancellable {
+
+        private final EncodingStatement statement;
+        private final AtomicReference<Statement> running = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        CancellableWriter(EncodingStatement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public long write(JsonGenerator generator) throws IOException {
+            try {
+                return statement.write(generator, st -> {
+                    running.set(st);
+                    if (cancelled) {
+                        cancel();
+                    }
+                });
+            } finally {
+                running.set(null);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Statement st = running.get();
+            if (null != st) {
+                try {
+                    st.cancel();
+                } catch (SQLException e) {
+                    log.debug("Error cancelling query: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private record EncodingStatement(DataSource dataSource, String sql, String typeName, String fidPrefix,
+            String geometryMembers, List<AttributeDescriptor> properties) {
+
+        /**
+         * @param executing notified of the statement before it's executed
+         */
+        long write(JsonGenerator generator, Consumer<Statement> executing) throws IOException {
+            log.debug("Encoding GeoJSON features with {}", sql);
+            try (Connection cx = dataSource.getConnection()) {
+                // the PostgreSQL driver only fetches rows in batches within a transaction
+                cx.setAutoCommit(false);
+                try (PreparedStatement st = cx.prepareStatement(sql)) {
+                    st.setFetchSize(FETCH_SIZE);
+                    executing.accept(st);
+                    long count = 0;
+                    try (ResultSet rs = st.executeQuery()) {
+                        while (rs.next()) {
+                            writeFeature(rs, generator);
+                            count++;
+                        }
+                    }
+                    return count;
+                } finally {
+                    cx.rollback();
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void writeFeature(ResultSet rs, JsonGenerator generator) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "Feature");
+            generator.writeStringField("@typeName", typeName);
+            generator.writeStringField("@id", featureId(rs.getString(1)));
+
+            generator.writeFieldName("geometry");
+            String geometry = rs.getString(2);
+            if (null == geometry) {
+                generator.writeNull();
+            } else {
+                // splice the @name and @srs members after the leading "type" member
+                // PostGIS encodes, where JtsGeoJsonModule writes them
+                int typeEnd = geometry.indexOf(',');
+                generator.writeRawValue(geometry, 0, typeEnd);
+                generator.writeRaw(geometryMembers);
+                generator.writeRaw(geometry, typeEnd, geometry.length() - typeEnd);
+            }
+
+            generator.writeObjectFieldStart("properties");
+            for (int i = 0; i < properties.size(); i++) {
+                AttributeDescriptor property = properties.get(i);
+                Object value = rs.getObject(i + 3, property.getType().getBinding());
+                generator.writeObjectField(property.getLocalName(), value);
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+
+        /**
+         * Mimics how feature ids are published, without the type name the data
+         * store prepends to them
+         */
+        private String featureId(String primaryKeyValue) {
+            String fid = fidPrefix + primaryKeyValue;
+            if (fid.startsWith(typeName) && fid.length() > typeName.length() + 1
+                    && fid.charAt(typeName.length()) == '.') {
+                fid = fid.substring(typeName.length() + 1);
+            }
+            return fid;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.io.IOException;
+
+import org.geotools.api.data.Query;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.data.postgis.SchemaUnawarePostGISDialect;
+import org.geotools.data.postgis.SchemaUnawarePostGISDialect.TargetSrid;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.factory.Hints;
+
+import com.camptocamp.opendata.ogc.features.repository.GeometryReprojector;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link GeometryReprojector} having PostGIS reproject the default geometry
+ * with {@code ST_Transform}, through the
+ * {@link SchemaUnawarePostGISDialect#TARGET_SRID} query hint.
+ * <p>
+ * Queries are only pushed down if the geometry column has a known SRID other
+ * than the target one and the target CRS is an EPSG code, and are reprojected
+ * by the application otherwise.
+ */
+@RequiredArgsConstructor
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class PostgisGeometryReprojector implements GeometryReprojector {
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+
+    @Override
+    public boolean reproject(@NonNull Query query, @NonNull String targetSrs) {
+        final Integer targetSrid = PostgisGeoJsonEncoder.epsgCode(targetSrs);
+        if (null == targetSrid) {
+            return false;
+        }
+        final GeometryDescriptor geometry;
+        try {
+            PostgisTable table = provider.resolveTable(query.getTypeName());
+            SimpleFeatureType schema = table.dataStore().getSchema(table.table());
+            geometry = schema.getGeometryDescriptor();
+        } catch (IOException e) {
+            log.debug("Unable to reproject {} in the database: {}", query.getTypeName(), e.getMessage());
+            return false;
+        }
+        if (null == geometry || !PostgisGeoJsonEncoder.isPostgisGeometry(geometry)) {
+            return false;
+        }
+        final int srid = (Integer) geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        if (srid == targetSrid) {
+            return false;
+        }
+        Hints hints = new Hints(query.getHints());
+        hints.put(SchemaUnawarePostGISDialect.TARGET_SRID, new TargetSrid(geometry.getLocalName(), targetSrid));
+        query.setHints(hints);
+        return true;
+    }
+}
@@ -38,6 +38,14 @@ import lombok.Setter;
  * <p>
  * Newly created database schemas, or removed schemas, will be noticed after a
  * period defined by the `postgis.schemas.refresh.interval` config property.
+ * The schemas are reloaded in the background, so requests never wait for it. If
+ * `postgis.schemas.refresh.enabled` is {@code false}, they're reloaded on each
+ * request instead.
+ * <p>
+ * Changes to the structure of the tables (e.g. added, renamed, or dropped
+ * columns) are detected by periodically polling the PostgreSQL catalog every
+ * `postgis.schemas.change-detection.interval`, discarding the cached feature
+ * types of the affected tables only.
  * <p>
  * Default configuration:
  * 
@@ -49,6 +57,9 @@ import lombok.Setter;
  *     refresh:
  *       enabled: true
  *       interval: PT5S
+ *     change-detection:
+ *       enabled: true
+ *       interval: PT5S
  *     include:
  *     - schema: "*"
  *       prefix-tables: true
@@ -108,6 +119,13 @@ public class PostgisSchemasConfiguration implements InitializingBean {
     @NotNull
     private Refresh refresh = new Refresh();
 
+    /**
+     * Settings for the detection of changes to the tables structure. If disabled,
+     * each query is preceded by a probe query to detect stale feature types.
+     */
+    @NotNull
+    private ChangeDetection changeDetection = new ChangeDetection();
+
     @NotEmpty
     private String delimiter = ":";
 
@@ -148,6 +166,12 @@ public class PostgisSchemasConfiguration implements InitializingBean {
         private Duration interval = Duration.ofSeconds(5);
     }
 
+    @Data
+    public static class ChangeDetection {
+        private boolean enabled = true;
+        private Duration interval = Duration.ofSeconds(5);
+    }
+
     @Data
     public static class SchemaConfiguration {
         @NotEmpty
@@ -0,0 +1,107 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reloads the visible PostgreSQL schemas in the background every
+ * {@literal postgis.schemas.refresh.interval}, so that request threads never
+ * block on catalog queries, and creates the data stores for newly appeared
+ * schemas ahead of the first request against them.
+ * <p>
+ * Refreshing is skipped while {@literal postgis.schemas.refresh.enabled} is
+ * {@code false}, in which case the schemas are loaded on each request instead.
+ * <p>
+ * Publishes the following metrics:
+ * <ul>
+ * <li>{@literal postgis.schemas.refresh}: timer of the refresh runs, tagged
+ * with {@literal outcome=success|error}
+ * <li>{@literal postgis.schemas.refresh.last.success}: epoch time in seconds of
+ * the last successful refresh
+ * <li>{@literal postgis.schemas.count}: number of visible schemas as of the
+ * last successful refresh
+ * </ul>
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class PostgisSchemasRefresher implements InitializingBean, DisposableBean, MeterBinder {
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+    private final @NonNull Duration interval;
+
+    private final AtomicLong lastSuccess = new AtomicLong();
+    private final AtomicInteger schemaCount = new AtomicInteger();
+    private volatile MeterRegistry registry;
+
+    private ScheduledExecutorService scheduler;
+
+    PostgisSchemasRefresher(@NonNull SchemaMultiplexingPostgisDataStoreProvider provider,
+            @NonNull Duration interval) {
+        this.provider = provider;
+        this.interval = interval;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("postgis.schemas.refresh.last.success", lastSuccess, s -> s.get() / 1000d)
+                .description("Epoch time in seconds of the last successful schemas refresh").baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("postgis.schemas.count", schemaCount, AtomicInteger::get)
+                .description("Number of visible PostgreSQL schemas").register(registry);
+        this.registry = registry;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        log.info("Refreshing PostgreSQL schemas every {}", interval);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "postgis-schemas-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void refresh() {
+        if (!provider.isSchemaRefreshEnabled()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            int count = provider.refreshSchemas().size();
+            schemaCount.set(count);
+            lastSuccess.set(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            outcome = "error";
+            log.warn("Error refreshing PostgreSQL schemas: {}", e.getMessage());
+        } finally {
+            MeterRegistry meterRegistry = this.registry;
+            if (null != meterRegistry) {
+                Timer.builder("postgis.schemas.refresh").description("PostgreSQL schemas refresh time")
+                        .tag("outcome", outcome).register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
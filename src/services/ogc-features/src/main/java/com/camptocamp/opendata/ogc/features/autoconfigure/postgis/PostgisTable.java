@@ -0,0 +1,67 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PreparedFilterToSQL;
+import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.NonNull;
+
+/**
+ * The actual PostgreSQL table backing a (possibly schema-prefixed) collection,
+ * and the plain {@link JDBCDataStore} serving it, for the cases where going
+ * straight to the database is preferable to go through the GeoTools API.
+ *
+ * @param schema    the PostgreSQL schema name (not alias)
+ * @param table     the table name, also the plain data store's type name
+ * @param dataStore the non-prefixing data store for the schema
+ */
+record PostgisTable(@NonNull String schema, @NonNull String table, @NonNull JDBCDataStore dataStore) {
+
+    private static final String PRIMARY_KEY_QUERY = """
+            SELECT a.attname FROM pg_index i
+            JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)
+            WHERE i.indrelid = ?::regclass AND i.indisprimary
+            ORDER BY array_position(i.indkey::int2[], a.attnum)
+            """;
+
+    /**
+     * @return the double-quoted, schema-qualified table name, suitable to be used
+     *         in a SQL statement
+     */
+    public String qualifiedName() {
+        return "%s.%s".formatted(quote(schema), quote(table));
+    }
+
+    public static String quote(@NonNull String identifier) {
+        return "\"%s\"".formatted(identifier.replace("\"", "\"\""));
+    }
+
+    /**
+     * @return the table's primary key columns, in key order, empty if it has no
+     *         primary key (e.g. a view)
+     */
+    public List<String> primaryKeyColumns(@NonNull DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForList(PRIMARY_KEY_QUERY, String.class, qualifiedName());
+    }
+
+    /**
+     * @return a filter encoder for the table's feature type, that encodes literals
+     *         inline regardless of whether the data store uses prepared
+     *         statements, for the resulting SQL to be used as is
+     */
+    public FilterToSQL filterToSQL(@NonNull SimpleFeatureType schema) {
+        if (dataStore.getSQLDialect() instanceof PreparedStatementSQLDialect) {
+            PreparedFilterToSQL toSQL = dataStore.createPreparedFilterToSQL(schema);
+            toSQL.setPrepareEnabled(false);
+            return toSQL;
+        }
+        return dataStore.createFilterToSQL(schema);
+    }
+}
@@ -0,0 +1,107 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import static com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisTable.quote;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.geotools.api.data.Query;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.api.filter.Filter;
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.jdbc.JDBCDataStore;
+import org.locationtech.jts.geom.Envelope;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.camptocamp.opendata.ogc.features.repository.TileEncoder;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link TileEncoder} having PostGIS clip, simplify, and encode the tile with
+ * {@code ST_AsMVT(ST_AsMVTGeom(...))}, so that only the encoded tile is
+ * transferred instead of the full resolution geometries.
+ * <p>
+ * Queries are only pushed down if the geometry column has a known SRID, the
+ * filter can be fully encoded to SQL, and all the properties are of simple
+ * types, and fall back to the {@link TileEncoder#NONE regular encoding}
+ * otherwise.
+ */
+@RequiredArgsConstructor
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.autoconfigure.postgis")
+class PostgisTileEncoder implements TileEncoder {
+
+    private static final int WEB_MERCATOR = 3857;
+
+    /**
+     * Alias of the tile geometry column, unlikely to clash with a property name
+     */
+    private static final String MVT_GEOMETRY = "__mvt_geom";
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+
+    @Override
+    public Optional<byte[]> encode(@NonNull Query query, @NonNull Tile tile) {
+        try {
+            return prepare(query).map(sql -> execute(sql, query.getTypeName(), tile));
+        } catch (IOException | FilterToSQLException | DataAccessException e) {
+            log.debug("Unable to encode tile {} of {} in the database: {}", tile, query.getTypeName(),
+                    e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the SQL statement, with the layer name, tile bounds, extent, and
+     *         buffer as parameters, or empty if the query can't be pushed down
+     */
+    private Optional<String> prepare(Query query) throws IOException, FilterToSQLException {
+        final PostgisTable table = provider.resolveTable(query.getTypeName());
+        final SimpleFeatureType schema = table.dataStore().getSchema(table.table());
+        final GeometryDescriptor geometry = schema.getGeometryDescriptor();
+        if (null == geometry || !PostgisGeoJsonEncoder.isPostgisGeometry(geometry)) {
+            return Optional.empty();
+        }
+        final Optional<List<AttributeDescriptor>> properties = PostgisGeoJsonEncoder.properties(query, schema,
+                geometry);
+        if (properties.isEmpty()) {
+            return Optional.empty();
+        }
+        final Filter filter = null == query.getFilter() ? Filter.INCLUDE : query.getFilter();
+        final FilterToSQL toSQL = table.filterToSQL(schema);
+        if (!toSQL.getCapabilities().fullySupports(filter)) {
+            return Optional.empty();
+        }
+
+        final int srid = (Integer) geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        String geometryColumn = quote(geometry.getLocalName());
+        if (srid != WEB_MERCATOR) {
+            geometryColumn = "ST_Transform(%s, %d)".formatted(geometryColumn, WEB_MERCATOR);
+        }
+        StringBuilder sql = new StringBuilder("SELECT ST_AsMVT(mvt.*, ?, ?, '%s') FROM (".formatted(MVT_GEOMETRY));
+        sql.append("SELECT ST_AsMVTGeom(%s, ST_MakeEnvelope(?, ?, ?, ?, %d), ?, ?, true) AS %s"
+                .formatted(geometryColumn, WEB_MERCATOR, quote(MVT_GEOMETRY)));
+        properties.get().forEach(p -> sql.append(", ").append(quote(p.getLocalName())));
+        sql.append(" FROM ").append(table.qualifiedName()).append(' ').append(toSQL.encodeToString(filter));
+        sql.append(") AS mvt WHERE mvt.").append(quote(MVT_GEOMETRY)).append(" IS NOT NULL");
+        return Optional.of(sql.toString());
+    }
+
+    private byte[] execute(String sql, String layerName, Tile tile) {
+        log.debug("Encoding tile {} with {}", tile, sql);
+        Envelope bounds = tile.envelope();
+        byte[] encoded = new JdbcTemplate(provider.getDataSource()).queryForObject(sql, byte[].class, layerName,
+                tile.extent(), bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), tile.extent(),
+                tile.buffer());
+        // ST_AsMVT returns null on older PostGIS versions when there are no rows
+        return null == encoded ? new byte[0] : encoded;
+    }
+}
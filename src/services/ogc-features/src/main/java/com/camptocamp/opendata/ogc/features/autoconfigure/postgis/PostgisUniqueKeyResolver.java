@@ -0,0 +1,95 @@
+package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+
+import com.camptocamp.opendata.ogc.features.repository.UniqueKeyResolver;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.NonNull;
+
+/**
+ * {@link UniqueKeyResolver} returning the primary key column of the PostgreSQL
+ * table backing a collection. Tables with no primary key or a multi-column one
+ * are not supported.
+ * <p>
+ * The primary key columns are only usable in filters and sort orders of the
+ * tables the data stores are set up to expose them for (see
+ * {@link PostgisDataStoreProvider#setExposePrimaryKeys}), in which case they're all {@link #hiddenAttributes(String) hidden} for them
+ * not to be published, multi-column keys included, and the single-column key
+ * value is extracted from the feature id.
+ */
+class PostgisUniqueKeyResolver implements UniqueKeyResolver {
+
+    private record Keys(List<String> hidden, Optional<UniqueKey> uniqueKey) {
+        static final Keys NONE = new Keys(List.of(), Optional.empty());
+    }
+
+    private final @NonNull SchemaMultiplexingPostgisDataStoreProvider provider;
+
+    /**
+     * Primary keys hardly ever change, but avoid hitting the catalog on every
+     * request
+     */
+    private final Cache<String, Keys> cache = CacheBuilder.newBuilder().expireAfterWrite(Duration.ofMinutes(1))
+            .maximumSize(10_000).build();
+
+    PostgisUniqueKeyResolver(@NonNull SchemaMultiplexingPostgisDataStoreProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public Optional<UniqueKey> uniqueKey(@NonNull String typeName) {
+        return keys(typeName).uniqueKey();
+    }
+
+    @Override
+    public List<String> hiddenAttributes(@NonNull String typeName) {
+        return keys(typeName).hidden();
+    }
+
+    private Keys keys(String typeName) {
+        try {
+            return cache.get(typeName, () -> load(typeName));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Keys load(String typeName) {
+        PostgisTable table = provider.resolveTable(typeName);
+        if (!PostgisDataStoreProvider.isExposePrimaryKeyColumns(table.dataStore(), table.table())) {
+            return Keys.NONE;
+        }
+        SimpleFeatureType schema = schema(table);
+        List<String> columns = table.primaryKeyColumns(provider.getDataSource());
+        List<String> exposed = columns.stream().filter(column -> schema.getDescriptor(column) != null).toList();
+        if (columns.size() != 1 || exposed.size() != 1) {
+            return new Keys(exposed, Optional.empty());
+        }
+        // JDBCDataStore feature ids are <table name>.<primary key value>
+        final String fidPrefix = table.table() + ".";
+        Function<SimpleFeature, Object> valueOf = feature -> {
+            String fid = feature.getID();
+            return fid.startsWith(fidPrefix) ? fid.substring(fidPrefix.length()) : fid;
+        };
+        return new Keys(exposed, Optional.of(new UniqueKey(exposed.get(0), true, valueOf)));
+    }
+
+    private SimpleFeatureType schema(PostgisTable table) {
+        try {
+            return table.dataStore().getSchema(table.table());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
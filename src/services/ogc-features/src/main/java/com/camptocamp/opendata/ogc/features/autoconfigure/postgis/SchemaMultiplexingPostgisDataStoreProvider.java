@@ -1,11 +1,14 @@
 package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
 
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
 import org.geotools.api.data.DataStore;
+import org.geotools.jdbc.JDBCDataStore;
 
 import com.camptocamp.geotools.data.decorate.PrefixingDataStore;
 import com.camptocamp.opendata.ogc.features.repository.AbstractDataStoreProvider;
@@ -33,10 +36,13 @@ class SchemaMultiplexingPostgisDataStoreProvider extends AbstractDataStoreProvid
 
     private final SchemaProviders schemaProviders;
 
+    private volatile boolean tracksSchemaChanges;
+
     public SchemaMultiplexingPostgisDataStoreProvider(PostgisSchemasConfiguration config, DataSource dataSource) {
         this.config = config;
         this.dataSource = dataSource;
         this.schemaProviders = new SchemaProviders(config);
+        this.schemaProviders.setSchemaChangeListener(this::fireSchemaChange);
     }
 
     /**
@@ -49,6 +55,23 @@ class SchemaMultiplexingPostgisDataStoreProvider extends AbstractDataStoreProvid
         return new SchemaMultiplexingPostgisDataStore(this);
     }
 
+    /**
+     * The collections, by schema-prefixed type name, whose tables primary key
+     * columns the per-schema data stores shall expose as attributes. Only affects
+     * data stores created afterwards.
+     */
+    public void setExposePrimaryKeys(@NonNull Predicate<String> exposePrimaryKeys) {
+        schemaProviders.setExposePrimaryKeys(exposePrimaryKeys);
+    }
+
+    /**
+     * Fetch size settings of the per-schema data stores. Only affects data stores
+     * created afterwards.
+     */
+    public void setFetch(@NonNull PostgisFetchConfiguration fetch) {
+        schemaProviders.setFetch(fetch);
+    }
+
     @Override
     public DataSource getDataSource() {
         return dataSource;
@@ -71,13 +94,24 @@ class SchemaMultiplexingPostgisDataStoreProvider extends AbstractDataStoreProvid
 
     /**
      * @return the prefixing datastore for a given postgres schema, may alias the
-     *         schema name for the returned datastore feature types
+     *         schema name for the returned datastore feature types. The same
+     *         instance is returned until the schema's data store is disposed or
+     *         re-created
      */
     public PrefixingDataStore getDataStore(String postgresSchema) {
-        DataStoreProvider plainStoreProvider = getProvider(postgresSchema);
-        DataStore plainStore = plainStoreProvider.get();
-        String prefix = config.prefix(postgresSchema);
-        return new PrefixingDataStore(plainStore, () -> prefix);
+        return schemaProviders.getDataStore(postgresSchema, dataSource);
+    }
+
+    /**
+     * @return the PostgreSQL table and plain datastore backing a given
+     *         schema-prefixed type name
+     */
+    public PostgisTable resolveTable(@NonNull String schemaPrefixedTypeName) {
+        String schema = getSchema(schemaPrefixedTypeName);
+        String prefix = config.prefix(schema);
+        String table = schemaPrefixedTypeName.substring(prefix.length());
+        JDBCDataStore plainStore = (JDBCDataStore) getProvider(schema).get();
+        return new PostgisTable(schema, table, plainStore);
     }
 
     /**
@@ -88,6 +122,35 @@ class SchemaMultiplexingPostgisDataStoreProvider extends AbstractDataStoreProvid
         return schemaProviders.getProvider(postgresSchema, dataSource);
     }
 
+    /**
+     * @return the plain datastore providers created so far, keyed by postgres
+     *         schema
+     */
+    public Map<String, PostgisDataStoreProvider> getProvidersBySchema() {
+        return schemaProviders.getProvidersBySchema();
+    }
+
+    /**
+     * Discards the cached feature types for the given tables of a postgres schema,
+     * and notifies the schema change listeners
+     */
+    public void evict(@NonNull String postgresSchema, @NonNull Set<String> tables) {
+        schemaProviders.evict(postgresSchema, tables);
+        fireSchemaChange();
+    }
+
+    @Override
+    public boolean tracksSchemaChanges() {
+        return tracksSchemaChanges;
+    }
+
+    /**
+     * Set by {@link PostgisCatalogChangeDetector} while it's running
+     */
+    void setTracksSchemaChanges(boolean tracksSchemaChanges) {
+        this.tracksSchemaChanges = tracksSchemaChanges;
+    }
+
     public Stream<DataStore> getDataStores() {
         Set<String> schemaNames = getSchemas();
         return schemaNames.stream().map(this::getDataStore);
@@ -97,6 +160,20 @@ class SchemaMultiplexingPostgisDataStoreProvider extends AbstractDataStoreProvid
         return schemaProviders.getSchemas(dataSource);
     }
 
+    /**
+     * Reloads the visible schemas, creating the data stores for new ones, and
+     * replaces the snapshot returned by {@link #getSchemas()}
+     *
+     * @see PostgisSchemasRefresher
+     */
+    public Set<String> refreshSchemas() {
+        return schemaProviders.refresh(dataSource, true);
+    }
+
+    public boolean isSchemaRefreshEnabled() {
+        return schemaProviders.refreshEnabled();
+    }
+
     /**
      * Call chain:
      * {@code super.destroy() -> SchemaMultiplexingPostgisDataStore.dispose() -> this.disposeAll()}
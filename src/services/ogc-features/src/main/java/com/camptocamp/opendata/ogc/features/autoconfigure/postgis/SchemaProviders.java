@@ -1,7 +1,6 @@
 package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -9,25 +8,35 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
+import org.geotools.api.data.DataStore;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import com.camptocamp.geotools.data.decorate.PrefixingDataStore;
 import com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisSchemasConfiguration.Refresh;
 import com.camptocamp.opendata.ogc.features.repository.DataStoreProvider;
 import com.google.common.collect.Sets;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Aids {@link SchemaMultiplexingPostgisDataStoreProvider} in obtaining a
  * {@link PostgisDataStoreProvider} for each visible postgres schema, and to
  * maintain the list of visible schemas up to date.
+ * <p>
+ * Also caches the {@link PrefixingDataStore} decorating each schema's data
+ * store, so that its renamed feature types and feature sources are reused
+ * across requests. A schema's decorator is discarded when its provider is
+ * {@link #dispose(String) disposed}, or re-created if the provider's data store
+ * or the schema's type name prefix changed.
  * 
  * @see PostgisSchemasConfiguration
  */
@@ -37,92 +46,188 @@ class SchemaProviders {
 
     private final @NonNull PostgisSchemasConfiguration config;
 
+    /**
+     * The collections, by schema-prefixed type name, whose primary key columns
+     * shall be exposed as attributes
+     */
+    private @Setter @NonNull Predicate<String> exposePrimaryKeys = typeName -> false;
+
+    /**
+     * Fetch size settings of the data stores
+     */
+    private @Setter @NonNull PostgisFetchConfiguration fetch = new PostgisFetchConfiguration();
+
+    /**
+     * Called when schemas are added or removed, or a schema data store disposed
+     */
+    private @Setter Runnable schemaChangeListener = () -> {
+    };
+
     private final Lock schemaReloadLock = new ReentrantLock();
-    private Instant cachedSchemasLastUpdated = Instant.ofEpochMilli(0);
-    private Set<String> cachedSchemas;
+
+    /**
+     * Immutable snapshot of the visible schemas, replaced as a whole on each
+     * {@link #refresh}
+     */
+    private volatile Set<String> schemas;
 
     /**
      * Map of postgis datastore providers by PostgreSQL schema name (not alias)
      */
     private Map<String, PostgisDataStoreProvider> providersBySchema = new ConcurrentHashMap<>();
 
-    public Set<String> getSchemas(DataSource dataSource) {
+    /**
+     * The prefixing decorator of a schema's data store, the decorated store, and
+     * the prefix it applies
+     */
+    private record DecoratedStore(DataStore plain, String prefix, PrefixingDataStore prefixing) {
+    }
 
-        if (!timeoutEnabled()) {
-            Set<String> schemas = loadVisibleSchemas(dataSource);
-            cleanupProviders(schemas);
-            return schemas;
-        }
+    /**
+     * Map of prefixing datastores by PostgreSQL schema name (not alias)
+     */
+    private Map<String, DecoratedStore> decoratedBySchema = new ConcurrentHashMap<>();
 
-        if (shallUpdateSchemaCache()) {
+    /**
+     * Returns the visible schemas.
+     * <p>
+     * If {@link Refresh#isEnabled() refresh} is enabled, returns the latest
+     * snapshot taken by the background {@link PostgisSchemasRefresher}, and only
+     * loads them on the calling thread if there's no snapshot yet (e.g. at startup
+     * or after {@link #disposeAll()}). Otherwise the schemas are loaded on each
+     * call.
+     */
+    public Set<String> getSchemas(DataSource dataSource) {
+        if (!refreshEnabled()) {
+            Set<String> visible = loadVisibleSchemas(dataSource);
+            cleanupProviders(visible);
+            return visible;
+        }
+        Set<String> snapshot = this.schemas;
+        if (null == snapshot) {
             schemaReloadLock.lock();
             try {
-                if (shallUpdateSchemaCache()) {
-                    log.info("reloading postgis schemas");
-                    Set<String> schemas = loadVisibleSchemas(dataSource);
-                    cleanupProviders(schemas);
-                    cachedSchemas = schemas;
-                    cachedSchemasLastUpdated = Instant.now();
+                snapshot = this.schemas;
+                if (null == snapshot) {
+                    snapshot = refresh(dataSource, false);
                 }
             } finally {
                 schemaReloadLock.unlock();
             }
         }
-        return cachedSchemas;
+        return snapshot;
+    }
+
+    /**
+     * Reloads the visible schemas and atomically replaces the snapshot returned by
+     * {@link #getSchemas}, disposing the providers of removed schemas.
+     *
+     * @param warmUp whether to create the data stores for the newly appeared
+     *               schemas before publishing the new snapshot, for the first
+     *               requests against them not to pay for it
+     * @return the new snapshot
+     */
+    public Set<String> refresh(@NonNull DataSource dataSource, boolean warmUp) {
+        schemaReloadLock.lock();
+        try {
+            Set<String> previous = this.schemas;
+            Set<String> visible = Collections.unmodifiableSet(loadVisibleSchemas(dataSource));
+            cleanupProviders(visible);
+            if (warmUp) {
+                Sets.difference(visible, providersBySchema.keySet()).immutableCopy()
+                        .forEach(schema -> warmUp(schema, dataSource));
+            }
+            this.schemas = visible;
+            if (null != previous && !previous.equals(visible)) {
+                log.info("gone schemas: {}, new schemas: {}", Sets.difference(previous, visible),
+                        Sets.difference(visible, previous));
+                schemaChangeListener.run();
+            }
+            return visible;
+        } finally {
+            schemaReloadLock.unlock();
+        }
+    }
+
+    private void warmUp(String schema, DataSource dataSource) {
+        try {
+            getProvider(schema, dataSource).get();
+        } catch (RuntimeException e) {
+            log.warn("Error creating DataStore for schema {}: {}", schema, e.getMessage());
+        }
     }
 
     public List<PostgisDataStoreProvider> getProviders() {
         return List.copyOf(providersBySchema.values());
     }
 
+    /**
+     * @return the currently active data store providers keyed by PostgreSQL
+     *         schema name
+     */
+    public Map<String, PostgisDataStoreProvider> getProvidersBySchema() {
+        return Map.copyOf(providersBySchema);
+    }
+
     public DataStoreProvider getProvider(@NonNull String schema, @NonNull DataSource dataSource) {
         return providersBySchema.computeIfAbsent(schema, name -> createProvider(name, dataSource));
     }
 
+    /**
+     * @return the cached prefixing decorator for the schema's data store, creating
+     *         it if there's none yet, the provider re-created its data store, or
+     *         the schema's prefix configuration changed
+     */
+    public PrefixingDataStore getDataStore(@NonNull String schema, @NonNull DataSource dataSource) {
+        DataStore plain = getProvider(schema, dataSource).get();
+        String prefix = config.prefix(schema);
+        DecoratedStore decorated = decoratedBySchema.get(schema);
+        if (null == decorated || decorated.plain() != plain || !decorated.prefix().equals(prefix)) {
+            decorated = new DecoratedStore(plain, prefix, new PrefixingDataStore(plain, () -> prefix));
+            decoratedBySchema.put(schema, decorated);
+        }
+        return decorated.prefixing();
+    }
+
+    /**
+     * Discards the cached feature types for the given tables of a schema, both in
+     * its data store and in its prefixing decorator
+     */
+    public void evict(@NonNull String schema, @NonNull Set<String> tables) {
+        PostgisDataStoreProvider provider = providersBySchema.get(schema);
+        if (null != provider) {
+            provider.evict(tables);
+        }
+        DecoratedStore decorated = decoratedBySchema.get(schema);
+        if (null != decorated) {
+            decorated.prefixing().evict(tables);
+        }
+    }
+
     /**
      * Call chain:
      * {@code super.destroy() -> SchemaMultiplexingPostgisDataStore.dispose() -> this.disposeAll()}
      */
     public void disposeAll() {
         Set.copyOf(this.providersBySchema.keySet()).forEach(this::dispose);
-        cachedSchemas = null;
+        schemas = null;
     }
 
     public void dispose(String schema) {
+        decoratedBySchema.remove(schema);
         PostgisDataStoreProvider provider = this.providersBySchema.remove(schema);
         if (provider != null) {
             provider.destroy();
+            schemaChangeListener.run();
         }
     }
 
     private void cleanupProviders(Set<String> actualSchemas) {
         Set<String> usedSchemas = Set.copyOf(this.providersBySchema.keySet());
-        Set<String> goneSchemas = Sets.difference(usedSchemas, actualSchemas);
-        List<String> newSchemas = Sets.difference(actualSchemas, usedSchemas).stream().filter(config::includeSchema)
-                .toList();
-
-        if (!goneSchemas.isEmpty() || !newSchemas.isEmpty()) {
-            log.info("gone schemas: {}, new schemas: {}", goneSchemas, newSchemas);
-
-            goneSchemas.forEach(this::disposeRemovedSchema);
-        }
-    }
-
-    private boolean shallUpdateSchemaCache() {
-        return null == cachedSchemas || schemaCacheExpired();
-    }
-
-    private boolean schemaCacheExpired() {
-        Instant expiresAt = cacheExpiringTime();
-        return Instant.now().isAfter(expiresAt);
-    }
-
-    private Instant cacheExpiringTime() {
-        Duration cacheTTL = refreshSettings().getInterval();
-        return cachedSchemasLastUpdated.plus(cacheTTL);
+        Sets.difference(usedSchemas, actualSchemas).forEach(this::disposeRemovedSchema);
     }
 
-    private boolean timeoutEnabled() {
+    boolean refreshEnabled() {
         return refreshSettings().isEnabled();
     }
 
@@ -145,7 +250,9 @@ class SchemaProviders {
     }
 
     private PostgisDataStoreProvider createProvider(String schema, DataSource dataSource) {
-        return PostgisDataStoreProvider.newInstance(dataSource, schema);
+        PostgisDataStoreProvider provider = PostgisDataStoreProvider.newInstance(dataSource, schema, false, fetch);
+        provider.setExposePrimaryKeys(table -> exposePrimaryKeys.test(config.prefix(schema) + table));
+        return provider;
     }
 
 }
@@ -0,0 +1,83 @@
+package com.camptocamp.opendata.ogc.features.exports;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * State of an export of a collection's items to a file, shared by all the
+ * identical requests made while it's current
+ *
+ * @see ExportJobs
+ */
+@Getter
+public class ExportJob {
+
+    public enum Status {
+        ACCEPTED, RUNNING, SUCCESSFUL, FAILED
+    }
+
+    private final @NonNull String id;
+    private final @NonNull String collectionId;
+    private final @NonNull MimeTypes format;
+    /**
+     * Change version of the collection when the job was submitted, {@code null}
+     * if the backend can't tell
+     */
+    private final String version;
+    private final @NonNull Instant created;
+
+    private volatile @NonNull Status status = Status.ACCEPTED;
+    private volatile Instant finished;
+    private volatile String message;
+    private volatile Path file;
+    private volatile long size;
+    private volatile @NonNull Instant lastAccess;
+
+    ExportJob(@NonNull String collectionId, @NonNull MimeTypes format, String version, @NonNull Instant created) {
+        this.id = UUID.randomUUID().toString();
+        this.collectionId = collectionId;
+        this.format = format;
+        this.version = version;
+        this.created = created;
+        this.lastAccess = created;
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCESSFUL || status == Status.FAILED;
+    }
+
+    /**
+     * @return the strong entity tag of the results, which never change for a
+     *         given job
+     */
+    public String etag() {
+        return "\"%s\"".formatted(id);
+    }
+
+    void touch(Instant now) {
+        this.lastAccess = now;
+    }
+
+    void running() {
+        this.status = Status.RUNNING;
+    }
+
+    void succeeded(@NonNull Path file, long size, @NonNull Instant now) {
+        this.file = file;
+        this.size = size;
+        this.finished = now;
+        this.status = Status.SUCCESSFUL;
+    }
+
+    void failed(String message, @NonNull Instant now) {
+        this.message = message;
+        this.finished = now;
+        this.status = Status.FAILED;
+    }
+}
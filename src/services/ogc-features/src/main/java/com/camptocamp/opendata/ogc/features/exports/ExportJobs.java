@@ -0,0 +1,331 @@
+package com.camptocamp.opendata.ogc.features.exports;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.FileSystemUtils;
+
+import com.camptocamp.opendata.model.DataQuery;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the asynchronous exports of collection items to files, encoded by the
+ * same {@link HttpMessageConverter message converters} as the synchronous
+ * responses.
+ * <p>
+ * Jobs are keyed by the data query and format, so that identical requests
+ * share the job running or finished already, as long as the
+ * {@link CollectionRepository#changeVersion(String) change version} of the
+ * collection is the same as when the job was submitted. Otherwise a new job
+ * replaces it, and the results of the superseded one are deleted. When the
+ * backend can't tell the change version, only running jobs are shared, for
+ * finished results not to outlive changes to the data.
+ * <p>
+ * Results are written to a subdirectory of the configured directory created
+ * for this instance, and deleted with it on shutdown, leaving anything else in
+ * the configured directory alone. At most {@code max-pending} jobs wait or run
+ * at a time, and the least recently requested results are deleted once they
+ * take more than {@code max-disk-size}.
+ *
+ * @see ExportsConfiguration
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.exports")
+public class ExportJobs implements DisposableBean {
+
+    private final ExportsConfiguration config;
+    private final CollectionRepository repository;
+    private final Supplier<List<HttpMessageConverter<?>>> converters;
+    private final Clock clock;
+
+    private final Path directory;
+    private final ExecutorService executor;
+
+    private final Map<String, ExportJob> jobs = new HashMap<>();
+    private final Map<String, ExportJob> current = new HashMap<>();
+
+    /**
+     * @param converters supplies the message converters, called when the first
+     *                   job runs, once the web MVC configuration is set up
+     */
+    public ExportJobs(@NonNull ExportsConfiguration config, @NonNull CollectionRepository repository,
+            @NonNull Supplier<List<HttpMessageConverter<?>>> converters) {
+        this(config, repository, converters, Clock.systemUTC());
+    }
+
+    ExportJobs(@NonNull ExportsConfiguration config, @NonNull CollectionRepository repository,
+            @NonNull Supplier<List<HttpMessageConverter<?>>> converters, @NonNull Clock clock) {
+        this.config = config;
+        this.repository = repository;
+        this.converters = converters;
+        this.clock = clock;
+        this.directory = directory(config);
+        this.executor = Executors.newFixedThreadPool(config.getMaxConcurrent(),
+                new ThreadFactoryBuilder().setNameFormat("export-%d").setDaemon(true).build());
+        log.info("Storing export results in {}", directory);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * @return how long clients should wait before retrying a
+     *         {@link #submit rejected} request
+     */
+    public Duration getRetryAfter() {
+        return config.getRetryAfter();
+    }
+
+    /**
+     * @return the current job for the query and format, submitting a new one
+     *         unless there's one already for the same collection change version
+     * @throws RejectedExecutionException if there are {@code max-pending} jobs
+     *                                    waiting or running already
+     */
+    public ExportJob submit(@NonNull DataQuery query, @NonNull MimeTypes format) {
+        final String collectionId = query.getLayerName();
+        final String version = repository.changeVersion(collectionId).orElse(null);
+        final String key = "%s:%s".formatted(format.getShortName(), query);
+        final Instant now = clock.instant();
+        final ExportJob job;
+        final boolean shared;
+        List<ExportJob> removed = new ArrayList<>();
+        synchronized (this) {
+            expire(now, removed);
+            ExportJob previous = current.get(key);
+            shared = null != previous && previous.getStatus() != ExportJob.Status.FAILED
+                    && (null == version ? !previous.isFinished() : version.equals(previous.getVersion()));
+            if (shared) {
+                previous.touch(now);
+                job = previous;
+            } else if (pending() >= config.getMaxPending()) {
+                job = null;
+            } else {
+                if (null != previous) {
+                    jobs.remove(previous.getId());
+                    removed.add(previous);
+                }
+                job = new ExportJob(collectionId, format, version, now);
+                jobs.put(job.getId(), job);
+                current.put(key, job);
+            }
+        }
+        removed.forEach(this::delete);
+        if (shared) {
+            return job;
+        }
+        if (null == job) {
+            throw new RejectedExecutionException(
+                    "%d export jobs waiting or running already".formatted(config.getMaxPending()));
+        }
+        log.debug("Submitting export job {} for {} as {}, version {}", job.getId(), query, format, version);
+        executor.execute(() -> run(job, query));
+        return job;
+    }
+
+    public Optional<ExportJob> find(@NonNull String id) {
+        final Instant now = clock.instant();
+        List<ExportJob> removed = new ArrayList<>();
+        final ExportJob job;
+        synchronized (this) {
+            expire(now, removed);
+            job = jobs.get(id);
+        }
+        removed.forEach(this::delete);
+        if (null != job) {
+            job.touch(now);
+        }
+        return Optional.ofNullable(job);
+    }
+
+    /**
+     * Publishes the {@literal exports.jobs} gauge, with the number of jobs
+     * waiting or running, and the {@literal exports.disk.size} gauge, in bytes
+     */
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("exports.jobs", this, ExportJobs::pending).description("Export jobs waiting or running")
+                .register(registry);
+        Gauge.builder("exports.disk.size", this, ExportJobs::diskSize).baseUnit("bytes")
+                .description("Size of the export results on disk").register(registry);
+    }
+
+    synchronized long pending() {
+        return jobs.values().stream().filter(job -> !job.isFinished()).count();
+    }
+
+    synchronized long diskSize() {
+        return jobs.values().stream().mapToLong(ExportJob::getSize).sum();
+    }
+
+    /**
+     * Deletes this instance's directory, and the results in it
+     */
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        FileSystemUtils.deleteRecursively(directory.toFile());
+    }
+
+    /**
+     * Removes the finished jobs whose results were not requested for the
+     * configured retention period
+     */
+    private void expire(Instant now, List<ExportJob> removed) {
+        Instant oldest = now.minus(config.getRetention());
+        Iterator<ExportJob> it = jobs.values().iterator();
+        while (it.hasNext()) {
+            ExportJob job = it.next();
+            if (job.isFinished() && job.getLastAccess().isBefore(oldest)) {
+                it.remove();
+                current.values().remove(job);
+                removed.add(job);
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently requested finished jobs other than
+     * {@code finished} until the results on disk fit in the configured maximum
+     */
+    private void evict(ExportJob finished, List<ExportJob> removed) {
+        final long max = config.getMaxDiskSize().toBytes();
+        long total = diskSize();
+        if (total <= max) {
+            return;
+        }
+        List<ExportJob> candidates = jobs.values().stream().filter(job -> job != finished)
+                .filter(job -> null != job.getFile()).sorted(Comparator.comparing(ExportJob::getLastAccess))
+                .toList();
+        for (ExportJob job : candidates) {
+            if (total <= max) {
+                break;
+            }
+            jobs.remove(job.getId());
+            current.values().remove(job);
+            removed.add(job);
+            total -= job.getSize();
+        }
+    }
+
+    private void run(ExportJob job, DataQuery query) {
+        job.running();
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(directory, job.getId(), ".tmp");
+            FeatureCollection collection = repository.query(query).orElseThrow(
+                    () -> new IllegalStateException("Collection %s not found".formatted(job.getCollectionId())));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                write(collection, job.getFormat(), out);
+            }
+            Path file = directory.resolve(job.getId());
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            final long size = Files.size(file);
+            List<ExportJob> evicted = new ArrayList<>();
+            // sizes are recorded and evicted under the same lock, for jobs finishing
+            // at the same time to account for each other
+            synchronized (this) {
+                job.succeeded(file, size, clock.instant());
+                evict(job, evicted);
+            }
+            evicted.forEach(this::delete);
+            if (!evicted.isEmpty()) {
+                log.debug("Deleted the results of {} export jobs over the maximum disk size", evicted.size());
+            }
+            log.debug("Export job {} succeeded, {} bytes", job.getId(), job.getSize());
+            if (!tracked(job)) {
+                // superseded while running
+                delete(file);
+            }
+        } catch (Exception e) {
+            log.warn("Export job {} for {} failed", job.getId(), query, e);
+            // the cause may tell about the database, it's only logged
+            job.failed("Export failed", clock.instant());
+            delete(tmp);
+        }
+    }
+
+    private synchronized boolean tracked(ExportJob job) {
+        return jobs.containsKey(job.getId());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(FeatureCollection collection, MimeTypes format, OutputStream out) throws IOException {
+        final MediaType mediaType = MediaType.asMediaType(format.getMimeType());
+        HttpMessageConverter<FeatureCollection> converter = (HttpMessageConverter<FeatureCollection>) converters
+                .get().stream().filter(c -> c.canWrite(FeatureCollection.class, mediaType)).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No encoder for %s".formatted(mediaType)));
+        final HttpHeaders headers = new HttpHeaders();
+        converter.write(collection, mediaType, new HttpOutputMessage() {
+            public @Override OutputStream getBody() {
+                return out;
+            }
+
+            public @Override HttpHeaders getHeaders() {
+                return headers;
+            }
+        });
+    }
+
+    private void delete(ExportJob job) {
+        delete(job.getFile());
+    }
+
+    private static void delete(Path file) {
+        if (null == file) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Unable to delete export file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * @return a new directory for this instance's results, in the configured or
+     *         temporary directory
+     */
+    private static Path directory(ExportsConfiguration config) {
+        try {
+            Path parent = config.getDirectory();
+            if (null == parent) {
+                return Files.createTempDirectory("data-api-exports-");
+            }
+            return Files.createTempDirectory(Files.createDirectories(parent), "data-api-exports-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the exports directory", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.camptocamp.opendata.ogc.features.exports;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_RANGES;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.IF_RANGE;
+import static org.springframework.http.HttpHeaders.RANGE;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import com.camptocamp.opendata.ogc.features.http.caching.EntityTags;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+
+/**
+ * Writes the results of a {@link ExportJob#isFinished() successful} export job
+ * to the response, honoring conditional and single range requests so that
+ * clients can revalidate and resume downloads.
+ * <p>
+ * The file is handed over to Tomcat's {@literal sendfile} support when the
+ * connector offers it, for the kernel to copy it to the socket. Otherwise it's
+ * transferred with {@link FileChannel#transferTo}.
+ */
+public final class ExportResultsWriter {
+
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private ExportResultsWriter() {
+        // utility class
+    }
+
+    public static void write(@NonNull ExportJob job, @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response) throws IOException {
+
+        final String etag = job.etag();
+        response.setHeader(ETAG, etag);
+        response.setHeader(ACCEPT_RANGES, "bytes");
+        if (EntityTags.matches(request.getHeader(IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        job.getFormat().addHeaders(job.getCollectionId(), headers);
+        headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setContentType(job.getFormat().getMimeType().toString());
+
+        final long size = job.getSize();
+        long start = 0;
+        long end = size;
+        final String range = request.getHeader(RANGE);
+        if (null != range && ifRange(request.getHeader(IF_RANGE), etag)) {
+            final List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size) + 1;
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(CONTENT_RANGE, "bytes */%d".formatted(size));
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            // multiple ranges are answered with the whole file
+            if (ranges.size() == 1) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(CONTENT_RANGE, "bytes %d-%d/%d".formatted(start, end - 1, size));
+            }
+        }
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        transfer(job, start, end, request, response);
+    }
+
+    private static void transfer(ExportJob job, long start, long end, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, job.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(job.getFile(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long transferred = file.transferTo(position, end - position, out);
+                if (transferred <= 0) {
+                    throw new IOException("Export file %s truncated".formatted(job.getFile()));
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * @return whether to honor the {@literal Range} header, i.e. there's no
+     *         {@literal If-Range} header or it matches the entity tag, dates
+     *         being too coarse to validate a range
+     */
+    static boolean ifRange(String ifRange, String etag) {
+        return null == ifRange || etag.equals(ifRange.trim());
+    }
+}
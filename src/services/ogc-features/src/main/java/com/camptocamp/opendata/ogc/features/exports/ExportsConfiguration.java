@@ -0,0 +1,97 @@
+package com.camptocamp.opendata.ogc.features.exports;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Configuration properties for the asynchronous export jobs.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * exports:
+ *   enabled: true
+ *   directory: # unset, a temporary directory
+ *   max-concurrent: 2
+ *   max-pending: 100
+ *   retry-after: PT1M
+ *   retention: PT24H
+ *   max-disk-size: 10GB
+ * </code>
+ * </pre>
+ * <p>
+ * Collection items requests with a {@literal Prefer: respond-async} header are
+ * answered with a {@literal 202} status and the location of an export job,
+ * running the same encoders as the synchronous responses into a file. Identical
+ * requests share the same job, and its results are reused until the collection
+ * data changes, as told by the backend's change version (i.e. the PostGIS table
+ * statistics). Backends that can't tell only share the jobs still running,
+ * finished ones are run again.
+ * <p>
+ * At most {@code max-concurrent} jobs run at the same time, further ones wait
+ * for their turn, up to {@code max-pending} jobs waiting or running. New jobs
+ * beyond that get a {@literal 503} status and a {@literal Retry-After} header.
+ * Results not requested for {@code retention} are deleted, and the least
+ * recently requested ones are deleted earlier whenever the results on disk
+ * exceed {@code max-disk-size}.
+ *
+ * @see ExportJobs
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "exports")
+public class ExportsConfiguration {
+
+    /**
+     * Whether to honor {@literal Prefer: respond-async} on items requests
+     */
+    private boolean enabled = true;
+
+    /**
+     * Directory to create the exported files in. Each instance stores them in its
+     * own {@literal data-api-exports-*} subdirectory, deleted on shutdown.
+     * Defaults to the temporary directory.
+     */
+    private Path directory;
+
+    /**
+     * Number of export jobs running at the same time
+     */
+    @Min(1)
+    private int maxConcurrent = 2;
+
+    /**
+     * Number of export jobs waiting or running, further ones are rejected
+     */
+    @Min(1)
+    private int maxPending = 100;
+
+    /**
+     * Delay to retry rejected export requests after
+     */
+    @NotNull
+    private Duration retryAfter = Duration.ofMinutes(1);
+
+    /**
+     * How long the results of a job are kept since they were last requested
+     */
+    @NotNull
+    private Duration retention = Duration.ofHours(24);
+
+    /**
+     * Size of the results kept on disk, the least recently requested ones being
+     * deleted beyond it. The results of a job are kept even if they exceed it
+     * alone.
+     */
+    @NotNull
+    private DataSize maxDiskSize = DataSize.ofGigabytes(10);
+}
@@ -0,0 +1,126 @@
+package com.camptocamp.opendata.ogc.features.http.admission;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Configuration properties for the admission control of collection items
+ * requests.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * admission:
+ *   enabled: true
+ *   bulk-threshold: 1000
+ *   retry-after: PT10S
+ *   bulk:
+ *     max-concurrent: 3
+ *     max-queued: 20
+ *     max-wait: PT30S
+ *     max-concurrent-per-collection: 0
+ *     max-concurrent-per-client: 0
+ *   paged:
+ *     max-concurrent: 32
+ *     max-queued: 200
+ *     max-wait: PT5S
+ *     max-concurrent-per-collection: 0
+ *     max-concurrent-per-client: 0
+ * </code>
+ * </pre>
+ * <p>
+ * Requests for more than {@code bulk-threshold} items, or all of them with a
+ * negative {@literal limit}, are bulk exports, the other ones interactive
+ * paging. Each kind runs in its own {@link Bulkhead bulkhead}, so that a few
+ * exports holding database connections for minutes can't starve map clients
+ * paging through items. Requests that can't be admitted within
+ * {@code max-wait}, or find the queue full, are rejected right away with a
+ * {@literal 503} status and a {@literal Retry-After} header.
+ *
+ * @see AdmissionFilter
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionConfiguration {
+
+    /**
+     * Whether to apply admission control to items requests
+     */
+    private boolean enabled = true;
+
+    /**
+     * Number of items above which a request is a bulk export
+     */
+    @Min(1)
+    private int bulkThreshold = 1000;
+
+    /**
+     * Delay clients are told to wait before retrying a rejected request
+     */
+    @NotNull
+    private Duration retryAfter = Duration.ofSeconds(10);
+
+    @NotNull
+    @Valid
+    private BulkheadSettings bulk = new BulkheadSettings(3, 20, Duration.ofSeconds(30));
+
+    @NotNull
+    @Valid
+    private BulkheadSettings paged = new BulkheadSettings(32, 200, Duration.ofSeconds(5));
+
+    @Data
+    public static class BulkheadSettings {
+
+        /**
+         * Number of requests processed at the same time
+         */
+        @Min(1)
+        private int maxConcurrent;
+
+        /**
+         * Number of requests waiting for their turn, further ones are rejected
+         */
+        @Min(0)
+        private int maxQueued;
+
+        /**
+         * Time a request waits for its turn before being rejected
+         */
+        @NotNull
+        private Duration maxWait;
+
+        /**
+         * Number of requests processed at the same time for a given collection,
+         * further ones are rejected without waiting, {@literal 0} for no limit
+         */
+        @Min(0)
+        private int maxConcurrentPerCollection;
+
+        /**
+         * Number of requests processed at the same time for a given client
+         * address, further ones are rejected without waiting, {@literal 0} for no
+         * limit
+         */
+        @Min(0)
+        private int maxConcurrentPerClient;
+
+        public BulkheadSettings() {
+            this(1, 0, Duration.ZERO);
+        }
+
+        BulkheadSettings(int maxConcurrent, int maxQueued, Duration maxWait) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWait = maxWait;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.camptocamp.opendata.ogc.features.http.admission;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.camptocamp.opendata.ogc.features.http.admission.Bulkhead.Rejection;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Filter admitting collection items requests through separate
+ * {@link Bulkhead bulkheads} for bulk exports and interactive paging, see
+ * {@link AdmissionConfiguration}.
+ * <p>
+ * Admission is decided in front of the controller, and the request holds its
+ * turn until the response is fully written, as that's when the features are
+ * read and the database connection is held. Rejected requests get a
+ * {@literal 503} status and a {@literal Retry-After} header.
+ * <p>
+ * Publishes the following metrics, tagged with the request {@literal class}
+ * ({@literal bulk} or {@literal paged}):
+ * <ul>
+ * <li>{@literal http.server.admission.active}: requests being processed
+ * <li>{@literal http.server.admission.queued}: requests waiting for their turn
+ * <li>{@literal http.server.admission.rejected}: rejected requests, also tagged
+ * with the rejection {@literal reason} ({@literal queue-full},
+ * {@literal timeout}, {@literal collection}, or {@literal client})
+ * </ul>
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.http.admission")
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String ITEMS = "/items";
+
+    private final AdmissionConfiguration config;
+    private final MeterRegistry registry;
+
+    private final Bulkhead bulk;
+    private final Bulkhead paged;
+
+    public AdmissionFilter(@NonNull AdmissionConfiguration config, @NonNull MeterRegistry registry) {
+        this.config = config;
+        this.registry = registry;
+        this.bulk = new Bulkhead("bulk", config.getBulk());
+        this.paged = new Bulkhead("paged", config.getPaged());
+        bulk.bindTo(registry);
+        paged.bindTo(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        final Optional<String> collection = itemsCollection(request.getRequestURI());
+        if (collection.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final Bulkhead bulkhead = isBulk(request.getParameter("limit"), config.getBulkThreshold()) ? bulk : paged;
+        final String client = String.valueOf(request.getRemoteAddr());
+        final Optional<Rejection> rejection;
+        try {
+            rejection = bulkhead.acquire(collection.get(), client);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, bulkhead);
+            return;
+        }
+        if (rejection.isPresent()) {
+            log.debug("Rejecting {} request {} from {}: {}", bulkhead.name(), request.getRequestURI(), client,
+                    rejection.get());
+            Counter.builder("http.server.admission.rejected").tag("class", bulkhead.name())
+                    .tag("reason", rejection.get().tag()).description("Rejected items requests").register(registry)
+                    .increment();
+            reject(response, bulkhead);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bulkhead.release(collection.get(), client);
+        }
+    }
+
+    private void reject(HttpServletResponse response, Bulkhead bulkhead) throws IOException {
+        response.setHeader(RETRY_AFTER, String.valueOf(Math.max(1, config.getRetryAfter().toSeconds())));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "Too many %s requests, please retry later".formatted(bulkhead.name()));
+    }
+
+    /**
+     * @return the collection id of an items request URI, or empty if it's not
+     *         one
+     */
+    static Optional<String> itemsCollection(String requestURI) {
+        if (null == requestURI || !requestURI.endsWith(ITEMS)) {
+            return Optional.empty();
+        }
+        int end = requestURI.length() - ITEMS.length();
+        int start = requestURI.lastIndexOf('/', end - 1);
+        return start < 0 || start == end - 1 ? Optional.empty() : Optional.of(requestURI.substring(start + 1, end));
+    }
+
+    /**
+     * @return whether the {@literal limit} parameter value asks for all the items
+     *         or more than {@code threshold}, invalid values being left for the
+     *         controller to reject
+     */
+    static boolean isBulk(String limit, int threshold) {
+        if (null == limit) {
+            return false;
+        }
+        try {
+            int value = Integer.parseInt(limit.trim());
+            return value < 0 || value > threshold;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
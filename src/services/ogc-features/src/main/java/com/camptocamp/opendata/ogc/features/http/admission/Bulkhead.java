@@ -0,0 +1,145 @@
+package com.camptocamp.opendata.ogc.features.http.admission;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.camptocamp.opendata.ogc.features.http.admission.AdmissionConfiguration.BulkheadSettings;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+
+/**
+ * Bounds the number of requests of a kind processed at the same time, letting
+ * a bounded number of further ones wait for their turn for a bounded time.
+ * <p>
+ * Requests are also capped per collection and per client if so configured,
+ * requests over these caps being rejected right away rather than queued, as
+ * they'd otherwise take the queue slots of other collections or clients.
+ */
+class Bulkhead {
+
+    /**
+     * Why a request was not admitted, used as the rejection metric tag
+     */
+    enum Rejection {
+        QUEUE_FULL, TIMEOUT, COLLECTION, CLIENT;
+
+        String tag() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    private final String name;
+    private final BulkheadSettings settings;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, Integer> perCollection = new ConcurrentHashMap<>();
+    private final Map<String, Integer> perClient = new ConcurrentHashMap<>();
+
+    Bulkhead(@NonNull String name, @NonNull BulkheadSettings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxConcurrent(), true);
+    }
+
+    String name() {
+        return name;
+    }
+
+    int active() {
+        return settings.getMaxConcurrent() - permits.availablePermits();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.server.admission.active", this, Bulkhead::active).tag("class", name)
+                .description("Items requests being processed").register(registry);
+        Gauge.builder("http.server.admission.queued", this, Bulkhead::queued).tag("class", name)
+                .description("Items requests waiting for their turn").register(registry);
+    }
+
+    /**
+     * Waits for the request's turn, to be followed by a call to
+     * {@link #release(String, String)} with the same arguments once processed if
+     * admitted
+     *
+     * @return empty if the request is admitted, or why it's not
+     */
+    Optional<Rejection> acquire(@NonNull String collection, @NonNull String client) throws InterruptedException {
+        if (!increment(perCollection, collection, settings.getMaxConcurrentPerCollection())) {
+            return Optional.of(Rejection.COLLECTION);
+        }
+        if (!increment(perClient, client, settings.getMaxConcurrentPerClient())) {
+            decrement(perCollection, collection);
+            return Optional.of(Rejection.CLIENT);
+        }
+        final Optional<Rejection> rejection;
+        try {
+            rejection = acquirePermit();
+        } catch (InterruptedException e) {
+            decrement(perCollection, collection);
+            decrement(perClient, client);
+            throw e;
+        }
+        if (rejection.isPresent()) {
+            decrement(perCollection, collection);
+            decrement(perClient, client);
+        }
+        return rejection;
+    }
+
+    void release(@NonNull String collection, @NonNull String client) {
+        permits.release();
+        decrement(perCollection, collection);
+        decrement(perClient, client);
+    }
+
+    private Optional<Rejection> acquirePermit() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            return Optional.empty();
+        }
+        if (queued.incrementAndGet() > settings.getMaxQueued()) {
+            queued.decrementAndGet();
+            return Optional.of(Rejection.QUEUE_FULL);
+        }
+        try {
+            boolean acquired = permits.tryAcquire(settings.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+            return acquired ? Optional.empty() : Optional.of(Rejection.TIMEOUT);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return whether the count for {@code key} was incremented, i.e. it was
+     *         below {@code max}, or {@code max} is {@literal 0}
+     */
+    private static boolean increment(Map<String, Integer> counts, String key, int max) {
+        if (max <= 0) {
+            return true;
+        }
+        boolean[] incremented = { false };
+        counts.compute(key, (k, count) -> {
+            int current = null == count ? 0 : count;
+            if (current >= max) {
+                return count;
+            }
+            incremented[0] = true;
+            return current + 1;
+        });
+        return incremented[0];
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+    }
+}
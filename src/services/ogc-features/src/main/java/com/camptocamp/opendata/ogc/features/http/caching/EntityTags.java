@@ -0,0 +1,58 @@
+package com.camptocamp.opendata.ogc.features.http.caching;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import lombok.NonNull;
+
+/**
+ * Entity tag helpers for conditional requests
+ */
+public final class EntityTags {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private EntityTags() {
+        // utility class
+    }
+
+    /**
+     * @return a strong entity tag hashing all the parts, {@code null} parts
+     *         included
+     */
+    public static String strong(@NonNull String... parts) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (String part : parts) {
+            hasher.putString(String.valueOf(part), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        return "\"%s\"".formatted(hasher.hash());
+    }
+
+    /**
+     * @return the weak version of {@code etag}, e.g. for a response body whose
+     *         bytes differ from the tagged representation
+     */
+    public static String weak(@NonNull String etag) {
+        return etag.startsWith(WEAK_PREFIX) ? etag : WEAK_PREFIX + etag;
+    }
+
+    /**
+     * @return whether the {@literal If-None-Match} header matches the entity tag,
+     *         with the weak comparison function
+     */
+    public static boolean matches(String ifNoneMatch, @NonNull String etag) {
+        if (null == ifNoneMatch) {
+            return false;
+        }
+        final String opaque = opaque(etag);
+        return Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+                .anyMatch(tag -> "*".equals(tag) || opaque.equals(opaque(tag)));
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+    }
+}
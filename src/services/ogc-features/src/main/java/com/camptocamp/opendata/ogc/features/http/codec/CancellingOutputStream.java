@@ -0,0 +1,153 @@
+package com.camptocamp.opendata.ogc.features.http.codec;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ScheduledFuture;
+
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+
+import lombok.NonNull;
+
+/**
+ * Response body decorator {@link FeatureCollection#cancel() cancelling} the
+ * feature collection being encoded as soon as writing to the client fails.
+ * <p>
+ * With blocking servlet I/O that's how a client disconnect surfaces, e.g. as
+ * Tomcat's {@literal ClientAbortException}, on the first write once the socket
+ * buffers are full. Cancelling right away frees the backend query and its
+ * connection, instead of relying on the encoder to propagate the error and
+ * close the features stream.
+ * <p>
+ * Until the encoder writes its first byte, e.g. while the backend sorts the
+ * whole table before returning the first row, there's nothing to write for a
+ * disconnect to surface on. Meanwhile, the {@link ClientDisconnectWatchdog}
+ * periodically calls {@link #heartbeat()}, which flushes the response, sending
+ * its headers, and writes the encoding's {@code keepAlive} bytes if it has
+ * any, e.g. leading whitespace for JSON. The first write to a closed connection
+ * usually succeeds, the following ones fail, so encodings with no such bytes
+ * only detect clients that disconnected before the headers were sent.
+ * <p>
+ * Encoders shall call {@link #unwatch()} once done, whether they wrote anything
+ * or not, for the watchdog not to outlive the response.
+ */
+public class CancellingOutputStream extends FilterOutputStream {
+
+    private static final byte[] NO_KEEP_ALIVE = {};
+
+    private final FeatureCollection collection;
+
+    private final byte[] keepAlive;
+
+    private final ScheduledFuture<?> watch;
+
+    /**
+     * Whether the encoder started writing, no more heartbeats after that
+     */
+    private volatile boolean started;
+
+    public CancellingOutputStream(@NonNull OutputStream out, @NonNull FeatureCollection collection) {
+        this(out, collection, NO_KEEP_ALIVE);
+    }
+
+    /**
+     * @param keepAlive bytes the encoding allows to write ahead of its content,
+     *                  any number of times, to probe the client connection
+     */
+    public CancellingOutputStream(@NonNull OutputStream out, @NonNull FeatureCollection collection,
+            @NonNull byte[] keepAlive) {
+        this(out, collection, keepAlive, ClientDisconnectWatchdog.getDefault());
+    }
+
+    CancellingOutputStream(@NonNull OutputStream out, @NonNull FeatureCollection collection,
+            @NonNull byte[] keepAlive, @NonNull ClientDisconnectWatchdog watchdog) {
+        super(out);
+        this.collection = collection;
+        this.keepAlive = keepAlive.clone();
+        this.watch = watchdog.watch(this);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        start();
+        try {
+            out.write(b);
+        } catch (IOException e) {
+            throw cancel(e);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        start();
+        try {
+            out.write(b, off, len);
+        } catch (IOException e) {
+            throw cancel(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            if (started) {
+                out.flush();
+            } else {
+                synchronized (this) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw cancel(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        unwatch();
+        super.close();
+    }
+
+    /**
+     * Stops the heartbeats, waiting for the one in progress if any
+     */
+    public void unwatch() {
+        watch.cancel(false);
+        synchronized (this) {
+            started = true;
+        }
+    }
+
+    /**
+     * Stops the heartbeats before the encoder's first write, for them not to
+     * interleave
+     */
+    private void start() {
+        if (!started) {
+            unwatch();
+        }
+    }
+
+    /**
+     * Probes the client connection, unless the encoder started writing,
+     * cancelling the collection if it's gone
+     */
+    synchronized void heartbeat() {
+        if (started) {
+            return;
+        }
+        try {
+            out.write(keepAlive);
+            out.flush();
+        } catch (IOException e) {
+            started = true;
+            watch.cancel(false);
+            collection.cancel();
+        }
+    }
+
+    private IOException cancel(IOException e) {
+        collection.cancel();
+        return e;
+    }
+}
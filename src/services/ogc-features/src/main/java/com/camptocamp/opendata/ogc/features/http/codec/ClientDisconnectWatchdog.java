@@ -0,0 +1,71 @@
+package com.camptocamp.opendata.ogc.features.http.codec;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import lombok.NonNull;
+
+/**
+ * Periodically probes the client connection of the responses that haven't
+ * written anything yet, i.e. while the backend is still executing the query
+ * and there's no write for a client disconnect to surface on.
+ * <p>
+ * Probing is done by {@link CancellingOutputStream#heartbeat()}, on the
+ * watchdog thread, which also cancels the feature collection, and hence the
+ * backend query, if the client is gone.
+ */
+public class ClientDisconnectWatchdog {
+
+    private static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(2);
+
+    private static ClientDisconnectWatchdog defaultInstance;
+
+    private final Duration interval;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param interval time between probes of a response, also the time a query
+     *                 runs before its response headers are sent
+     */
+    public ClientDisconnectWatchdog(@NonNull Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "client-disconnect-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the watchdog shared by the message converters
+     */
+    public static synchronized ClientDisconnectWatchdog getDefault() {
+        if (null == defaultInstance) {
+            defaultInstance = new ClientDisconnectWatchdog(DEFAULT_INTERVAL);
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Starts probing the client connection of {@code body} until the returned
+     * handle is cancelled
+     */
+    ScheduledFuture<?> watch(@NonNull CancellingOutputStream body) {
+        long millis = interval.toMillis();
+        return scheduler.scheduleWithFixedDelay(body::heartbeat, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops probing, for tests
+     */
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -30,6 +30,10 @@ public enum MimeTypes {
         public @Override boolean supportsItemType(String itemType) {
             return "feature".equals(itemType);
         }
+
+        public @Override boolean isCompressed() {
+            return true;
+        }
     },
     CSV(new MimeType("text", "csv", StandardCharsets.UTF_8), "csv", "Comma Separated Values") {
         public @Override void addHeaders(String collectionId, HttpHeaders headers) {
@@ -41,6 +45,41 @@ public enum MimeTypes {
         public @Override void addHeaders(String collectionId, HttpHeaders headers) {
             contentDisposition(collectionId, "xlsx", headers);
         }
+
+        public @Override boolean isCompressed() {
+            return true;
+        }
+    },
+    GEOPARQUET(new MimeType("application", "vnd.apache.parquet"), "parquet", "GeoParquet") {
+        public @Override void addHeaders(String collectionId, HttpHeaders headers) {
+            contentDisposition(collectionId, "parquet", headers);
+        }
+
+        public @Override boolean supportsItemType(String itemType) {
+            return "feature".equals(itemType);
+        }
+
+        public @Override boolean isCompressed() {
+            return true;
+        }
+    },
+    FLATGEOBUF(new MimeType("application", "flatgeobuf"), "fgb", "FlatGeobuf") {
+        public @Override void addHeaders(String collectionId, HttpHeaders headers) {
+            contentDisposition(collectionId, "fgb", headers);
+        }
+
+        public @Override boolean supportsItemType(String itemType) {
+            return "feature".equals(itemType);
+        }
+    },
+    ARROW(new MimeType("application", "vnd.apache.arrow.stream"), "arrow", "Apache Arrow") {
+        public @Override void addHeaders(String collectionId, HttpHeaders headers) {
+            contentDisposition(collectionId, "arrows", headers);
+        }
+
+        public @Override boolean supportsItemType(String itemType) {
+            return "feature".equals(itemType);
+        }
     };
 
     private final @Getter @NonNull MimeType mimeType;
@@ -80,4 +119,12 @@ public enum MimeTypes {
     public boolean supportsItemType(String itemType) {
         return true;
     }
+
+    /**
+     * @return whether the format is compressed already (e.g. a zip file), and
+     *         hence not worth compressing for transfer
+     */
+    public boolean isCompressed() {
+        return false;
+    }
 }
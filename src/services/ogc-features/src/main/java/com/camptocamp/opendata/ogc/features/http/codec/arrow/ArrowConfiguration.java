@@ -0,0 +1,46 @@
+package com.camptocamp.opendata.ogc.features.http.codec.arrow;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Configuration properties for the Apache Arrow output format.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * arrow:
+ *   batch-size: 65536
+ *   batch-max-size: 32MB
+ * </code>
+ * </pre>
+ * <p>
+ * Features are buffered column by column and written out one record batch at
+ * a time, once {@code batch-size} features or about {@code batch-max-size}
+ * bytes are buffered, whichever comes first.
+ *
+ * @see ArrowFeatureCollectionHttpMessageConverter
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "arrow")
+public class ArrowConfiguration {
+
+    /**
+     * Maximum number of features per record batch
+     */
+    @Min(1)
+    private int batchSize = ArrowFeatureWriter.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Approximate maximum size of a record batch buffered in memory
+     */
+    @NotNull
+    private DataSize batchMaxSize = DataSize.ofBytes(ArrowFeatureWriter.DEFAULT_BATCH_BYTES);
+}
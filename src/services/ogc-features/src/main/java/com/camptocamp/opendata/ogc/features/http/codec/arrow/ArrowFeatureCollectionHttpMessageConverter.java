@@ -0,0 +1,101 @@
+package com.camptocamp.opendata.ogc.features.http.codec.arrow;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.MimeType;
+
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+
+/**
+ * <a href="https://arrow.apache.org/">Apache Arrow</a> IPC stream encoder for
+ * {@link FeatureCollection}, for pandas, polars or DuckDB to load the features
+ * without parsing them.
+ * <p>
+ * Features are streamed out in record batches of up to {@code batchSize} rows,
+ * see {@link ArrowFeatureWriter}, straight from the
+ * {@link FeatureCollection#getSimpleFeatures() backend features}.
+ */
+public class ArrowFeatureCollectionHttpMessageConverter
+        extends AbstractGenericHttpMessageConverter<FeatureCollection> {
+
+    private static final MimeType MIME_TYPE = MimeTypes.ARROW.getMimeType();
+    private static final MediaType MEDIA_TYPE = new MediaType(MIME_TYPE);
+
+    private final int batchSize;
+    private final long batchBytes;
+
+    public ArrowFeatureCollectionHttpMessageConverter() {
+        this(ArrowFeatureWriter.DEFAULT_BATCH_SIZE, ArrowFeatureWriter.DEFAULT_BATCH_BYTES);
+    }
+
+    /**
+     * @param batchSize  maximum number of rows per record batch
+     * @param batchBytes approximate maximum memory used to buffer a record batch
+     */
+    public ArrowFeatureCollectionHttpMessageConverter(int batchSize, long batchBytes) {
+        super(MEDIA_TYPE);
+        this.batchSize = batchSize;
+        this.batchBytes = batchBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override boolean supports(Class<?> clazz) {
+        return FeatureCollection.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override MediaType getDefaultContentType(FeatureCollection message) {
+        return MEDIA_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Columns are derived from the original contents schema, and the rows are
+     * filled from its features, with their geometries in the
+     * {@link FeatureCollection#getTargetSrs() target CRS}
+     */
+    protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+
+        SimpleFeatureType schema = message.getOriginalContents().orElseThrow().getSchema();
+        CancellingOutputStream body = new CancellingOutputStream(outputMessage.getBody(), message);
+        try (ArrowFeatureWriter writer = new ArrowFeatureWriter(body, schema, message.getTargetSrs(), batchSize,
+                batchBytes); Stream<SimpleFeature> features = message.getSimpleFeatures()) {
+            Iterator<SimpleFeature> it = features.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next());
+            }
+            writer.finish();
+        } finally {
+            body.unwatch();
+        }
+    }
+
+    protected @Override FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
+            HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FeatureCollection read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.camptocamp.opendata.ogc.features.http.codec.arrow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+
+/**
+ * Streaming
+ * <a href="https://arrow.apache.org/docs/format/Columnar.html#ipc-streaming-format">Arrow
+ * IPC stream</a> writer, filling the arrow-vector {@link VectorSchemaRoot}
+ * written out by Arrow's {@link ArrowStreamWriter}.
+ * <p>
+ * The columns are mapped from the schema attribute bindings once, see
+ * {@link ColumnType#forBinding(Class)}: the feature id as {@literal FID}, the
+ * non geometry attributes in schema order, and the default geometry encoded as
+ * WKB with the
+ * <a href="https://geoarrow.org/extension-types.html">{@literal geoarrow.wkb}</a>
+ * extension type. Feature attributes are set on the vectors by index, null
+ * values being left unset, and a record batch is written out whenever full,
+ * either by number of rows or by buffered size. The vectors are then reset,
+ * reusing their buffers for the next batch.
+ * <p>
+ * Arrow's memory module needs {@code --add-opens=java.base/java.nio=ALL-UNNAMED}
+ * on Java 17 and later.
+ */
+class ArrowFeatureWriter implements AutoCloseable {
+
+    static final int DEFAULT_BATCH_SIZE = 65_536;
+
+    static final long DEFAULT_BATCH_BYTES = 32L * 1024 * 1024;
+
+    private final OutputStream out;
+    private final int batchSize;
+    private final long batchBytes;
+
+    private final WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN);
+
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final ArrowStreamWriter writer;
+
+    private final FieldVector fid;
+
+    /**
+     * Schema index of the attribute of each of {@link #attributes}
+     */
+    private final int[] attributeIndexes;
+    private final List<ColumnType> attributeTypes = new ArrayList<>();
+    private final List<FieldVector> attributes = new ArrayList<>();
+    private final FieldVector geometry;
+    private final int geometryIndex;
+
+    private int rows;
+
+    /**
+     * @param out        the stream to write to, left open
+     * @param schema     the features schema
+     * @param srs        identifier of the CRS of the default geometries
+     * @param batchSize  maximum number of rows per record batch
+     * @param batchBytes approximate maximum memory used to buffer a record batch,
+     *                   after which it's written out regardless of its number of
+     *                   rows
+     */
+    ArrowFeatureWriter(OutputStream out, SimpleFeatureType schema, String srs, int batchSize, long batchBytes)
+            throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be > 0: " + batchSize);
+        }
+        this.out = out;
+        this.batchSize = batchSize;
+        this.batchBytes = batchBytes;
+
+        List<Field> fields = new ArrayList<>();
+        fields.add(field("FID", ColumnType.UTF8, false, null));
+
+        GeometryDescriptor geometryDescriptor = schema.getGeometryDescriptor();
+        String geometryName = null == geometryDescriptor ? null : geometryDescriptor.getLocalName();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < schema.getAttributeCount(); i++) {
+            AttributeDescriptor att = schema.getDescriptor(i);
+            if (!att.getLocalName().equals(geometryName)) {
+                ColumnType type = ColumnType.forBinding(att.getType().getBinding());
+                fields.add(field(att.getLocalName(), type, true, null));
+                attributeTypes.add(type);
+                indexes.add(i);
+            }
+        }
+        attributeIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        if (null != geometryName) {
+            fields.add(field(geometryName, ColumnType.BINARY, true, Map.of("ARROW:extension:name", "geoarrow.wkb",
+                    "ARROW:extension:metadata", extensionMetadata(srs))));
+        }
+
+        allocator = new RootAllocator();
+        root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        List<FieldVector> vectors = root.getFieldVectors();
+        fid = vectors.get(0);
+        attributes.addAll(vectors.subList(1, 1 + attributeIndexes.length));
+        geometry = null == geometryName ? null : vectors.get(vectors.size() - 1);
+        geometryIndex = null == geometryName ? -1 : schema.indexOf(geometryName);
+        root.allocateNew();
+
+        writer = new ArrowStreamWriter(root, new DictionaryProvider.MapDictionaryProvider(), out);
+        writer.start();
+    }
+
+    private static Field field(String name, ColumnType type, boolean nullable, Map<String, String> metadata) {
+        return new Field(name, new FieldType(nullable, type.arrowType, null, metadata), null);
+    }
+
+    /**
+     * Refers to the CRS by its identifier, {@literal OGC:CRS84} for
+     * {@literal EPSG:4326} as features are output in longitude/latitude order
+     */
+    private static String extensionMetadata(String srs) {
+        if (null == srs) {
+            return "{}";
+        }
+        String crs = "EPSG:4326".equals(srs) || srs.endsWith("CRS84") ? "OGC:CRS84" : srs;
+        return "{\"crs\":\"%s\",\"crs_type\":\"authority_code\"}".formatted(crs);
+    }
+
+    /**
+     * Adds a feature to the current record batch, writing the batch out if full
+     */
+    void write(SimpleFeature feature) throws IOException {
+        ColumnType.UTF8.set(fid, rows, feature.getID());
+        for (int i = 0; i < attributeIndexes.length; i++) {
+            Object value = feature.getAttribute(attributeIndexes[i]);
+            if (null != value) {
+                attributeTypes.get(i).set(attributes.get(i), rows, value);
+            }
+        }
+        if (null != geometry) {
+            Geometry geom = (Geometry) feature.getAttribute(geometryIndex);
+            if (null != geom) {
+                ColumnType.BINARY.set(geometry, rows, wkbWriter.write(geom));
+            }
+        }
+        if (++rows == batchSize || (rows % 1024 == 0 && bufferedBytes() >= batchBytes)) {
+            flushBatch();
+        }
+    }
+
+    private long bufferedBytes() {
+        return root.getFieldVectors().stream().mapToLong(FieldVector::getBufferSize).sum();
+    }
+
+    private void flushBatch() throws IOException {
+        // sets the value count of every vector, filling the offsets of trailing nulls
+        root.setRowCount(rows);
+        writer.writeBatch();
+        root.getFieldVectors().forEach(FieldVector::reset);
+        rows = 0;
+    }
+
+    /**
+     * Writes out the last record batch and the end of stream marker, and flushes
+     * the output stream without closing it
+     */
+    void finish() throws IOException {
+        if (rows > 0) {
+            flushBatch();
+        }
+        writer.end();
+        out.flush();
+    }
+
+    /**
+     * Releases the vectors memory, without closing the output stream
+     */
+    @Override
+    public void close() {
+        root.close();
+        allocator.close();
+    }
+}
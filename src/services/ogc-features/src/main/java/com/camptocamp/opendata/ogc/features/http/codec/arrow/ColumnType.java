@@ -0,0 +1,163 @@
+package com.camptocamp.opendata.ogc.features.http.codec.arrow;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+/**
+ * Arrow column types the feature attributes are mapped to, and how non null
+ * attribute values are set on a {@link FieldVector vector} of the type.
+ */
+enum ColumnType {
+
+    BOOL(ArrowType.Bool.INSTANCE) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((BitVector) vector).setSafe(index, Boolean.TRUE.equals(value) ? 1 : 0);
+        }
+    },
+    INT32(new ArrowType.Int(32, true)) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((IntVector) vector).setSafe(index, ((Number) value).intValue());
+        }
+    },
+    INT64(new ArrowType.Int(64, true)) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((BigIntVector) vector).setSafe(index, ((Number) value).longValue());
+        }
+    },
+    FLOAT32(new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE)) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((Float4Vector) vector).setSafe(index, ((Number) value).floatValue());
+        }
+    },
+    FLOAT64(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((Float8Vector) vector).setSafe(index, ((Number) value).doubleValue());
+        }
+    },
+    UTF8(ArrowType.Utf8.INSTANCE) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((VarCharVector) vector).setSafe(index, value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    },
+    /**
+     * Well-known binary geometries, as encoded by the caller
+     */
+    BINARY(ArrowType.Binary.INSTANCE) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            ((VarBinaryVector) vector).setSafe(index, (byte[]) value);
+        }
+    },
+    /**
+     * Days since the epoch
+     */
+    DATE32(new ArrowType.Date(DateUnit.DAY)) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            final long days;
+            if (value instanceof java.sql.Date date) {
+                days = date.toLocalDate().toEpochDay();
+            } else if (value instanceof LocalDate date) {
+                days = date.toEpochDay();
+            } else {
+                days = Math.floorDiv(((Date) value).getTime(), 86_400_000L);
+            }
+            ((DateDayVector) vector).setSafe(index, (int) days);
+        }
+    },
+    /**
+     * Milliseconds since the epoch, UTC
+     */
+    TIMESTAMP(new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC")) {
+        @Override
+        void set(FieldVector vector, int index, Object value) {
+            final long millis;
+            if (value instanceof Date date) {
+                millis = date.getTime();
+            } else if (value instanceof Instant instant) {
+                millis = instant.toEpochMilli();
+            } else if (value instanceof OffsetDateTime dateTime) {
+                millis = dateTime.toInstant().toEpochMilli();
+            } else if (value instanceof ZonedDateTime dateTime) {
+                millis = dateTime.toInstant().toEpochMilli();
+            } else {
+                millis = ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            ((TimeStampMilliTZVector) vector).setSafe(index, millis);
+        }
+    };
+
+    final ArrowType arrowType;
+
+    ColumnType(ArrowType arrowType) {
+        this.arrowType = arrowType;
+    }
+
+    /**
+     * Sets a non null attribute value, growing the vector buffers as needed
+     */
+    abstract void set(FieldVector vector, int index, Object value);
+
+    static ColumnType forBinding(Class<?> binding) {
+        if (Boolean.class.equals(binding)) {
+            return BOOL;
+        }
+        if (Byte.class.equals(binding) || Short.class.equals(binding) || Integer.class.equals(binding)) {
+            return INT32;
+        }
+        if (Long.class.equals(binding)) {
+            return INT64;
+        }
+        if (Float.class.equals(binding)) {
+            return FLOAT32;
+        }
+        if (BigInteger.class.equals(binding)) {
+            // may not fit in an INT64
+            return UTF8;
+        }
+        if (Number.class.isAssignableFrom(binding)) {
+            return FLOAT64;
+        }
+        if (java.sql.Date.class.equals(binding) || LocalDate.class.equals(binding)) {
+            return DATE32;
+        }
+        if (java.sql.Time.class.equals(binding)) {
+            return UTF8;
+        }
+        if (Date.class.isAssignableFrom(binding) || Instant.class.equals(binding)
+                || OffsetDateTime.class.equals(binding) || ZonedDateTime.class.equals(binding)
+                || LocalDateTime.class.equals(binding)) {
+            return TIMESTAMP;
+        }
+        // including non default geometries, as WKT
+        return UTF8;
+    }
+}
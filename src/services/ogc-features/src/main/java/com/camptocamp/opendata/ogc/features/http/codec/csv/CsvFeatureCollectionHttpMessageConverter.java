@@ -1,14 +1,19 @@
 package com.camptocamp.opendata.ogc.features.http.codec.csv;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
-import org.geotools.util.Converters;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.simple.SimpleFeatureCollection;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
@@ -17,12 +22,13 @@ import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.util.MimeType;
 
 import com.camptocamp.opendata.model.GeodataRecord;
-import com.camptocamp.opendata.model.GeometryProperty;
-import com.camptocamp.opendata.model.SimpleProperty;
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
 import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
 import com.opencsv.CSVWriter;
 
+import lombok.NonNull;
+
 /**
  * CSV encoder for {@link FeatureCollection} using
  * <a href="https://opencsv.sourceforge.net/">OpenCSV</a>.
@@ -61,8 +67,37 @@ public class CsvFeatureCollectionHttpMessageConverter extends AbstractGenericHtt
     private String lineSeparator = CRLF;
     private boolean quoteAllFields = false;
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    /**
+     * Creates a converter that formats rows on the
+     * {@link ForkJoinPool#commonPool() common pool}, in batches of 1000 rows
+     */
     public CsvFeatureCollectionHttpMessageConverter() {
+        this(ForkJoinPool.commonPool(), 1000, 2 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param executor           where to format row batches on, must run tasks
+     *                           asynchronously for rows to be formatted while the
+     *                           next batch is read
+     * @param batchSize          number of rows per batch
+     * @param maxBatchesInFlight maximum number of batches being formatted or
+     *                           waiting to be written out, bounding memory usage
+     */
+    public CsvFeatureCollectionHttpMessageConverter(@NonNull Executor executor, int batchSize,
+            int maxBatchesInFlight) {
         super(MEDIA_TYPE);
+        if (batchSize < 1 || maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("batchSize and maxBatchesInFlight must be greater than zero");
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = maxBatchesInFlight;
     }
 
     /**
@@ -79,53 +114,36 @@ public class CsvFeatureCollectionHttpMessageConverter extends AbstractGenericHtt
         return MEDIA_TYPE;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Rows are formatted in batches on the {@link #executor}, and written out in
+     * order to a buffered writer using the charset of the response content type.
+     *
+     * @see ParallelCsvWriter
+     */
     protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
             throws IOException, HttpMessageNotWritableException {
 
-        OutputStream body = outputMessage.getBody();
-        CSVWriter writer = new CSVWriter(new OutputStreamWriter(body), separator, quotechar, escapechar, lineSeparator);
+        Charset charset = Optional.ofNullable(outputMessage.getHeaders().getContentType()).map(MediaType::getCharset)
+                .orElse(StandardCharsets.UTF_8);
+        CancellingOutputStream body = new CancellingOutputStream(outputMessage.getBody(), message);
+        Writer out = new BufferedWriter(new OutputStreamWriter(body, charset), BUFFER_SIZE);
 
-        AtomicBoolean headerWritten = new AtomicBoolean();
+        SimpleFeatureType schema = message.getOriginalContents().map(SimpleFeatureCollection::getSchema).orElse(null);
+        ParallelCsvWriter writer = new ParallelCsvWriter(this::newWriter, quoteAllFields, schema, executor,
+                batchSize, maxBatchesInFlight);
         try (Stream<GeodataRecord> features = message.getFeatures()) {
-            features.forEach(rec -> encodeValue(rec, writer, headerWritten));
-        }
-        writer.flush();
-        body.flush();
-    }
-
-    private void encodeValue(GeodataRecord rec, CSVWriter writer, AtomicBoolean headerWritten) {
-        if (headerWritten.compareAndSet(false, true)) {
-            writeHeader(rec, writer);
-        }
-        String[] nextLine = encode(rec);
-        writer.writeNext(nextLine, quoteAllFields);
-    }
-
-    private void writeHeader(GeodataRecord rec, CSVWriter writer) {
-        Stream<String> names = rec.getProperties().stream().map(SimpleProperty::getName);
-        if (null != rec.getGeometry()) {
-            names = Stream.concat(names, Stream.of(rec.getGeometry().getName()));
-        }
-        writer.writeNext(names.toArray(String[]::new));
-    }
-
-    private String[] encode(GeodataRecord rec) {
-        GeometryProperty geometry = rec.getGeometry();
-        List<? extends SimpleProperty<?>> properties = rec.getProperties();
-        String[] values = new String[properties.size() + (geometry == null ? 0 : 1)];
-        for (int i = 0; i < properties.size(); i++) {
-            SimpleProperty<?> p = properties.get(i);
-            String v = encode(p);
-            values[i] = v;
-        }
-        if (null != geometry) {
-            values[values.length - 1] = encode(geometry);
+            writer.write(features.iterator(), out);
+            out.flush();
+            body.flush();
+        } finally {
+            body.unwatch();
         }
-        return values;
     }
 
-    private String encode(SimpleProperty<?> p) {
-        return Converters.convert(p.getValue(), String.class);
+    private CSVWriter newWriter(Writer target) {
+        return new CSVWriter(target, separator, quotechar, escapechar, lineSeparator);
     }
 
     protected @Override FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
@@ -0,0 +1,81 @@
+package com.camptocamp.opendata.ogc.features.http.codec.csv;
+
+import java.math.BigInteger;
+import java.util.UUID;
+
+import org.geotools.util.Converter;
+import org.geotools.util.Converters;
+import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Formats the values of a CSV column, chosen once per column from its
+ * attribute binding so that no per-cell converter lookup is needed.
+ * <p>
+ * Values are formatted the same way {@link Converters#convert(Object, Class)}
+ * would. Types with an unambiguous string representation are formatted
+ * directly, and everything else goes through the GeoTools {@link Converter}
+ * for the value's class, looked up once per class.
+ */
+@FunctionalInterface
+interface CsvValueFormatter {
+
+    /**
+     * @return the formatted value, {@code null} for {@code null} values
+     */
+    String format(Object value);
+
+    CsvValueFormatter TO_STRING = value -> null == value ? null : value.toString();
+
+    CsvValueFormatter GEOMETRY = value -> null == value ? null : ((Geometry) value).toText();
+
+    CsvValueFormatter CONVERTER = value -> {
+        if (null == value || value instanceof String) {
+            return (String) value;
+        }
+        Converter converter = StringConverters.CACHE.get(value.getClass());
+        return null == converter ? null : StringConverters.convert(value, converter);
+    };
+
+    static CsvValueFormatter forBinding(Class<?> binding) {
+        if (null == binding) {
+            return CONVERTER;
+        }
+        if (CharSequence.class.isAssignableFrom(binding) || binding == Integer.class || binding == Long.class
+                || binding == Short.class || binding == Byte.class || binding == BigInteger.class
+                || binding == Boolean.class || binding == UUID.class) {
+            return TO_STRING;
+        }
+        if (Geometry.class.isAssignableFrom(binding)) {
+            return GEOMETRY;
+        }
+        return CONVERTER;
+    }
+
+    /**
+     * Per class cache of the GeoTools converters to {@link String}
+     */
+    static final class StringConverters {
+
+        private StringConverters() {
+            // private constructor, utility class
+        }
+
+        static final ClassValue<Converter> CACHE = new ClassValue<>() {
+            protected @Override Converter computeValue(Class<?> type) {
+                Hints hints = null;
+                return Converters.getConverterFactories(type, String.class).stream()
+                        .map(f -> f.createConverter(type, String.class, hints)).filter(c -> null != c).findFirst()
+                        .orElse(null);
+            }
+        };
+
+        static String convert(Object value, Converter converter) {
+            try {
+                return converter.convert(value, String.class);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.camptocamp.opendata.ogc.features.http.codec.csv;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.model.GeometryProperty;
+import com.camptocamp.opendata.model.SimpleProperty;
+import com.opencsv.CSVWriter;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes {@link GeodataRecord}s as CSV, formatting batches of rows
+ * concurrently while the calling thread keeps reading records.
+ * <p>
+ * The records iterator is only consumed from the calling thread, which groups
+ * them in batches and hands each batch to the {@link Executor} to be formatted
+ * to a string. Formatted batches are written to the target writer by the
+ * calling thread in the order they were read, as soon as the batch at the head
+ * of the queue is done. At most {@code maxBatchesInFlight} batches are pending
+ * at any time, blocking the reader until the oldest one is written out.
+ * <p>
+ * The columns and their {@link CsvValueFormatter formatters} are resolved once
+ * from the first record, using the attribute bindings of the feature type when
+ * available, or the first record's value types otherwise.
+ */
+@RequiredArgsConstructor
+class ParallelCsvWriter {
+
+    private final @NonNull Function<Writer, CSVWriter> csvWriterFactory;
+    private final boolean quoteAllFields;
+    /**
+     * Feature type to resolve the column formatters from, may be {@code null}
+     */
+    private final SimpleFeatureType schema;
+    private final @NonNull Executor executor;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    public void write(Iterator<GeodataRecord> records, Writer out) throws IOException {
+        if (!records.hasNext()) {
+            return;
+        }
+        final GeodataRecord first = records.next();
+        final Columns columns = columns(first);
+
+        CSVWriter headerWriter = csvWriterFactory.apply(out);
+        headerWriter.writeNext(columns.header());
+        headerWriter.flush();
+
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        try {
+            List<GeodataRecord> batch = new ArrayList<>(batchSize);
+            batch.add(first);
+            while (records.hasNext()) {
+                batch.add(records.next());
+                if (batch.size() == batchSize) {
+                    inFlight.add(format(batch, columns));
+                    batch = new ArrayList<>(batchSize);
+                    writeCompleted(inFlight, out);
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.add(format(batch, columns));
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(join(inFlight.poll()));
+            }
+        } finally {
+            inFlight.forEach(f -> f.cancel(false));
+        }
+    }
+
+    /**
+     * Writes out the batches at the head of the queue that are done, and waits
+     * for the oldest ones while there are too many in flight
+     */
+    private void writeCompleted(Deque<CompletableFuture<String>> inFlight, Writer out) throws IOException {
+        while (!inFlight.isEmpty() && (inFlight.size() >= maxBatchesInFlight || inFlight.peek().isDone())) {
+            out.write(join(inFlight.poll()));
+        }
+    }
+
+    private CompletableFuture<String> format(List<GeodataRecord> batch, Columns columns) {
+        return CompletableFuture.supplyAsync(() -> formatBatch(batch, columns), executor);
+    }
+
+    private String formatBatch(List<GeodataRecord> batch, Columns columns) {
+        StringWriter target = new StringWriter();
+        CSVWriter writer = csvWriterFactory.apply(target);
+        for (GeodataRecord rec : batch) {
+            writer.writeNext(columns.format(rec), quoteAllFields);
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return target.toString();
+    }
+
+    private static String join(CompletableFuture<String> batch) throws IOException {
+        try {
+            return batch.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException uio) {
+                throw uio.getCause();
+            }
+            if (cause instanceof RuntimeException rte) {
+                throw rte;
+            }
+            throw e;
+        }
+    }
+
+    private Columns columns(GeodataRecord first) {
+        List<? extends SimpleProperty<?>> properties = first.getProperties();
+        String[] names = new String[properties.size()];
+        CsvValueFormatter[] formatters = new CsvValueFormatter[properties.size()];
+        for (int i = 0; i < names.length; i++) {
+            SimpleProperty<?> property = properties.get(i);
+            names[i] = property.getName();
+            formatters[i] = CsvValueFormatter.forBinding(binding(property));
+        }
+        GeometryProperty geometry = first.getGeometry();
+        return new Columns(names, formatters, null == geometry ? null : geometry.getName());
+    }
+
+    private Class<?> binding(SimpleProperty<?> property) {
+        AttributeDescriptor descriptor = null == schema ? null : schema.getDescriptor(property.getName());
+        if (null != descriptor) {
+            return descriptor.getType().getBinding();
+        }
+        Object value = property.getValue();
+        return null == value ? null : value.getClass();
+    }
+
+    private static record Columns(String[] names, CsvValueFormatter[] formatters, String geometryName) {
+
+        String[] header() {
+            if (null == geometryName) {
+                return names;
+            }
+            String[] header = new String[names.length + 1];
+            System.arraycopy(names, 0, header, 0, names.length);
+            header[names.length] = geometryName;
+            return header;
+        }
+
+        String[] format(GeodataRecord rec) {
+            GeometryProperty geometry = rec.getGeometry();
+            List<? extends SimpleProperty<?>> properties = rec.getProperties();
+            String[] values = new String[properties.size() + (geometry == null ? 0 : 1)];
+            for (int i = 0; i < properties.size(); i++) {
+                CsvValueFormatter formatter = i < formatters.length ? formatters[i] : CsvValueFormatter.CONVERTER;
+                values[i] = formatter.format(properties.get(i).getValue());
+            }
+            if (null != geometry) {
+                values[values.length - 1] = CsvValueFormatter.GEOMETRY.format(geometry.getValue());
+            }
+            return values;
+        }
+    }
+}
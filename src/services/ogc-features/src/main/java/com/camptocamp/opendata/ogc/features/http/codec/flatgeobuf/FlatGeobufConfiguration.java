@@ -0,0 +1,46 @@
+package com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * Configuration properties for the FlatGeobuf output format.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * flatgeobuf:
+ *   spatial-index: true
+ *   index-node-size: 16
+ * </code>
+ * </pre>
+ * <p>
+ * The spatial index lets clients read the features of an area with HTTP range
+ * requests, at the cost of spooling the whole export to a temporary file to
+ * sort it before the first byte is sent. Without it, features are streamed out
+ * as they're read.
+ *
+ * @see FlatGeobufFeatureCollectionHttpMessageConverter
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "flatgeobuf")
+public class FlatGeobufConfiguration {
+
+    /**
+     * Whether to write a packed Hilbert R-tree index ahead of the features
+     */
+    private boolean spatialIndex = true;
+
+    /**
+     * Maximum number of children per index node
+     */
+    @Min(2)
+    @Max(65535)
+    private int indexNodeSize = FlatGeobufWriter.DEFAULT_INDEX_NODE_SIZE;
+}
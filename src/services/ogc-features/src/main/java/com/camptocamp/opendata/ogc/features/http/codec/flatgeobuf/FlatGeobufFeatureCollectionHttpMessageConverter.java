@@ -0,0 +1,115 @@
+package com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.stream.Stream;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.MimeType;
+
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+
+/**
+ * <a href="https://flatgeobuf.org/">FlatGeobuf</a> encoder for
+ * {@link FeatureCollection}.
+ * <p>
+ * With a spatial index, features are spooled to disk and written out in Hilbert
+ * order once all of them are read, see {@link FlatGeobufWriter}. Otherwise
+ * they're streamed out as they come.
+ */
+public class FlatGeobufFeatureCollectionHttpMessageConverter
+        extends AbstractGenericHttpMessageConverter<FeatureCollection> {
+
+    private static final MimeType MIME_TYPE = MimeTypes.FLATGEOBUF.getMimeType();
+    private static final MediaType MEDIA_TYPE = new MediaType(MIME_TYPE);
+
+    private final int indexNodeSize;
+
+    public FlatGeobufFeatureCollectionHttpMessageConverter() {
+        this(FlatGeobufWriter.DEFAULT_INDEX_NODE_SIZE);
+    }
+
+    /**
+     * @param indexNodeSize spatial index node size, or {@literal 0} to stream the
+     *                      features out without a spatial index
+     */
+    public FlatGeobufFeatureCollectionHttpMessageConverter(int indexNodeSize) {
+        super(MEDIA_TYPE);
+        this.indexNodeSize = indexNodeSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override boolean supports(Class<?> clazz) {
+        return FeatureCollection.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override MediaType getDefaultContentType(FeatureCollection message) {
+        return MEDIA_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Columns are derived from the original contents schema, while the features
+     * are the possibly reprojected {@link FeatureCollection#getSimpleFeatures()
+     * features}
+     */
+    protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+
+        SimpleFeatureType schema = message.getOriginalContents().orElseThrow().getSchema();
+        CancellingOutputStream out = new CancellingOutputStream(outputMessage.getBody(), message);
+        int srid = null == schema.getCoordinateReferenceSystem() ? 0 : srid(message.getTargetSrs());
+        FlatGeobufWriter writer = new FlatGeobufWriter(out, schema, message.getCollection().getId(), srid,
+                indexNodeSize);
+        try (Stream<SimpleFeature> features = message.getSimpleFeatures()) {
+            features.forEach(writer::write);
+            writer.finish();
+        } finally {
+            out.unwatch();
+            writer.dispose();
+        }
+    }
+
+    /**
+     * @return the EPSG code of {@code srs}, {@literal 0} if it has none
+     */
+    private static int srid(String srs) {
+        if (srs.endsWith("CRS84")) {
+            // same axis order as the FlatGeobuf coordinates, x being the longitude
+            return 4326;
+        }
+        if (srs.startsWith("EPSG:")) {
+            try {
+                return Integer.parseInt(srs.substring("EPSG:".length()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    protected @Override FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
+            HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FeatureCollection read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+}
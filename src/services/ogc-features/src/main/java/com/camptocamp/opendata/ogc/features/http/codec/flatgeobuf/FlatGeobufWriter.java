@@ -0,0 +1,367 @@
+package com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.data.flatgeobuf.FeatureConversions;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.util.Converters;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.wololo.flatgeobuf.ColumnMeta;
+import org.wololo.flatgeobuf.Constants;
+import org.wololo.flatgeobuf.GeometryConversions;
+import org.wololo.flatgeobuf.HeaderMeta;
+import org.wololo.flatgeobuf.NodeItem;
+import org.wololo.flatgeobuf.PackedRTree;
+import org.wololo.flatgeobuf.PackedRTree.FeatureItem;
+import org.wololo.flatgeobuf.generated.ColumnType;
+import org.wololo.flatgeobuf.generated.GeometryType;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <a href="https://flatgeobuf.org/">FlatGeobuf</a> writer, encoding the header
+ * and features with the GeoTools FlatGeobuf module.
+ * <p>
+ * Without a spatial index ({@code indexNodeSize == 0}) the header is written
+ * along with the first feature and features are streamed out as they come,
+ * with an unknown features count.
+ * <p>
+ * With a spatial index, features are encoded to a spool file as they come,
+ * keeping only their bounds and spool offsets in memory. Once they're all
+ * read, they're sorted along a Hilbert curve and written out after the header
+ * and the {@link PackedRTree packed R-tree} indexing them, which is what lets
+ * clients fetch the features of an area with HTTP range requests.
+ * <p>
+ * The columns are the feature id as {@literal FID} and the non geometry
+ * attributes in schema order, with the values the FlatGeobuf column types
+ * can't hold converted to strings.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf")
+class FlatGeobufWriter {
+
+    static final int DEFAULT_INDEX_NODE_SIZE = 16;
+
+    private static final String FID = "FID";
+
+    private final OutputStream out;
+    private final int indexNodeSize;
+    private final SimpleFeatureType featureType;
+    private final SimpleFeatureBuilder builder;
+    private final HeaderMeta header;
+
+    /**
+     * Encoded feature, size prefixed
+     */
+    private final ByteArrayOutputStream feature = new ByteArrayOutputStream(1024);
+    private boolean headerWritten;
+
+    /**
+     * Spooled features, when indexing
+     */
+    private Path spoolFile;
+    private OutputStream spool;
+    private long spoolSize;
+    private final List<FeatureItem> items = new ArrayList<>();
+
+    /**
+     * @param out           the stream to write to, left open
+     * @param schema        the features schema
+     * @param name          the dataset name
+     * @param srid          the EPSG code of the features CRS, {@literal 0} if
+     *                      unknown
+     * @param indexNodeSize the spatial index node size, {@literal 0} to stream
+     *                      features out without an index
+     */
+    FlatGeobufWriter(OutputStream out, SimpleFeatureType schema, String name, int srid, int indexNodeSize) {
+        if (indexNodeSize == 1 || indexNodeSize < 0 || indexNodeSize > 0xFFFF) {
+            throw new IllegalArgumentException("indexNodeSize must be 0 or within 2 and 65535: " + indexNodeSize);
+        }
+        this.out = out;
+        this.indexNodeSize = indexNodeSize;
+        this.featureType = featureType(schema);
+        this.builder = new SimpleFeatureBuilder(featureType);
+
+        header = new HeaderMeta();
+        header.name = name;
+        header.srid = srid;
+        header.columns = new ArrayList<>();
+        GeometryDescriptor geometry = featureType.getGeometryDescriptor();
+        header.geometryType = null == geometry ? GeometryType.Unknown
+                : GeometryConversions.toGeometryType(geometry.getType().getBinding());
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (att != geometry) {
+                ColumnMeta column = new ColumnMeta();
+                column.name = att.getLocalName();
+                column.type = columnType(att.getType().getBinding());
+                header.columns.add(column);
+            }
+        }
+    }
+
+    /**
+     * @return the type of the features as encoded, {@literal FID} first and
+     *         attribute bindings narrowed to the FlatGeobuf column types
+     */
+    private static SimpleFeatureType featureType(SimpleFeatureType schema) {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName(schema.getName());
+        tb.setCRS(schema.getCoordinateReferenceSystem());
+        tb.add(FID, String.class);
+        GeometryDescriptor geometry = schema.getGeometryDescriptor();
+        for (AttributeDescriptor att : schema.getAttributeDescriptors()) {
+            if (att == geometry) {
+                tb.add(att.getLocalName(), att.getType().getBinding(), schema.getCoordinateReferenceSystem());
+                tb.setDefaultGeometry(att.getLocalName());
+            } else {
+                tb.add(att.getLocalName(), columnBinding(att.getType().getBinding()));
+            }
+        }
+        return tb.buildFeatureType();
+    }
+
+    /**
+     * Writes out or spools a feature
+     *
+     * @throws UncheckedIOException if writing the feature fails
+     */
+    void write(SimpleFeature source) {
+        Geometry geometry = (Geometry) source.getDefaultGeometry();
+        if (null != geometry && geometry.isEmpty()) {
+            geometry = null;
+        }
+        try {
+            encode(source, geometry);
+            if (indexNodeSize == 0) {
+                if (!headerWritten) {
+                    writeHeader(0);
+                }
+                feature.writeTo(out);
+            } else {
+                spool(geometry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void encode(SimpleFeature source, Geometry geometry) throws IOException {
+        builder.reset();
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            String name = att.getLocalName();
+            if (FID.equals(name)) {
+                builder.set(FID, source.getID());
+            } else if (att instanceof GeometryDescriptor) {
+                builder.set(name, null == geometry ? null : conform(geometry));
+            } else {
+                builder.set(name, Converters.convert(source.getAttribute(name), att.getType().getBinding()));
+            }
+        }
+        feature.reset();
+        FeatureConversions.serialize(builder.buildFeature(source.getID()), header, feature);
+    }
+
+    private void spool(Geometry geometry) throws IOException {
+        if (null == spool) {
+            spoolFile = Files.createTempFile("ogc-features-fgb", ".tmp");
+            spool = new BufferedOutputStream(Files.newOutputStream(spoolFile), 64 * 1024);
+        }
+        FeatureItem item = new FeatureItem();
+        // features without a geometry are indexed with empty bounds
+        if (null == geometry) {
+            item.nodeItem = new NodeItem(0);
+        } else {
+            Envelope env = geometry.getEnvelopeInternal();
+            item.nodeItem = new NodeItem(env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY(), 0);
+        }
+        item.offset = spoolSize;
+        item.size = feature.size();
+        items.add(item);
+        feature.writeTo(spool);
+        spoolSize += item.size;
+    }
+
+    /**
+     * Writes out the header if no feature was written, or the header, index and
+     * spooled features when indexing, and flushes the output stream without
+     * closing it
+     */
+    void finish() throws IOException {
+        if (indexNodeSize == 0 || items.isEmpty()) {
+            if (!headerWritten) {
+                writeHeader(0);
+            }
+            out.flush();
+            return;
+        }
+        spool.close();
+
+        NodeItem extent = PackedRTree.calcExtent(items);
+        PackedRTree.hilbertSort(items, extent);
+        long offset = 0;
+        for (FeatureItem item : items) {
+            item.nodeItem.offset = offset;
+            offset += item.size;
+        }
+        PackedRTree tree = new PackedRTree(items, extent, indexNodeSize);
+
+        header.featuresCount = items.size();
+        if (extent.minX <= extent.maxX) {
+            header.envelope = new Envelope(extent.minX, extent.maxX, extent.minY, extent.maxY);
+        }
+        writeHeader(indexNodeSize);
+        tree.write(out);
+        copySpooledFeatures();
+        out.flush();
+    }
+
+    private void copySpooledFeatures() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(spoolFile, StandardOpenOption.READ)) {
+            for (FeatureItem item : items) {
+                int size = (int) item.size;
+                if (size > buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(size);
+                }
+                buffer.clear().limit(size);
+                long position = item.offset;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of spooled features");
+                    }
+                    position += read;
+                }
+                out.write(buffer.array(), 0, size);
+            }
+        }
+    }
+
+    /**
+     * Deletes the spool file, if any
+     */
+    void dispose() {
+        try {
+            if (null != spool) {
+                spool.close();
+            }
+            if (null != spoolFile) {
+                Files.deleteIfExists(spoolFile);
+            }
+        } catch (IOException e) {
+            log.warn("Error deleting FlatGeobuf spool file {}", spoolFile, e);
+        }
+        spool = null;
+        spoolFile = null;
+    }
+
+    private void writeHeader(int nodeSize) throws IOException {
+        header.indexNodeSize = nodeSize;
+        out.write(Constants.MAGIC_BYTES);
+        HeaderMeta.write(header, out, new FlatBufferBuilder(1024));
+        headerWritten = true;
+    }
+
+    /**
+     * Turns single geometries into their multi counterpart when that's what the
+     * header declares
+     */
+    private Geometry conform(Geometry geometry) {
+        byte type = GeometryConversions.toGeometryType(geometry.getClass());
+        if (header.geometryType == GeometryType.Unknown || type == header.geometryType) {
+            return geometry;
+        }
+        if (header.geometryType == GeometryType.GeometryCollection) {
+            return geometry.getFactory().createGeometryCollection(new Geometry[] { geometry });
+        }
+        if (header.geometryType == GeometryType.MultiPolygon && geometry instanceof Polygon polygon) {
+            return geometry.getFactory().createMultiPolygon(new Polygon[] { polygon });
+        }
+        if (header.geometryType == GeometryType.MultiLineString && geometry instanceof LineString line) {
+            return geometry.getFactory().createMultiLineString(new LineString[] { line });
+        }
+        if (header.geometryType == GeometryType.MultiPoint && geometry instanceof Point point) {
+            return geometry.getFactory().createMultiPoint(new Point[] { point });
+        }
+        throw new IllegalArgumentException(
+                "%s doesn't match the schema geometry type".formatted(geometry.getGeometryType()));
+    }
+
+    /**
+     * @return the binding values are converted to, for the FlatGeobuf encoder to
+     *         write them as the matching column type
+     */
+    private static Class<?> columnBinding(Class<?> binding) {
+        if (Boolean.class.equals(binding) || Byte.class.equals(binding) || Short.class.equals(binding)
+                || Integer.class.equals(binding) || Long.class.equals(binding) || Float.class.equals(binding)
+                || Double.class.equals(binding) || byte[].class.equals(binding)) {
+            return binding;
+        }
+        if (BigInteger.class.equals(binding) || java.sql.Time.class.equals(binding)) {
+            return String.class;
+        }
+        if (Number.class.isAssignableFrom(binding)) {
+            return Double.class;
+        }
+        if (Date.class.isAssignableFrom(binding) || TemporalAccessor.class.isAssignableFrom(binding)) {
+            return java.sql.Timestamp.class;
+        }
+        // including non default geometries, as WKT
+        return String.class;
+    }
+
+    private static byte columnType(Class<?> binding) {
+        if (Boolean.class.equals(binding)) {
+            return ColumnType.Bool;
+        }
+        if (Byte.class.equals(binding)) {
+            return ColumnType.Byte;
+        }
+        if (Short.class.equals(binding)) {
+            return ColumnType.Short;
+        }
+        if (Integer.class.equals(binding)) {
+            return ColumnType.Int;
+        }
+        if (Long.class.equals(binding)) {
+            return ColumnType.Long;
+        }
+        if (Float.class.equals(binding)) {
+            return ColumnType.Float;
+        }
+        if (Double.class.equals(binding)) {
+            return ColumnType.Double;
+        }
+        if (byte[].class.equals(binding)) {
+            return ColumnType.Binary;
+        }
+        if (java.sql.Timestamp.class.equals(binding)) {
+            return ColumnType.DateTime;
+        }
+        return ColumnType.String;
+    }
+}
@@ -0,0 +1,131 @@
+package com.camptocamp.opendata.ogc.features.http.codec.json;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.camptocamp.opendata.jackson.geojson.JtsGeoJsonModule;
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.model.GeoJsonFeatureWriter;
+import com.camptocamp.opendata.ogc.features.model.Link;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.NonNull;
+
+/**
+ * GeoJSON encoder for {@link FeatureCollection}, writing the features with the
+ * collection's {@link FeatureCollection#getGeoJsonFeatureWriter() backend
+ * provided writer} when available, and serializing the collection with the
+ * application's {@link ObjectMapper} otherwise.
+ * <p>
+ * The envelope written around the backend encoded features has the same
+ * members, in the same order, as the ones the {@link ObjectMapper} writes.
+ * <p>
+ * The collection's {@link FeatureCollection#getCoordinatePrecision() coordinate
+ * precision} is passed on to the geometry serializer as the
+ * {@link JtsGeoJsonModule#COORDINATE_PRECISION} attribute.
+ */
+public class GeoJsonFeatureCollectionHttpMessageConverter
+        extends AbstractGenericHttpMessageConverter<FeatureCollection> {
+
+    private static final MediaType MEDIA_TYPE = new MediaType(MimeTypes.GEOJSON.getMimeType());
+
+    /**
+     * Whitespace is allowed ahead of a JSON document, for probing the client
+     * connection while the query runs, see {@link CancellingOutputStream}
+     */
+    private static final byte[] KEEP_ALIVE = { ' ' };
+
+    private final ObjectMapper mapper;
+
+    public GeoJsonFeatureCollectionHttpMessageConverter(@NonNull ObjectMapper mapper) {
+        super(MEDIA_TYPE);
+        this.mapper = mapper;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override boolean supports(Class<?> clazz) {
+        return FeatureCollection.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override MediaType getDefaultContentType(FeatureCollection message) {
+        return MEDIA_TYPE;
+    }
+
+    protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+
+        CancellingOutputStream body = new CancellingOutputStream(outputMessage.getBody(), message, KEEP_ALIVE);
+        try {
+            Optional<GeoJsonFeatureWriter> featureWriter = message.getGeoJsonFeatureWriter();
+            if (featureWriter.isPresent()) {
+                try (JsonGenerator generator = mapper.createGenerator(body, JsonEncoding.UTF8)) {
+                    write(message, featureWriter.get(), generator);
+                }
+            } else {
+                ObjectWriter writer = mapper.writer();
+                Optional<Integer> precision = message.getCoordinatePrecision();
+                if (precision.isPresent()) {
+                    writer = writer.withAttribute(JtsGeoJsonModule.COORDINATE_PRECISION, precision.get());
+                }
+                writer.writeValue(body, message);
+            }
+            body.flush();
+        } finally {
+            body.unwatch();
+        }
+    }
+
+    private void write(FeatureCollection message, GeoJsonFeatureWriter featureWriter, JsonGenerator generator)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", message.getType());
+        generator.writeObjectField("timeStamp", message.getTimeStamp());
+        if (null != message.getNumberMatched()) {
+            generator.writeNumberField("numberMatched", message.getNumberMatched());
+        }
+        if (null != message.getNumberMatchedMode()) {
+            generator.writeObjectField("numberMatchedMode", message.getNumberMatchedMode());
+        }
+        generator.writeArrayFieldStart("features");
+        featureWriter.write(generator);
+        generator.writeEndArray();
+        // resolved once the features are written
+        Long numberReturned = message.getNumberReturned();
+        if (null != numberReturned) {
+            generator.writeNumberField("numberReturned", numberReturned);
+        }
+        List<Link> links = message.getLinks();
+        if (null != links && !links.isEmpty()) {
+            generator.writeObjectField("links", links);
+        }
+        generator.writeEndObject();
+    }
+
+    protected @Override FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
+            HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FeatureCollection read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+}
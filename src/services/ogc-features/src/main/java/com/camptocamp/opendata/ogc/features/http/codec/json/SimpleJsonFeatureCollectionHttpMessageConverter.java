@@ -1,7 +1,6 @@
 package com.camptocamp.opendata.ogc.features.http.codec.json;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.lang.reflect.Type;
 
 import org.springframework.http.HttpInputMessage;
@@ -13,6 +12,7 @@ import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.util.MimeType;
 
 import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
 import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -59,6 +59,12 @@ public class SimpleJsonFeatureCollectionHttpMessageConverter
     private static final MimeType MIME_TYPE = MimeTypes.JSON.getMimeType();
     private static final MediaType MEDIA_TYPE = new MediaType(MIME_TYPE);
 
+    /**
+     * Whitespace is allowed ahead of a JSON document, for probing the client
+     * connection while the query runs, see {@link CancellingOutputStream}
+     */
+    private static final byte[] KEEP_ALIVE = { ' ' };
+
     private ObjectMapper mapper;
 
     public SimpleJsonFeatureCollectionHttpMessageConverter() {
@@ -86,9 +92,13 @@ public class SimpleJsonFeatureCollectionHttpMessageConverter
     protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
             throws IOException, HttpMessageNotWritableException {
 
-        OutputStream body = outputMessage.getBody();
-        mapper.writeValue(body, message);
-        body.flush();
+        CancellingOutputStream body = new CancellingOutputStream(outputMessage.getBody(), message, KEEP_ALIVE);
+        try {
+            mapper.writeValue(body, message);
+            body.flush();
+        } finally {
+            body.unwatch();
+        }
     }
 
     protected @Override FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
@@ -61,8 +61,12 @@ class SimpleJsonModule extends SimpleModule {
         }
 
         private void serializeContent(FeatureCollection collection, JsonGenerator generator) throws IOException {
-            generator.writeNumberField("numberMatched", collection.getNumberMatched());
-            generator.writeNumberField("numberReturned", collection.getNumberReturned());
+            if (null != collection.getNumberMatched()) {
+                generator.writeNumberField("numberMatched", collection.getNumberMatched());
+            }
+            if (null != collection.getNumberMatchedMode()) {
+                generator.writeStringField("numberMatchedMode", collection.getNumberMatchedMode().value());
+            }
 
             generator.writeFieldName("records");
             generator.writeStartArray();
@@ -71,6 +75,11 @@ class SimpleJsonModule extends SimpleModule {
             }
             generator.writeEndArray();
 
+            // written after the records, may only be known once they're streamed out
+            if (null != collection.getNumberReturned()) {
+                generator.writeNumberField("numberReturned", collection.getNumberReturned());
+            }
+
             generator.writeFieldName("links");
             generator.writeStartArray();
             collection.getLinks().forEach(link -> write(link, generator));
@@ -0,0 +1,170 @@
+package com.camptocamp.opendata.ogc.features.http.codec.parquet;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimeUnit;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Parquet column types the feature attributes are mapped to, with their
+ * primitive and logical type, and how their values are handed to the parquet
+ * {@link RecordConsumer}.
+ */
+enum ColumnType {
+
+    BOOLEAN(PrimitiveTypeName.BOOLEAN, null) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addBoolean((Boolean) value);
+        }
+    },
+    INT32(PrimitiveTypeName.INT32, null) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addInteger(((Number) value).intValue());
+        }
+    },
+    INT64(PrimitiveTypeName.INT64, null) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addLong(((Number) value).longValue());
+        }
+    },
+    FLOAT(PrimitiveTypeName.FLOAT, null) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addFloat(((Number) value).floatValue());
+        }
+    },
+    DOUBLE(PrimitiveTypeName.DOUBLE, null) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addDouble(((Number) value).doubleValue());
+        }
+    },
+    STRING(PrimitiveTypeName.BINARY, LogicalTypeAnnotation.stringType()) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addBinary(Binary.fromString(value.toString()));
+        }
+    },
+    /**
+     * Days since the epoch
+     */
+    DATE(PrimitiveTypeName.INT32, LogicalTypeAnnotation.dateType()) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addInteger(epochDay(value));
+        }
+    },
+    /**
+     * Milliseconds since the epoch, UTC
+     */
+    TIMESTAMP(PrimitiveTypeName.INT64, LogicalTypeAnnotation.timestampType(true, TimeUnit.MILLIS)) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addLong(epochMilli(value));
+        }
+    },
+    /**
+     * Well-known binary geometries, as encoded by the caller
+     */
+    WKB(PrimitiveTypeName.BINARY, null) {
+        @Override
+        void write(Object value, RecordConsumer consumer) {
+            consumer.addBinary(Binary.fromConstantByteArray((byte[]) value));
+        }
+    };
+
+    private final PrimitiveTypeName primitiveType;
+
+    private final LogicalTypeAnnotation logicalType;
+
+    ColumnType(PrimitiveTypeName primitiveType, LogicalTypeAnnotation logicalType) {
+        this.primitiveType = primitiveType;
+        this.logicalType = logicalType;
+    }
+
+    /**
+     * Adds a non null value to the current field
+     */
+    abstract void write(Object value, RecordConsumer consumer);
+
+    PrimitiveType type(String name, Repetition repetition) {
+        return Types.primitive(primitiveType, repetition).as(logicalType).named(name);
+    }
+
+    private static int epochDay(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return (int) date.toLocalDate().toEpochDay();
+        }
+        if (value instanceof LocalDate date) {
+            return (int) date.toEpochDay();
+        }
+        return (int) Math.floorDiv(((Date) value).getTime(), 86_400_000L);
+    }
+
+    private static long epochMilli(Object value) {
+        if (value instanceof Date date) {
+            return date.getTime();
+        }
+        if (value instanceof Instant instant) {
+            return instant.toEpochMilli();
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant().toEpochMilli();
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toInstant().toEpochMilli();
+        }
+        return ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static ColumnType forBinding(Class<?> binding) {
+        if (Boolean.class.equals(binding)) {
+            return BOOLEAN;
+        }
+        if (Byte.class.equals(binding) || Short.class.equals(binding) || Integer.class.equals(binding)) {
+            return INT32;
+        }
+        if (Long.class.equals(binding)) {
+            return INT64;
+        }
+        if (Float.class.equals(binding)) {
+            return FLOAT;
+        }
+        if (BigInteger.class.equals(binding)) {
+            // may not fit in an INT64
+            return STRING;
+        }
+        if (Number.class.isAssignableFrom(binding)) {
+            return DOUBLE;
+        }
+        if (java.sql.Date.class.equals(binding) || LocalDate.class.equals(binding)) {
+            return DATE;
+        }
+        if (java.sql.Time.class.equals(binding)) {
+            return STRING;
+        }
+        if (Date.class.isAssignableFrom(binding) || Instant.class.equals(binding)
+                || OffsetDateTime.class.equals(binding) || ZonedDateTime.class.equals(binding)
+                || LocalDateTime.class.equals(binding)) {
+            return TIMESTAMP;
+        }
+        // including non default geometries, as WKT
+        return STRING;
+    }
+}
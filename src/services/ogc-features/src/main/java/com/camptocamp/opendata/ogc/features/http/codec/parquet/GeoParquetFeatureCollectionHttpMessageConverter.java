@@ -0,0 +1,103 @@
+package com.camptocamp.opendata.ogc.features.http.codec.parquet;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.util.MimeType;
+
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+
+/**
+ * <a href="https://geoparquet.org/">GeoParquet</a> encoder for
+ * {@link FeatureCollection}.
+ * <p>
+ * Features are streamed out in row groups of up to {@code rowGroupSize} rows,
+ * see {@link GeoParquetWriter}, so the memory used by a download is bounded by
+ * the row group size rather than the collection size.
+ */
+public class GeoParquetFeatureCollectionHttpMessageConverter
+        extends AbstractGenericHttpMessageConverter<FeatureCollection> {
+
+    private static final MimeType MIME_TYPE = MimeTypes.GEOPARQUET.getMimeType();
+    private static final MediaType MEDIA_TYPE = new MediaType(MIME_TYPE);
+
+    private final int rowGroupSize;
+    private final long rowGroupBytes;
+
+    public GeoParquetFeatureCollectionHttpMessageConverter() {
+        this(GeoParquetWriter.DEFAULT_ROW_GROUP_SIZE, GeoParquetWriter.DEFAULT_ROW_GROUP_BYTES);
+    }
+
+    /**
+     * @param rowGroupSize  maximum number of rows per row group
+     * @param rowGroupBytes approximate maximum memory used to buffer a row group
+     */
+    public GeoParquetFeatureCollectionHttpMessageConverter(int rowGroupSize, long rowGroupBytes) {
+        super(MEDIA_TYPE);
+        this.rowGroupSize = rowGroupSize;
+        this.rowGroupBytes = rowGroupBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override boolean supports(Class<?> clazz) {
+        return FeatureCollection.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected @Override MediaType getDefaultContentType(FeatureCollection message) {
+        return MEDIA_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Columns are derived from the original contents schema, while the rows are
+     * the possibly reprojected {@link FeatureCollection#getSimpleFeatures()
+     * features}
+     */
+    protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+
+        SimpleFeatureType schema = message.getOriginalContents().orElseThrow().getSchema();
+        CancellingOutputStream out = new CancellingOutputStream(outputMessage.getBody(), message);
+        String srs = null == schema.getCoordinateReferenceSystem() ? null : message.getTargetSrs();
+        try {
+            GeoParquetWriter writer = new GeoParquetWriter(out, schema, srs, rowGroupSize, rowGroupBytes);
+            try (Stream<SimpleFeature> features = message.getSimpleFeatures()) {
+                Iterator<SimpleFeature> it = features.iterator();
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                }
+            }
+            writer.finish();
+        } finally {
+            out.unwatch();
+        }
+    }
+
+    protected @Override FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
+            HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FeatureCollection read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+}
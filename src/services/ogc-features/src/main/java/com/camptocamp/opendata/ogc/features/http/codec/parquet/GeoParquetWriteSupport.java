@@ -0,0 +1,206 @@
+package com.camptocamp.opendata.ogc.features.http.codec.parquet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Type.Repetition;
+import org.apache.parquet.schema.Types;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Maps {@link SimpleFeature}s to GeoParquet rows for the parquet-java writer.
+ * <p>
+ * The columns are the feature id as {@literal FID}, the non geometry
+ * attributes in schema order, the default geometry encoded as WKB, and a
+ * {@literal bbox} struct column with the geometry bounds, declared as the
+ * geometry column bbox covering for readers to skip row groups out of the area
+ * of interest. The {@literal geo} file metadata, which holds the geometry
+ * types and bounds of all the rows, is computed as they're written and added
+ * to the footer by {@link #finalizeWrite()}.
+ */
+class GeoParquetWriteSupport extends WriteSupport<SimpleFeature> {
+
+    static final String WRITER_NAME = "georchestra data-api";
+
+    private static final String FID = "FID";
+
+    private static final List<String> BBOX = List.of("xmin", "ymin", "xmax", "ymax");
+
+    private final MessageType messageType;
+    private final List<String> attributes = new ArrayList<>();
+    private final List<ColumnType> attributeTypes = new ArrayList<>();
+    private final String geometryName;
+    private final String bboxName;
+    private final String srs;
+
+    private final WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN);
+    private final Envelope bounds = new Envelope();
+    private final SortedSet<String> geometryTypes = new TreeSet<>();
+
+    private RecordConsumer consumer;
+
+    /**
+     * @param schema the features schema
+     * @param srs    the features CRS identifier, {@code null} if unknown
+     */
+    GeoParquetWriteSupport(SimpleFeatureType schema, String srs) {
+        this.srs = srs;
+        List<Type> fields = new ArrayList<>();
+        fields.add(ColumnType.STRING.type(FID, Repetition.OPTIONAL));
+
+        GeometryDescriptor geometryDescriptor = schema.getGeometryDescriptor();
+        geometryName = null == geometryDescriptor ? null : geometryDescriptor.getLocalName();
+        for (AttributeDescriptor att : schema.getAttributeDescriptors()) {
+            if (!att.getLocalName().equals(geometryName)) {
+                ColumnType type = ColumnType.forBinding(att.getType().getBinding());
+                attributes.add(att.getLocalName());
+                attributeTypes.add(type);
+                fields.add(type.type(att.getLocalName(), Repetition.OPTIONAL));
+            }
+        }
+        if (null == geometryName) {
+            bboxName = null;
+        } else {
+            fields.add(ColumnType.WKB.type(geometryName, Repetition.OPTIONAL));
+            bboxName = null == schema.getDescriptor("bbox") ? "bbox" : geometryName + "_bbox";
+            List<Type> bbox = BBOX.stream().map(c -> (Type) ColumnType.DOUBLE.type(c, Repetition.REQUIRED)).toList();
+            fields.add(Types.optionalGroup().addFields(bbox.toArray(Type[]::new)).named(bboxName));
+        }
+        messageType = new MessageType("schema", fields);
+    }
+
+    @Override
+    public String getName() {
+        return WRITER_NAME;
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(messageType, Map.of());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.consumer = recordConsumer;
+    }
+
+    @Override
+    public void write(SimpleFeature feature) {
+        consumer.startMessage();
+        int index = 0;
+        field(FID, index++, feature.getID(), ColumnType.STRING);
+        for (int i = 0; i < attributes.size(); i++) {
+            String name = attributes.get(i);
+            field(name, index++, feature.getAttribute(name), attributeTypes.get(i));
+        }
+        if (null != geometryName) {
+            writeGeometry((Geometry) feature.getDefaultGeometry(), index);
+        }
+        consumer.endMessage();
+    }
+
+    private void field(String name, int index, Object value, ColumnType type) {
+        if (null != value) {
+            consumer.startField(name, index);
+            type.write(value, consumer);
+            consumer.endField(name, index);
+        }
+    }
+
+    private void writeGeometry(Geometry geometry, int index) {
+        if (null == geometry) {
+            return;
+        }
+        field(geometryName, index, wkbWriter.write(geometry), ColumnType.WKB);
+        geometryTypes.add(geometry instanceof LinearRing ? "LineString" : geometry.getGeometryType());
+        Envelope env = geometry.getEnvelopeInternal();
+        if (env.isNull()) {
+            return;
+        }
+        bounds.expandToInclude(env);
+        double[] bbox = { env.getMinX(), env.getMinY(), env.getMaxX(), env.getMaxY() };
+        consumer.startField(bboxName, index + 1);
+        consumer.startGroup();
+        for (int i = 0; i < bbox.length; i++) {
+            consumer.startField(BBOX.get(i), i);
+            consumer.addDouble(bbox[i]);
+            consumer.endField(BBOX.get(i), i);
+        }
+        consumer.endGroup();
+        consumer.endField(bboxName, index + 1);
+    }
+
+    @Override
+    public FinalizedWriteContext finalizeWrite() {
+        if (null == geometryName) {
+            return new FinalizedWriteContext(Map.of());
+        }
+        return new FinalizedWriteContext(Map.of("geo", geoMetadata()));
+    }
+
+    /**
+     * @return the GeoParquet {@literal geo} file metadata
+     */
+    private String geoMetadata() {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode geo = mapper.createObjectNode();
+        geo.put("version", "1.1.0");
+        geo.put("primary_column", geometryName);
+        ObjectNode column = geo.putObject("columns").putObject(geometryName);
+        column.put("encoding", "WKB");
+        ArrayNode types = column.putArray("geometry_types");
+        geometryTypes.forEach(types::add);
+        crs(column);
+        if (!bounds.isNull()) {
+            column.putArray("bbox").add(bounds.getMinX()).add(bounds.getMinY()).add(bounds.getMaxX())
+                    .add(bounds.getMaxY());
+        }
+        ObjectNode covering = column.putObject("covering").putObject("bbox");
+        for (String coord : BBOX) {
+            covering.putArray(coord).add(bboxName).add(coord);
+        }
+        try {
+            return mapper.writeValueAsString(geo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Leaves the crs out for the default {@literal OGC:CRS84} (features are
+     * output in longitude/latitude order), and refers to other EPSG codes by
+     * their identifier only
+     */
+    private void crs(ObjectNode column) {
+        if (null == srs || "EPSG:4326".equals(srs) || srs.endsWith("CRS84")) {
+            return;
+        }
+        String code = srs.startsWith("EPSG:") ? srs.substring("EPSG:".length()) : null;
+        if (null != code && !code.isEmpty() && code.chars().allMatch(Character::isDigit)) {
+            column.putObject("crs").putObject("id").put("authority", "EPSG").put("code", Integer.parseInt(code));
+        } else {
+            column.putNull("crs");
+        }
+    }
+}
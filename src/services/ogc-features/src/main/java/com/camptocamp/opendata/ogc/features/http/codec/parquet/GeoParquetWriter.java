@@ -0,0 +1,155 @@
+package com.camptocamp.opendata.ogc.features.http.codec.parquet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+
+/**
+ * Streaming <a href="https://geoparquet.org/releases/v1.1.0/">GeoParquet</a>
+ * writer, on top of the parquet-java {@link ParquetWriter} and
+ * {@link GeoParquetWriteSupport}.
+ * <p>
+ * Rows are buffered in memory until a row group is full, either by number of
+ * rows or by buffered size, and then written out as gzip compressed, dictionary
+ * encoded when it pays off, column chunks. The file is written straight to the
+ * response stream through a non Hadoop {@link OutputFile}, only the footer
+ * being held until {@link #finish()}.
+ */
+class GeoParquetWriter {
+
+    static final int DEFAULT_ROW_GROUP_SIZE = 65_536;
+
+    static final long DEFAULT_ROW_GROUP_BYTES = 32L * 1024 * 1024;
+
+    private final ParquetWriter<SimpleFeature> writer;
+
+    /**
+     * @param out           the stream to write to, left open
+     * @param schema        the features schema
+     * @param srs           the features CRS identifier, {@code null} if unknown
+     * @param rowGroupSize  maximum number of rows per row group
+     * @param rowGroupBytes approximate maximum memory used to buffer a row group,
+     *                      after which it's written out regardless of its number
+     *                      of rows
+     */
+    GeoParquetWriter(OutputStream out, SimpleFeatureType schema, String srs, int rowGroupSize, long rowGroupBytes)
+            throws IOException {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("rowGroupSize must be > 0: " + rowGroupSize);
+        }
+        writer = new Builder(new StreamOutputFile(out), new GeoParquetWriteSupport(schema, srs))//
+                .withConf(new Configuration(false))//
+                .withCompressionCodec(CompressionCodecName.GZIP)//
+                .withRowGroupSize(rowGroupBytes)//
+                .withRowGroupRowCountLimit(rowGroupSize)//
+                .withDictionaryEncoding(true)//
+                // feature ids are unique, not worth a dictionary
+                .withDictionaryEncoding("FID", false)//
+                .build();
+    }
+
+    /**
+     * Adds a feature to the current row group, writing the row group out if full
+     */
+    void write(SimpleFeature feature) throws IOException {
+        writer.write(feature);
+    }
+
+    /**
+     * Writes out the last row group and the file footer, and flushes the output
+     * stream without closing it
+     */
+    void finish() throws IOException {
+        writer.close();
+    }
+
+    private static class Builder extends ParquetWriter.Builder<SimpleFeature, Builder> {
+
+        private final WriteSupport<SimpleFeature> writeSupport;
+
+        Builder(OutputFile file, WriteSupport<SimpleFeature> writeSupport) {
+            super(file);
+            this.writeSupport = writeSupport;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<SimpleFeature> getWriteSupport(Configuration conf) {
+            return writeSupport;
+        }
+    }
+
+    /**
+     * {@link OutputFile} over the response stream, which is flushed but left
+     * open when the parquet writer closes it
+     */
+    private static class StreamOutputFile implements OutputFile {
+
+        private final OutputStream out;
+
+        StreamOutputFile(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.flush();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.camptocamp.opendata.ogc.features.http.codec.shp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileWriter;
+import org.geotools.data.shapefile.shp.JTSUtilities;
+import org.geotools.data.shapefile.shp.ShapeHandler;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileWriter;
+import org.geotools.feature.FeatureTypes;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.springframework.util.FileSystemUtils;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes a zipped shapefile straight to an output stream.
+ * <p>
+ * The {@literal .prj} and {@literal .dbf} entries are written first, with the
+ * attributes of each feature encoded to the zip stream as it's read, so the
+ * response starts flowing right away. Only the {@literal .shp} and
+ * {@literal .shx} files, whose headers hold the file length and bounds, are
+ * spooled to scratch files and appended to the zip once all the features are
+ * written. Disk usage is hence bounded to the size of the geometries.
+ * <p>
+ * The {@literal .dbf} header holds the number of records, so it must be known
+ * upfront. Should the features read differ from it (e.g. if the data changed
+ * in between), extra features are dropped and missing ones are padded with
+ * null shapes and empty attributes, for the {@literal .shp} and
+ * {@literal .dbf} records to stay aligned.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.http.codec.shp")
+class ShapefileZipWriter {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    /**
+     * Shapefile header length, in bytes
+     */
+    private static final int SHP_HEADER_LENGTH = 100;
+
+    /**
+     * Shapefile record header length (record number and content length), in
+     * bytes
+     */
+    private static final int SHP_RECORD_HEADER_LENGTH = 8;
+
+    /**
+     * Maximum length of text fields, in bytes
+     */
+    private static final int MAX_CHAR_LENGTH = 254;
+
+    private final String baseName;
+    private final GeometryDescriptor geometryDescriptor;
+    private final CoordinateReferenceSystem crs;
+    private final List<AttributeDescriptor> attributes;
+
+    /**
+     * @param featureType the features schema
+     * @param crs         the CRS of the features geometries, written to the
+     *                    {@literal .prj} entry if not {@code null}
+     */
+    ShapefileZipWriter(@NonNull SimpleFeatureType featureType, CoordinateReferenceSystem crs) {
+        this.baseName = featureType.getTypeName();
+        this.crs = crs;
+        this.geometryDescriptor = featureType.getGeometryDescriptor();
+        if (null == geometryDescriptor) {
+            throw new IllegalArgumentException(
+                    "Collection %s does not have a geometry attribute, can't encode as Shapefile"
+                            .formatted(featureType.getTypeName()));
+        }
+        this.attributes = featureType.getAttributeDescriptors().stream().filter(a -> a != geometryDescriptor)
+                .toList();
+    }
+
+    /**
+     * @param features the features to encode
+     * @param count    the number of features, written to the {@literal .dbf}
+     *                 header before the features are read
+     * @param out      the stream to write the zip file to, left open
+     */
+    public void write(Iterator<SimpleFeature> features, int count, OutputStream out) throws IOException {
+        // peek the features up to the first geometry for the shape type of generic geometry columns
+        Deque<SimpleFeature> head = new ArrayDeque<>();
+        Geometry firstGeometry = null;
+        while (null == firstGeometry && features.hasNext()) {
+            SimpleFeature feature = features.next();
+            head.add(feature);
+            firstGeometry = (Geometry) feature.getDefaultGeometry();
+        }
+        final ShapeType shapeType = shapeType(firstGeometry);
+
+        Path scratch = Files.createTempDirectory("ogc-features-shapefile-format");
+        try {
+            ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            writePrj(zip);
+
+            Path shp = scratch.resolve(baseName + ".shp");
+            Path shx = scratch.resolve(baseName + ".shx");
+            try (ShapeRecords shapes = new ShapeRecords(shp, shx, shapeType)) {
+                zip.putNextEntry(new ZipEntry(baseName + ".dbf"));
+                DbaseFileWriter dbf = new DbaseFileWriter(dbfHeader(count),
+                        Channels.newChannel(CloseShieldOutputStream.wrap(zip)), StandardCharsets.UTF_8,
+                        TimeZone.getDefault());
+                try {
+                    int written = 0;
+                    while (written < count && (!head.isEmpty() || features.hasNext())) {
+                        SimpleFeature feature = head.isEmpty() ? features.next() : head.poll();
+                        shapes.write((Geometry) feature.getDefaultGeometry());
+                        dbf.write(record(feature));
+                        written++;
+                    }
+                    if (!head.isEmpty() || features.hasNext()) {
+                        log.warn("{} has more features than the {} counted, extra features dropped", baseName,
+                                count);
+                    }
+                    if (written < count) {
+                        log.warn("{} has {} features out of the {} counted, padding with empty records", baseName,
+                                written, count);
+                    }
+                    for (; written < count; written++) {
+                        shapes.write(null);
+                        dbf.write(new Object[attributes.size()]);
+                    }
+                } finally {
+                    dbf.close();
+                }
+                zip.closeEntry();
+            }
+            zipEncode(zip, shp);
+            zipEncode(zip, shx);
+            zip.finish();
+        } finally {
+            FileSystemUtils.deleteRecursively(scratch);
+        }
+    }
+
+    private ShapeType shapeType(Geometry firstGeometry) {
+        ShapeType type = shapeType(geometryDescriptor.getType().getBinding());
+        if (null == type && null != firstGeometry) {
+            type = shapeType(firstGeometry.getClass());
+        }
+        if (null == type) {
+            if (null != firstGeometry) {
+                throw new IllegalArgumentException("Collection %s has %s geometries, can't encode as Shapefile"
+                        .formatted(baseName, firstGeometry.getGeometryType()));
+            }
+            // all geometries are null, any shape type will do
+            type = ShapeType.POINT;
+        }
+        return type;
+    }
+
+    private static ShapeType shapeType(Class<?> binding) {
+        if (Point.class.isAssignableFrom(binding)) {
+            return ShapeType.POINT;
+        }
+        if (MultiPoint.class.isAssignableFrom(binding)) {
+            return ShapeType.MULTIPOINT;
+        }
+        if (LineString.class.isAssignableFrom(binding) || MultiLineString.class.isAssignableFrom(binding)) {
+            return ShapeType.ARC;
+        }
+        if (Polygon.class.isAssignableFrom(binding) || MultiPolygon.class.isAssignableFrom(binding)) {
+            return ShapeType.POLYGON;
+        }
+        return null;
+    }
+
+    private void writePrj(ZipOutputStream zip) throws IOException {
+        if (null == crs) {
+            return;
+        }
+        // single line WKT, as other software chokes on line breaks in .prj files
+        String wkt = crs.toWKT().replaceAll("\\R\\s*", "");
+        zip.putNextEntry(new ZipEntry(baseName + ".prj"));
+        zip.write(wkt.getBytes(StandardCharsets.ISO_8859_1));
+        zip.closeEntry();
+    }
+
+    private DbaseFileHeader dbfHeader(int count) throws IOException {
+        DbaseFileHeader header = new DbaseFileHeader();
+        for (AttributeDescriptor attribute : attributes) {
+            String name = attribute.getLocalName();
+            Class<?> binding = attribute.getType().getBinding();
+            int length = FeatureTypes.getFieldLength(attribute);
+            if (length <= 0) {
+                length = MAX_CHAR_LENGTH;
+            }
+            if (binding == Integer.class || binding == Short.class || binding == Byte.class) {
+                header.addColumn(name, 'N', Math.min(length, 9), 0);
+            } else if (binding == Long.class) {
+                header.addColumn(name, 'N', Math.min(length, 19), 0);
+            } else if (binding == BigInteger.class) {
+                header.addColumn(name, 'N', Math.min(length, 33), 0);
+            } else if (Number.class.isAssignableFrom(binding)) {
+                header.addColumn(name, 'N', 33, 15);
+            } else if (java.util.Date.class.isAssignableFrom(binding) || Calendar.class.isAssignableFrom(binding)) {
+                header.addColumn(name, 'D', 8, 0);
+            } else if (binding == Boolean.class) {
+                header.addColumn(name, 'L', 1, 0);
+            } else {
+                // written as text, Object.toString() for non textual types
+                header.addColumn(name, 'C', Math.max(1, Math.min(length, MAX_CHAR_LENGTH)), 0);
+            }
+        }
+        header.setNumRecords(count);
+        return header;
+    }
+
+    private Object[] record(SimpleFeature feature) {
+        Object[] record = new Object[attributes.size()];
+        for (int i = 0; i < record.length; i++) {
+            AttributeDescriptor attribute = attributes.get(i);
+            Object value = feature.getAttribute(attribute.getName());
+            if (null != value && !isDbfNative(value)) {
+                value = value.toString();
+            }
+            record[i] = value;
+        }
+        return record;
+    }
+
+    private static boolean isDbfNative(Object value) {
+        return value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+                || value instanceof java.util.Date || value instanceof Calendar;
+    }
+
+    private void zipEncode(ZipOutputStream zip, Path file) throws IOException {
+        ZipEntry entry = new ZipEntry(file.getFileName().toString());
+        entry.setSize(Files.size(file));
+        zip.putNextEntry(entry);
+        Files.copy(file, zip);
+        zip.closeEntry();
+    }
+
+    /**
+     * Spools the {@literal .shp} and {@literal .shx} records to scratch files,
+     * and rewrites their headers with the final length and bounds when closed
+     */
+    private static class ShapeRecords implements AutoCloseable {
+
+        private final ShapeType shapeType;
+        private final ShapeHandler handler;
+        private final ShapefileWriter writer;
+
+        private final Envelope bounds = new Envelope();
+        private int records;
+        private long length = SHP_HEADER_LENGTH;
+
+        ShapeRecords(Path shp, Path shx, ShapeType shapeType) throws IOException {
+            this.shapeType = shapeType;
+            this.handler = shapeType.getShapeHandler(GEOMETRY_FACTORY);
+            FileChannel shpChannel = FileChannel.open(shp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            FileChannel shxChannel = FileChannel.open(shx, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.writer = new ShapefileWriter(shpChannel, shxChannel);
+            // placeholder headers, rewritten on close
+            writer.writeHeaders(new Envelope(), shapeType, 0, SHP_HEADER_LENGTH);
+        }
+
+        void write(Geometry geometry) throws IOException {
+            Geometry shape = null;
+            int contentLength = 4; // null shape type
+            if (null != geometry && !geometry.isEmpty()) {
+                shape = JTSUtilities.convertToCollection(geometry, shapeType);
+                contentLength = handler.getLength(shape);
+                bounds.expandToInclude(shape.getEnvelopeInternal());
+            }
+            writer.writeGeometry(shape);
+            length += SHP_RECORD_HEADER_LENGTH + contentLength;
+            records++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.writeHeaders(bounds, shapeType, records, Math.toIntExact(length));
+            } finally {
+                writer.close();
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.springframework.util.MimeType;
 
 import com.camptocamp.opendata.model.GeodataRecord;
 import com.camptocamp.opendata.model.SimpleProperty;
+import com.camptocamp.opendata.ogc.features.http.codec.CancellingOutputStream;
 import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
 import com.camptocamp.opendata.ogc.features.http.codec.xls.StreamingWorkbookWriter.StreamingRow;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
@@ -31,8 +32,19 @@ public class Excel2007FeatureCollectionHttpMessageConverter
     private static final MimeType MIME_TYPE = MimeTypes.OOXML.getMimeType();
     private static final MediaType MEDIA_TYPE = new MediaType(MIME_TYPE);
 
+    private final int maxRowsPerSheet;
+
     public Excel2007FeatureCollectionHttpMessageConverter() {
+        this(StreamingWorkbookWriter.MAX_ROWS);
+    }
+
+    /**
+     * @param maxRowsPerSheet number of rows, header row included, after which
+     *                        the features roll over to a new sheet
+     */
+    public Excel2007FeatureCollectionHttpMessageConverter(int maxRowsPerSheet) {
         super(MEDIA_TYPE);
+        this.maxRowsPerSheet = maxRowsPerSheet;
     }
 
     /**
@@ -55,9 +67,12 @@ public class Excel2007FeatureCollectionHttpMessageConverter
     protected @Override void writeInternal(FeatureCollection message, Type type, HttpOutputMessage outputMessage)
             throws IOException, HttpMessageNotWritableException {
 
+        CancellingOutputStream body = new CancellingOutputStream(outputMessage.getBody(), message);
         // Streaming version of XSSFWorkbook implementing the "BigGridDemo" strategy.
-        StreamingWorkbookWriter writer = new StreamingWorkbookWriter(outputMessage.getBody());
+        StreamingWorkbookWriter writer = new StreamingWorkbookWriter(body, SharedStrings.DEFAULT_MAX_ENTRIES,
+                maxRowsPerSheet);
         try {
+            dimension(writer, message);
             addHeader(writer, message.getOriginalContents());
             try (Stream<GeodataRecord> features = message.getFeatures()) {
                 features.forEach(rec -> {
@@ -71,10 +86,24 @@ public class Excel2007FeatureCollectionHttpMessageConverter
                 });
             }
         } finally {
+            body.unwatch();
             writer.finish();
         }
     }
 
+    /**
+     * Sets the sheets dimension when the number of features is known before
+     * streaming them, accounting for the FID column
+     */
+    private void dimension(StreamingWorkbookWriter writer, FeatureCollection message) {
+        Long numberReturned = message.getNumberReturned();
+        Optional<SimpleFeatureCollection> originalContents = message.getOriginalContents();
+        if (null != numberReturned && originalContents.isPresent()) {
+            int columns = 1 + originalContents.orElseThrow().getSchema().getAttributeCount();
+            writer.dimension(numberReturned, columns);
+        }
+    }
+
     private void addHeader(StreamingWorkbookWriter writer, Optional<SimpleFeatureCollection> originalContents) {
         if (originalContents.isPresent()) {
 
@@ -89,9 +118,8 @@ public class Excel2007FeatureCollectionHttpMessageConverter
             if (null != geomName)
                 colNames = Streams.concat(colNames, Stream.of(geomName));
 
-            StreamingRow header = writer.newRow();
-            colNames.forEach(header::addColumnValue);
-            header.end();
+            // repeated on each sheet
+            writer.header(colNames.toList());
         }
     }
 
@@ -0,0 +1,39 @@
+package com.camptocamp.opendata.ogc.features.http.codec.xls;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * Configuration properties for the Excel 2007 / OOXML output format.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * ooxml:
+ *   max-rows-per-sheet: 1048576
+ * </code>
+ * </pre>
+ * <p>
+ * Excel can't open sheets with more than {@literal 1048576} rows, so larger
+ * exports roll over to a new sheet every {@code max-rows-per-sheet} rows,
+ * header row included, with the header row repeated on each sheet.
+ *
+ * @see Excel2007FeatureCollectionHttpMessageConverter
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "ooxml")
+public class OoxmlConfiguration {
+
+    /**
+     * Maximum number of rows per sheet, including the header row
+     */
+    @Min(2)
+    @Max(StreamingWorkbookWriter.MAX_ROWS)
+    private int maxRowsPerSheet = StreamingWorkbookWriter.MAX_ROWS;
+}
@@ -0,0 +1,167 @@
+package com.camptocamp.opendata.ogc.features.http.codec.xls;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared strings table of a {@link StreamingWorkbookWriter workbook}.
+ * <p>
+ * Only the lookup dictionary is kept in memory, bounded to
+ * {@code maxEntries} strings of up to {@link #MAX_LENGTH} characters. The
+ * table entries are spilled to a temporary file as they're added, and copied
+ * over to {@literal xl/sharedStrings.xml} when the workbook is finished. Text
+ * that's too long, or new once the dictionary is full, is meant to be written
+ * as inline strings.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.http.codec.xls")
+class SharedStrings {
+
+    static final int DEFAULT_MAX_ENTRIES = 32_768;
+
+    /**
+     * Longer strings are unlikely to repeat, and not worth holding in memory
+     */
+    static final int MAX_LENGTH = 128;
+
+    private final int maxEntries;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    /**
+     * Number of cells referencing the table
+     */
+    private long count;
+
+    private Path spillFile;
+    private OutputStream spillOut;
+    private XMLStreamWriter spill;
+
+    SharedStrings(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the index of {@code text} in the table, adding it if needed, or
+     *         {@literal -1} if it shall be written as an inline string instead
+     */
+    int indexOf(String text) throws IOException, XMLStreamException {
+        if (text.length() > MAX_LENGTH) {
+            return -1;
+        }
+        Integer index = dictionary.get(text);
+        if (null == index) {
+            if (dictionary.size() >= maxEntries) {
+                return -1;
+            }
+            index = dictionary.size();
+            dictionary.put(text, index);
+            append(text);
+        }
+        count++;
+        return index;
+    }
+
+    private void append(String text) throws IOException, XMLStreamException {
+        if (null == spill) {
+            spillFile = Files.createTempFile("ogc-features-xlsx-sst", ".xml");
+            spillOut = new BufferedOutputStream(Files.newOutputStream(spillFile));
+            spill = XMLOutputFactory.newInstance().createXMLStreamWriter(spillOut, "UTF-8");
+        }
+        spill.writeStartElement("si");
+        writeText(spill, text);
+        spill.writeEndElement();
+    }
+
+    void writeTo(OutputStream out) throws IOException, XMLStreamException {
+        writeHeader(out, count, dictionary.size());
+        if (null != spill) {
+            spill.flush();
+            spill.close();
+            spillOut.close();
+            Files.copy(spillFile, out);
+        }
+        out.write("</sst>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeEmpty(OutputStream out) throws IOException {
+        writeHeader(out, 0, 0);
+        out.write("</sst>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeHeader(OutputStream out, long count, int uniqueCount) throws IOException {
+        String header = """
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <sst xmlns="%s" count="%d" uniqueCount="%d">""".formatted(StreamingWorkbookWriter.MAIN_NS, count,
+                uniqueCount);
+        out.write(header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Releases the dictionary and deletes the spill file
+     */
+    void dispose() {
+        dictionary.clear();
+        try {
+            if (null != spillOut) {
+                spillOut.close();
+            }
+            if (null != spillFile) {
+                Files.deleteIfExists(spillFile);
+            }
+        } catch (IOException e) {
+            log.warn("Error deleting shared strings file {}", spillFile, e);
+        }
+        spill = null;
+        spillOut = null;
+        spillFile = null;
+    }
+
+    /**
+     * Writes a {@literal <t>} element, preserving leading and trailing
+     * whitespace
+     */
+    static void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+        writer.writeStartElement("t");
+        if (!text.isEmpty() && (Character.isWhitespace(text.charAt(0))
+                || Character.isWhitespace(text.charAt(text.length() - 1)))) {
+            writer.writeAttribute("xml", XMLConstants.XML_NS_URI, "space", "preserve");
+        }
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Removes the control characters that can't be represented in XML 1.0
+     */
+    static String sanitize(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (isInvalid(text.charAt(i))) {
+                StringBuilder sb = new StringBuilder(text.length());
+                for (int j = 0; j < text.length(); j++) {
+                    char c = text.charAt(j);
+                    if (!isInvalid(c)) {
+                        sb.append(c);
+                    }
+                }
+                return sb.toString();
+            }
+        }
+        return text;
+    }
+
+    private static boolean isInvalid(char c) {
+        return c < 0x20 && c != '\t' && c != '\n' && c != '\r';
+    }
+}
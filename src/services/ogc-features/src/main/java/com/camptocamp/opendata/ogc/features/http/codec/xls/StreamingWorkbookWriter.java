@@ -1,48 +1,238 @@
 package com.camptocamp.opendata.ogc.features.http.codec.xls;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
 import java.util.List;
 import java.util.Objects;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.geotools.util.Converters;
 
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 
+/**
+ * Writes an OOXML workbook straight to an output stream, one row at a time.
+ * <p>
+ * Rows roll over to a new sheet every {@code maxRowsPerSheet} rows, repeating
+ * the {@link #header(List) header row} if any, so that exports larger than
+ * what a spreadsheet application can open in a single sheet are split instead.
+ * Sheets are written one after the other in a single pass, and the workbook
+ * and content types manifests listing them are generated on {@link #finish()}.
+ * <p>
+ * Numbers, booleans, and dates are written as native cells, dates using the
+ * {@literal yyyy-mm-dd} or {@literal yyyy-mm-dd hh:mm:ss} formats of the
+ * generated {@literal styles.xml}. Cells have no time zone, timestamps are
+ * written in UTC regardless of the server's default time zone, and values that
+ * carry their own offset in that offset. Text is written to the
+ * {@link SharedStrings shared strings table} when enabled, or as inline
+ * strings otherwise.
+ * <p>
+ * The sheet {@literal <dimension>} can only be written ahead of the rows,
+ * hence it's written if {@link #dimension(long, int)} was called before the
+ * first row, and left out otherwise for the spreadsheet application to compute
+ * it.
+ */
 class StreamingWorkbookWriter {
 
+    static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    /**
+     * Excel's maximum number of rows per sheet
+     */
+    static final int MAX_ROWS = 1_048_576;
+
+    /**
+     * Excel's maximum number of columns, up to {@literal XFD}
+     */
+    static final int MAX_COLUMNS = 16_384;
+
+    /**
+     * Column letters by zero based column index
+     */
+    private static final String[] COLUMN_LETTERS = new String[MAX_COLUMNS];
+    static {
+        for (int i = 0; i < MAX_COLUMNS; i++) {
+            COLUMN_LETTERS[i] = columnLetters(i);
+        }
+    }
+
+    /**
+     * Index in {@literal cellXfs} of the date and date-time styles of
+     * {@link #writeStyles()}
+     */
+    private static final String DATE_STYLE = "1";
+    private static final String DATE_TIME_STYLE = "2";
+
+    /**
+     * Day zero of Excel's 1900 date system, accounting for its 1900 leap year bug
+     * for dates after {@link #MIN_DATE}
+     */
+    private static final LocalDate EPOCH = LocalDate.of(1899, 12, 30);
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 3, 1);
+
     private ZipOutputStream zout;
 
     private StreamingRow lastRow;
 
     private XMLStreamWriter sheetWriter;
 
-    @SneakyThrows
+    private final SharedStrings sharedStrings;
+
+    private final int maxRowsPerSheet;
+
+    private List<?> header;
+
+    /**
+     * Number of sheets started so far
+     */
+    private int sheets;
+
+    /**
+     * Number of data rows left for the {@literal <dimension>} of the next
+     * sheets, {@code null} if unknown
+     */
+    private Long remainingRows;
+    private int columns;
+
     StreamingWorkbookWriter(OutputStream out) {
+        this(out, SharedStrings.DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param sharedStringsMaxEntries maximum number of distinct strings in the
+     *                                shared strings table, {@literal 0} to write
+     *                                all text as inline strings
+     */
+    StreamingWorkbookWriter(OutputStream out, int sharedStringsMaxEntries) {
+        this(out, sharedStringsMaxEntries, MAX_ROWS);
+    }
+
+    /**
+     * @param sharedStringsMaxEntries maximum number of distinct strings in the
+     *                                shared strings table, {@literal 0} to write
+     *                                all text as inline strings
+     * @param maxRowsPerSheet         number of rows after which to roll over to
+     *                                a new sheet, header row included
+     */
+    StreamingWorkbookWriter(OutputStream out, int sharedStringsMaxEntries, int maxRowsPerSheet) {
+        if (maxRowsPerSheet < 1 || maxRowsPerSheet > MAX_ROWS) {
+            throw new IllegalArgumentException("maxRowsPerSheet must be between 1 and " + MAX_ROWS);
+        }
         this.zout = new ZipOutputStream(out, StandardCharsets.UTF_8);
-        ZipEntry sheet1 = new ZipEntry("xl/worksheets/sheet1.xml");
-        this.zout.putNextEntry(sheet1);
+        this.sharedStrings = sharedStringsMaxEntries > 0 ? new SharedStrings(sharedStringsMaxEntries) : null;
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    /**
+     * Sets the number of data rows, excluding the {@link #header(List) header
+     * row}, and columns of the workbook, must be called before the first row is
+     * added
+     */
+    public StreamingWorkbookWriter dimension(long rows, int columns) {
+        checkNotStarted();
+        if (rows >= 0 && columns > 0) {
+            this.remainingRows = rows;
+            this.columns = Math.min(columns, MAX_COLUMNS);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the values of the header row written at the top of each sheet, must
+     * be called before the first row is added
+     */
+    public StreamingWorkbookWriter header(@NonNull List<?> values) {
+        checkNotStarted();
+        if (maxRowsPerSheet < 2) {
+            throw new IllegalStateException("maxRowsPerSheet must be at least 2 to fit a header row");
+        }
+        this.header = List.copyOf(values);
+        return this;
+    }
+
+    private void checkNotStarted() {
+        if (sheets > 0) {
+            throw new IllegalStateException("the workbook layout must be set before adding rows");
+        }
+    }
+
+    /**
+     * Ends the current sheet if any, and starts the next one with the header row
+     */
+    @SneakyThrows
+    private void startNextSheet() {
+        endSheet();
+        sheets++;
+        ZipEntry entry = new ZipEntry("xl/worksheets/sheet%d.xml".formatted(sheets));
+        this.zout.putNextEntry(entry);
         sheetWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(zout, "UTF-8");
         startSheet(sheetWriter);
+        lastRow = null;
+        if (null != header) {
+            lastRow = new StreamingRow(1, sheetWriter, this);
+            header.forEach(lastRow::addColumnValue);
+            lastRow.end();
+        }
+    }
+
+    @SneakyThrows
+    private void endSheet() {
+        if (null != sheetWriter) {
+            if (null != lastRow) {
+                lastRow.end();
+            }
+            sheetWriter.writeEndElement();// sheetData
+            sheetWriter.writeEndDocument();
+            sheetWriter.close();
+            sheetWriter = null;
+        }
+    }
+
+    /**
+     * @return the {@literal <dimension>} reference of the sheet being started, or
+     *         {@code null} if unknown
+     */
+    private String nextDimension() {
+        if (null == remainingRows) {
+            return null;
+        }
+        int headerRows = null == header ? 0 : 1;
+        long dataRows = Math.min(remainingRows, maxRowsPerSheet - headerRows);
+        remainingRows -= dataRows;
+        long rows = dataRows + headerRows;
+        return rows == 0 ? null : "A1:" + COLUMN_LETTERS[columns - 1] + rows;
     }
 
     /**
      * Outputs a worksheet document header like
-     * 
+     *
      * <pre>
      * {@code
      * <?xml version="1.0" encoding="utf-8" standalone="yes"?>
      * <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main"
      * xmlns:r=
      * "http://schemas.openxmlformats.org/officeDocument/2006/relationships">
-     *  <dimension ref="A1" />
+     *  <dimension ref="A1:F1001" />
      *  <sheetViews>
      *   <sheetView workbookViewId="0"/>
      *  </sheetViews>
@@ -55,12 +245,15 @@ class StreamingWorkbookWriter {
     private @SneakyThrows void startSheet(XMLStreamWriter sheet) {
         sheet.writeStartDocument();
         sheet.writeStartElement("worksheet");
-        sheet.writeDefaultNamespace("http://schemas.openxmlformats.org/spreadsheetml/2006/main");
-        sheet.writeNamespace("r", "http://schemas.openxmlformats.org/officeDocument/2006/relationships");
-
-        sheet.writeStartElement("dimension");
-        sheet.writeAttribute("ref", "A1");
-        sheet.writeEndElement();
+        sheet.writeDefaultNamespace(MAIN_NS);
+        sheet.writeNamespace("r", REL_NS);
+
+        String dimension = nextDimension();
+        if (null != dimension) {
+            sheet.writeStartElement("dimension");
+            sheet.writeAttribute("ref", dimension);
+            sheet.writeEndElement();
+        }
 
         sheet.writeStartElement("sheetViews");
         sheet.writeStartElement("sheetView");
@@ -77,22 +270,213 @@ class StreamingWorkbookWriter {
 
     @SneakyThrows
     public void finish() {
-        sheetWriter.writeEndElement();// sheetData
-        sheetWriter.writeEndDocument();
-        sheetWriter.close();
+        try {
+            if (0 == sheets) {
+                startNextSheet();
+            }
+            endSheet();
+
+            writeSharedStrings();
+            writeStyles();
+            writeWorkbook();
+            writeWorkbookRels();
+            writeContentTypes();
+            addTemplate(zout, "_rels/.rels");
+            addTemplate(zout, "docProps/app.xml");
+            addTemplate(zout, "docProps/core.xml");
+
+            zout.finish();
+        } finally {
+            if (null != sharedStrings) {
+                sharedStrings.dispose();
+            }
+            sheetWriter = null;
+            zout = null;
+        }
+    }
+
+    private XMLStreamWriter startEntry(String name) throws Exception {
+        zout.putNextEntry(new ZipEntry(name));
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(zout, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        return writer;
+    }
+
+    private void endEntry(XMLStreamWriter writer) throws Exception {
+        writer.writeEndDocument();
+        writer.close();
+        zout.closeEntry();
+    }
+
+    private void writeWorkbook() throws Exception {
+        XMLStreamWriter workbook = startEntry("xl/workbook.xml");
+        workbook.writeStartElement("workbook");
+        workbook.writeDefaultNamespace(MAIN_NS);
+        workbook.writeNamespace("r", REL_NS);
+        emptyElement(workbook, "workbookPr", "date1904", "false");
+        workbook.writeStartElement("bookViews");
+        emptyElement(workbook, "workbookView", "activeTab", "0");
+        workbook.writeEndElement();
+        workbook.writeStartElement("sheets");
+        for (int sheet = 1; sheet <= sheets; sheet++) {
+            workbook.writeEmptyElement("sheet");
+            workbook.writeAttribute("name", "Sheet " + sheet);
+            workbook.writeAttribute("sheetId", String.valueOf(sheet));
+            workbook.writeAttribute("r", REL_NS, "id", sheetRelId(sheet));
+        }
+        workbook.writeEndElement();
+        endEntry(workbook);
+    }
+
+    private static String sheetRelId(int sheet) {
+        // rId1 and rId2 are the shared strings and styles
+        return "rId" + (sheet + 2);
+    }
+
+    private void writeWorkbookRels() throws Exception {
+        XMLStreamWriter rels = startEntry("xl/_rels/workbook.xml.rels");
+        rels.writeStartElement("Relationships");
+        rels.writeDefaultNamespace(PACKAGE_REL_NS);
+        relationship(rels, "rId1", "sharedStrings.xml", REL_NS + "/sharedStrings");
+        relationship(rels, "rId2", "styles.xml", REL_NS + "/styles");
+        for (int sheet = 1; sheet <= sheets; sheet++) {
+            relationship(rels, sheetRelId(sheet), "worksheets/sheet%d.xml".formatted(sheet), REL_NS + "/worksheet");
+        }
+        rels.writeEndElement();
+        endEntry(rels);
+    }
+
+    private void relationship(XMLStreamWriter rels, String id, String target, String type)
+            throws XMLStreamException {
+        rels.writeEmptyElement("Relationship");
+        rels.writeAttribute("Id", id);
+        rels.writeAttribute("Target", target);
+        rels.writeAttribute("Type", type);
+    }
+
+    private void writeContentTypes() throws Exception {
+        final String officeDocument = "application/vnd.openxmlformats-officedocument.";
+        XMLStreamWriter types = startEntry("[Content_Types].xml");
+        types.writeStartElement("Types");
+        types.writeDefaultNamespace("http://schemas.openxmlformats.org/package/2006/content-types");
+        contentType(types, "Default", "Extension", "rels", "application/vnd.openxmlformats-package.relationships+xml");
+        contentType(types, "Default", "Extension", "xml", "application/xml");
+        contentType(types, "Override", "PartName", "/xl/sharedStrings.xml",
+                officeDocument + "spreadsheetml.sharedStrings+xml");
+        contentType(types, "Override", "PartName", "/xl/styles.xml", officeDocument + "spreadsheetml.styles+xml");
+        contentType(types, "Override", "PartName", "/xl/workbook.xml",
+                officeDocument + "spreadsheetml.sheet.main+xml");
+        for (int sheet = 1; sheet <= sheets; sheet++) {
+            contentType(types, "Override", "PartName", "/xl/worksheets/sheet%d.xml".formatted(sheet),
+                    officeDocument + "spreadsheetml.worksheet+xml");
+        }
+        contentType(types, "Override", "PartName", "/docProps/core.xml",
+                "application/vnd.openxmlformats-package.core-properties+xml");
+        contentType(types, "Override", "PartName", "/docProps/app.xml",
+                officeDocument + "extended-properties+xml");
+        types.writeEndElement();
+        endEntry(types);
+    }
+
+    private void contentType(XMLStreamWriter types, String element, String keyAttribute, String key,
+            String contentType) throws XMLStreamException {
+        types.writeEmptyElement(element);
+        types.writeAttribute(keyAttribute, key);
+        types.writeAttribute("ContentType", contentType);
+    }
+
+    private void writeSharedStrings() throws Exception {
+        zout.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+        if (null == sharedStrings) {
+            SharedStrings.writeEmpty(zout);
+        } else {
+            sharedStrings.writeTo(zout);
+        }
+        zout.closeEntry();
+    }
+
+    /**
+     * Writes the default style, and the date and date-time ones referenced by
+     * {@link #DATE_STYLE} and {@link #DATE_TIME_STYLE}
+     */
+    private void writeStyles() throws Exception {
+        XMLStreamWriter styles = startEntry("xl/styles.xml");
+        styles.writeStartElement("styleSheet");
+        styles.writeDefaultNamespace(MAIN_NS);
+
+        styles.writeStartElement("numFmts");
+        styles.writeAttribute("count", "2");
+        numFmt(styles, "164", "yyyy-mm-dd");
+        numFmt(styles, "165", "yyyy-mm-dd hh:mm:ss");
+        styles.writeEndElement();
+
+        styles.writeStartElement("fonts");
+        styles.writeAttribute("count", "1");
+        styles.writeStartElement("font");
+        emptyElement(styles, "sz", "val", "11");
+        emptyElement(styles, "name", "val", "Calibri");
+        styles.writeEndElement();
+        styles.writeEndElement();
+
+        // the first two fills are reserved
+        styles.writeStartElement("fills");
+        styles.writeAttribute("count", "2");
+        for (String pattern : new String[] { "none", "gray125" }) {
+            styles.writeStartElement("fill");
+            emptyElement(styles, "patternFill", "patternType", pattern);
+            styles.writeEndElement();
+        }
+        styles.writeEndElement();
+
+        styles.writeStartElement("borders");
+        styles.writeAttribute("count", "1");
+        styles.writeStartElement("border");
+        for (String side : new String[] { "left", "right", "top", "bottom", "diagonal" }) {
+            styles.writeEmptyElement(side);
+        }
+        styles.writeEndElement();
+        styles.writeEndElement();
+
+        styles.writeStartElement("cellStyleXfs");
+        styles.writeAttribute("count", "1");
+        xf(styles, "0", false);
+        styles.writeEndElement();
+
+        styles.writeStartElement("cellXfs");
+        styles.writeAttribute("count", "3");
+        xf(styles, "0", true);
+        xf(styles, "164", true);
+        xf(styles, "165", true);
+        styles.writeEndElement();
+
+        styles.writeEndElement();// styleSheet
+        endEntry(styles);
+    }
+
+    private void numFmt(XMLStreamWriter styles, String id, String format) throws XMLStreamException {
+        styles.writeEmptyElement("numFmt");
+        styles.writeAttribute("numFmtId", id);
+        styles.writeAttribute("formatCode", format);
+    }
 
-        addTemplate(zout, "_rels/.rels");
-        addTemplate(zout, "docProps/app.xml");
-        addTemplate(zout, "docProps/core.xml");
-        addTemplate(zout, "xl/_rels/workbook.xml.rels");
-        addTemplate(zout, "xl/sharedStrings.xml");
-        addTemplate(zout, "xl/styles.xml");
-        addTemplate(zout, "xl/workbook.xml");
-        addTemplate(zout, "[Content_Types].xml");
+    private void xf(XMLStreamWriter styles, String numFmtId, boolean cellXf) throws XMLStreamException {
+        styles.writeEmptyElement("xf");
+        styles.writeAttribute("numFmtId", numFmtId);
+        styles.writeAttribute("fontId", "0");
+        styles.writeAttribute("fillId", "0");
+        styles.writeAttribute("borderId", "0");
+        if (cellXf) {
+            styles.writeAttribute("xfId", "0");
+            if (!"0".equals(numFmtId)) {
+                styles.writeAttribute("applyNumberFormat", "1");
+            }
+        }
+    }
 
-        zout.finish();
-        sheetWriter = null;
-        zout = null;
+    private void emptyElement(XMLStreamWriter writer, String name, String attribute, String value)
+            throws XMLStreamException {
+        writer.writeEmptyElement(name);
+        writer.writeAttribute(attribute, value);
     }
 
     private @SneakyThrows void addTemplate(ZipOutputStream zout, String fileName) {
@@ -109,6 +493,9 @@ class StreamingWorkbookWriter {
         if (null != lastRow && !lastRow.finished) {
             lastRow.end();
         }
+        if (0 == sheets || (null != lastRow && lastRow.rowNum >= maxRowsPerSheet)) {
+            startNextSheet();
+        }
         if (null == lastRow) {
             lastRow = new StreamingRow(1, sheetWriter, this);
         } else {
@@ -117,6 +504,28 @@ class StreamingWorkbookWriter {
         return lastRow;
     }
 
+    private static String columnLetters(int index) {
+        StringBuilder letters = new StringBuilder(3);
+        int n = index + 1;
+        while (n > 0) {
+            letters.insert(0, (char) ('A' + (n - 1) % 26));
+            n = (n - 1) / 26;
+        }
+        return letters.toString();
+    }
+
+    /**
+     * @return the Excel serial date of {@code date}, or {@code null} if it
+     *         predates {@link #MIN_DATE}
+     */
+    static Double serialDate(LocalDateTime date) {
+        if (date.toLocalDate().isBefore(MIN_DATE)) {
+            return null;
+        }
+        long days = ChronoUnit.DAYS.between(EPOCH, date.toLocalDate());
+        return days + date.toLocalTime().toNanoOfDay() / 86_400_000_000_000d;
+    }
+
     @RequiredArgsConstructor
     public static class StreamingRow {
 
@@ -127,7 +536,8 @@ class StreamingWorkbookWriter {
         private boolean started;
         private boolean finished;
 
-        private ColumnNames colNames;
+        private String rowRef;
+        private int column;
 
         public StreamingRow nextRow() {
             end();
@@ -136,9 +546,9 @@ class StreamingWorkbookWriter {
 
         public @SneakyThrows StreamingRow start() {
             if (!started) {
-                colNames = new ColumnNames(rowNum);
+                rowRef = String.valueOf(rowNum);
                 writer.writeStartElement("row");
-                writer.writeAttribute("r", String.valueOf(rowNum));
+                writer.writeAttribute("r", rowRef);
                 started = true;
             }
             return this;
@@ -146,61 +556,112 @@ class StreamingWorkbookWriter {
 
         public @SneakyThrows StreamingRow addColumnValue(Object value) {
             start();
-            final String nextColumn = colNames.nextColumn();
-            if (null != value) {
-                writer.writeStartElement("c");
-                writer.writeAttribute("r", nextColumn);
-
-                if (value instanceof Number) {
-                    writer.writeStartElement("v");
-                    writer.writeCharacters(value.toString());
-                    writer.writeEndElement();
-                } else {
-                    writer.writeAttribute("t", "inlineStr");
-                    writer.writeStartElement("is");
-                    writer.writeStartElement("t");
-                    writeValue(value);
-                    writer.writeEndElement();// t
-                    writer.writeEndElement();// is
-                }
-                writer.writeEndElement();// c
+            if (column == MAX_COLUMNS) {
+                throw new IllegalStateException("Too many columns, the maximum is " + MAX_COLUMNS);
+            }
+            final String cellRef = COLUMN_LETTERS[column++] + rowRef;
+            if (null == value) {
+                return this;
+            }
+            if (value instanceof Boolean bool) {
+                cell(cellRef, "b", null, bool.booleanValue() ? "1" : "0");
+            } else if (value instanceof Number number && isFinite(number)) {
+                cell(cellRef, null, null, number.toString());
+            } else if (!writeDate(cellRef, value)) {
+                writeText(cellRef, Converters.convert(value, String.class));
             }
             return this;
         }
 
-        private @SneakyThrows void writeValue(Object nextCellValue) {
-            writer.writeCharacters(Converters.convert(nextCellValue, String.class));
+        private static boolean isFinite(Number number) {
+            if (number instanceof Double d) {
+                return Double.isFinite(d);
+            }
+            if (number instanceof Float f) {
+                return Float.isFinite(f);
+            }
+            return true;
         }
 
-        public @SneakyThrows StreamingWorkbookWriter end() {
-            if (!finished) {
-                writer.writeEndElement();
-                finished = true;
+        private boolean writeDate(String cellRef, Object value) throws XMLStreamException {
+            final LocalDateTime dateTime;
+            final boolean dateOnly;
+            if (value instanceof java.sql.Date date) {
+                dateTime = date.toLocalDate().atStartOfDay();
+                dateOnly = true;
+            } else if (value instanceof java.sql.Time) {
+                return false;
+            } else if (value instanceof java.util.Date date) {
+                // an instant, written in UTC like the other output formats do
+                dateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC);
+                dateOnly = false;
+            } else if (value instanceof Calendar calendar) {
+                dateTime = LocalDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+                dateOnly = false;
+            } else if (value instanceof LocalDate date) {
+                dateTime = date.atStartOfDay();
+                dateOnly = true;
+            } else if (value instanceof LocalDateTime date) {
+                dateTime = date;
+                dateOnly = false;
+            } else if (value instanceof OffsetDateTime date) {
+                dateTime = date.toLocalDateTime();
+                dateOnly = false;
+            } else if (value instanceof ZonedDateTime date) {
+                dateTime = date.toLocalDateTime();
+                dateOnly = false;
+            } else {
+                return false;
             }
-            return workbook;
+            Double serial = serialDate(dateTime);
+            if (null == serial) {
+                return false;
+            }
+            String style = dateOnly ? DATE_STYLE : DATE_TIME_STYLE;
+            cell(cellRef, null, style, dateOnly ? String.valueOf(serial.longValue()) : serial.toString());
+            return true;
         }
-    }
-
-    @RequiredArgsConstructor
-    private static class ColumnNames {
-
-        static final List<String> letters = List.of("A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M",
-                "N", "O", "P", "Q", "R", "S", "T", "U", "V", "W", "X", "Y", "Z");
-
-        private final int rowNum;
 
-        private int index = 0;
+        private void writeText(String cellRef, String text) throws IOException, XMLStreamException {
+            if (null == text) {
+                return;
+            }
+            text = SharedStrings.sanitize(text);
+            int index = null == workbook.sharedStrings ? -1 : workbook.sharedStrings.indexOf(text);
+            if (index >= 0) {
+                cell(cellRef, "s", null, String.valueOf(index));
+                return;
+            }
+            writer.writeStartElement("c");
+            writer.writeAttribute("r", cellRef);
+            writer.writeAttribute("t", "inlineStr");
+            writer.writeStartElement("is");
+            SharedStrings.writeText(writer, text);
+            writer.writeEndElement();// is
+            writer.writeEndElement();// c
+        }
 
-        public String nextColumn() {
-            String colName = "";
-            int n = ++index;
+        private void cell(String cellRef, String type, String style, String value) throws XMLStreamException {
+            writer.writeStartElement("c");
+            writer.writeAttribute("r", cellRef);
+            if (null != type) {
+                writer.writeAttribute("t", type);
+            }
+            if (null != style) {
+                writer.writeAttribute("s", style);
+            }
+            writer.writeStartElement("v");
+            writer.writeCharacters(value);
+            writer.writeEndElement();
+            writer.writeEndElement();// c
+        }
 
-            while (n > 0) {
-                int i = (n - 1) % letters.size();
-                colName = letters.get(i) + colName;
-                n = (n - 1) / letters.size();
+        public @SneakyThrows StreamingWorkbookWriter end() {
+            if (started && !finished) {
+                writer.writeEndElement();
             }
-            return colName + rowNum;
+            finished = true;
+            return workbook;
         }
     }
 }
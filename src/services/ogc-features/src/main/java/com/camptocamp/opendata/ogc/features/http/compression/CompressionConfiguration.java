@@ -0,0 +1,66 @@
+package com.camptocamp.opendata.ogc.features.http.compression;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Configuration properties for the compression of API responses.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * compression:
+ *   enabled: true
+ *   level: 6
+ *   buffer-size: 16KB
+ *   flush-size: 64KB
+ * </code>
+ * </pre>
+ * <p>
+ * Responses are gzip compressed when the client accepts it, except for formats
+ * that are already compressed (i.e. zipped shapefiles and Excel workbooks).
+ * {@code level} trades CPU for size, from {@literal 1} (fastest) to
+ * {@literal 9} (smallest). Streamed responses are flushed to the client every
+ * {@code flush-size} of uncompressed output, and right after the first chunk,
+ * so that clients start receiving features before the whole response is
+ * encoded.
+ *
+ * @see CompressionFilter
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "compression")
+public class CompressionConfiguration {
+
+    /**
+     * Whether to compress responses for clients that accept it
+     */
+    private boolean enabled = true;
+
+    /**
+     * Deflate compression level
+     */
+    @Min(1)
+    @Max(9)
+    private int level = 6;
+
+    /**
+     * Size of the compressor's output buffer
+     */
+    @NotNull
+    private DataSize bufferSize = DataSize.ofKilobytes(16);
+
+    /**
+     * Amount of uncompressed output after which the compressed output is flushed
+     * to the client
+     */
+    @NotNull
+    private DataSize flushSize = DataSize.ofKilobytes(64);
+}
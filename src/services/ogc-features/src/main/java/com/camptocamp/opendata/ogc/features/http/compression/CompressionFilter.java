@@ -0,0 +1,400 @@
+package com.camptocamp.opendata.ogc.features.http.compression;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.VARY;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.camptocamp.opendata.ogc.features.http.caching.EntityTags;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Filter that gzip compresses responses for clients whose
+ * {@literal Accept-Encoding} allows it.
+ * <p>
+ * Whether to compress is decided when the response body is first written to,
+ * once its content type is known. {@link MimeTypes#isCompressed() Compressed
+ * formats}, non textual content types, and responses with a
+ * {@literal Content-Encoding} already are written as is. The compressed output
+ * is flushed to the client right after the first chunk, and every
+ * {@link CompressionConfiguration#getFlushSize() flush-size} of uncompressed
+ * output afterwards, so that streamed feature collections reach clients while
+ * they're being encoded. Strong entity tags of compressed responses are made
+ * weak, as the compressed bytes are not those the tag was computed for.
+ * <p>
+ * Publishes the following metrics, tagged with the response {@literal format}
+ * short name and the {@literal encoding}:
+ * <ul>
+ * <li>{@literal http.server.compression.ratio}: uncompressed to compressed size
+ * ratio of the response bodies
+ * <li>{@literal http.server.compression.time}: time spent compressing each
+ * response body, excluding the time spent writing it out to the client
+ * </ul>
+ */
+@RequiredArgsConstructor
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.http.compression")
+public class CompressionFilter extends OncePerRequestFilter {
+
+    static final String GZIP = "gzip";
+
+    private final @NonNull CompressionConfiguration config;
+    private final @NonNull MeterRegistry registry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        response.addHeader(VARY, ACCEPT_ENCODING);
+        if (!acceptsGzip(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse(response);
+        try {
+            chain.doFilter(request, compressing);
+        } finally {
+            compressing.finish();
+        }
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(ACCEPT_ENCODING);
+        while (null != headers && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.trim().split(";");
+                String name = parts[0].trim();
+                if ((GZIP.equalsIgnoreCase(name) || "*".equals(name)) && !isZeroQuality(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            String param = codingParts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) == 0d;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the format short name to tag metrics with, or {@code null} if the
+     *         content type is not worth compressing
+     */
+    static String compressibleFormat(String contentType) {
+        if (null == contentType) {
+            return null;
+        }
+        final MimeType mimeType;
+        try {
+            mimeType = MimeType.valueOf(contentType);
+        } catch (InvalidMimeTypeException e) {
+            return null;
+        }
+        return MimeTypes.find(mimeType).map(m -> m.isCompressed() ? null : m.getShortName())
+                .orElseGet(() -> isTextual(mimeType) ? mimeType.getSubtype() : null);
+    }
+
+    private static boolean isTextual(MimeType mimeType) {
+        String subtype = mimeType.getSubtype();
+        return "text".equals(mimeType.getType()) || "json".equals(subtype) || "xml".equals(subtype)
+                || subtype.endsWith("+json") || subtype.endsWith("+xml");
+    }
+
+    private class CompressingResponse extends HttpServletResponseWrapper {
+
+        private GzipServletOutputStream gzip;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (null != writer) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (null == outputStream) {
+                String format = format();
+                outputStream = null == format ? super.getOutputStream() : compress(format);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (null != outputStream) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            if (null == writer) {
+                String format = format();
+                writer = null == format ? super.getWriter()
+                        : new PrintWriter(new OutputStreamWriter(compress(format), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        private String format() {
+            int status = getStatus();
+            if (isCommitted() || null != getHeader(CONTENT_ENCODING) || status == SC_NO_CONTENT
+                    || status == SC_NOT_MODIFIED) {
+                return null;
+            }
+            return compressibleFormat(getContentType());
+        }
+
+        private GzipServletOutputStream compress(String format) throws IOException {
+            if (containsHeader(CONTENT_LENGTH)) {
+                super.setContentLengthLong(-1);
+            }
+            super.setHeader(CONTENT_ENCODING, GZIP);
+            String etag = getHeader(ETAG);
+            if (null != etag) {
+                super.setHeader(ETAG, EntityTags.weak(etag));
+            }
+            gzip = new GzipServletOutputStream(super.getOutputStream(), format);
+            return gzip;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            if (null == gzip) {
+                super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (null == gzip) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (null == gzip || !CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (null == gzip || !CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (null != writer) {
+                writer.flush();
+            } else if (null != gzip) {
+                gzip.flush();
+            }
+            super.flushBuffer();
+        }
+
+        void finish() throws IOException {
+            if (null != writer && null != gzip) {
+                writer.flush();
+            }
+            if (null != gzip) {
+                gzip.finish();
+            }
+        }
+    }
+
+    /**
+     * {@link GZIPOutputStream} with a configurable compression level, exposing
+     * the uncompressed and compressed byte counts
+     */
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+        LeveledGZIPOutputStream(OutputStream out, int bufferSize, int level) throws IOException {
+            // syncFlush for flush() to actually emit the data compressed so far
+            super(out, bufferSize, true);
+            def.setLevel(level);
+        }
+
+        long uncompressed() {
+            return def.getBytesRead();
+        }
+
+        long compressed() {
+            return def.getBytesWritten();
+        }
+
+        /**
+         * Releases the deflater's native memory, since it's not the default one
+         * {@link #close()} would release
+         */
+        void end() {
+            def.end();
+        }
+    }
+
+    private class GzipServletOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+        private final String format;
+        private final LeveledGZIPOutputStream gzip;
+        private final long flushSize = config.getFlushSize().toBytes();
+
+        private long unflushed;
+        private boolean flushed;
+        private boolean finished;
+
+        /**
+         * Total time spent in {@link #gzip}, and time spent writing to
+         * {@link #target} from within it, to tell compression time apart
+         */
+        private long totalNanos;
+        private long targetNanos;
+
+        GzipServletOutputStream(ServletOutputStream target, String format) throws IOException {
+            this.target = target;
+            this.format = format;
+            OutputStream timedTarget = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    long start = System.nanoTime();
+                    target.write(b);
+                    targetNanos += System.nanoTime() - start;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    long start = System.nanoTime();
+                    target.write(b, off, len);
+                    targetNanos += System.nanoTime() - start;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    long start = System.nanoTime();
+                    target.flush();
+                    targetNanos += System.nanoTime() - start;
+                }
+            };
+            this.gzip = new LeveledGZIPOutputStream(timedTarget, (int) config.getBufferSize().toBytes(),
+                    config.getLevel());
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            gzip.write(b);
+            totalNanos += System.nanoTime() - start;
+            written(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            gzip.write(b, off, len);
+            totalNanos += System.nanoTime() - start;
+            written(len);
+        }
+
+        private void written(int len) throws IOException {
+            unflushed += len;
+            if (!flushed || unflushed >= flushSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (finished) {
+                return;
+            }
+            long start = System.nanoTime();
+            gzip.flush();
+            totalNanos += System.nanoTime() - start;
+            unflushed = 0;
+            flushed = true;
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long start = System.nanoTime();
+            try {
+                gzip.finish();
+            } finally {
+                totalNanos += System.nanoTime() - start;
+                record();
+                gzip.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            target.close();
+        }
+
+        private void record() {
+            Timer.builder("http.server.compression.time").description("Time spent compressing response bodies")
+                    .tag("format", format).tag("encoding", GZIP).register(registry)
+                    .record(Math.max(0, totalNanos - targetNanos), TimeUnit.NANOSECONDS);
+            long compressed = gzip.compressed();
+            if (compressed > 0) {
+                DistributionSummary.builder("http.server.compression.ratio")
+                        .description("Uncompressed to compressed size ratio of response bodies")
+                        .tag("format", format).tag("encoding", GZIP).register(registry)
+                        .record((double) gzip.uncompressed() / compressed);
+            }
+            log.trace("Compressed {} response from {} to {} bytes", format, gzip.uncompressed(), compressed);
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+    }
+}
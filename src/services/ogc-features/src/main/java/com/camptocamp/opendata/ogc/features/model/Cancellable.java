@@ -0,0 +1,17 @@
+package com.camptocamp.opendata.ogc.features.model;
+
+/**
+ * Implemented by feature sources able to abort the backend queries they have
+ * in flight, for features nobody is going to consume not to be read any
+ * further.
+ *
+ * @see FeatureCollection#cancel()
+ */
+public interface Cancellable {
+
+    /**
+     * Aborts the backend queries in flight and releases their resources. Safe to
+     * call from any thread, and more than once.
+     */
+    void cancel();
+}
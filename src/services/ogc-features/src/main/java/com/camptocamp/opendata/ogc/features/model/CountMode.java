@@ -0,0 +1,39 @@
+package com.camptocamp.opendata.ogc.features.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Strategy used to compute a {@link FeatureCollection}'s
+ * {@link FeatureCollection#getNumberMatched() numberMatched}, reported back to
+ * clients as {@link FeatureCollection#getNumberMatchedMode()
+ * numberMatchedMode} so they know how much to trust it.
+ */
+public enum CountMode {
+    /**
+     * Run a count query for each request. Always accurate, but may be as expensive
+     * as the query itself on large tables. Reported as {@literal -1} if the
+     * backend can't count without fetching the matching features (e.g. a filter
+     * it can't encode natively).
+     */
+    EXACT,
+    /**
+     * Use the backend's planner statistics (e.g. PostgreSQL's
+     * {@code pg_class.reltuples} or {@code EXPLAIN} row estimates), falling back
+     * to {@link #EXACT} if the backend can't provide an estimate.
+     */
+    ESTIMATED,
+    /**
+     * Run an exact count once per collection and filter, and reuse it for
+     * subsequent requests (e.g. while paging) until it expires.
+     */
+    CACHED,
+    /**
+     * Don't compute {@code numberMatched} at all.
+     */
+    NONE;
+
+    @JsonValue
+    public String value() {
+        return name().toLowerCase();
+    }
+}
@@ -3,8 +3,10 @@ package com.camptocamp.opendata.ogc.features.model;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
+import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.springframework.format.annotation.DateTimeFormat;
 
@@ -12,7 +14,8 @@ import com.camptocamp.opendata.model.GeodataRecord;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
-@JsonPropertyOrder({ "type", "timeStamp", "numberMatched", "numberReturned", "features", "links" })
+@JsonPropertyOrder({ "type", "timeStamp", "numberMatched", "numberMatchedMode", "features", "numberReturned",
+        "links" })
 public interface FeatureCollection {
 
     @JsonIgnore
@@ -34,9 +37,124 @@ public interface FeatureCollection {
 
     Long getNumberMatched();
 
+    /**
+     * @return how {@link #getNumberMatched() numberMatched} was computed, or
+     *         {@code null} if not applicable
+     */
+    default CountMode getNumberMatchedMode() {
+        return null;
+    }
+
+    /**
+     * @return the number of features returned. Serialized after
+     *         {@link #getFeatures() features} for implementations that can only
+     *         know it once they've been streamed out.
+     */
     Long getNumberReturned();
 
     Stream<GeodataRecord> getFeatures();
 
+    /**
+     * @return the features as read from the backend, with their default geometry
+     *         in the {@link #getTargetSrs() target CRS}, for encoders mapping the
+     *         {@link #getOriginalContents() original contents} schema straight to
+     *         their output. Accounted for like {@link #getFeatures()}.
+     * @throws UnsupportedOperationException if the implementation is not backed
+     *                                       by GeoTools features
+     */
+    @JsonIgnore
+    default Stream<SimpleFeature> getSimpleFeatures() {
+        throw new UnsupportedOperationException("not backed by GeoTools features");
+    }
+
+    /**
+     * @return the features as read from the backend, with their default geometry
+     *         in the CRS of the {@link #getOriginalContents() original contents}
+     *         schema, for encoders keeping it unless a target CRS is
+     *         {@link #isTargetCrsRequested() requested}. Accounted for like
+     *         {@link #getFeatures()}.
+     * @throws UnsupportedOperationException if the implementation is not backed
+     *                                       by GeoTools features
+     */
+    @JsonIgnore
+    default Stream<SimpleFeature> getNativeFeatures() {
+        throw new UnsupportedOperationException("not backed by GeoTools features");
+    }
+
+    /**
+     * @return whether the {@link #getTargetSrs() target CRS} was requested, or is
+     *         the default one
+     */
+    @JsonIgnore
+    default boolean isTargetCrsRequested() {
+        return false;
+    }
+
+    /**
+     * @return the identifier of the CRS the features are output in
+     */
+    @JsonIgnore
+    default String getTargetSrs() {
+        return "EPSG:4326";
+    }
+
+    /**
+     * @return a writer encoding the features as GeoJSON straight from the backend,
+     *         to be used instead of {@link #getFeatures()} for GeoJSON output, or
+     *         empty if the backend doesn't support it for this collection
+     */
+    @JsonIgnore
+    default Optional<GeoJsonFeatureWriter> getGeoJsonFeatureWriter() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the number of decimals to round output coordinates to, or empty for
+     *         full precision
+     */
+    @JsonIgnore
+    default Optional<Integer> getCoordinatePrecision() {
+        return Optional.empty();
+    }
+
     List<Link> getLinks();
+
+    /**
+     * Adds a {@literal next} link, if the implementation can only know whether
+     * there's a next page after streaming out its features, it may defer adding
+     * it until then, and only if {@code pageSize} features were returned.
+     */
+    default void addNextLink(Link next, long pageSize) {
+        getLinks().add(Math.min(1, getLinks().size()), next);
+    }
+
+    /**
+     * @return whether the collection is paged with a keyset cursor instead of an
+     *         offset, in which case the {@literal next} link shall be added
+     *         through {@link #addNextLink(Function, long)}
+     */
+    @JsonIgnore
+    default boolean isCursorPaged() {
+        return false;
+    }
+
+    /**
+     * Adds a {@literal next} link pointing right after the last streamed feature,
+     * once the features have been streamed out, and only if {@code pageSize}
+     * features were returned.
+     *
+     * @param next function creating the link for the cursor of the last feature
+     * @throws IllegalStateException if the collection is not
+     *                               {@link #isCursorPaged() cursor paged}
+     */
+    void addNextLink(Function<String, Link> next, long pageSize);
+
+    /**
+     * Stops streaming out the features, e.g. because the client disconnected,
+     * cancelling the backend query if possible. Safe to call more than once, and
+     * a no-op by default.
+     */
+    default void cancel() {
+        // no-op
+    }
 }
@@ -0,0 +1,25 @@
+package com.camptocamp.opendata.ogc.features.model;
+
+import java.io.IOException;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the features of a {@link FeatureCollection} straight to a
+ * {@link JsonGenerator} as GeoJSON {@literal Feature} objects, for backends
+ * able to produce them more efficiently than by going through
+ * {@link GeodataRecord}s.
+ *
+ * @see FeatureCollection#getGeoJsonFeatureWriter()
+ */
+@FunctionalInterface
+public interface GeoJsonFeatureWriter {
+
+    /**
+     * @param generator the generator to write to, positioned inside the
+     *                  {@literal features} array
+     * @return the number of features written
+     */
+    long write(JsonGenerator generator) throws IOException;
+}
@@ -6,18 +6,30 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.referencing.FactoryException;
+import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.api.referencing.operation.MathTransform;
+import org.geotools.api.referencing.operation.TransformException;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.transform.IdentityTransform;
+import org.locationtech.jts.geom.Geometry;
 
 import com.camptocamp.opendata.model.GeodataRecord;
-import com.camptocamp.opendata.processor.geotools.GeoToolsProcessors;
 import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
+import com.camptocamp.opendata.producer.geotools.SimpleFeatureRecord;
+import com.camptocamp.opendata.producer.geotools.SimpleFeatureRecordMapper;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import io.micrometer.common.util.StringUtils;
@@ -29,34 +41,309 @@ import lombok.Setter;
 @RequiredArgsConstructor
 public class GeoToolsFeatureCollection implements FeatureCollection {
 
-    private final @NonNull Function<SimpleFeature, GeodataRecord> featureMapper = new FeatureToRecord();
-
     private final @NonNull @Getter Collection collection;
     private final @NonNull SimpleFeatureCollection features;
-    private final @NonNull GeoToolsProcessors gtProcessors = new GeoToolsProcessors();
 
     private @Setter @Getter Long numberMatched;
-    private @Setter @Getter Long numberReturned;
+    private @Setter @Getter CountMode numberMatchedMode;
+    private @Setter Long numberReturned;
     private @JsonIgnore @Setter @Getter String targetCrs;
-    private final @Getter List<Link> links = new ArrayList<>();
+
+    /**
+     * Whether the backend returns the default geometries in the
+     * {@link #getTargetSrs() target CRS} already, despite the {@link #features}
+     * schema reporting their native CRS
+     */
+    private @JsonIgnore @Setter boolean reprojected;
+
+    /**
+     * The {@link #features} as read without the backend reprojection, for
+     * {@link #getNativeFeatures()} if they're {@link #reprojected}
+     */
+    private @JsonIgnore @Setter SimpleFeatureCollection nativeFeatures;
+    private @Setter Integer coordinatePrecision;
+    private final List<Link> links = new ArrayList<>();
+
+    /**
+     * Number of features actually streamed out by {@link #getFeatures()}, used as
+     * {@link #getNumberReturned() numberReturned} when it's not known beforehand.
+     * Volatile since it's also read by {@link #cancel()}, on whatever thread
+     * detected the client went away.
+     */
+    private volatile long streamed;
+    private boolean featuresRequested;
+
+    /**
+     * {@literal next} link to be added only once the features have been streamed
+     * and it's known whether the page was full
+     */
+    private Link nextLink;
+    private long pageSize;
+
+    /**
+     * Creates the keyset paging cursor pointing right after a given feature, if
+     * the collection is paged with a cursor
+     */
+    private @Setter Function<SimpleFeature, String> cursorEncoder;
+    private Function<String, Link> nextCursorLink;
+    private SimpleFeature lastStreamed;
+
+    /**
+     * Backend provided GeoJSON encoder for {@link #features}, if any
+     */
+    private @Setter GeoJsonFeatureWriter geoJsonFeatureWriter;
+
+    /**
+     * Notified once if the collection is {@link #cancel() cancelled}, with the
+     * estimated number of features that were not streamed out
+     */
+    private @Setter LongConsumer cancellationListener;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * Iterator of the features being streamed out, to be closed right away on
+     * {@link #cancel()}
+     */
+    private final AtomicReference<SimpleFeatureIterator> open = new AtomicReference<>();
+
+    @JsonIgnore
+    @Override
+    public Optional<Integer> getCoordinatePrecision() {
+        return Optional.ofNullable(coordinatePrecision);
+    }
+
+    /**
+     * @return the number of returned features if known beforehand, or the number
+     *         of features streamed so far otherwise
+     */
+    @Override
+    public Long getNumberReturned() {
+        if (null == numberReturned && featuresRequested) {
+            return streamed;
+        }
+        return numberReturned;
+    }
+
+    @Override
+    public List<Link> getLinks() {
+        if (nextLink != null && featuresRequested && streamed >= pageSize) {
+            links.add(Math.min(1, links.size()), nextLink);
+            nextLink = null;
+        }
+        if (nextCursorLink != null && featuresRequested && streamed >= pageSize && lastStreamed != null) {
+            links.add(Math.min(1, links.size()), nextCursorLink.apply(cursorEncoder.apply(lastStreamed)));
+            nextCursorLink = null;
+        }
+        return links;
+    }
+
+    /**
+     * Defers adding the {@literal next} link until the features are streamed, and
+     * only if the number of streamed features reached the page size.
+     */
+    @Override
+    public void addNextLink(@NonNull Link next, long pageSize) {
+        this.nextLink = next;
+        this.pageSize = pageSize;
+    }
+
+    @JsonIgnore
+    @Override
+    public boolean isCursorPaged() {
+        return cursorEncoder != null;
+    }
+
+    @Override
+    public void addNextLink(@NonNull Function<String, Link> next, long pageSize) {
+        if (!isCursorPaged()) {
+            throw new IllegalStateException("collection is not cursor paged");
+        }
+        this.nextCursorLink = next;
+        this.pageSize = pageSize;
+    }
+
+    @JsonIgnore
+    @Override
+    public boolean isTargetCrsRequested() {
+        return !StringUtils.isEmpty(targetCrs);
+    }
+
+    @JsonIgnore
+    @Override
+    public String getTargetSrs() {
+        return targetSrs(targetCrs);
+    }
+
+    /**
+     * @param targetCrs the EPSG code of the requested CRS, if any
+     * @return the {@literal EPSG:<code>} identifier of the CRS to output the
+     *         features in, {@literal EPSG:4326} by default
+     */
+    public static String targetSrs(String targetCrs) {
+        return "EPSG:%s".formatted(StringUtils.isEmpty(targetCrs) ? "4326" : targetCrs);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned writer accounts for the features it writes the same way
+     * {@link #getFeatures()} does, for {@link #getNumberReturned()} and the
+     * {@literal next} link to be resolved accordingly.
+     */
+    @JsonIgnore
+    @Override
+    public Optional<GeoJsonFeatureWriter> getGeoJsonFeatureWriter() {
+        return Optional.ofNullable(geoJsonFeatureWriter).map(writer -> generator -> {
+            featuresRequested = true;
+            long written = writer.write(generator);
+            streamed += written;
+            return written;
+        });
+    }
 
     @JsonIgnore
     public @Override Optional<SimpleFeatureCollection> getOriginalContents() {
         return Optional.of(features);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Records are lazy {@link SimpleFeatureRecord views} over the
+     * {@link #getSimpleFeatures() reprojected features}, rather than copies.
+     */
     @Override
     public Stream<GeodataRecord> getFeatures() {
-        SimpleFeatureIterator it = features.features();
+        return getSimpleFeatures().map(new SimpleFeatureRecordMapper(getTargetSrs()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Default geometries are reprojected in place, features being read anew from
+     * the backend on each call, unless the backend reprojected them already.
+     */
+    @JsonIgnore
+    @Override
+    public Stream<SimpleFeature> getSimpleFeatures() {
+        MathTransform transform = targetTransform();
+        if (transform.isIdentity()) {
+            return stream(features);
+        }
+        return stream(features).peek(f -> {
+            Geometry geometry = (Geometry) f.getDefaultGeometry();
+            if (null != geometry) {
+                try {
+                    f.setDefaultGeometry(JTS.transform(geometry, transform));
+                } catch (TransformException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Features are read anew from the backend, without its reprojection if they're
+     * {@link #reprojected}.
+     *
+     * @throws UnsupportedOperationException if they're {@link #reprojected} and
+     *                                       no {@link #nativeFeatures} were
+     *                                       provided
+     */
+    @JsonIgnore
+    @Override
+    public Stream<SimpleFeature> getNativeFeatures() {
+        if (!reprojected) {
+            return stream(features);
+        }
+        if (null == nativeFeatures) {
+            throw new UnsupportedOperationException("features are only available in the target CRS");
+        }
+        return stream(nativeFeatures);
+    }
+
+    /**
+     * @return the transform from the features CRS, {@literal CRS84} if unknown,
+     *         to the {@link #getTargetSrs() target CRS}, both in longitude first
+     *         order, or the identity if the features CRS has no identifier or
+     *         they're {@link #reprojected} already
+     */
+    private MathTransform targetTransform() {
+        String sourceSrs = FeatureToRecord.toSrs(features.getSchema().getCoordinateReferenceSystem());
+        if (reprojected || null == sourceSrs) {
+            return IdentityTransform.create(2);
+        }
+        try {
+            CoordinateReferenceSystem sourceCrs = CRS.decode(sourceSrs, true);
+            CoordinateReferenceSystem targetCrs = CRS.decode(getTargetSrs(), true);
+            return CRS.findMathTransform(sourceCrs, targetCrs, true);
+        } catch (FactoryException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Cancels the backend query if the {@link #features}, the
+     * {@link #nativeFeatures} or the {@link #geoJsonFeatureWriter} are
+     * {@link Cancellable}, even if it's still
+     * executing, and closes the iterator of the features being streamed out right
+     * away, instead of waiting for the encoder to fail and close the stream.
+     */
+    @Override
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        if (features instanceof Cancellable cancellable) {
+            cancellable.cancel();
+        }
+        if (nativeFeatures instanceof Cancellable cancellable) {
+            cancellable.cancel();
+        }
+        if (geoJsonFeatureWriter instanceof Cancellable cancellable) {
+            cancellable.cancel();
+        }
+        SimpleFeatureIterator it = open.getAndSet(null);
+        if (null != it) {
+            it.close();
+        }
+        if (null != cancellationListener) {
+            cancellationListener.accept(remaining());
+        }
+    }
+
+    /**
+     * @return the number of features left to stream out, as an upper bound given
+     *         by {@link #numberMatched} if the number of returned features is not
+     *         known beforehand, or {@literal 0} if neither is
+     */
+    private long remaining() {
+        Long expected = null == numberReturned ? numberMatched : numberReturned;
+        return null == expected ? 0 : Math.max(0, expected - streamed);
+    }
+
+    private Stream<SimpleFeature> stream(SimpleFeatureCollection contents) {
+        if (cancelled.get()) {
+            throw new IllegalStateException("feature collection was cancelled");
+        }
+        SimpleFeatureIterator it = contents.features();
+        open.set(it);
         Iterator<SimpleFeature> iterator = DataUtilities.iterator(it);
         int characteristics = Spliterator.DISTINCT | Spliterator.NONNULL;
         Spliterator<SimpleFeature> spliterator = Spliterators.spliteratorUnknownSize(iterator, characteristics);
         Stream<SimpleFeature> stream = StreamSupport.stream(spliterator, false);
-        stream = stream.onClose(it::close);
-        if (!StringUtils.isEmpty(targetCrs)) {
-            return gtProcessors.reproject(String.format("EPSG:%s", targetCrs)).apply(stream.map(featureMapper));
-        } else {
-            return gtProcessors.reproject("EPSG:4326").apply(stream.map(featureMapper));
-        }
+        stream = stream.onClose(() -> {
+            // unless cancel() closed it already
+            if (open.compareAndSet(it, null)) {
+                it.close();
+            }
+        }).peek(f -> {
+            streamed++;
+            lastStreamed = f;
+        });
+        featuresRequested = true;
+        return stream;
     }
 }
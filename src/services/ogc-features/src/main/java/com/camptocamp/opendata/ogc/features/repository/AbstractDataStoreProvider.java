@@ -1,69 +1,208 @@
 package com.camptocamp.opendata.ogc.features.repository;
 
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.geotools.api.data.DataStore;
 import org.springframework.beans.factory.DisposableBean;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Base {@link DataStoreProvider} that lazily creates the {@link DataStore} and
+ * publishes it through an atomic reference, so that {@link #get()} is a single
+ * volatile read once the store is created, with no lock shared amongst
+ * readers.
+ * <p>
+ * Each store instance is tagged with a {@link #generation() generation} number.
+ * {@link #reInit(long)} only re-creates the store if it's still at the
+ * generation the caller found faulty, so that concurrent callers retire it
+ * only once. The new store is published before the retired one is disposed, so
+ * readers never observe a missing store. Only creating, re-creating, and
+ * disposing the store are serialized, using a {@link ReentrantLock} rather
+ * than {@code synchronized} not to pin virtual threads.
+ * <p>
+ * Callers don't release the store they got, so a retired store may still be
+ * serving queries, e.g. a download streaming from it. It's hence disposed
+ * after a {@link #setDisposeDelay(Duration) grace period} rather than right
+ * away, for those queries to complete, or when the provider is
+ * {@link #destroy() destroyed}.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.repository")
 @RequiredArgsConstructor
 public abstract class AbstractDataStoreProvider implements DataStoreProvider, DisposableBean {
 
-    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * A data store instance and the generation it was created at
+     */
+    private record Generation(long number, @NonNull DataStore store) {
+    }
+
+    static final Duration DEFAULT_DISPOSE_DELAY = Duration.ofMinutes(5);
+
+    private static final ScheduledExecutorService DISPOSER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "datastore-disposer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+
+    /**
+     * Retired stores waiting for their grace period to elapse, by generation
+     */
+    private final Map<Long, Generation> retiring = new ConcurrentHashMap<>();
 
-    protected DataStore store;
+    /**
+     * How long a retired store is kept open for the queries still running on it,
+     * {@link Duration#ZERO} to dispose of it right away
+     */
+    private @Setter @NonNull Duration disposeDelay = DEFAULT_DISPOSE_DELAY;
+
+    /**
+     * Serializes changes to {@link #current}, readers don't acquire it
+     */
+    private final Lock lifecycleLock = new ReentrantLock();
+
+    private long lastGeneration;
+
+    private final List<Runnable> schemaChangeListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public DataStore get() {
-        DataStore ds = this.store;
-        lock.readLock().lock();
-        if (ds == null) {
-            lock.readLock().unlock();
-            lock.writeLock().lock();
-            try {
-                ds = this.store;
-                if (ds == null) {
-                    ds = create();
-                    this.store = ds;
-                }
-                lock.readLock().lock();// downgrade
-            } finally {
-                lock.writeLock().unlock();
-            }
+        Generation gen = current.get();
+        if (null == gen) {
+            gen = getOrCreate();
         }
+        return gen.store();
+    }
+
+    private Generation getOrCreate() {
+        lifecycleLock.lock();
         try {
-            return ds;
+            Generation gen = current.get();
+            if (null == gen) {
+                gen = new Generation(++lastGeneration, create());
+                current.set(gen);
+            }
+            return gen;
         } finally {
-            lock.readLock().unlock();
+            lifecycleLock.unlock();
         }
     }
 
+    /**
+     * @return the current data store if already created, without creating it
+     *         otherwise
+     */
+    protected DataStore getIfCreated() {
+        Generation gen = current.get();
+        return null == gen ? null : gen.store();
+    }
+
     protected abstract @NonNull DataStore create();
 
+    @Override
+    public long generation() {
+        Generation gen = current.get();
+        if (null == gen) {
+            gen = getOrCreate();
+        }
+        return gen.number();
+    }
+
+    @Override
     public void reInit() {
-        lock.writeLock().lock();
+        Generation gen = current.get();
+        reInit(null == gen ? 0 : gen.number());
+    }
+
+    /**
+     * Re-creates the data store if it's still at the given generation, publishing
+     * the new store before scheduling the disposal of the retired one. Does
+     * nothing if another caller already re-created it.
+     */
+    @Override
+    public void reInit(long generation) {
+        Generation retired;
+        lifecycleLock.lock();
         try {
-            destroy();
-            store = create();
+            retired = current.get();
+            if (null != retired && retired.number() != generation) {
+                log.debug("DataStore generation {} already retired, now at {}", generation, retired.number());
+                return;
+            }
+            current.set(new Generation(++lastGeneration, create()));
+            if (null != retired) {
+                retire(retired);
+            }
         } finally {
-            lock.writeLock().unlock();
+            lifecycleLock.unlock();
         }
+        fireSchemaChange();
+    }
+
+    @Override
+    public void addSchemaChangeListener(@NonNull Runnable listener) {
+        schemaChangeListeners.add(listener);
+    }
+
+    protected void fireSchemaChange() {
+        schemaChangeListeners.forEach(Runnable::run);
     }
 
     @Override
     public void destroy() {
-        lock.writeLock().lock();
+        lifecycleLock.lock();
         try {
-            if (store != null) {
-                store.dispose();
-                store = null;
+            Generation retired = current.getAndSet(null);
+            if (null != retired) {
+                dispose(retired);
             }
+            retiring.keySet().forEach(this::disposeRetired);
         } finally {
-            lock.writeLock().unlock();
+            lifecycleLock.unlock();
         }
     }
 
+    private void retire(Generation retired) {
+        if (disposeDelay.isZero() || disposeDelay.isNegative()) {
+            dispose(retired);
+            return;
+        }
+        log.debug("Disposing DataStore generation {} in {}", retired.number(), disposeDelay);
+        retiring.put(retired.number(), retired);
+        DISPOSER.schedule(() -> disposeRetired(retired.number()), disposeDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Disposes of a retired store unless {@link #destroy()} did already
+     */
+    private void disposeRetired(long generation) {
+        Generation retired = retiring.remove(generation);
+        if (null != retired) {
+            try {
+                dispose(retired);
+            } catch (RuntimeException e) {
+                log.warn("Error disposing DataStore generation {}", generation, e);
+            }
+        }
+    }
+
+    private void dispose(Generation retired) {
+        log.debug("Disposing DataStore generation {}", retired.number());
+        retired.store().dispose();
+    }
 }
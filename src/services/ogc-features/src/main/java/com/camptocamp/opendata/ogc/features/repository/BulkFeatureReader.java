@@ -0,0 +1,28 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import org.geotools.api.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+
+/**
+ * Backend specific strategy to read the features of large or unlimited
+ * queries, e.g. through a database cursor, so that streaming them out takes a
+ * bounded amount of memory.
+ */
+@FunctionalInterface
+public interface BulkFeatureReader {
+
+    /**
+     * Reader for backends that stream features in any case, returns the features
+     * as is
+     */
+    BulkFeatureReader NONE = (query, features) -> features;
+
+    /**
+     * @param query    the query for the page of features
+     * @param features the features matching the query, as obtained from the data
+     *                 store's feature source
+     * @return the features to stream out, either {@code features} or a decorator
+     *         reading them in a backend specific way
+     */
+    SimpleFeatureCollection read(Query query, SimpleFeatureCollection features);
+}
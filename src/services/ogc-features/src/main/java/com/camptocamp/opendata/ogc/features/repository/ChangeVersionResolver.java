@@ -0,0 +1,25 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.Optional;
+
+/**
+ * Backend specific strategy to tell whether the contents of a collection
+ * changed, without reading them, e.g. for the results computed from them to be
+ * reused until they do.
+ */
+@FunctionalInterface
+public interface ChangeVersionResolver {
+
+    /**
+     * Resolver for backends that can't tell, results computed from their
+     * collections can't be reused
+     */
+    ChangeVersionResolver NONE = collectionId -> Optional.empty();
+
+    /**
+     * @param collectionId the collection to get the change version of
+     * @return an opaque token that changes whenever the collection contents
+     *         change, or empty if it can't be told
+     */
+    Optional<String> changeVersion(String collectionId);
+}
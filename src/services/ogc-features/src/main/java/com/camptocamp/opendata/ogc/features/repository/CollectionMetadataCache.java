@@ -0,0 +1,80 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.NonNull;
+
+/**
+ * Bounded, time-to-live cache of the metadata for each collection, to avoid
+ * hitting the data store catalog for every collection on each request.
+ * <p>
+ * Only immutable {@link CollectionMetadata} are cached, each call to
+ * {@link #get} returns a new {@link Collection} callers are free to modify.
+ */
+class CollectionMetadataCache {
+
+    static final String CACHE_NAME = "collections.metadata";
+
+    /**
+     * @param itemType either {@literal feature} or {@literal record}
+     * @param crs      the supported CRS identifiers
+     */
+    record CollectionMetadata(@NonNull String typeName, @NonNull String itemType, @NonNull List<String> crs) {
+
+        CollectionMetadata {
+            crs = List.copyOf(crs);
+        }
+
+        Collection toCollection() {
+            Collection c = new Collection(typeName, new ArrayList<>());
+            c.setTitle(typeName);
+            c.setItemType(itemType);
+            c.setCrs(new ArrayList<>(crs));
+            return c;
+        }
+    }
+
+    private final Cache<String, CollectionMetadata> cache;
+
+    CollectionMetadataCache(@NonNull CollectionsConfiguration.CacheSettings settings) {
+        this.cache = CacheBuilder.newBuilder().expireAfterWrite(settings.getTtl()).maximumSize(settings.getMaxSize())
+                .recordStats().build();
+    }
+
+    /**
+     * @param loader loads the metadata on a cache miss, runtime exceptions are
+     *               propagated as is and the failure is not cached
+     */
+    public Collection get(@NonNull String typeName, @NonNull Function<String, CollectionMetadata> loader) {
+        try {
+            return cache.get(typeName, () -> loader.apply(typeName)).toCollection();
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Publishes the {@literal cache.gets} hit/miss, {@literal cache.evictions},
+     * and {@literal cache.size} meters tagged with
+     * {@literal cache=collections.metadata}
+     */
+    public void bindTo(@NonNull MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+}
@@ -7,6 +7,7 @@ import com.camptocamp.opendata.model.DataQuery;
 import com.camptocamp.opendata.model.GeodataRecord;
 import com.camptocamp.opendata.ogc.features.model.Collection;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
 
 public interface CollectionRepository {
 
@@ -22,4 +23,20 @@ public interface CollectionRepository {
      * @return
      */
     Optional<GeodataRecord> getRecord(String collectionId, String featureId);
+
+    /**
+     * @return the Mapbox Vector Tile encoding of the collection features
+     *         intersecting the tile, possibly empty, or empty if the collection
+     *         doesn't exist or has no geometry
+     */
+    Optional<byte[]> getTile(String collectionId, Tile tile);
+
+    /**
+     * @return a token that changes whenever the collection contents change, or
+     *         empty if the backend can't tell
+     * @see ChangeVersionResolver
+     */
+    default Optional<String> changeVersion(String collectionId) {
+        return Optional.empty();
+    }
 }
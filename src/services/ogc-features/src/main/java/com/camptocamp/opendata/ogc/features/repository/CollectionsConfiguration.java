@@ -0,0 +1,207 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import com.camptocamp.opendata.ogc.features.model.CountMode;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Configuration properties to tune how collections are served, with defaults
+ * applying to all collections and per-collection overrides.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * collections:
+ *   defaults:
+ *     number-matched: exact
+ *     paging: offset
+ *     coord-precision: # unset, full precision
+ *     cache-control: # unset, no Cache-Control header
+ *   count-cache:
+ *     ttl: PT5M
+ *     max-size: 10000
+ *   metadata-cache:
+ *     ttl: PT1M
+ *     max-size: 10000
+ *   native-geojson: true
+ *   native-reprojection: true
+ * </code>
+ * </pre>
+ * <p>
+ * {@code number-matched} is one of {@literal exact}, {@literal estimated},
+ * {@literal cached}, or {@literal none} (see {@link CountMode}). For example,
+ * to use planner estimates for a large table, and skip counting altogether for
+ * another one:
+ *
+ * <pre>
+ * <code>
+ * collections:
+ *   overrides:
+ *     "[public:osm_buildings]":
+ *       number-matched: estimated
+ *     "[public:gps_tracks]":
+ *       number-matched: none
+ * </code>
+ * </pre>
+ *
+ * Note the collection ids are enclosed in {@code "[]"} for the schema
+ * delimiter to be preserved as part of the map key.
+ * <p>
+ * {@code paging} is one of {@literal offset} or {@literal keyset}. With
+ * {@literal keyset} paging, {@code next} links carry an opaque {@code cursor}
+ * pointing right after the last feature of the page instead of an
+ * {@code offset}, so that fetching deep pages costs the same as fetching the
+ * first one. It requires the collection to have a unique key (e.g. a primary
+ * key for PostGIS tables), falling back to offset paging otherwise.
+ * <p>
+ * {@code coord-precision} is the number of decimals, from {@literal 0} to
+ * {@literal 15}, GeoJSON output coordinates are rounded to. For geographic
+ * coordinates, 7 decimals are about 1cm at the equator, and make for
+ * noticeably smaller responses than the 15 to 17 significant digits written at
+ * full precision. Clients can override it per request with the
+ * {@literal coord-precision} query parameter of the collection items.
+ * <p>
+ * {@code cache-control} is the {@literal Cache-Control} header value of the
+ * collection and its items responses, e.g. {@literal public, max-age=60} for
+ * shared caches to serve repeated reads of a rarely updated collection, or
+ * {@literal no-cache} for them to revalidate each time. Backends that can tell
+ * when a collection changes (i.e. PostGIS tables) also tag these responses with
+ * an {@literal ETag}, derived from the table change version and the request,
+ * weak for the items whose {@literal timeStamp} is the response time, and answer
+ * matching {@literal If-None-Match} requests with a
+ * {@literal 304} status without querying the features.
+ * <p>
+ * {@code native-geojson} lets backends that support it (i.e. PostGIS) encode
+ * the GeoJSON output of the collection items themselves, instead of decoding
+ * and re-encoding each geometry in the application. Queries the backend can't
+ * handle fall back to the regular encoding regardless.
+ * <p>
+ * {@code native-reprojection} lets backends that support it (i.e. PostGIS)
+ * return the features already reprojected to the {@literal crs} requested for
+ * the collection items, instead of reprojecting each geometry in the
+ * application.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "collections")
+public class CollectionsConfiguration {
+
+    public static final int MAX_COORD_PRECISION = 15;
+
+    /**
+     * Settings applying to all collections, unless overridden
+     */
+    @NotNull
+    @Valid
+    private CollectionConfiguration defaults = CollectionConfiguration.defaults();
+
+    /**
+     * Per collection overrides of the default settings, keyed by collection id.
+     * Unset properties fall back to the defaults.
+     */
+    @NotNull
+    private Map<String, @Valid CollectionConfiguration> overrides = Map.of();
+
+    /**
+     * Settings for the {@link CountMode#CACHED cached} number matched mode
+     */
+    @NotNull
+    private CacheSettings countCache = new CacheSettings(Duration.ofMinutes(5), 10_000);
+
+    /**
+     * Settings for the collections metadata cache. Cached entries are also
+     * invalidated when a change in the database schemas is detected.
+     */
+    @NotNull
+    private CacheSettings metadataCache = new CacheSettings(Duration.ofMinutes(1), 10_000);
+
+    /**
+     * Whether to let the backend encode GeoJSON output when supported
+     */
+    private boolean nativeGeoJson = true;
+
+    /**
+     * Whether to let the backend reproject the features when supported
+     */
+    private boolean nativeReprojection = true;
+
+    public enum Paging {
+        OFFSET, KEYSET
+    }
+
+    @Data
+    public static class CollectionConfiguration {
+        private CountMode numberMatched;
+        private Paging paging;
+
+        @Min(0)
+        @Max(MAX_COORD_PRECISION)
+        private Integer coordPrecision;
+
+        private String cacheControl;
+
+        public static CollectionConfiguration defaults() {
+            CollectionConfiguration defaults = new CollectionConfiguration();
+            defaults.setNumberMatched(CountMode.EXACT);
+            defaults.setPaging(Paging.OFFSET);
+            return defaults;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheSettings {
+        private Duration ttl = Duration.ofMinutes(5);
+        private long maxSize = 10_000;
+    }
+
+    public CountMode numberMatched(@NonNull String collectionId) {
+        return resolve(collectionId, CollectionConfiguration::getNumberMatched).orElse(CountMode.EXACT);
+    }
+
+    public Paging paging(@NonNull String collectionId) {
+        return resolve(collectionId, CollectionConfiguration::getPaging).orElse(Paging.OFFSET);
+    }
+
+    /**
+     * @return the number of decimals to round coordinates to, or {@code null} for
+     *         full precision
+     */
+    public Integer coordPrecision(@NonNull String collectionId) {
+        return resolve(collectionId, CollectionConfiguration::getCoordPrecision).orElse(null);
+    }
+
+    /**
+     * @return the {@literal Cache-Control} header value for the collection
+     *         responses, or {@code null} for none
+     */
+    public String cacheControl(@NonNull String collectionId) {
+        return resolve(collectionId, CollectionConfiguration::getCacheControl).orElse(null);
+    }
+
+    private <T> Optional<T> resolve(String collectionId, Function<CollectionConfiguration, T> property) {
+        return Optional.ofNullable(overrides.get(collectionId)).map(property)
+                .or(() -> Optional.ofNullable(defaults).map(property));
+    }
+
+    public static CollectionsConfiguration defaultConfig() {
+        return new CollectionsConfiguration();
+    }
+}
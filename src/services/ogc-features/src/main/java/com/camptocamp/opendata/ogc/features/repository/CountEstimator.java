@@ -0,0 +1,30 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.OptionalLong;
+
+import org.geotools.api.data.Query;
+
+import com.camptocamp.opendata.ogc.features.model.CountMode;
+
+/**
+ * Backend specific strategy to estimate the number of features matching a
+ * query without running a full count, used by the {@link CountMode#ESTIMATED
+ * estimated} number matched mode.
+ */
+@FunctionalInterface
+public interface CountEstimator {
+
+    /**
+     * Estimator for backends that can't provide estimates, makes
+     * {@link CountMode#ESTIMATED} fall back to {@link CountMode#EXACT}
+     */
+    CountEstimator NONE = query -> OptionalLong.empty();
+
+    /**
+     * @param query the query to estimate the number of matching features for,
+     *              paging and sorting are to be ignored
+     * @return the estimated number of matches, or empty if no estimate can be
+     *         provided
+     */
+    OptionalLong estimate(Query query);
+}
@@ -7,49 +7,174 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.geotools.api.data.DataStore;
 import org.geotools.api.data.Query;
 import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.feature.Property;
 import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
 import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.api.filter.Filter;
 import org.geotools.api.filter.FilterFactory;
 import org.geotools.api.filter.sort.SortBy;
 import org.geotools.api.filter.sort.SortOrder;
+import org.geotools.api.referencing.FactoryException;
 import org.geotools.api.referencing.crs.CoordinateReferenceSystem;
+import org.geotools.api.referencing.operation.MathTransform;
+import org.geotools.api.referencing.operation.TransformException;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.text.cql2.CQLException;
 import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.locationtech.jts.geom.Geometry;
 
 import com.camptocamp.opendata.model.DataQuery;
 import com.camptocamp.opendata.model.GeodataRecord;
 import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.camptocamp.opendata.ogc.features.model.CountMode;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
 import com.camptocamp.opendata.ogc.features.model.GeoToolsFeatureCollection;
+import com.camptocamp.opendata.ogc.features.repository.CollectionMetadataCache.CollectionMetadata;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration.Paging;
+import com.camptocamp.opendata.ogc.features.repository.FeatureCounter.Count;
+import com.camptocamp.opendata.ogc.features.repository.UniqueKeyResolver.UniqueKey;
+import com.camptocamp.opendata.ogc.features.tiles.MvtEncoder;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
+import com.camptocamp.opendata.ogc.features.tiles.TileCache;
 import com.google.common.base.Throwables;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-@RequiredArgsConstructor
 @Slf4j(topic = "com.camptocamp.opendata.ogc.features.repository")
-public class DataStoreCollectionRepository implements CollectionRepository {
+public class DataStoreCollectionRepository implements CollectionRepository, MeterBinder {
 
     private final @NonNull DataStoreProvider dataStoreProvider;
     private final @NonNull Function<SimpleFeature, GeodataRecord> featureMapper;
+    private final @NonNull CollectionsConfiguration config;
+    private final @NonNull FeatureCounter counter;
+    private final @NonNull UniqueKeyResolver uniqueKeys;
+    private final @NonNull CollectionMetadataCache collections;
+
+    /**
+     * Backend GeoJSON encoder, used unless disabled through
+     * {@link CollectionsConfiguration#isNativeGeoJson()}
+     */
+    private @NonNull @Setter GeoJsonEncoder geoJsonEncoder = GeoJsonEncoder.NONE;
+
+    /**
+     * Backend vector tile encoder, tiles are encoded by {@link MvtEncoder}
+     * otherwise
+     */
+    private @NonNull @Setter TileEncoder tileEncoder = TileEncoder.NONE;
+
+    /**
+     * Backend reprojection of the queried features, used unless disabled through
+     * {@link CollectionsConfiguration#isNativeReprojection()}. Features are
+     * reprojected by {@link GeoToolsFeatureCollection} otherwise.
+     */
+    private @NonNull @Setter GeometryReprojector reprojector = GeometryReprojector.NONE;
+
+    /**
+     * Backend reading of large or unlimited queries, for them to be streamed out
+     * in bounded memory
+     */
+    private @NonNull @Setter BulkFeatureReader bulkReader = BulkFeatureReader.NONE;
+
+    /**
+     * Backend change tracking of the collections contents, for results computed
+     * from them to be reused until they change
+     */
+    private @NonNull @Setter ChangeVersionResolver changeVersions = ChangeVersionResolver.NONE;
+
+    /**
+     * Cache of the encoded tiles, tiles are encoded on every request if unset
+     */
+    private @Setter TileCache tileCache;
+
+    /**
+     * Queries {@link FeatureCollection#cancel() cancelled} while streaming out
+     * their features, e.g. on client disconnect, and an estimate of the features
+     * left unread, as an upper bound from numberReturned or numberMatched since
+     * the actual number can't be known without reading them
+     */
+    private final AtomicLong cancelledQueries = new AtomicLong();
+    private final AtomicLong cancelledFeatures = new AtomicLong();
 
     private final FilterFactory ff = CommonFactoryFinder.getFilterFactory();
 
+    public DataStoreCollectionRepository(@NonNull DataStoreProvider dataStoreProvider,
+            @NonNull Function<SimpleFeature, GeodataRecord> featureMapper) {
+        this(dataStoreProvider, featureMapper, CollectionsConfiguration.defaultConfig(), CountEstimator.NONE,
+                UniqueKeyResolver.NONE);
+    }
+
+    public DataStoreCollectionRepository(@NonNull DataStoreProvider dataStoreProvider,
+            @NonNull Function<SimpleFeature, GeodataRecord> featureMapper, @NonNull CollectionsConfiguration config,
+            @NonNull CountEstimator countEstimator, @NonNull UniqueKeyResolver uniqueKeys) {
+        this.dataStoreProvider = dataStoreProvider;
+        this.featureMapper = featureMapper;
+        this.config = config;
+        this.counter = new FeatureCounter(dataStoreProvider, countEstimator, config.getCountCache());
+        this.uniqueKeys = uniqueKeys;
+        this.collections = new CollectionMetadataCache(config.getMetadataCache());
+        dataStoreProvider.addSchemaChangeListener(this::invalidateCaches);
+    }
+
+    /**
+     * Binds the collection metadata, feature count, and tile caches metrics, and
+     * the cancelled queries counters
+     */
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        collections.bindTo(registry);
+        counter.bindTo(registry);
+        if (null != tileCache) {
+            tileCache.bindTo(registry);
+        }
+        FunctionCounter.builder("collections.queries.cancelled", cancelledQueries, AtomicLong::get)
+                .description("Queries cancelled while streaming out their features").register(registry);
+        FunctionCounter.builder("collections.queries.cancelled.features.estimated", cancelledFeatures, AtomicLong::get)
+                .baseUnit("features")
+                .description("Upper bound estimate of the features left unread by cancelled queries, "
+                        + "from their numberReturned or numberMatched")
+                .register(registry);
+    }
+
+    private void cancelled(String collectionId, long remaining) {
+        log.debug("Query on {} cancelled, up to {} features left unread", collectionId, remaining);
+        cancelledQueries.incrementAndGet();
+        cancelledFeatures.addAndGet(remaining);
+    }
+
+    private void invalidateCaches() {
+        log.debug("Invalidating collections metadata, counts, and tiles caches");
+        collections.invalidateAll();
+        counter.invalidateAll();
+        if (null != tileCache) {
+            tileCache.invalidateAll();
+        }
+    }
+
     private DataStore dataStore() {
         return dataStoreProvider.get();
     }
@@ -58,7 +183,7 @@ public class DataStoreCollectionRepository implements CollectionRepository {
     public List<Collection> getCollections() {
         try {
             String[] typeNames = dataStore().getTypeNames();
-            return Arrays.stream(typeNames).map(this::loadCollection).toList();
+            return Arrays.stream(typeNames).map(this::getCollection).toList();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -67,7 +192,7 @@ public class DataStoreCollectionRepository implements CollectionRepository {
     @Override
     public Optional<Collection> findCollection(String collectionId) {
         try {
-            return Optional.of(loadCollection(collectionId));
+            return Optional.of(getCollection(collectionId));
         } catch (UncheckedIOException e) {
             return Optional.empty();
         }
@@ -79,6 +204,7 @@ public class DataStoreCollectionRepository implements CollectionRepository {
         final Query query = new Query(collectionId, ff.id(ff.featureId(featureId)));
 
         return runWithRetry("getRecord(%s:%s)".formatted(collectionId, featureId), () -> {
+            hideInternalAttributes(query);
             SimpleFeatureCollection features = query(query);
             SimpleFeature feature;
             try (SimpleFeatureIterator it = features.features()) {
@@ -89,7 +215,75 @@ public class DataStoreCollectionRepository implements CollectionRepository {
         });
     }
 
+    @Override
+    public Optional<String> changeVersion(@NonNull String collectionId) {
+        return changeVersions.changeVersion(collectionId);
+    }
+
+    @Override
+    public Optional<byte[]> getTile(@NonNull String collectionId, @NonNull Tile tile) {
+        return findCollection(collectionId).filter(c -> "feature".equals(c.getItemType())).map(c -> {
+            Supplier<byte[]> loader = () -> runWithRetry("getTile(%s/%s)".formatted(collectionId, tile),
+                    () -> encodeTile(c, tile));
+            return null == tileCache ? loader.get() : tileCache.get(collectionId, tile, loader);
+        });
+    }
+
+    private byte[] encodeTile(Collection collection, Tile tile) throws IOException, FactoryException {
+        final SimpleFeatureType schema = dataStore().getSchema(collection.getId());
+        final GeometryDescriptor geometry = schema.getGeometryDescriptor();
+        final CoordinateReferenceSystem crs = null == geometry.getCoordinateReferenceSystem()
+                ? DefaultGeographicCRS.WGS84
+                : geometry.getCoordinateReferenceSystem();
+        final CoordinateReferenceSystem webMercator = CRS.decode("EPSG:3857");
+
+        ReferencedEnvelope bounds = new ReferencedEnvelope(tile.bufferedEnvelope(), webMercator);
+        try {
+            bounds = bounds.transform(crs, true);
+        } catch (TransformException e) {
+            throw new IllegalStateException("Unable to transform tile %s bounds to %s".formatted(tile, crs), e);
+        }
+        Query query = new Query(collection.getId(), ff.bbox(ff.property(geometry.getLocalName()), bounds));
+        hideInternalAttributes(query);
+
+        Optional<byte[]> encoded = tileEncoder.encode(query, tile);
+        if (encoded.isPresent()) {
+            return encoded.get();
+        }
+        final MathTransform toWebMercator = CRS.findMathTransform(crs, webMercator, true);
+        final MvtEncoder encoder = new MvtEncoder(tile, collection.getId());
+        try (SimpleFeatureIterator it = query(query).features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                Geometry geom = (Geometry) feature.getDefaultGeometry();
+                if (null != geom) {
+                    try {
+                        encoder.add(JTS.transform(geom, toWebMercator), tileProperties(feature));
+                    } catch (TransformException e) {
+                        log.debug("Skipping feature {} out of the tile CRS domain", feature.getID());
+                    }
+                }
+            }
+        }
+        return encoder.encode();
+    }
+
+    /**
+     * @return the non geometry attributes of the feature, in schema order
+     */
+    private Map<String, Object> tileProperties(SimpleFeature feature) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Property property : feature.getProperties()) {
+            Object value = property.getValue();
+            if (!(value instanceof Geometry)) {
+                properties.put(property.getName().getLocalPart(), value);
+            }
+        }
+        return properties;
+    }
+
     private <T> T runWithRetry(String description, Callable<T> command) {
+        final long generation = dataStoreProvider.generation();
         try {
             return command.call();
         } catch (Exception e) {
@@ -99,7 +293,8 @@ public class DataStoreCollectionRepository implements CollectionRepository {
             } else {
                 log.info("Retrying command %s: %s".formatted(description, message));
             }
-            dataStoreProvider.reInit();
+            dataStoreProvider.reInit(generation);
+            invalidateCaches();
             try {
                 return command.call();
             } catch (Exception retryError) {
@@ -114,24 +309,116 @@ public class DataStoreCollectionRepository implements CollectionRepository {
     public Optional<FeatureCollection> query(@NonNull DataQuery query) {
         final Optional<Collection> col = findCollection(query.getLayerName());
 
-        return col.map(collection -> runWithRetry("query(%s)".formatted(query.getLayerName()), () -> {
-            final Query gtQuery = toQuery(query);
-            ensureSchemaIsInSync(gtQuery);
-            SimpleFeatureCollection fc = query(gtQuery);
-            long matched = count(toQuery(query.withLimit(null).withOffset(null)));
-            long returned = count(gtQuery);
-            GeoToolsFeatureCollection ret = new GeoToolsFeatureCollection(collection, fc);
-            ret.setNumberMatched(matched);
-            ret.setNumberReturned(returned);
-            ret.setTargetCrs(query.getTargetCrs());
-            return ret;
-        }));
+        return col.map(collection -> {
+            final Optional<KeysetPaging> keyset = keysetPaging(collection.getId(), query);
+            final Filter after = keyset.filter(k -> null != query.getCursor()).map(k -> k.after(query.getCursor()))
+                    .orElse(null);
+
+            return runWithRetry("query(%s)".formatted(query.getLayerName()), () -> {
+                final Query gtQuery = toQuery(query);
+                keyset.ifPresent(k -> gtQuery.setSortBy(k.sortBy()));
+                if (!dataStoreProvider.tracksSchemaChanges()) {
+                    ensureSchemaIsInSync(gtQuery);
+                }
+
+                CountMode countMode = config.numberMatched(collection.getId());
+                Count matched = counter.count(countMode, gtQuery);
+
+                final Query pageQuery = new Query(gtQuery);
+                if (null != after) {
+                    pageQuery.setFilter(Filter.INCLUDE.equals(gtQuery.getFilter()) ? after
+                            : ff.and(gtQuery.getFilter(), after));
+                    pageQuery.setStartIndex(null);
+                }
+                hideInternalAttributes(pageQuery);
+                final Query nativeQuery = new Query(pageQuery);
+                final String targetSrs = GeoToolsFeatureCollection.targetSrs(query.getTargetCrs());
+                final boolean reprojected = config.isNativeReprojection()
+                        && reprojector.reproject(pageQuery, targetSrs);
+                SimpleFeatureCollection fc = bulkReader.read(pageQuery, query(pageQuery));
+
+                GeoToolsFeatureCollection ret = new GeoToolsFeatureCollection(collection, fc);
+                ret.setReprojected(reprojected);
+                ret.setNumberMatched(matched.value());
+                ret.setNumberMatchedMode(matched.mode());
+                if (matched.mode() == CountMode.EXACT && null == after) {
+                    // no need for another count query, otherwise it's computed while streaming
+                    ret.setNumberReturned(matched.value() == FeatureCounter.UNKNOWN ? FeatureCounter.UNKNOWN
+                            : numberReturned(matched.value(), query));
+                }
+                keyset.ifPresent(k -> ret.setCursorEncoder(k::cursor));
+                ret.setTargetCrs(query.getTargetCrs());
+                if (reprojected && !ret.isTargetCrsRequested()) {
+                    // for encoders keeping the native CRS unless one is requested, read lazily
+                    ret.setNativeFeatures(bulkReader.read(nativeQuery, query(nativeQuery)));
+                }
+                final Integer precision = null == query.getCoordPrecision() ? config.coordPrecision(collection.getId())
+                        : query.getCoordPrecision();
+                ret.setCoordinatePrecision(precision);
+                ret.setCancellationListener(remaining -> cancelled(collection.getId(), remaining));
+                // the keyset cursor is computed from the streamed features
+                if (config.isNativeGeoJson() && keyset.isEmpty()) {
+                    geoJsonEncoder.encoder(pageQuery, ret.getTargetSrs(), precision)
+                            .ifPresent(ret::setGeoJsonFeatureWriter);
+                }
+                return ret;
+            });
+        });
+    }
+
+    /**
+     * @return the keyset paging support for the collection if requested either by
+     *         config or by a query cursor, and supported by the backend
+     * @throws IllegalArgumentException if a cursor was provided but the
+     *                                  collection doesn't support keyset paging
+     */
+    private Optional<KeysetPaging> keysetPaging(String collectionId, DataQuery query) {
+        final boolean hasCursor = null != query.getCursor();
+        if (!hasCursor && config.paging(collectionId) != Paging.KEYSET) {
+            return Optional.empty();
+        }
+        Optional<UniqueKey> uniqueKey = uniqueKeys.uniqueKey(collectionId);
+        if (uniqueKey.isEmpty() && hasCursor) {
+            throw new IllegalArgumentException("cursor paging is not supported by %s".formatted(collectionId));
+        }
+        return uniqueKey.map(key -> new KeysetPaging(ff, query.getSortBy(), key, schema(collectionId)));
+    }
+
+    /**
+     * Excludes the attributes exposed only for the sake of keyset paging from the
+     * query properties, for them not to be published
+     */
+    private void hideInternalAttributes(Query query) {
+        List<String> hidden = uniqueKeys.hiddenAttributes(query.getTypeName());
+        if (!hidden.isEmpty()) {
+            SimpleFeatureType schema = schema(query.getTypeName());
+            String[] visible = schema.getAttributeDescriptors().stream().map(AttributeDescriptor::getLocalName)
+                    .filter(name -> !hidden.contains(name)).toArray(String[]::new);
+            query.setPropertyNames(visible);
+        }
+    }
+
+    private SimpleFeatureType schema(String typeName) {
+        try {
+            return dataStore().getSchema(typeName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long numberReturned(long matched, DataQuery query) {
+        long offset = query.getOffset() == null ? 0 : query.getOffset();
+        long available = Math.max(0, matched - offset);
+        return query.getLimit() == null ? available : Math.min(available, query.getLimit());
     }
 
     /**
      * Workaround to make sure the datastore cached featuretype is in sync with the
      * one in the database in case it has changed under the hood. This method is
      * called on a {@link #runWithRetry()} enclosure.
+     * <p>
+     * Not needed if the {@link DataStoreProvider#tracksSchemaChanges() data store
+     * provider tracks schema changes} by itself, saving a query per request.
      */
     private void ensureSchemaIsInSync(Query gtQuery) {
         Query noopQuery = new Query(gtQuery);
@@ -146,14 +433,6 @@ public class DataStoreCollectionRepository implements CollectionRepository {
         }
     }
 
-    private int count(Query query) {
-        try {
-            return dataStore().getFeatureSource(query.getTypeName()).getCount(query);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
     private Query toQuery(@NonNull DataQuery query) {
         Query q = new Query(query.getLayerName());
         Integer limit = query.getLimit();
@@ -212,9 +491,11 @@ public class DataStoreCollectionRepository implements CollectionRepository {
         }
     }
 
-    private Collection loadCollection(String typeName) {
-        Collection c = new Collection(typeName, new ArrayList<>());
-        c.setTitle(typeName);
+    private Collection getCollection(String typeName) {
+        return collections.get(typeName, this::loadCollection);
+    }
+
+    private CollectionMetadata loadCollection(String typeName) {
         SimpleFeatureType schema;
         try {
             schema = dataStore().getSchema(typeName);
@@ -223,16 +504,13 @@ public class DataStoreCollectionRepository implements CollectionRepository {
         }
         GeometryDescriptor geom = schema.getGeometryDescriptor();
         if (geom == null) {
-            c.setCrs(List.of());
-            c.setItemType("record");
-        } else {
-            c.setItemType("feature");
-            CoordinateReferenceSystem crs = geom.getCoordinateReferenceSystem();
-            if (null != crs) {
-                String srs = CRS.toSRS(crs);
-                c.addCrsItem(srs);
-            }
+            return new CollectionMetadata(typeName, "record", List.of());
+        }
+        List<String> crs = new ArrayList<>();
+        CoordinateReferenceSystem crsObj = geom.getCoordinateReferenceSystem();
+        if (null != crsObj) {
+            crs.add(CRS.toSRS(crsObj));
         }
-        return c;
+        return new CollectionMetadata(typeName, "feature", crs);
     }
 }
@@ -10,4 +10,41 @@ public interface DataStoreProvider extends Supplier<DataStore> {
     DataStore get();
 
     public void reInit();
+
+    /**
+     * @return a number identifying the currently provided data store instance,
+     *         that changes each time it's re-created
+     */
+    default long generation() {
+        return 0;
+    }
+
+    /**
+     * Re-creates the data store only if it's still at the given
+     * {@link #generation() generation}, so that concurrent callers that found the
+     * same instance faulty re-create it only once.
+     */
+    default void reInit(long generation) {
+        reInit();
+    }
+
+    /**
+     * Registers a callback to be notified when the provided data store schemas may
+     * have changed, for example due to a {@link #reInit()} or to a database schema
+     * having been dropped, for dependants to invalidate any cached metadata.
+     * <p>
+     * Providers unable to detect such changes may ignore the listener.
+     */
+    default void addSchemaChangeListener(Runnable listener) {
+        // no-op by default
+    }
+
+    /**
+     * @return whether the provider detects changes to the underlying database
+     *         tables by itself and discards the affected cached feature types,
+     *         otherwise callers shall account for them being possibly stale
+     */
+    default boolean tracksSchemaChanges() {
+        return false;
+    }
 }
\ No newline at end of file
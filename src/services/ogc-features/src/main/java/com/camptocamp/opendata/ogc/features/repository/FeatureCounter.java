@@ -0,0 +1,143 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.Query;
+import org.geotools.api.filter.Filter;
+import org.geotools.filter.text.ecql.ECQL;
+
+import com.camptocamp.opendata.ogc.features.model.CountMode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes the number of features matching a query according to a
+ * {@link CountMode}.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.repository")
+class FeatureCounter {
+
+    record Count(@NonNull CountMode mode, Long value) {
+    }
+
+    private record CountKey(String typeName, String filter) {
+    }
+
+    private static final Count NONE = new Count(CountMode.NONE, null);
+
+    /**
+     * Count value of the data stores that can't count without scanning the
+     * matching features
+     */
+    static final long UNKNOWN = -1;
+
+    private final Supplier<DataStore> dataStore;
+    private final CountEstimator estimator;
+    private final Cache<CountKey, Long> cache;
+
+    FeatureCounter(@NonNull Supplier<DataStore> dataStore, @NonNull CountEstimator estimator,
+            @NonNull CollectionsConfiguration.CacheSettings cacheConfig) {
+        this.dataStore = dataStore;
+        this.estimator = estimator;
+        this.cache = CacheBuilder.newBuilder().expireAfterWrite(cacheConfig.getTtl())
+                .maximumSize(cacheConfig.getMaxSize()).recordStats().build();
+    }
+
+    /**
+     * @param mode  the requested count mode
+     * @param query the query to count matches for, paging and sorting are ignored
+     * @return the count value and the mode actually used to compute it, which may
+     *         differ from the requested one if it's not supported by the backend.
+     *         The value is {@link #UNKNOWN} if the backend can't count the matches
+     *         without scanning them.
+     */
+    public Count count(@NonNull CountMode mode, @NonNull Query query) {
+        final Query countQuery = toCountQuery(query);
+        return switch (mode) {
+        case NONE -> NONE;
+        case EXACT -> exactCount(countQuery);
+        case CACHED -> cached(countQuery);
+        case ESTIMATED -> estimated(countQuery);
+        };
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Publishes the {@link CountMode#CACHED cached} counts hit/miss meters tagged
+     * with {@literal cache=collections.count}
+     */
+    public void bindTo(@NonNull MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "collections.count");
+    }
+
+    private Count estimated(Query query) {
+        OptionalLong estimate = OptionalLong.empty();
+        try {
+            estimate = estimator.estimate(query);
+        } catch (RuntimeException e) {
+            log.warn("Error estimating count for {}, falling back to exact count: {}", query.getTypeName(),
+                    e.getMessage());
+        }
+        if (estimate.isPresent()) {
+            return new Count(CountMode.ESTIMATED, estimate.getAsLong());
+        }
+        return exactCount(query);
+    }
+
+    private Count exactCount(Query query) {
+        return new Count(CountMode.EXACT, exact(query).orElse(UNKNOWN));
+    }
+
+    private Count cached(Query query) {
+        CountKey key = new CountKey(query.getTypeName(), ECQL.toCQL(query.getFilter()));
+        Long count = cache.getIfPresent(key);
+        if (null == count) {
+            OptionalLong exact = exact(query);
+            if (exact.isEmpty()) {
+                // not cached, for the store to be asked again
+                return new Count(CountMode.CACHED, UNKNOWN);
+            }
+            count = exact.getAsLong();
+            cache.put(key, count);
+        }
+        return new Count(CountMode.CACHED, count);
+    }
+
+    /**
+     * @return the data store count, or empty if the store can't count without
+     *         scanning the matching features (e.g. a filter that can't be encoded
+     *         natively), which isn't worth it for a number matched
+     */
+    private OptionalLong exact(Query query) {
+        try {
+            int count = dataStore.get().getFeatureSource(query.getTypeName()).getCount(query);
+            if (count < 0) {
+                log.debug("{} can't count {} cheaply, numberMatched unknown", query.getTypeName(),
+                        query.getFilter());
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Query toCountQuery(Query query) {
+        Filter filter = query.getFilter() == null ? Filter.INCLUDE : query.getFilter();
+        Query countQuery = new Query(query.getTypeName(), filter);
+        countQuery.setHints(query.getHints());
+        return countQuery;
+    }
+}
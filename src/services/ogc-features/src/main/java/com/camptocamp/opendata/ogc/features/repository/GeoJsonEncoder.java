@@ -0,0 +1,36 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.Optional;
+
+import org.geotools.api.data.Query;
+
+import com.camptocamp.opendata.ogc.features.model.GeoJsonFeatureWriter;
+
+/**
+ * Backend specific strategy to have the data store produce the GeoJSON
+ * encoding of the features matching a query, saving the decoding,
+ * reprojection, and re-encoding of each feature geometry on the application
+ * side.
+ */
+@FunctionalInterface
+public interface GeoJsonEncoder {
+
+    /**
+     * Encoder for backends that can't produce GeoJSON, makes GeoJSON output go
+     * through the regular features stream
+     */
+    GeoJsonEncoder NONE = (query, targetSrs, coordPrecision) -> Optional.empty();
+
+    /**
+     * @param query     the query for the page of features to encode, including
+     *                  its paging, sorting, and property names
+     * @param targetSrs the {@literal EPSG:<code>} identifier of the CRS to output
+     *                  geometries in
+     * @param coordPrecision the number of decimals to round coordinates to, or
+     *                  {@code null} for full precision
+     * @return a writer running the query and encoding its results when called, or
+     *         empty if the query can't be handled by the backend, in which case
+     *         the features are encoded as usual
+     */
+    Optional<GeoJsonFeatureWriter> encoder(Query query, String targetSrs, Integer coordPrecision);
+}
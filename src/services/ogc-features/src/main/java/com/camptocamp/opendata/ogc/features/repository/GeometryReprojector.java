@@ -0,0 +1,31 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import org.geotools.api.data.Query;
+
+/**
+ * Backend specific strategy to have the data store return the default geometry
+ * of the queried features already reprojected, saving their reprojection on
+ * the application side.
+ */
+@FunctionalInterface
+public interface GeometryReprojector {
+
+    /**
+     * Reprojector for backends that can't reproject, makes features be
+     * reprojected by the application
+     */
+    GeometryReprojector NONE = (query, targetSrs) -> false;
+
+    /**
+     * Prepares the query for the backend to return the default geometry of the
+     * features in the target CRS, if it can do so.
+     *
+     * @param query     the query for the page of features, modified in place
+     * @param targetSrs the {@literal EPSG:<code>} identifier of the CRS to output
+     *                  geometries in
+     * @return whether the query's features default geometry will be in the
+     *         target CRS, otherwise the query is left untouched and it's up to
+     *         the caller to reproject them
+     */
+    boolean reproject(Query query, String targetSrs);
+}
@@ -0,0 +1,134 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.geotools.util.Converters;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.NonNull;
+
+/**
+ * Opaque keyset paging token, holding the sort key values of the last feature
+ * of a page, and the sort keys themselves so that a token can't be applied to a
+ * query sorted differently.
+ *
+ * @param keys   the sort keys, prefixed by {@code +} or {@code -} for ascending
+ *               or descending order
+ * @param types  the {@link ValueType#tag() type} of each sort key, for the
+ *               values to be compared as the attribute type and not as strings
+ * @param values the sort key values for the last feature of the previous page,
+ *               in their {@link ValueType} string representation
+ */
+record KeysetCursor(@JsonProperty("k") @NonNull List<String> keys, @JsonProperty("t") @NonNull List<String> types,
+        @JsonProperty("v") @NonNull List<String> values) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The attribute types sort key values are encoded as, each with a lossless
+     * string representation. Attributes of any other type are compared as
+     * {@link #STRING strings}.
+     */
+    enum ValueType {
+        STRING("string", String.class, Object::toString, Function.identity()), //
+        SHORT("short", Short.class, Object::toString, Short::valueOf), //
+        INTEGER("int", Integer.class, Object::toString, Integer::valueOf), //
+        LONG("long", Long.class, Object::toString, Long::valueOf), //
+        BIG_INTEGER("bigint", BigInteger.class, Object::toString, BigInteger::new), //
+        FLOAT("float", Float.class, Object::toString, Float::valueOf), //
+        DOUBLE("double", Double.class, Object::toString, Double::valueOf), //
+        DECIMAL("decimal", BigDecimal.class, Object::toString, BigDecimal::new), //
+        BOOLEAN("boolean", Boolean.class, Object::toString, Boolean::valueOf), //
+        UUID("uuid", java.util.UUID.class, Object::toString, java.util.UUID::fromString), //
+        DATE("date", Date.class, Object::toString, Date::valueOf), //
+        TIME("time", Time.class, t -> ((Time) t).toLocalTime().toString(), s -> Time.valueOf(LocalTime.parse(s))), //
+        // as an instant, not to depend on the JVM time zone, and keep the nanos
+        TIMESTAMP("timestamp", Timestamp.class, t -> ((Timestamp) t).toInstant().toString(),
+                s -> Timestamp.from(Instant.parse(s)));
+
+        private final String tag;
+        private final Class<?> binding;
+        private final Function<Object, String> format;
+        private final Function<String, Object> parse;
+
+        ValueType(String tag, Class<?> binding, Function<Object, String> format, Function<String, Object> parse) {
+            this.tag = tag;
+            this.binding = binding;
+            this.format = format;
+            this.parse = parse;
+        }
+
+        public String tag() {
+            return tag;
+        }
+
+        /**
+         * @return the type values of the given attribute binding are encoded as
+         */
+        public static ValueType of(@NonNull Class<?> binding) {
+            return Stream.of(values()).filter(t -> t.binding.equals(binding)).findFirst().orElse(STRING);
+        }
+
+        /**
+         * @param value a value of this type, or convertible to it (e.g. a primary
+         *              key value extracted from a feature id)
+         */
+        public String format(@NonNull Object value) {
+            Object converted = Converters.convert(value, binding);
+            if (null == converted) {
+                throw new IllegalStateException("can't convert %s to %s".formatted(value, binding.getSimpleName()));
+            }
+            return format.apply(converted);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the string is not a valid value of
+         *                                  this type
+         */
+        public Object parse(@NonNull String value) {
+            try {
+                return parse.apply(value);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("cursor is invalid, not a %s value: %s".formatted(tag, value));
+            }
+        }
+    }
+
+    public KeysetCursor {
+        if (keys.size() != values.size() || keys.size() != types.size()) {
+            throw new IllegalArgumentException("cursor is invalid");
+        }
+    }
+
+    public String encode() {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(this);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static KeysetCursor decode(@NonNull String token) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token);
+            return MAPPER.readValue(json, KeysetCursor.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("cursor is invalid: %s".formatted(token));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.filter.Filter;
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.api.filter.expression.Literal;
+import org.geotools.api.filter.expression.PropertyName;
+import org.geotools.api.filter.sort.SortBy;
+import org.geotools.api.filter.sort.SortOrder;
+
+import com.camptocamp.opendata.model.DataQuery;
+import com.camptocamp.opendata.ogc.features.repository.KeysetCursor.ValueType;
+import com.camptocamp.opendata.ogc.features.repository.UniqueKeyResolver.UniqueKey;
+
+import lombok.NonNull;
+
+/**
+ * Keyset (a.k.a. seek) pagination support: sorts by the requested sort keys
+ * followed by the collection's unique key, and turns a {@link KeysetCursor}
+ * into a predicate selecting the features that come after it in that order.
+ * <p>
+ * Compared to paging with an offset, the backend can seek straight to the
+ * first feature of the page using the index on the sort keys, instead of
+ * scanning and discarding all the features of the previous pages.
+ * <p>
+ * The cursor values are encoded with the type of their attribute, and compared
+ * as such, for the backend to compare numbers as numbers, and to use the
+ * indexes on the sort keys.
+ * <p>
+ * The predicate follows the PostgreSQL default ordering of {@code null}s:
+ * last in ascending order, and first in descending order.
+ */
+class KeysetPaging {
+
+    /**
+     * @param nullable whether the key may have null values, unique key attributes
+     *                 are assumed not to
+     * @param type     the type the key values are encoded and compared as
+     */
+    private record Key(String propertyName, boolean ascending, boolean nullable, ValueType type) {
+
+        String signed() {
+            return (ascending ? "+" : "-") + propertyName;
+        }
+    }
+
+    private final FilterFactory ff;
+    private final UniqueKey uniqueKey;
+    private final List<Key> keys;
+
+    /**
+     * @param schema the collection's feature type, including the unique key
+     *               attribute, to resolve the type of the sort keys from
+     */
+    KeysetPaging(@NonNull FilterFactory ff, @NonNull List<DataQuery.SortBy> sortBy, @NonNull UniqueKey uniqueKey,
+            @NonNull SimpleFeatureType schema) {
+        this.ff = ff;
+        this.uniqueKey = uniqueKey;
+        final String keyAttribute = uniqueKey.attribute();
+        List<Key> sortKeys = new ArrayList<>();
+        sortBy.stream().map(s -> new Key(s.propertyName(), s.ascending(), !keyAttribute.equals(s.propertyName()),
+                type(schema, s.propertyName()))).forEach(sortKeys::add);
+        if (sortKeys.stream().noneMatch(k -> k.propertyName().equals(keyAttribute))) {
+            sortKeys.add(new Key(keyAttribute, true, false, type(schema, keyAttribute)));
+        }
+        this.keys = List.copyOf(sortKeys);
+    }
+
+    private static ValueType type(SimpleFeatureType schema, String propertyName) {
+        AttributeDescriptor descriptor = schema.getDescriptor(propertyName);
+        return null == descriptor ? ValueType.STRING : ValueType.of(descriptor.getType().getBinding());
+    }
+
+    /**
+     * @return the sort order for the pages, a total order since it ends with the
+     *         unique key
+     */
+    public SortBy[] sortBy() {
+        return keys.stream().map(k -> ff.sort(k.propertyName(), k.ascending() ? SortOrder.ASCENDING
+                : SortOrder.DESCENDING)).toArray(SortBy[]::new);
+    }
+
+    /**
+     * @return the cursor pointing right after {@code lastFeature}
+     */
+    public String cursor(@NonNull SimpleFeature lastFeature) {
+        List<String> signedKeys = keys.stream().map(Key::signed).toList();
+        List<String> types = keys.stream().map(k -> k.type().tag()).toList();
+        // not toList(), values may be null
+        List<String> values = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            Object value = value(lastFeature, key);
+            values.add(null == value ? null : key.type().format(value));
+        }
+        return new KeysetCursor(signedKeys, types, values).encode();
+    }
+
+    private Object value(SimpleFeature feature, Key key) {
+        if (key.propertyName().equals(uniqueKey.attribute())) {
+            return uniqueKey.valueOf().apply(feature);
+        }
+        return feature.getAttribute(key.propertyName());
+    }
+
+    /**
+     * @return the predicate selecting the features after the cursor
+     * @throws IllegalArgumentException if the cursor is invalid, or was created
+     *                                  for a different sort order or attribute
+     *                                  types
+     */
+    public Filter after(@NonNull String cursor) {
+        KeysetCursor decoded = KeysetCursor.decode(cursor);
+        List<String> expected = keys.stream().map(Key::signed).toList();
+        if (!expected.equals(decoded.keys())) {
+            throw new IllegalArgumentException(
+                    "cursor does not match the requested sort order: %s".formatted(cursor));
+        }
+        List<String> expectedTypes = keys.stream().map(k -> k.type().tag()).toList();
+        if (!expectedTypes.equals(decoded.types())) {
+            throw new IllegalArgumentException(
+                    "cursor does not match the collection attribute types: %s".formatted(cursor));
+        }
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String value = decoded.values().get(i);
+            values.add(null == value ? null : keys.get(i).type().parse(value));
+        }
+        Filter after = after(values, 0);
+        return after == null ? Filter.EXCLUDE : after;
+    }
+
+    /**
+     * Recursively builds {@code (k0 > v0) OR (k0 = v0 AND ((k1 > v1) OR (k1 = v1
+     * AND ...)))}, accounting for {@code null} values
+     *
+     * @return the predicate for the keys starting at {@code index}, given the
+     *         previous ones are equal to the cursor values, or {@code null} if no
+     *         feature can match
+     */
+    private Filter after(List<Object> values, int index) {
+        if (index == keys.size()) {
+            return null;
+        }
+        final Key key = keys.get(index);
+        final PropertyName property = ff.property(key.propertyName());
+        final Object value = values.get(index);
+        final Filter tail = after(values, index + 1);
+        final List<Filter> alternatives = new ArrayList<>();
+
+        if (null == value) {
+            if (!key.ascending()) {
+                // nulls first, all non null values come next
+                alternatives.add(ff.not(ff.isNull(property)));
+            }
+            if (null != tail) {
+                alternatives.add(ff.and(ff.isNull(property), tail));
+            }
+        } else {
+            Literal literal = ff.literal(value);
+            alternatives.add(key.ascending() ? ff.greater(property, literal) : ff.less(property, literal));
+            if (key.ascending() && key.nullable()) {
+                // nulls last
+                alternatives.add(ff.isNull(property));
+            }
+            if (null != tail) {
+                alternatives.add(ff.and(ff.equals(property, literal), tail));
+            }
+        }
+        if (alternatives.isEmpty()) {
+            return null;
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : ff.or(alternatives);
+    }
+}
@@ -0,0 +1,34 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.Optional;
+
+import org.geotools.api.data.Query;
+
+import com.camptocamp.opendata.ogc.features.tiles.MvtEncoder;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
+
+/**
+ * Backend specific strategy to have the data store produce a Mapbox Vector
+ * Tile out of the features of a collection, saving the transfer of the full
+ * resolution geometries and their clipping and simplification on the
+ * application side.
+ */
+@FunctionalInterface
+public interface TileEncoder {
+
+    /**
+     * Encoder for backends that can't produce vector tiles, makes tiles be encoded
+     * by {@link MvtEncoder}
+     */
+    TileEncoder NONE = (query, tile) -> Optional.empty();
+
+    /**
+     * @param query the query for the features intersecting the tile buffer,
+     *              including the property names to encode
+     * @param tile  the tile to encode, the layer being named after the query type
+     *              name
+     * @return the encoded tile, possibly empty, or empty if the query can't be
+     *         handled by the backend
+     */
+    Optional<byte[]> encode(Query query, Tile tile);
+}
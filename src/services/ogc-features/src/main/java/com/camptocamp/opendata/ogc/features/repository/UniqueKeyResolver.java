@@ -0,0 +1,50 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+
+import lombok.NonNull;
+
+/**
+ * Backend specific strategy to find out which attribute uniquely identifies the
+ * features of a collection, required for keyset pagination.
+ */
+@FunctionalInterface
+public interface UniqueKeyResolver {
+
+    /**
+     * Resolver for backends with no unique keys, makes keyset paging fall back to
+     * offset paging
+     */
+    UniqueKeyResolver NONE = typeName -> Optional.empty();
+
+    /**
+     * @param attribute the name of the attribute that uniquely identifies the
+     *                  collection features, usable in filters and sort orders
+     * @param hidden    whether the attribute is only exposed to support keyset
+     *                  paging, and hence shall not be published
+     * @param valueOf   extracts the key value from a feature, regardless of
+     *                  whether the attribute is hidden
+     */
+    record UniqueKey(@NonNull String attribute, boolean hidden, @NonNull Function<SimpleFeature, Object> valueOf) {
+    }
+
+    /**
+     * @return the collection's unique key, or empty if it has none, or it can't
+     *         be used for filtering and sorting
+     */
+    Optional<UniqueKey> uniqueKey(String typeName);
+
+    /**
+     * @return the attributes the backend only exposes to support keyset paging,
+     *         and hence shall not be published, whether or not they make up a
+     *         usable unique key (e.g. all the columns of a multi-column primary
+     *         key)
+     */
+    default List<String> hiddenAttributes(String typeName) {
+        return uniqueKey(typeName).filter(UniqueKey::hidden).map(UniqueKey::attribute).stream().toList();
+    }
+}
@@ -1,15 +1,20 @@
 package com.camptocamp.opendata.ogc.features.server.impl;
 
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.camptocamp.opendata.ogc.features.http.caching.EntityTags;
 import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
 import com.camptocamp.opendata.ogc.features.model.Collection;
 import com.camptocamp.opendata.ogc.features.model.Collections;
@@ -17,6 +22,7 @@ import com.camptocamp.opendata.ogc.features.model.ConfClasses;
 import com.camptocamp.opendata.ogc.features.model.LandingPage;
 import com.camptocamp.opendata.ogc.features.model.Link;
 import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
 import com.camptocamp.opendata.ogc.features.server.api.CapabilitiesApiDelegate;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,6 +36,8 @@ public class CapabilitiesApiImpl implements CapabilitiesApiDelegate {
 
     private final @NonNull NativeWebRequest webRequest;
 
+    private final @NonNull CollectionsConfiguration collectionsConfig;
+
     @Override
     public Optional<NativeWebRequest> getRequest() {
         return Optional.of(webRequest);
@@ -81,7 +89,16 @@ public class CapabilitiesApiImpl implements CapabilitiesApiDelegate {
      */
     @Override
     public ResponseEntity<Collection> describeCollection(String collectionId) {
-        return repository.findCollection(collectionId).map(this::addLinks).map(ResponseEntity::ok)
+        HttpHeaders headers = new HttpHeaders();
+        Optional.ofNullable(collectionsConfig.cacheControl(collectionId)).ifPresent(headers::setCacheControl);
+        Optional<String> etag = repository.changeVersion(collectionId)
+                .map(version -> EntityTags.strong(version, getRequestBasePath()));
+        etag.ifPresent(headers::setETag);
+        if (etag.isPresent() && EntityTags.matches(webRequest.getHeader(IF_NONE_MATCH), etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        return repository.findCollection(collectionId).map(this::addLinks)
+                .map(collection -> ResponseEntity.ok().headers(headers).body(collection))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -2,16 +2,27 @@ package com.camptocamp.opendata.ogc.features.server.impl;
 
 import static java.util.Optional.ofNullable;
 import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MimeType;
 import org.springframework.util.StringUtils;
@@ -22,13 +33,24 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import com.camptocamp.opendata.model.DataQuery;
 import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.exports.ExportJob;
+import com.camptocamp.opendata.ogc.features.exports.ExportJobs;
+import com.camptocamp.opendata.ogc.features.exports.ExportResultsWriter;
+import com.camptocamp.opendata.ogc.features.http.caching.EntityTags;
 import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.CountMode;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
 import com.camptocamp.opendata.ogc.features.model.Link;
+import com.camptocamp.opendata.ogc.features.model.StatusInfo;
 import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
 import com.camptocamp.opendata.ogc.features.server.api.DataApiDelegate;
+import com.camptocamp.opendata.ogc.features.tiles.MvtEncoder;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
+import com.camptocamp.opendata.ogc.features.tiles.TilesConfiguration;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
@@ -39,6 +61,12 @@ public class DataApiImpl implements DataApiDelegate {
 
     private final @NonNull NativeWebRequest webRequest;
 
+    private final @NonNull TilesConfiguration tilesConfig;
+
+    private final @NonNull ExportJobs exports;
+
+    private final @NonNull CollectionsConfiguration collectionsConfig;
+
     @Override
     public Optional<NativeWebRequest> getRequest() {
         return Optional.of(webRequest);
@@ -68,10 +96,14 @@ public class DataApiImpl implements DataApiDelegate {
             String filter, //
             String filterLang, //
             String filterCrs, //
-            List<String> sortby, String crs) {
+            List<String> sortby, //
+            String crs, //
+            String cursor, //
+            Integer coordPrecision) {
 
         NativeWebRequest request = getRequest().orElseThrow();
         Integer offset = extractOffset(request);
+        validateCoordPrecision(coordPrecision);
 
         if (limit != null && limit.intValue() < 0) {
             limit = null;
@@ -84,21 +116,174 @@ public class DataApiImpl implements DataApiDelegate {
                 .withFilter(filter)//
                 .withFilterLang(filterLang)//
                 .withFilterCrs(filterCrs)//
-                .withSortby(sortby).withCrs(crs);
+                .withSortby(sortby).withCrs(crs).withCursor(cursor)//
+                .withCoordPrecision(coordPrecision);
         return getFeatures(fq);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseEntity<Resource> getTile(//
+            String collectionId, //
+            String tileMatrixSetId, //
+            Integer tileMatrix, //
+            Integer tileRow, //
+            Integer tileCol) {
+
+        if (!Tile.WEB_MERCATOR_QUAD.equals(tileMatrixSetId)) {
+            return ResponseEntity.notFound().build();
+        }
+        final Tile tile;
+        try {
+            tile = tilesConfig.tile(tileMatrix, tileCol, tileRow);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        byte[] encoded = repository.getTile(collectionId, tile)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (encoded.length == 0) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.valueOf(MvtEncoder.MEDIA_TYPE))
+                .body(new ByteArrayResource(encoded));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResponseEntity<StatusInfo> getJob(String jobId) {
+        return exports.find(jobId).map(this::statusInfo).map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Writes the results straight to the servlet response, for the file to be
+     * handed over to Tomcat's {@literal sendfile} support, which a
+     * {@link Resource} body written by the message converters can't use. Returns
+     * {@code null} for Spring MVC to consider the response handled.
+     */
+    @Override
+    public ResponseEntity<Resource> getJobResults(String jobId) {
+        ExportJob job = exports.find(jobId).filter(j -> j.getStatus() == ExportJob.Status.SUCCESSFUL)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        try {
+            ExportResultsWriter.write(job, webRequest.getNativeRequest(HttpServletRequest.class),
+                    webRequest.getNativeResponse(HttpServletResponse.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
     public ResponseEntity<FeatureCollection> getFeatures(@NonNull FeaturesQuery query) {
 
         DataQuery dataQuery = toDataQuery(query);
+        if (exports.isEnabled() && isRespondAsync()) {
+            return submitExport(dataQuery);
+        }
 
+        final String collectionId = query.getCollectionId();
+        HttpHeaders cacheHeaders = cacheHeaders(collectionId, dataQuery);
+        if (isNotModified(cacheHeaders)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(cacheHeaders).build();
+        }
         FeatureCollection fc = repository.query(dataQuery)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         addLinks(fc, dataQuery);
-        HttpHeaders headers = getFeaturesHeaders(query.getCollectionId());
+        HttpHeaders headers = getFeaturesHeaders(collectionId);
+        headers.addAll(cacheHeaders);
         return ResponseEntity.status(200).headers(headers).body(fc);
     }
 
+    /**
+     * @return the {@literal Cache-Control} header configured for the collection,
+     *         and a weak {@literal ETag} if the backend can tell the collection
+     *         change version, combined with the query, the requested format, and
+     *         the request URL the links are built from. The tag is weak since the
+     *         {@literal timeStamp} of the responses differs for the same data.
+     */
+    private HttpHeaders cacheHeaders(String collectionId, DataQuery dataQuery) {
+        HttpHeaders headers = new HttpHeaders();
+        ofNullable(collectionsConfig.cacheControl(collectionId)).ifPresent(headers::setCacheControl);
+        repository.changeVersion(collectionId).ifPresent(version -> {
+            HttpServletRequest nativeRequest = (HttpServletRequest) webRequest.getNativeRequest();
+            String url = UriComponentsBuilder.fromHttpUrl(nativeRequest.getRequestURL().toString())
+                    .query(nativeRequest.getQueryString()).build().toString();
+            headers.setETag(EntityTags
+                    .weak(EntityTags.strong(version, dataQuery.toString(), webRequest.getHeader(ACCEPT), url)));
+        });
+        return headers;
+    }
+
+    private boolean isNotModified(HttpHeaders cacheHeaders) {
+        String etag = cacheHeaders.getETag();
+        return null != etag && EntityTags.matches(webRequest.getHeader(IF_NONE_MATCH), etag);
+    }
+
+    private boolean isRespondAsync() {
+        String prefer = webRequest.getHeader("Prefer");
+        return null != prefer && Arrays.stream(prefer.split(",")).map(String::trim)
+                .anyMatch("respond-async"::equalsIgnoreCase);
+    }
+
+    private ResponseEntity<FeatureCollection> submitExport(DataQuery dataQuery) {
+        if (repository.findCollection(dataQuery.getLayerName()).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        MimeTypes format = ofNullable(webRequest.getHeader(ACCEPT)).flatMap(MimeTypes::find)
+                .orElse(MimeTypes.GEOJSON);
+        final ExportJob job;
+        try {
+            job = exports.submit(dataQuery, format);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(RETRY_AFTER, String.valueOf(Math.max(1, exports.getRetryAfter().toSeconds()))).build();
+        }
+        return ResponseEntity.accepted().location(URI.create(jobHref(job)))
+                .header("Preference-Applied", "respond-async").build();
+    }
+
+    /**
+     * @return the job status URL, relative to the API root of the collection
+     *         items or job request URL
+     */
+    private String jobHref(ExportJob job) {
+        String root = ((HttpServletRequest) webRequest.getNativeRequest()).getRequestURL().toString();
+        for (String path : List.of("/collections/", "/jobs/")) {
+            int index = root.lastIndexOf(path);
+            if (index >= 0) {
+                root = root.substring(0, index);
+                break;
+            }
+        }
+        return "%s/jobs/%s".formatted(root, job.getId());
+    }
+
+    private StatusInfo statusInfo(ExportJob job) {
+        StatusInfo status = new StatusInfo(job.getId(),
+                StatusInfo.StatusEnum.fromValue(job.getStatus().name().toLowerCase()));
+        status.setMessage(job.getMessage());
+        status.setCreated(offsetDateTime(job.getCreated()));
+        status.setFinished(offsetDateTime(job.getFinished()));
+        String self = jobHref(job);
+        status.addLinksItem(link(self, "self", "application/json", "This document"));
+        if (job.getStatus() == ExportJob.Status.SUCCESSFUL) {
+            MimeTypes format = job.getFormat();
+            status.addLinksItem(link(self + "/results", "http://www.opengis.net/def/rel/ogc/1.0/results",
+                    format.getMimeType().toString(), "Results as %s".formatted(format.getDisplayName())));
+        }
+        return status;
+    }
+
+    private static OffsetDateTime offsetDateTime(Instant instant) {
+        return null == instant ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+
     private HttpHeaders getFeaturesHeaders(String collectionId) {
         HttpHeaders headers = new HttpHeaders();
 
@@ -126,20 +311,48 @@ public class DataApiImpl implements DataApiDelegate {
                     "This document as %s".formatted(m.getDisplayName())));
         });
 
-        if (fc.getNumberMatched() != null && fc.getNumberReturned() != null
-                && (fc.getNumberMatched() > fc.getNumberReturned())) {
-
-            Integer offset = extractOffset(request);
-            int limit = dataQuery.getLimit() == null ? 10 : dataQuery.getLimit();
-            Integer next = offset == null ? limit : offset + limit;
-            // f parameter preempts the "Accept" header
-            final String formatParam = request.getParameter("f");
-            builder.replaceQueryParam("f",
-                    StringUtils.hasText(formatParam) ? formatParam : requestedFormat.getShortName());
-            UriComponents nextUri = builder.replaceQueryParam("offset", next.toString())
-                    .replaceQueryParam("limit", limit).build();
-            fc.getLinks().add(1, link(nextUri.toString(), "next", mime, "Next page"));
+        if (dataQuery.getLimit() == null) {
+            return; // not paging
+        }
+        if (fc.isCursorPaged()) {
+            addNextCursorLink(fc, request, builder, requestedFormat, dataQuery.getLimit());
+            return;
+        }
+        final Integer offset = extractOffset(request);
+        final int limit = dataQuery.getLimit();
+        final int next = offset == null ? limit : offset + limit;
+        final boolean exactCount = fc.getNumberMatched() != null
+                && (fc.getNumberMatchedMode() == null || fc.getNumberMatchedMode() == CountMode.EXACT
+                        || fc.getNumberMatchedMode() == CountMode.CACHED);
+        if (exactCount && fc.getNumberMatched() <= next) {
+            return;
         }
+        // f parameter preempts the "Accept" header
+        final String formatParam = request.getParameter("f");
+        builder.replaceQueryParam("f", StringUtils.hasText(formatParam) ? formatParam : requestedFormat.getShortName());
+        UriComponents nextUri = builder.replaceQueryParam("offset", next).replaceQueryParam("limit", limit).build();
+        Link nextLink = link(nextUri.toString(), "next", mime, "Next page");
+        if (exactCount) {
+            fc.getLinks().add(1, nextLink);
+        } else {
+            // whether there's a next page can only be known once the features are
+            // streamed out
+            fc.addNextLink(nextLink, limit);
+        }
+    }
+
+    private void addNextCursorLink(FeatureCollection fc, NativeWebRequest request, UriComponentsBuilder builder,
+            MimeTypes requestedFormat, int limit) {
+        // f parameter preempts the "Accept" header
+        final String formatParam = request.getParameter("f");
+        builder.replaceQueryParam("f", StringUtils.hasText(formatParam) ? formatParam : requestedFormat.getShortName());
+        builder.replaceQueryParam("offset").replaceQueryParam("limit", limit);
+        final String mime = requestedFormat.getMimeType().toString();
+        // the cursor is only known once the features are streamed out
+        fc.addNextLink(cursor -> {
+            UriComponents nextUri = builder.replaceQueryParam("cursor", cursor).build();
+            return link(nextUri.toString(), "next", mime, "Next page");
+        }, limit);
     }
 
     private Integer extractOffset(NativeWebRequest request) {
@@ -154,6 +367,18 @@ public class DataApiImpl implements DataApiDelegate {
         return null;
     }
 
+    /**
+     * Checks the {@literal coord-precision} parameter, the number of decimals to
+     * round coordinates to, bean validation being disabled for the generated API
+     */
+    private void validateCoordPrecision(Integer coordPrecision) {
+        if (null != coordPrecision
+                && (coordPrecision < 0 || coordPrecision > CollectionsConfiguration.MAX_COORD_PRECISION)) {
+            throw new IllegalArgumentException("coord-precision is invalid, expected 0 to %d: %s"
+                    .formatted(CollectionsConfiguration.MAX_COORD_PRECISION, coordPrecision));
+        }
+    }
+
     private Link link(String href, String rel, String type, String title) {
         Link link = new Link(href);
         link.setRel(rel);
@@ -171,7 +396,8 @@ public class DataApiImpl implements DataApiDelegate {
                 .withLimit(query.getLimit())//
                 .withOffset(query.getOffset())//
                 .withFilter(query.getFilter())//
-                .withSortBy(sortby).withTargetCrs(query.getCrs()).withBbox(query.getBbox());
+                .withSortBy(sortby).withTargetCrs(query.getCrs()).withBbox(query.getBbox())//
+                .withCursor(query.getCursor()).withCoordPrecision(query.getCoordPrecision());
     }
 
 }
@@ -27,9 +27,11 @@ public class FeaturesQuery {
     private String filterCrs;
     private List<String> sortby;
     private String crs;
+    private String cursor;
+    private Integer coordPrecision;
 
     public static FeaturesQuery of(String collectionId) {
-        return new FeaturesQuery(collectionId, null, null, null, null, null, null, null, null, null);
+        return new FeaturesQuery(collectionId, null, null, null, null, null, null, null, null, null, null, null);
     }
 
     public FeaturesQuery withBbox(double minx, double miny, double maxx, double maxy) {
@@ -0,0 +1,157 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Lineal;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.Puntal;
+import org.locationtech.jts.geom.util.AffineTransformation;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
+
+/**
+ * Encodes {@literal EPSG:3857} geometries to a Mapbox Vector Tile with JTS,
+ * for backends that can't produce vector tiles themselves.
+ * <p>
+ * Each geometry is transformed to tile coordinates, clipped to the tile
+ * buffer, and simplified with a {@literal 1} tile unit tolerance before being
+ * {@link VectorTileWriter encoded}. Geometries of mixed dimensions are reduced
+ * to their highest dimension components, as an MVT feature has a single
+ * geometry type.
+ */
+public class MvtEncoder {
+
+    public static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
+    /**
+     * Simplification tolerance in tile coordinates, below the rounding to
+     * integer coordinates
+     */
+    private static final double SIMPLIFY_TOLERANCE = 1.0;
+
+    private final AffineTransformation toTile;
+    private final Envelope clipEnvelope;
+    private final Geometry clipGeometry;
+    private final VectorTileWriter writer;
+
+    /**
+     * @param tile      the tile to encode
+     * @param layerName the name of the single layer of the tile
+     */
+    public MvtEncoder(Tile tile, String layerName) {
+        Envelope bounds = tile.envelope();
+        double scale = tile.extent() / bounds.getWidth();
+        // y axis pointing down, from the top left corner
+        this.toTile = AffineTransformation.translationInstance(-bounds.getMinX(), -bounds.getMaxY())
+                .scale(scale, -scale);
+        int buffer = tile.buffer();
+        this.clipEnvelope = new Envelope(-buffer, tile.extent() + buffer, -buffer, tile.extent() + buffer);
+        this.clipGeometry = new GeometryFactory().toGeometry(clipEnvelope);
+        this.writer = new VectorTileWriter(layerName, tile.extent());
+    }
+
+    /**
+     * Adds a feature unless its geometry falls outside the tile buffer or
+     * collapses once in tile coordinates
+     *
+     * @param geometry   the feature geometry, in {@literal EPSG:3857}
+     * @param properties the feature attributes, in output order
+     */
+    public void add(Geometry geometry, Map<String, Object> properties) {
+        if (null == geometry || geometry.isEmpty()) {
+            return;
+        }
+        Geometry tileGeometry = reduce(toTile.transform(geometry));
+        if (null == tileGeometry || !clipEnvelope.intersects(tileGeometry.getEnvelopeInternal())) {
+            return;
+        }
+        if (tileGeometry instanceof Puntal) {
+            tileGeometry = clipPoints(tileGeometry);
+        } else {
+            tileGeometry = simplify(clip(tileGeometry));
+        }
+        if (null != tileGeometry && !tileGeometry.isEmpty()) {
+            writer.addFeature(tileGeometry, properties);
+        }
+    }
+
+    /**
+     * @return whether no feature was encoded
+     */
+    public boolean isEmpty() {
+        return writer.isEmpty();
+    }
+
+    /**
+     * @return the encoded tile, empty if no feature was added
+     */
+    public byte[] encode() {
+        return writer.toByteArray();
+    }
+
+    private Geometry clip(Geometry geometry) {
+        if (clipEnvelope.contains(geometry.getEnvelopeInternal())) {
+            return geometry;
+        }
+        Geometry clipped = OverlayNGRobust.overlay(geometry, clipGeometry, OverlayNG.INTERSECTION);
+        return reduce(clipped);
+    }
+
+    private Geometry clipPoints(Geometry points) {
+        List<Point> inside = new ArrayList<>(points.getNumGeometries());
+        for (int i = 0; i < points.getNumGeometries(); i++) {
+            Point point = (Point) points.getGeometryN(i);
+            if (!point.isEmpty() && clipEnvelope.contains(point.getCoordinate())) {
+                inside.add(point);
+            }
+        }
+        if (inside.size() == points.getNumGeometries()) {
+            return points;
+        }
+        return points.getFactory().buildGeometry(inside);
+    }
+
+    private Geometry simplify(Geometry geometry) {
+        if (null == geometry) {
+            return null;
+        }
+        // keeps polygons valid
+        return reduce(DouglasPeuckerSimplifier.simplify(geometry, SIMPLIFY_TOLERANCE));
+    }
+
+    /**
+     * @return the components of the highest dimension of a geometry, or
+     *         {@code null} if empty
+     */
+    private static Geometry reduce(Geometry geometry) {
+        if (geometry.isEmpty()) {
+            return null;
+        }
+        if (geometry instanceof Puntal || geometry instanceof Lineal || geometry instanceof Polygonal) {
+            return geometry;
+        }
+        final int dimension = geometry.getDimension();
+        List<Geometry> parts = new ArrayList<>();
+        collect(geometry, dimension, parts);
+        return parts.isEmpty() ? null : geometry.getFactory().buildGeometry(parts);
+    }
+
+    private static void collect(Geometry geometry, int dimension, List<Geometry> parts) {
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (part instanceof GeometryCollection) {
+                collect(part, dimension, parts);
+            } else if (!part.isEmpty() && part.getDimension() == dimension) {
+                parts.add(part);
+            }
+        }
+    }
+}
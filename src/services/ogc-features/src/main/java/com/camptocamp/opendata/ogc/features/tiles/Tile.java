@@ -0,0 +1,70 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A vector tile of the {@literal WebMercatorQuad} tile matrix set, the only
+ * one supported, addressed by zoom level, column, and row, with the row
+ * increasing southwards.
+ *
+ * @param z      the zoom level, or {@literal tileMatrix}
+ * @param x      the column, or {@literal tileCol}
+ * @param y      the row, or {@literal tileRow}
+ * @param extent the tile size in tile coordinates
+ * @param buffer the width of the margin around the tile, in tile coordinates,
+ *               geometries are clipped to
+ */
+public record Tile(int z, int x, int y, int extent, int buffer) {
+
+    public static final String WEB_MERCATOR_QUAD = "WebMercatorQuad";
+
+    /**
+     * Highest zoom level defined by {@literal WebMercatorQuad}
+     */
+    public static final int MAX_ZOOM = 24;
+
+    /**
+     * Half the width of the {@literal EPSG:3857} world extent
+     */
+    static final double HALF_WORLD = 20037508.342789244;
+
+    public Tile {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new IllegalArgumentException("zoom level out of range: " + z);
+        }
+        if (x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            throw new IllegalArgumentException("tile %d/%d/%d out of range".formatted(z, y, x));
+        }
+        if (extent < 1 || buffer < 0) {
+            throw new IllegalArgumentException("invalid extent or buffer: %d, %d".formatted(extent, buffer));
+        }
+    }
+
+    /**
+     * @return the tile bounds in {@literal EPSG:3857}
+     */
+    public Envelope envelope() {
+        double size = 2 * HALF_WORLD / (1 << z);
+        double minX = -HALF_WORLD + x * size;
+        double maxY = HALF_WORLD - y * size;
+        return new Envelope(minX, minX + size, maxY - size, maxY);
+    }
+
+    /**
+     * @return the tile bounds in {@literal EPSG:3857}, expanded by the
+     *         {@code buffer}
+     */
+    public Envelope bufferedEnvelope() {
+        Envelope envelope = envelope();
+        envelope.expandBy(envelope.getWidth() * buffer / extent);
+        return envelope;
+    }
+
+    /**
+     * @return {@literal z/y/x}, in OGC API Tiles path order
+     */
+    @Override
+    public String toString() {
+        return "%d/%d/%d".formatted(z, y, x);
+    }
+}
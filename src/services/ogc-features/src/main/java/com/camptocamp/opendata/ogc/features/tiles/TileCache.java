@@ -0,0 +1,264 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.FileSystemUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-level cache of encoded vector tiles, bounded by the size of the tiles
+ * rather than by their number, as a tile of a dense area can be thousands of
+ * times larger than an empty one.
+ * <p>
+ * Tiles are first looked up in memory, then on disk if enabled. Tiles loaded
+ * on a miss are stored at both levels, each level evicting the least recently
+ * used tiles once over its maximum size. Concurrent requests for the same tile
+ * wait for a single load.
+ * <p>
+ * Tiles are stored on disk in a subdirectory of the configured directory
+ * created for this instance, and deleted with it on shutdown, leaving anything
+ * else in the configured directory alone.
+ */
+@Slf4j(topic = "com.camptocamp.opendata.ogc.features.tiles")
+public class TileCache implements DisposableBean {
+
+    static final String CACHE_NAME = "tiles";
+
+    private final Cache<String, byte[]> memory;
+
+    private final DiskCache disk;
+
+    public TileCache(@NonNull TilesConfiguration.CacheSettings settings) {
+        this(settings, Clock.systemUTC());
+    }
+
+    TileCache(@NonNull TilesConfiguration.CacheSettings settings, @NonNull Clock clock) {
+        this.memory = CacheBuilder.newBuilder().expireAfterWrite(settings.getTtl())
+                .maximumWeight(settings.getMemoryMaxSize().toBytes())
+                .weigher((String key, byte[] tile) -> key.length() + tile.length).recordStats().build();
+        TilesConfiguration.DiskCacheSettings diskSettings = settings.getDisk();
+        this.disk = diskSettings.isEnabled()
+                ? new DiskCache(directory(diskSettings), diskSettings.getMaxSize().toBytes(), settings.getTtl(), clock)
+                : null;
+    }
+
+    /**
+     * @param loader encodes the tile on a cache miss, runtime exceptions are
+     *               propagated as is and the failure is not cached
+     */
+    public byte[] get(@NonNull String collectionId, @NonNull Tile tile, @NonNull Supplier<byte[]> loader) {
+        final String key = "%s/%s".formatted(collectionId, tile);
+        try {
+            return memory.get(key, () -> load(key, loader));
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private byte[] load(String key, Supplier<byte[]> loader) {
+        if (null == disk) {
+            return loader.get();
+        }
+        return disk.get(key).orElseGet(() -> {
+            byte[] tile = loader.get();
+            disk.put(key, tile);
+            return tile;
+        });
+    }
+
+    public void invalidateAll() {
+        memory.invalidateAll();
+        if (null != disk) {
+            disk.invalidateAll();
+        }
+    }
+
+    /**
+     * Deletes this instance's disk cache directory, and the tiles in it
+     */
+    @Override
+    public void destroy() {
+        if (null != disk) {
+            disk.destroy();
+        }
+    }
+
+    /**
+     * Publishes the {@literal cache.gets} hit/miss, {@literal cache.evictions},
+     * and {@literal cache.size} meters tagged with {@literal cache=tiles} for the
+     * memory cache, and the {@literal tiles.disk.size} gauge, in bytes, if the
+     * disk cache is enabled
+     */
+    public void bindTo(@NonNull MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, memory, CACHE_NAME);
+        if (null != disk) {
+            Gauge.builder("tiles.disk.size", disk, DiskCache::size).baseUnit("bytes")
+                    .description("Size of the tiles cached on disk").register(registry);
+        }
+    }
+
+    /**
+     * @return a new directory for this instance's tiles, in the configured or
+     *         temporary directory
+     */
+    private static Path directory(TilesConfiguration.DiskCacheSettings settings) {
+        try {
+            Path parent = settings.getDirectory();
+            if (null == parent) {
+                return Files.createTempDirectory("data-api-tiles-");
+            }
+            return Files.createTempDirectory(Files.createDirectories(parent), "data-api-tiles-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the tile cache directory", e);
+        }
+    }
+
+    /**
+     * Tiles stored as one file each, indexed in memory in access order. The
+     * directory is created for this cache, so the index accounts for all the
+     * files.
+     */
+    private static class DiskCache {
+
+        private record Entry(Path file, long size, Instant created) {
+        }
+
+        private final Path directory;
+        private final long maxSize;
+        private final Duration ttl;
+        private final Clock clock;
+
+        private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(1024, 0.75f, true);
+        private long size;
+        private long sequence;
+
+        DiskCache(Path directory, long maxSize, Duration ttl, Clock clock) {
+            this.directory = directory;
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+            this.clock = clock;
+            log.info("Caching up to {} bytes of tiles in {}", maxSize, directory);
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        Optional<byte[]> get(String key) {
+            final Entry entry;
+            synchronized (this) {
+                entry = index.get(key);
+                if (null == entry) {
+                    return Optional.empty();
+                }
+                if (entry.created().plus(ttl).isBefore(clock.instant())) {
+                    remove(key, entry);
+                    return Optional.empty();
+                }
+            }
+            try {
+                return Optional.of(Files.readAllBytes(entry.file()));
+            } catch (IOException e) {
+                // evicted in the meantime
+                log.debug("Unable to read cached tile {}: {}", key, e.getMessage());
+                return Optional.empty();
+            }
+        }
+
+        void put(String key, byte[] tile) {
+            if (tile.length > maxSize) {
+                return;
+            }
+            final Path file;
+            synchronized (this) {
+                long id = sequence++;
+                file = directory.resolve("%02x".formatted(id & 0xFF)).resolve(id + ".mvt");
+            }
+            try {
+                Files.createDirectories(file.getParent());
+                Path tmp = Files.createTempFile(file.getParent(), null, ".tmp");
+                Files.write(tmp, tile);
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Unable to cache tile {} on disk: {}", key, e.getMessage());
+                return;
+            }
+            List<Path> evicted = new ArrayList<>();
+            synchronized (this) {
+                Entry previous = index.put(key, new Entry(file, tile.length, clock.instant()));
+                size += tile.length;
+                if (null != previous) {
+                    size -= previous.size();
+                    evicted.add(previous.file());
+                }
+                Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+                while (size > maxSize && eldest.hasNext()) {
+                    Entry entry = eldest.next().getValue();
+                    eldest.remove();
+                    size -= entry.size();
+                    evicted.add(entry.file());
+                }
+            }
+            evicted.forEach(DiskCache::delete);
+        }
+
+        void invalidateAll() {
+            List<Entry> entries;
+            synchronized (this) {
+                entries = new ArrayList<>(index.values());
+                index.clear();
+                size = 0;
+            }
+            entries.forEach(entry -> delete(entry.file()));
+        }
+
+        void destroy() {
+            synchronized (this) {
+                index.clear();
+                size = 0;
+            }
+            FileSystemUtils.deleteRecursively(directory.toFile());
+        }
+
+        private void remove(String key, Entry entry) {
+            index.remove(key);
+            size -= entry.size();
+            delete(entry.file());
+        }
+
+        private static void delete(Path file) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.debug("Unable to delete cached tile {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
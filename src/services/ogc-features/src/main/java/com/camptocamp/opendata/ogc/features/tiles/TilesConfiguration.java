@@ -0,0 +1,133 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Configuration properties for the vector tiles of the collections.
+ * <p>
+ * Default configuration:
+ *
+ * <pre>
+ * <code>
+ * tiles:
+ *   extent: 4096
+ *   buffer: 64
+ *   native-mvt: true
+ *   cache:
+ *     ttl: PT5M
+ *     memory-max-size: 64MB
+ *     disk:
+ *       enabled: false
+ *       directory: # unset, the temporary directory
+ *       max-size: 1GB
+ * </code>
+ * </pre>
+ * <p>
+ * Tiles are only served for the {@literal WebMercatorQuad} tile matrix set.
+ * {@code extent} is the tile size in tile coordinates, and {@code buffer} the
+ * width of the margin around the tile, in tile coordinates, geometries are
+ * clipped to, so that lines and polygon outlines don't show seams at the tile
+ * edges.
+ * <p>
+ * {@code native-mvt} lets backends that support it (i.e. PostGIS) encode the
+ * tiles themselves, instead of clipping, simplifying, and encoding the
+ * geometries in the application.
+ * <p>
+ * Encoded tiles are cached in memory, and optionally on disk, up to the
+ * configured sizes, evicting the least recently used ones first. Cached tiles
+ * are discarded after {@code ttl}, and when a change in the database schemas
+ * is detected. Changes to the table contents are only reflected once the tiles
+ * expire.
+ *
+ * @see TileCache
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "tiles")
+public class TilesConfiguration {
+
+    /**
+     * Tile size in tile coordinates
+     */
+    @Min(256)
+    @Max(65536)
+    private int extent = 4096;
+
+    /**
+     * Width of the tile margin geometries are clipped to, in tile coordinates
+     */
+    @Min(0)
+    @Max(4096)
+    private int buffer = 64;
+
+    /**
+     * Whether to let the backend encode vector tiles when supported
+     */
+    private boolean nativeMvt = true;
+
+    @NotNull
+    @Valid
+    private CacheSettings cache = new CacheSettings();
+
+    @Data
+    public static class CacheSettings {
+
+        /**
+         * How long tiles are served from the cache
+         */
+        @NotNull
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Maximum size of the tiles cached in memory, 0 to disable
+         */
+        @NotNull
+        private DataSize memoryMaxSize = DataSize.ofMegabytes(64);
+
+        @NotNull
+        @Valid
+        private DiskCacheSettings disk = new DiskCacheSettings();
+    }
+
+    @Data
+    public static class DiskCacheSettings {
+
+        /**
+         * Whether to also cache tiles on disk, for the tiles evicted from memory
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory to create the tiles cache in. Each instance stores them in its
+         * own {@literal data-api-tiles-*} subdirectory, deleted on shutdown.
+         * Defaults to the temporary directory.
+         */
+        private Path directory;
+
+        /**
+         * Maximum size of the tiles cached on disk
+         */
+        @NotNull
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+    }
+
+    /**
+     * @return the tile with the configured extent and buffer
+     * @throws IllegalArgumentException if the tile is out of the tile matrix set
+     *                                  bounds
+     */
+    public Tile tile(int z, int x, int y) {
+        return new Tile(z, x, y, extent, buffer);
+    }
+}
@@ -0,0 +1,410 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.Puntal;
+
+/**
+ * <a href="https://github.com/mapbox/vector-tile-spec/tree/master/2.1">Mapbox
+ * Vector Tile</a> 2.1 protobuf encoder, for a single layer.
+ * <p>
+ * Geometries are expected in tile coordinates, clipped to the tile buffer.
+ * Coordinates are rounded to integers, dropping repeated points, and lines and
+ * rings that collapse. Polygon rings are oriented as the spec requires, the
+ * exterior ring having a positive area in tile coordinates (clockwise, as the
+ * {@literal y} axis points down) and holes a negative one.
+ */
+class VectorTileWriter {
+
+    private static final int GEOM_POINT = 1;
+    private static final int GEOM_LINESTRING = 2;
+    private static final int GEOM_POLYGON = 3;
+
+    private static final int CMD_MOVE_TO = 1;
+    private static final int CMD_LINE_TO = 2;
+    private static final int CMD_CLOSE_PATH = 7;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private final String name;
+    private final int extent;
+
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    private final Map<Object, Integer> values = new LinkedHashMap<>();
+    private final ProtoBuffer features = new ProtoBuffer();
+    private int featureCount;
+
+    /**
+     * Reused for each feature
+     */
+    private final ProtoBuffer feature = new ProtoBuffer();
+    private final IntList tags = new IntList();
+    private final IntList commands = new IntList();
+    private int cursorX;
+    private int cursorY;
+
+    /**
+     * @param name   the layer name
+     * @param extent the tile size in tile coordinates
+     */
+    VectorTileWriter(String name, int extent) {
+        this.name = name;
+        this.extent = extent;
+    }
+
+    /**
+     * Adds a feature unless its geometry collapses once rounded
+     *
+     * @param geometry   a point, line, or polygon geometry, in tile coordinates
+     * @param properties the feature attributes, {@code null} values are skipped
+     * @return whether the feature was added
+     */
+    boolean addFeature(Geometry geometry, Map<String, Object> properties) {
+        commands.clear();
+        cursorX = 0;
+        cursorY = 0;
+        final int type;
+        if (geometry instanceof Puntal) {
+            type = GEOM_POINT;
+            encodePoints(geometry);
+        } else if (geometry instanceof Polygonal) {
+            type = GEOM_POLYGON;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                encodePolygon((Polygon) geometry.getGeometryN(i));
+            }
+        } else {
+            type = GEOM_LINESTRING;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                encodeLine(((LineString) geometry.getGeometryN(i)).getCoordinateSequence());
+            }
+        }
+        if (commands.size == 0) {
+            return false;
+        }
+
+        tags.clear();
+        properties.forEach((key, value) -> {
+            if (null != value) {
+                tags.add(keys.computeIfAbsent(key, k -> keys.size()));
+                tags.add(values.computeIfAbsent(valueOf(value), v -> values.size()));
+            }
+        });
+
+        feature.reset();
+        feature.packed(2, tags);
+        feature.tag(3, WIRE_VARINT).varint(type);
+        feature.packed(4, commands);
+        features.bytes(2, feature);
+        featureCount++;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return featureCount == 0;
+    }
+
+    /**
+     * @return the encoded tile, empty if no feature was added
+     */
+    byte[] toByteArray() {
+        if (isEmpty()) {
+            return new byte[0];
+        }
+        ProtoBuffer layer = new ProtoBuffer();
+        layer.tag(15, WIRE_VARINT).varint(2);
+        layer.string(1, name);
+        layer.append(features);
+        keys.keySet().forEach(key -> layer.string(3, key));
+        ProtoBuffer value = new ProtoBuffer();
+        for (Object v : values.keySet()) {
+            value.reset();
+            encodeValue(v, value);
+            layer.bytes(4, value);
+        }
+        layer.tag(5, WIRE_VARINT).varint(extent);
+
+        ProtoBuffer tile = new ProtoBuffer();
+        tile.bytes(3, layer);
+        return tile.toByteArray();
+    }
+
+    /**
+     * Maps values to the types they're encoded as, for equal values to share the
+     * same entry
+     */
+    private static Object valueOf(Object value) {
+        if (value instanceof String || value instanceof Boolean || value instanceof Float
+                || value instanceof Double) {
+            return value;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        return value.toString();
+    }
+
+    private static void encodeValue(Object value, ProtoBuffer out) {
+        if (value instanceof String s) {
+            out.string(1, s);
+        } else if (value instanceof Float f) {
+            out.tag(2, WIRE_FIXED32).fixed32(Float.floatToIntBits(f));
+        } else if (value instanceof Double d) {
+            out.tag(3, WIRE_FIXED64).fixed64(Double.doubleToLongBits(d));
+        } else if (value instanceof Long l) {
+            out.tag(6, WIRE_VARINT).varint(zigZag(l));
+        } else {
+            out.tag(7, WIRE_VARINT).varint(Boolean.TRUE.equals(value) ? 1 : 0);
+        }
+    }
+
+    private void encodePoints(Geometry points) {
+        int start = commands.size;
+        commands.add(0);
+        int count = 0;
+        for (int i = 0; i < points.getNumGeometries(); i++) {
+            Geometry point = points.getGeometryN(i);
+            if (!point.isEmpty()) {
+                int x = (int) Math.round(point.getCoordinate().getX());
+                int y = (int) Math.round(point.getCoordinate().getY());
+                moveCursor(x, y);
+                count++;
+            }
+        }
+        if (count == 0) {
+            commands.size = start;
+        } else {
+            commands.set(start, command(CMD_MOVE_TO, count));
+        }
+    }
+
+    private void encodeLine(CoordinateSequence line) {
+        int[] points = rounded(line, false);
+        if (points.length >= 4) {
+            writePath(points, false);
+        }
+    }
+
+    private void encodePolygon(Polygon polygon) {
+        int[] shell = rounded(polygon.getExteriorRing().getCoordinateSequence(), true);
+        long area = doubleArea(shell);
+        if (area == 0) {
+            return;
+        }
+        writePath(area > 0 ? shell : reverse(shell), true);
+        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+            int[] hole = rounded(polygon.getInteriorRingN(i).getCoordinateSequence(), true);
+            area = doubleArea(hole);
+            if (area != 0) {
+                writePath(area < 0 ? hole : reverse(hole), true);
+            }
+        }
+    }
+
+    private void writePath(int[] points, boolean closed) {
+        int n = points.length / 2;
+        commands.add(command(CMD_MOVE_TO, 1));
+        moveCursor(points[0], points[1]);
+        commands.add(command(CMD_LINE_TO, n - 1));
+        for (int i = 1; i < n; i++) {
+            moveCursor(points[2 * i], points[2 * i + 1]);
+        }
+        if (closed) {
+            commands.add(command(CMD_CLOSE_PATH, 1));
+        }
+    }
+
+    private void moveCursor(int x, int y) {
+        commands.add(zigZag(x - cursorX));
+        commands.add(zigZag(y - cursorY));
+        cursorX = x;
+        cursorY = y;
+    }
+
+    /**
+     * @param ring whether the sequence is a closed ring, whose closing point is
+     *             dropped
+     * @return the interleaved rounded coordinates without consecutive duplicates,
+     *         empty if less than 2 points remain for a line, or 3 for a ring
+     */
+    private static int[] rounded(CoordinateSequence seq, boolean ring) {
+        int[] points = new int[2 * seq.size()];
+        int n = 0;
+        for (int i = 0; i < seq.size(); i++) {
+            int x = (int) Math.round(seq.getX(i));
+            int y = (int) Math.round(seq.getY(i));
+            if (n == 0 || x != points[2 * n - 2] || y != points[2 * n - 1]) {
+                points[2 * n] = x;
+                points[2 * n + 1] = y;
+                n++;
+            }
+        }
+        if (ring && n > 1 && points[0] == points[2 * n - 2] && points[1] == points[2 * n - 1]) {
+            n--;
+        }
+        return n < (ring ? 3 : 2) ? new int[0] : Arrays.copyOf(points, 2 * n);
+    }
+
+    /**
+     * @return twice the signed area of a ring, by the surveyor's formula
+     */
+    private static long doubleArea(int[] ring) {
+        int n = ring.length / 2;
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            sum += (long) ring[2 * i] * ring[2 * j + 1] - (long) ring[2 * j] * ring[2 * i + 1];
+        }
+        return sum;
+    }
+
+    private static int[] reverse(int[] ring) {
+        int n = ring.length / 2;
+        int[] reversed = new int[ring.length];
+        for (int i = 0; i < n; i++) {
+            reversed[2 * i] = ring[2 * (n - 1 - i)];
+            reversed[2 * i + 1] = ring[2 * (n - 1 - i) + 1];
+        }
+        return reversed;
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static long zigZag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static final class IntList {
+        int[] values = new int[64];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Growable buffer with the protobuf wire format primitives
+     */
+    private static final class ProtoBuffer {
+        private byte[] buf = new byte[256];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        ProtoBuffer tag(int field, int wireType) {
+            return varint((field << 3) | wireType);
+        }
+
+        ProtoBuffer varint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+            return this;
+        }
+
+        void fixed32(int value) {
+            ensureCapacity(4);
+            for (int i = 0; i < 4; i++) {
+                buf[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void fixed64(long value) {
+            ensureCapacity(8);
+            for (int i = 0; i < 8; i++) {
+                buf[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void string(int field, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            tag(field, WIRE_LENGTH_DELIMITED).varint(bytes.length);
+            write(bytes, bytes.length);
+        }
+
+        void bytes(int field, ProtoBuffer message) {
+            tag(field, WIRE_LENGTH_DELIMITED).varint(message.size);
+            append(message);
+        }
+
+        void packed(int field, IntList list) {
+            if (list.size == 0) {
+                return;
+            }
+            int length = 0;
+            for (int i = 0; i < list.size; i++) {
+                length += varintSize(list.values[i]);
+            }
+            tag(field, WIRE_LENGTH_DELIMITED).varint(length);
+            for (int i = 0; i < list.size; i++) {
+                varint(list.values[i] & 0xFFFFFFFFL);
+            }
+        }
+
+        void append(ProtoBuffer other) {
+            write(other.buf, other.size);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void write(byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, buf, size, length);
+            size += length;
+        }
+
+        private static int varintSize(int value) {
+            long v = value & 0xFFFFFFFFL;
+            int bytes = 1;
+            while ((v & ~0x7FL) != 0) {
+                v >>>= 7;
+                bytes++;
+            }
+            return bytes;
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (size + bytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + bytes));
+            }
+        }
+    }
+}
@@ -5,24 +5,182 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.feature.type.AttributeDescriptor;
+import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.feature.FeatureTypes;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.factory.Hints;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
 import org.springframework.lang.Nullable;
 
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * A PostGIS dialect that does not rely on the public geometry_columns table to
  * get the SRID of a geometry column. Get the SRID from the geometry in the
  * table instead.
+ * <p>
+ * Also reprojects a geometry column in the database when a query carries the
+ * {@link #TARGET_SRID} hint, adapts the fetch size to the width of the
+ * queried rows, and exposes the query statements for them to be cancelled, see
+ * {@link #listenSelects(Consumer)}.
  */
 @Slf4j
 public class SchemaUnawarePostGISDialect extends PostGISDialect {
+
+    /**
+     * Query hint holding the geometry column to have transformed with
+     * {@code ST_Transform}, and the SRID to transform it to, for the features to
+     * be returned already reprojected. Note the features' schema still reports the
+     * native CRS.
+     */
+    public static final Hints.Key TARGET_SRID = new Hints.Key(TargetSrid.class);
+
+    /**
+     * {@link #TARGET_SRID} hint value
+     */
+    public record TargetSrid(String column, int srid) {
+    }
+
+    /**
+     * Fetch size lower bound, for rows estimated wider than the fetched bytes
+     */
+    static final int MIN_FETCH_SIZE = 10;
+
+    /**
+     * Assumed width of attributes whose size can't be told from the schema, e.g.
+     * geometries other than points or unbounded strings
+     */
+    private static final int VARIABLE_WIDTH = 1024;
+
+    /**
+     * Notified of the statements running the SELECT queries of the current
+     * thread, see {@link #listenSelects(Consumer)}
+     */
+    private static final ThreadLocal<Consumer<Statement>> SELECT_LISTENER = new ThreadLocal<>();
+
+    /**
+     * Approximate number of bytes to fetch per round trip, or {@literal 0} to
+     * always use the data store fetch size
+     */
+    private @Setter int fetchBytes;
+
     public SchemaUnawarePostGISDialect(JDBCDataStore dataStore) {
         super(dataStore);
     }
 
+    @Override
+    public void onSelect(Statement select, Connection cx, SimpleFeatureType featureType) throws SQLException {
+        super.onSelect(select, cx, featureType);
+        adaptFetchSize(select, featureType);
+        notifySelect(select);
+    }
+
+    /**
+     * Notifies {@code listener} of the statements the data store creates to run
+     * the SELECT queries of the current thread, until the returned handle is
+     * closed, e.g. for a feature reader query to be {@link Statement#cancel()
+     * cancelled} from another thread.
+     */
+    public static SelectListener listenSelects(Consumer<Statement> listener) {
+        SELECT_LISTENER.set(listener);
+        return SELECT_LISTENER::remove;
+    }
+
+    /**
+     * Registration handle of a {@link #listenSelects(Consumer) SELECT listener}
+     */
+    @FunctionalInterface
+    public interface SelectListener extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    static void notifySelect(Statement select) {
+        Consumer<Statement> listener = SELECT_LISTENER.get();
+        if (null != listener) {
+            listener.accept(select);
+        }
+    }
+
+    /**
+     * Lowers the statement fetch size, as set to the data store's one, for the
+     * rows fetched in a round trip to take about {@link #fetchBytes}. Note the
+     * PostgreSQL driver only honours it with auto-commit off, loading the whole
+     * result set otherwise.
+     */
+    void adaptFetchSize(Statement select, SimpleFeatureType featureType) throws SQLException {
+        int fetchSize = select.getFetchSize();
+        if (fetchSize > 0 && fetchBytes > 0 && null != featureType) {
+            select.setFetchSize(fetchSize(featureType, fetchSize, fetchBytes));
+        }
+    }
+
+    /**
+     * @return the number of rows of the given type fitting in {@code maxBytes},
+     *         within {@link #MIN_FETCH_SIZE} and {@code maxRows}
+     */
+    static int fetchSize(SimpleFeatureType featureType, int maxRows, int maxBytes) {
+        int rows = maxBytes / rowWidth(featureType);
+        return Math.min(maxRows, Math.max(MIN_FETCH_SIZE, rows));
+    }
+
+    /**
+     * @return the estimated size of a row of the given type, in bytes
+     */
+    static int rowWidth(SimpleFeatureType featureType) {
+        int width = 16;
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            Class<?> binding = att.getType().getBinding();
+            if (Point.class.isAssignableFrom(binding)) {
+                width += 64;
+            } else if (Geometry.class.isAssignableFrom(binding)) {
+                width += VARIABLE_WIDTH;
+            } else if (String.class.equals(binding)) {
+                int length = FeatureTypes.getFieldLength(att);
+                width += length > 0 ? length : VARIABLE_WIDTH / 8;
+            } else if (Number.class.isAssignableFrom(binding) || Boolean.class.equals(binding)
+                    || java.util.Date.class.isAssignableFrom(binding) || UUID.class.equals(binding)) {
+                width += 16;
+            } else {
+                width += VARIABLE_WIDTH / 8;
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Wraps the column in {@code ST_Transform} if it's the {@link #TARGET_SRID}
+     * one and its native SRID is another one, geography columns are left as is.
+     * The transformed column is encoded like {@link PostGISDialect} encodes
+     * geometry columns, as EWKB, or as 2D WKB with the {@link Hints#FEATURE_2D}
+     * hint, for it to be decoded as usual.
+     */
+    @Override
+    public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid, Hints hints,
+            StringBuffer sql) {
+        Object targetSrid = null == hints ? null : hints.get(TARGET_SRID);
+        Object nativeType = gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME);
+        if (!(targetSrid instanceof TargetSrid target) || !target.column().equals(gatt.getLocalName())
+                || target.srid() == srid || srid <= 0 || !"geometry".equalsIgnoreCase(String.valueOf(nativeType))) {
+            super.encodeGeometryColumn(gatt, prefix, srid, hints, sql);
+            return;
+        }
+        boolean force2D = Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D));
+        sql.append(force2D ? "ST_AsBinary(ST_Force2D(" : "ST_AsEWKB(");
+        sql.append("ST_Transform(");
+        encodeColumnName(prefix, gatt.getLocalName(), sql);
+        sql.append(", ").append(target.srid()).append(')');
+        sql.append(force2D ? "))" : ")");
+    }
+
     @Override
     public Integer getGeometrySRID(String schemaName, String tableName, String columnName, Connection cx)
             throws SQLException {
@@ -0,0 +1,31 @@
+package org.geotools.data.postgis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.jdbc.JDBCDataStore;
+
+/**
+ * {@link PostGISPSDialect} adapting the fetch size of the queries, and
+ * notifying the SELECT listeners, like its {@link SchemaUnawarePostGISDialect
+ * delegate} does for plain statements.
+ */
+public class SchemaUnawarePostGISPSDialect extends PostGISPSDialect {
+
+    private final SchemaUnawarePostGISDialect delegate;
+
+    public SchemaUnawarePostGISPSDialect(JDBCDataStore store, SchemaUnawarePostGISDialect delegate) {
+        super(store, delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onSelect(PreparedStatement select, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        super.onSelect(select, cx, featureType);
+        delegate.adaptFetchSize(select, featureType);
+        SchemaUnawarePostGISDialect.notifySelect(select);
+    }
+}
@@ -1,5 +1,6 @@
 package org.geotools.data.postgis;
 
+import java.io.IOException;
 import java.util.Map;
 
 import org.geotools.jdbc.JDBCDataStore;
@@ -9,8 +10,22 @@ import org.geotools.jdbc.SQLDialect;
  * Extension to {@link PostgisNGDataStoreFactory} creating data stores that
  * don't rely on the public {@literal geometry_columns} table to get the SRID of
  * a geometry column. Get the SRID from the geometry in the table instead.
+ * <p>
+ * The created data stores also adapt the fetch size of each query to the width
+ * of its rows, see {@link #FETCH_BYTES}.
  */
 public final class SchemaUnawarePostgisNGDataStoreFactory extends PostgisNGDataStoreFactory {
+
+    public static final int DEFAULT_FETCH_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Approximate number of bytes to fetch per round trip, the
+     * {@link #FETCHSIZE fetch size} being lowered for wide rows to stay within it
+     */
+    public static final Param FETCH_BYTES = new Param("Fetch bytes", Integer.class,
+            "Approximate number of bytes to fetch per round trip, lowering the fetch size for wide rows", false,
+            DEFAULT_FETCH_BYTES);
+
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new SchemaUnawarePostGISDialect(dataStore);
@@ -20,4 +35,28 @@ public final class SchemaUnawarePostgisNGDataStoreFactory extends PostgisNGDataS
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore, Map<String, ?> params) {
         return new SchemaUnawarePostGISDialect(dataStore);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void setupParameters(Map<String, Object> parameters) {
+        super.setupParameters(parameters);
+        parameters.put(FETCH_BYTES.key, FETCH_BYTES);
+    }
+
+    /**
+     * Replaces the prepared statements dialect, if used, by one that also adapts
+     * the fetch size
+     */
+    @Override
+    protected JDBCDataStore createDataStoreInternal(JDBCDataStore dataStore, Map<String, ?> params)
+            throws IOException {
+        SchemaUnawarePostGISDialect dialect = (SchemaUnawarePostGISDialect) dataStore.getSQLDialect();
+        Integer fetchBytes = (Integer) FETCH_BYTES.lookUp(params);
+        dialect.setFetchBytes(null == fetchBytes ? DEFAULT_FETCH_BYTES : fetchBytes);
+
+        JDBCDataStore store = super.createDataStoreInternal(dataStore, params);
+        if (store.getSQLDialect() instanceof PostGISPSDialect) {
+            store.setSQLDialect(new SchemaUnawarePostGISPSDialect(store, dialect));
+        }
+        return store;
+    }
+}
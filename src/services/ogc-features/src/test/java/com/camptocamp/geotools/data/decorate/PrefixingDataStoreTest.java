@@ -156,6 +156,52 @@ class PrefixingDataStoreTest {
         }
     }
 
+    @Test
+    void getFeatureReaderPropertyNames() throws Exception {
+        String[] orig = delegate.getTypeNames();
+        String[] prefixed = store.getTypeNames();
+
+        Transaction transaction = Transaction.AUTO_COMMIT;
+        for (int i = 0; i < orig.length; i++) {
+            String firstAttribute = delegate.getSchema(orig[i]).getDescriptor(0).getLocalName();
+            Query origQuery = new Query(orig[i]);
+            origQuery.setPropertyNames(firstAttribute);
+            Query prefixedQuery = new Query(prefixed[i]);
+            prefixedQuery.setPropertyNames(firstAttribute);
+
+            var expected = delegate.getFeatureReader(origQuery, transaction);
+            var actual = store.getFeatureReader(prefixedQuery, transaction);
+            assertThat(actual.getFeatureType().getAttributeCount()).isOne();
+            assertFeatureReader(expected, actual);
+
+            SimpleFeatureCollection features = store.getFeatureSource(prefixed[i]).getFeatures(prefixedQuery);
+            assertThat(features.getSchema().getAttributeCount()).isOne();
+            assertFeatureCollection(delegate.getFeatureSource(orig[i]).getFeatures(origQuery), features);
+        }
+    }
+
+    @Test
+    void cachesRenamedSchemasAndFeatureSources() throws IOException {
+        String origTypeName = delegate.getTypeNames()[0];
+        String typeName = prefix + origTypeName;
+
+        SimpleFeatureType schema = store.getSchema(typeName);
+        SimpleFeatureSource featureSource = store.getFeatureSource(typeName);
+        assertThat(store.getSchema(typeName)).isSameAs(schema);
+        assertThat(store.getFeatureSource(typeName)).isSameAs(featureSource);
+        assertThat(featureSource.getSchema()).isSameAs(schema);
+
+        String firstAttribute = schema.getDescriptor(0).getLocalName();
+        Query query = new Query(typeName);
+        query.setPropertyNames(firstAttribute);
+        SimpleFeatureType retyped = ((RenamingFeatureSource) featureSource).getSchema(query);
+        assertThat(((RenamingFeatureSource) featureSource).getSchema(query)).isSameAs(retyped);
+
+        store.evict(List.of(origTypeName));
+        assertThat(store.getSchema(typeName)).isNotSameAs(schema).isEqualTo(schema);
+        assertThat(store.getFeatureSource(typeName)).isNotSameAs(featureSource);
+    }
+
     @Test
     void getFeatureWriter() {
         assertUnsupported(() -> store.getFeatureWriter("test", mock(Transaction.class)));
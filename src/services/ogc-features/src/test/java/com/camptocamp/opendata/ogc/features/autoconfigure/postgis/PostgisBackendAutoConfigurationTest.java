@@ -1,9 +1,11 @@
 package com.camptocamp.opendata.ogc.features.autoconfigure.postgis;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 
 import javax.sql.DataSource;
 
@@ -17,6 +19,8 @@ import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 
 import com.camptocamp.opendata.ogc.features.server.impl.PostgisTestSupport;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 class PostgisBackendAutoConfigurationTest {
 
     private ApplicationContextRunner runner = new ApplicationContextRunner()
@@ -58,6 +62,31 @@ class PostgisBackendAutoConfigurationTest {
                         .hasSingleBean(SchemaMultiplexingPostgisDataStoreProvider.class));
     }
 
+    @Test
+    void testSchemasRefresherWarmsUpDataStores() {
+        runner.run(context -> {
+            assertThat(context).hasNotFailed().hasSingleBean(PostgisSchemasRefresher.class);
+            var provider = context.getBean(SchemaMultiplexingPostgisDataStoreProvider.class);
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(provider.getProvidersBySchema())
+                    .as("data stores for visible schemas should be created in the background")
+                    .containsKeys("opendataindex", "ville_Villeneuve-d'Ascq"));
+            assertThat(provider.getSchemas()).contains("opendataindex", "ville_Villeneuve-d'Ascq");
+        });
+    }
+
+    @Test
+    void testSchemasRefresherMetrics() {
+        runner.run(context -> {
+            var refresher = context.getBean(PostgisSchemasRefresher.class);
+            var registry = new SimpleMeterRegistry();
+            refresher.bindTo(registry);
+            refresher.refresh();
+            assertThat(registry.get("postgis.schemas.refresh").tag("outcome", "success").timer().count()).isOne();
+            assertThat(registry.get("postgis.schemas.refresh.last.success").gauge().value()).isPositive();
+            assertThat(registry.get("postgis.schemas.count").gauge().value()).isGreaterThanOrEqualTo(2);
+        });
+    }
+
     @Test
     void testDefaultSchemaConfigProperties() {
         runner.run(context -> {
@@ -0,0 +1,26 @@
+package com.camptocamp.opendata.ogc.features.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * Discards its output, only keeping track of its size, for benchmarks to
+ * measure the encoding without the I/O
+ */
+public class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count += len;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,22 @@
+package com.camptocamp.opendata.ogc.features.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the size of the output encoded by a benchmark operation as the
+ * {@literal bytes} secondary result, next to the time it took.
+ * <p>
+ * Benchmark methods take it as an argument and set {@link #bytes} to the
+ * {@link CountingOutputStream#getCount() count} of the stream they encoded to.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class EncodedSize {
+
+    /**
+     * Size of the last encoded output, in bytes
+     */
+    public long bytes;
+}
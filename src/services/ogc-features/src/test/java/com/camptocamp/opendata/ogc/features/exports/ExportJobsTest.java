@@ -0,0 +1,325 @@
+package com.camptocamp.opendata.ogc.features.exports;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.util.unit.DataSize;
+
+import com.camptocamp.opendata.model.DataQuery;
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.model.GeoToolsFeatureCollection;
+import com.camptocamp.opendata.ogc.features.repository.CollectionRepository;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
+
+class ExportJobsTest {
+
+    private @TempDir Path directory;
+
+    private final StubRepository repository = new StubRepository();
+    private final StubConverter converter = new StubConverter();
+    private final MutableClock clock = new MutableClock();
+
+    private ExportsConfiguration config;
+    private ExportJobs exports;
+
+    private final DataQuery query = DataQuery.fromUri(URI.create("index://default")).withLayerName("locations");
+
+    @BeforeEach
+    void setUp() {
+        config = new ExportsConfiguration();
+        config.setDirectory(directory.resolve("exports"));
+        exports = new ExportJobs(config, repository, () -> List.of(converter), clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        converter.release.countDown();
+        exports.destroy();
+    }
+
+    @Test
+    void testIdenticalRequestsShareTheJob() throws Exception {
+        converter.hold();
+        ExportJob job = exports.submit(query, MimeTypes.CSV);
+        assertThat(converter.started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(exports.submit(query, MimeTypes.CSV)).isSameAs(job);
+        assertThat(exports.submit(query.withLimit(10), MimeTypes.CSV)).isNotSameAs(job);
+        assertThat(exports.submit(query, MimeTypes.GEOJSON)).isNotSameAs(job);
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.RUNNING);
+
+        converter.release.countDown();
+        await(job);
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.SUCCESSFUL);
+        assertThat(Files.readString(job.getFile())).isEqualTo("locations");
+        assertThat(job.getSize()).isEqualTo(9);
+        assertThat(exports.find(job.getId())).containsSame(job);
+    }
+
+    @Test
+    void testResultsReusedUntilTheCollectionChanges() throws Exception {
+        repository.version = "1";
+        ExportJob job = await(exports.submit(query, MimeTypes.CSV));
+        assertThat(await(exports.submit(query, MimeTypes.CSV))).isSameAs(job);
+        assertThat(converter.writes).hasValue(1);
+
+        repository.version = "2";
+        ExportJob updated = await(exports.submit(query, MimeTypes.CSV));
+        assertThat(updated).isNotSameAs(job);
+        assertThat(updated.getVersion()).isEqualTo("2");
+        assertThat(converter.writes).hasValue(2);
+        assertThat(job.getFile()).doesNotExist();
+        assertThat(exports.find(job.getId())).isEmpty();
+    }
+
+    @Test
+    void testFinishedResultsNotReusedWithoutChangeVersion() throws Exception {
+        repository.version = null;
+        ExportJob job = await(exports.submit(query, MimeTypes.CSV));
+
+        ExportJob again = await(exports.submit(query, MimeTypes.CSV));
+        assertThat(again).isNotSameAs(job);
+        assertThat(converter.writes).hasValue(2);
+        assertThat(job.getFile()).doesNotExist();
+    }
+
+    @Test
+    void testFailedJobIsNotReused() throws Exception {
+        repository.failure = new IllegalStateException("connection refused");
+        ExportJob job = await(exports.submit(query, MimeTypes.CSV));
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.FAILED);
+        assertThat(job.getMessage()).isEqualTo("Export failed");
+        assertThat(job.getFile()).isNull();
+
+        repository.failure = null;
+        ExportJob retry = await(exports.submit(query, MimeTypes.CSV));
+        assertThat(retry).isNotSameAs(job);
+        assertThat(retry.getStatus()).isEqualTo(ExportJob.Status.SUCCESSFUL);
+    }
+
+    @Test
+    void testResultsExpireOnceNotRequested() throws Exception {
+        ExportJob job = await(exports.submit(query, MimeTypes.CSV));
+
+        clock.advance(config.getRetention().minusMinutes(1));
+        assertThat(exports.find(job.getId())).isPresent();
+        clock.advance(config.getRetention().minusMinutes(1));
+        assertThat(exports.find(job.getId())).isPresent();
+
+        clock.advance(config.getRetention().plusMinutes(1));
+        assertThat(exports.find(job.getId())).isEmpty();
+        assertThat(job.getFile()).doesNotExist();
+        assertThat(exports.submit(query, MimeTypes.CSV)).isNotSameAs(job);
+    }
+
+    @Test
+    void testOnlyOwnFilesAreDeleted() throws Exception {
+        Path other = Files.writeString(directory.resolve("exports").resolve("other.txt"), "not an export");
+        ExportJob job = await(exports.submit(query, MimeTypes.CSV));
+        assertThat(job.getFile().getParent().getParent()).isEqualTo(directory.resolve("exports"));
+
+        ExportJobs restarted = new ExportJobs(config, repository, () -> List.of(converter), clock);
+        assertThat(job.getFile()).exists();
+        restarted.destroy();
+        assertThat(job.getFile()).exists();
+
+        exports.destroy();
+        assertThat(job.getFile().getParent()).doesNotExist();
+        assertThat(other).hasContent("not an export");
+    }
+
+    @Test
+    void testPendingJobsAreBounded() throws Exception {
+        config.setMaxPending(1);
+        converter.hold();
+        ExportJob job = exports.submit(query, MimeTypes.CSV);
+
+        assertThatThrownBy(() -> exports.submit(query.withLimit(10), MimeTypes.CSV))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(exports.submit(query, MimeTypes.CSV)).as("identical requests still share the job").isSameAs(job);
+
+        converter.release.countDown();
+        await(job);
+        assertThat(await(exports.submit(query.withLimit(10), MimeTypes.CSV)).getStatus())
+                .isEqualTo(ExportJob.Status.SUCCESSFUL);
+    }
+
+    @Test
+    void testLeastRecentlyRequestedResultsAreEvicted() throws Exception {
+        // 9 bytes per job
+        config.setMaxDiskSize(DataSize.ofBytes(20));
+        ExportJob first = await(exports.submit(query, MimeTypes.CSV));
+        clock.advance(Duration.ofMinutes(1));
+        ExportJob second = await(exports.submit(query.withLimit(10), MimeTypes.CSV));
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(exports.find(first.getId())).isPresent();
+        clock.advance(Duration.ofMinutes(1));
+
+        ExportJob third = await(exports.submit(query.withLimit(20), MimeTypes.CSV));
+        assertThat(exports.find(second.getId())).isEmpty();
+        assertThat(second.getFile()).doesNotExist();
+        assertThat(exports.find(first.getId())).isPresent();
+        assertThat(exports.find(third.getId())).isPresent();
+        assertThat(exports.diskSize()).isEqualTo(18);
+
+        config.setMaxDiskSize(DataSize.ofBytes(5));
+        ExportJob fourth = await(exports.submit(query.withLimit(30), MimeTypes.CSV));
+        assertThat(exports.find(fourth.getId())).as("kept even if exceeding the maximum alone").isPresent();
+        assertThat(fourth.getFile()).exists();
+        assertThat(exports.diskSize()).isEqualTo(9);
+    }
+
+    private static ExportJob await(ExportJob job) throws InterruptedException {
+        Instant timeout = Instant.now().plusSeconds(10);
+        while (!job.isFinished() && Instant.now().isBefore(timeout)) {
+            Thread.sleep(10);
+        }
+        assertThat(job.isFinished()).isTrue();
+        return job;
+    }
+
+    private static class StubRepository implements CollectionRepository {
+
+        volatile String version;
+        volatile RuntimeException failure;
+
+        @Override
+        public Optional<FeatureCollection> query(DataQuery query) {
+            if (null != failure) {
+                throw failure;
+            }
+            try {
+                Collection collection = new Collection(query.getLayerName(), List.of());
+                ListFeatureCollection features = new ListFeatureCollection(
+                        DataUtilities.createType(query.getLayerName(), "name:String"));
+                return Optional.of(new GeoToolsFeatureCollection(collection, features));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public List<Collection> getCollections() {
+            return List.of();
+        }
+
+        @Override
+        public Optional<Collection> findCollection(String collectionId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<GeodataRecord> getRecord(String collectionId, String featureId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<byte[]> getTile(String collectionId, Tile tile) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> changeVersion(String collectionId) {
+            return Optional.ofNullable(version);
+        }
+    }
+
+    /**
+     * Writes the collection id, optionally waiting for {@link #release} first
+     */
+    private static class StubConverter extends AbstractHttpMessageConverter<FeatureCollection> {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger writes = new AtomicInteger();
+        private volatile boolean hold;
+
+        StubConverter() {
+            super(MediaType.valueOf("text/csv"), MediaType.valueOf("application/geo+json"));
+        }
+
+        void hold() {
+            this.hold = true;
+        }
+
+        @Override
+        protected boolean supports(Class<?> clazz) {
+            return FeatureCollection.class.isAssignableFrom(clazz);
+        }
+
+        @Override
+        protected FeatureCollection readInternal(Class<? extends FeatureCollection> clazz,
+                HttpInputMessage inputMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void writeInternal(FeatureCollection collection, HttpOutputMessage outputMessage)
+                throws IOException {
+            started.countDown();
+            if (hold) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writes.incrementAndGet();
+            outputMessage.getBody().write(collection.getCollection().getId().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
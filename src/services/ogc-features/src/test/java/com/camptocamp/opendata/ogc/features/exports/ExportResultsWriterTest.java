@@ -0,0 +1,119 @@
+package com.camptocamp.opendata.ogc.features.exports;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.camptocamp.opendata.ogc.features.http.codec.MimeTypes;
+
+class ExportResultsWriterTest {
+
+    private @TempDir Path directory;
+
+    private ExportJob job;
+
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = Files.writeString(directory.resolve("results"), "0123456789");
+        job = new ExportJob("locations", MimeTypes.CSV, "1", Instant.now());
+        job.succeeded(file, 10, Instant.now());
+        request = new MockHttpServletRequest("GET", "/ogcapi/jobs/%s/results".formatted(job.getId()));
+    }
+
+    private MockHttpServletResponse write() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ExportResultsWriter.write(job, request, response);
+        return response;
+    }
+
+    @Test
+    void testWholeFile() throws Exception {
+        MockHttpServletResponse response = write();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getHeader("ETag")).isEqualTo(job.etag());
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getHeader("Content-Disposition")).contains("locations.csv");
+        assertThat(response.getContentType()).startsWith("text/csv");
+    }
+
+    @Test
+    void testRange() throws Exception {
+        request.addHeader("Range", "bytes=2-4");
+        MockHttpServletResponse response = write();
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("234");
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-4/10");
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=-3");
+        response = write();
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("789");
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 7-9/10");
+    }
+
+    @Test
+    void testRangeNotSatisfiable() throws Exception {
+        request.addHeader("Range", "bytes=10-");
+        MockHttpServletResponse response = write();
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void testMultipleRangesAnsweredWithTheWholeFile() throws Exception {
+        request.addHeader("Range", "bytes=0-1,5-6");
+        MockHttpServletResponse response = write();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void testIfRange() throws Exception {
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", "\"other\"");
+        assertThat(write().getStatus()).isEqualTo(200);
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", job.etag());
+        assertThat(write().getStatus()).isEqualTo(206);
+    }
+
+    @Test
+    void testIfNoneMatch() throws Exception {
+        request.addHeader("If-None-Match", "\"other\", %s".formatted(job.etag()));
+        MockHttpServletResponse response = write();
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+
+        request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("If-None-Match", "\"other\"");
+        assertThat(write().getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testSendfile() throws Exception {
+        request.setAttribute(ExportResultsWriter.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-");
+        MockHttpServletResponse response = write();
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute(ExportResultsWriter.SENDFILE_FILENAME))
+                .isEqualTo(job.getFile().toAbsolutePath().toString());
+        assertThat(request.getAttribute(ExportResultsWriter.SENDFILE_START)).isEqualTo(2L);
+        assertThat(request.getAttribute(ExportResultsWriter.SENDFILE_END)).isEqualTo(10L);
+    }
+}
@@ -0,0 +1,168 @@
+package com.camptocamp.opendata.ogc.features.http.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+
+class AdmissionFilterTest {
+
+    private SimpleMeterRegistry registry;
+    private AdmissionConfiguration config;
+    private AdmissionFilter filter;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void before() {
+        registry = new SimpleMeterRegistry();
+        config = new AdmissionConfiguration();
+        config.getBulk().setMaxConcurrent(1);
+        config.getBulk().setMaxQueued(1);
+        config.getBulk().setMaxWait(Duration.ofMillis(50));
+        config.setRetryAfter(Duration.ofSeconds(30));
+        filter = new AdmissionFilter(config, registry);
+    }
+
+    @AfterEach
+    void after() {
+        release.countDown();
+    }
+
+    private MockHttpServletResponse filter(String uri, String limit, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (null != limit) {
+            request.addParameter("limit", limit);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse items(String limit) throws Exception {
+        return filter("/ogcapi/collections/locations/items", limit, (req, res) -> {
+        });
+    }
+
+    /**
+     * Runs a bulk request that holds its turn until {@link #release} is counted
+     * down
+     */
+    private CompletableFuture<MockHttpServletResponse> blockingBulkRequest() throws InterruptedException {
+        CompletableFuture<MockHttpServletResponse> response = CompletableFuture.supplyAsync(() -> {
+            try {
+                return filter("/ogcapi/collections/locations/items", "-1", (req, res) -> {
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        return response;
+    }
+
+    @Test
+    void testBulkRequestRejectedAfterMaxWait() throws Exception {
+        CompletableFuture<MockHttpServletResponse> running = blockingBulkRequest();
+
+        MockHttpServletResponse rejected = items("5000");
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("30");
+        assertThat(registry.get("http.server.admission.rejected").tag("class", "bulk").tag("reason", "timeout")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get("http.server.admission.active").tag("class", "bulk").gauge().value()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+        assertThat(registry.get("http.server.admission.active").tag("class", "bulk").gauge().value()).isZero();
+        assertThat(items("-1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testBulkRequestRejectedWhenQueueIsFull() throws Exception {
+        config.getBulk().setMaxQueued(0);
+        filter = new AdmissionFilter(config, new SimpleMeterRegistry());
+        CompletableFuture<MockHttpServletResponse> running = blockingBulkRequest();
+
+        assertThat(items("-1").getStatus()).isEqualTo(503);
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPagedRequestsUnaffectedByBulkExports() throws Exception {
+        CompletableFuture<MockHttpServletResponse> running = blockingBulkRequest();
+
+        assertThat(items(null).getStatus()).isEqualTo(200);
+        assertThat(items("100").getStatus()).isEqualTo(200);
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPerCollectionLimit() throws Exception {
+        config.getBulk().setMaxConcurrent(2);
+        config.getBulk().setMaxConcurrentPerCollection(1);
+        filter = new AdmissionFilter(config, registry);
+        CompletableFuture<MockHttpServletResponse> running = blockingBulkRequest();
+
+        assertThat(items("-1").getStatus()).isEqualTo(503);
+        assertThat(registry.get("http.server.admission.rejected").tag("reason", "collection").counter().count())
+                .isEqualTo(1);
+        FilterChain noop = (req, res) -> {
+        };
+        assertThat(filter("/ogcapi/collections/other/items", "-1", noop).getStatus()).isEqualTo(200);
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testOtherRequestsNotAdmissionControlled() throws Exception {
+        config.getBulk().setMaxQueued(0);
+        filter = new AdmissionFilter(config, new SimpleMeterRegistry());
+        CompletableFuture<MockHttpServletResponse> running = blockingBulkRequest();
+
+        FilterChain noop = (req, res) -> {
+        };
+        assertThat(filter("/ogcapi/collections/locations", "-1", noop).getStatus()).isEqualTo(200);
+        assertThat(filter("/ogcapi/collections/locations/items/1", "-1", noop).getStatus()).isEqualTo(200);
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testItemsCollection() {
+        assertThat(AdmissionFilter.itemsCollection("/ogcapi/collections/locations/items")).hasValue("locations");
+        assertThat(AdmissionFilter.itemsCollection("/ogcapi/collections/public:locations/items"))
+                .hasValue("public:locations");
+        assertThat(AdmissionFilter.itemsCollection("/ogcapi/collections//items")).isEmpty();
+        assertThat(AdmissionFilter.itemsCollection("/ogcapi/collections/locations")).isEmpty();
+    }
+
+    @Test
+    void testIsBulk() {
+        assertThat(AdmissionFilter.isBulk(null, 1000)).isFalse();
+        assertThat(AdmissionFilter.isBulk("1000", 1000)).isFalse();
+        assertThat(AdmissionFilter.isBulk("1001", 1000)).isTrue();
+        assertThat(AdmissionFilter.isBulk("-1", 1000)).isTrue();
+        assertThat(AdmissionFilter.isBulk("many", 1000)).isFalse();
+    }
+}
@@ -0,0 +1,54 @@
+package com.camptocamp.opendata.ogc.features.http.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.camptocamp.opendata.ogc.features.http.admission.AdmissionConfiguration.BulkheadSettings;
+import com.camptocamp.opendata.ogc.features.http.admission.Bulkhead.Rejection;
+
+class BulkheadTest {
+
+    @Test
+    void testInterruptedRequestReleasesItsCollectionAndClientSlots() throws Exception {
+        BulkheadSettings settings = new BulkheadSettings();
+        settings.setMaxConcurrent(1);
+        settings.setMaxQueued(1);
+        settings.setMaxWait(Duration.ofSeconds(10));
+        settings.setMaxConcurrentPerCollection(1);
+        settings.setMaxConcurrentPerClient(1);
+        Bulkhead bulkhead = new Bulkhead("bulk", settings);
+
+        assertThat(bulkhead.acquire("locations", "client-1")).isEmpty();
+
+        CompletableFuture<Thread> waiting = new CompletableFuture<>();
+        CompletableFuture<Object> interrupted = CompletableFuture.supplyAsync(() -> {
+            waiting.complete(Thread.currentThread());
+            try {
+                return bulkhead.acquire("other", "client-2");
+            } catch (InterruptedException e) {
+                return e;
+            }
+        });
+        Instant timeout = Instant.now().plusSeconds(10);
+        while (bulkhead.queued() == 0 && Instant.now().isBefore(timeout)) {
+            Thread.sleep(10);
+        }
+        assertThat(bulkhead.queued()).isOne();
+        waiting.get(10, TimeUnit.SECONDS).interrupt();
+        assertThat(interrupted.get(10, TimeUnit.SECONDS)).isInstanceOf(InterruptedException.class);
+        assertThat(bulkhead.queued()).isZero();
+
+        bulkhead.release("locations", "client-1");
+        // would be rejected if the interrupted request still held its slots
+        Optional<Rejection> admitted = bulkhead.acquire("other", "client-2");
+        assertThat(admitted).isEmpty();
+        assertThat(bulkhead.active()).isOne();
+    }
+}
@@ -0,0 +1,35 @@
+package com.camptocamp.opendata.ogc.features.http.caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class EntityTagsTest {
+
+    @Test
+    void testStrong() {
+        String etag = EntityTags.strong("1.2.3", "locations?limit=10");
+        assertThat(etag).startsWith("\"").endsWith("\"");
+        assertThat(EntityTags.strong("1.2.3", "locations?limit=10")).isEqualTo(etag);
+        assertThat(EntityTags.strong("1.2.4", "locations?limit=10")).isNotEqualTo(etag);
+        assertThat(EntityTags.strong("1.2.", "3locations?limit=10")).as("parts are delimited").isNotEqualTo(etag);
+        assertThat(EntityTags.strong("1.2.3", null)).isNotEqualTo(EntityTags.strong("1.2.3"));
+    }
+
+    @Test
+    void testWeak() {
+        assertThat(EntityTags.weak("\"abc\"")).isEqualTo("W/\"abc\"");
+        assertThat(EntityTags.weak("W/\"abc\"")).isEqualTo("W/\"abc\"");
+    }
+
+    @Test
+    void testMatches() {
+        assertThat(EntityTags.matches(null, "\"abc\"")).isFalse();
+        assertThat(EntityTags.matches("\"abc\"", "\"abc\"")).isTrue();
+        assertThat(EntityTags.matches("W/\"abc\"", "\"abc\"")).isTrue();
+        assertThat(EntityTags.matches("\"abc\"", "W/\"abc\"")).isTrue();
+        assertThat(EntityTags.matches("\"xyz\", W/\"abc\"", "\"abc\"")).isTrue();
+        assertThat(EntityTags.matches("*", "\"abc\"")).isTrue();
+        assertThat(EntityTags.matches("\"xyz\"", "\"abc\"")).isFalse();
+    }
+}
@@ -0,0 +1,97 @@
+package com.camptocamp.opendata.ogc.features.http.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.SchemaException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.camptocamp.opendata.ogc.features.model.GeoToolsFeatureCollection;
+
+class CancellingOutputStreamTest {
+
+    private static final byte[] KEEP_ALIVE = { ' ' };
+
+    private ClientDisconnectWatchdog watchdog;
+    private GeoToolsFeatureCollection collection;
+    private CountDownLatch cancelled;
+
+    @BeforeEach
+    void setUp() throws SchemaException {
+        watchdog = new ClientDisconnectWatchdog(Duration.ofMillis(10));
+        ListFeatureCollection features = new ListFeatureCollection(DataUtilities.createType("test", "name:String"));
+        collection = new GeoToolsFeatureCollection(new Collection("test", List.of()), features);
+        cancelled = new CountDownLatch(1);
+        collection.setCancellationListener(remaining -> cancelled.countDown());
+    }
+
+    @AfterEach
+    void tearDown() {
+        watchdog.shutdown();
+    }
+
+    @Test
+    void testHeartbeatsWriteKeepAliveUntilFirstWrite() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        CancellingOutputStream body = new CancellingOutputStream(target, collection, KEEP_ALIVE, watchdog);
+
+        await(() -> target.size() >= 2);
+        body.write("{}".getBytes(UTF_8));
+        final int written = target.size();
+        Thread.sleep(50);
+
+        assertThat(target.size()).isEqualTo(written);
+        assertThat(target.toString(UTF_8)).matches(" {2,}\\{\\}");
+        assertThat(cancelled.getCount()).isOne();
+    }
+
+    @Test
+    void testFailedHeartbeatCancelsTheCollection() throws Exception {
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        new CancellingOutputStream(disconnected, collection, KEEP_ALIVE, watchdog);
+
+        assertThat(cancelled.await(5, TimeUnit.SECONDS)).as("collection cancelled").isTrue();
+    }
+
+    @Test
+    void testUnwatchStopsHeartbeats() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        CancellingOutputStream body = new CancellingOutputStream(target, collection, KEEP_ALIVE, watchdog);
+        body.unwatch();
+        Thread.sleep(50);
+
+        assertThat(target.size()).isZero();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -1,7 +1,10 @@
 package com.camptocamp.opendata.ogc.features.http.codec;
 
+import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.ARROW;
 import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.CSV;
+import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.FLATGEOBUF;
 import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.GEOJSON;
+import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.GEOPARQUET;
 import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.JSON;
 import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.OOXML;
 import static com.camptocamp.opendata.ogc.features.http.codec.MimeTypes.SHAPEFILE;
@@ -20,6 +23,9 @@ class MimeTypesTest {
         assertThat(findByShortName("csv")).isPresent().get().isEqualTo(CSV);
         assertThat(findByShortName("ooxml")).isPresent().get().isEqualTo(OOXML);
         assertThat(findByShortName("shapefile")).isPresent().get().isEqualTo(SHAPEFILE);
+        assertThat(findByShortName("parquet")).isPresent().get().isEqualTo(GEOPARQUET);
+        assertThat(findByShortName("fgb")).isPresent().get().isEqualTo(FLATGEOBUF);
+        assertThat(findByShortName("arrow")).isPresent().get().isEqualTo(ARROW);
     }
 
     @Test
@@ -31,6 +37,9 @@ class MimeTypesTest {
         assertThat(find("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")).isPresent().get()
                 .isEqualTo(OOXML);
         assertThat(find("application/x-shapefile")).isPresent().get().isEqualTo(SHAPEFILE);
+        assertThat(find("application/vnd.apache.parquet")).isPresent().get().isEqualTo(GEOPARQUET);
+        assertThat(find("application/flatgeobuf")).isPresent().get().isEqualTo(FLATGEOBUF);
+        assertThat(find("application/vnd.apache.arrow.stream")).isPresent().get().isEqualTo(ARROW);
     }
 
     /**
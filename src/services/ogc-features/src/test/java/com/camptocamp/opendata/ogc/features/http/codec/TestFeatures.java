@@ -0,0 +1,78 @@
+package com.camptocamp.opendata.ogc.features.http.codec;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.model.GeoToolsFeatureCollection;
+
+/**
+ * Feature collection fixture for the encoder tests: a {@literal test} feature
+ * type with a {@literal name}, a {@literal count}, and a {@literal location}
+ * point in {@literal EPSG:4326}.
+ * <p>
+ * Features are identified by their index, and kept in insertion order.
+ */
+public class TestFeatures {
+
+    private static final GeometryFactory GF = new GeometryFactory();
+
+    private TestFeatures() {
+    }
+
+    public static SimpleFeatureType featureType() {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("test");
+        builder.setNamespaceURI("http://test");
+        builder.setSRS("EPSG:4326");
+        builder.add("name", String.class);
+        builder.add("count", Integer.class);
+        builder.add("location", Point.class);
+        return builder.buildFeatureType();
+    }
+
+    /**
+     * @return the {@literal name}, {@literal count} and {@literal location} of
+     *         the feature at index {@code i}: {@literal name <i % 3>}, {@code i},
+     *         and {@literal POINT(i 1)}
+     */
+    public static Object[] values(int i) {
+        return new Object[] { "name " + (i % 3), i, point(i) };
+    }
+
+    public static Point point(int i) {
+        return GF.createPoint(new Coordinate(i, 1));
+    }
+
+    /**
+     * @return a collection of {@code size} features with the default
+     *         {@link #values(int) values}
+     */
+    public static FeatureCollection featureCollection(int size) {
+        return featureCollection(IntStream.range(0, size).mapToObj(TestFeatures::values).toList());
+    }
+
+    /**
+     * @return a collection of a feature per {@code values} entry, each holding the
+     *         values of the feature type attributes in order
+     */
+    public static FeatureCollection featureCollection(List<Object[]> values) {
+        SimpleFeatureType schema = featureType();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        // keeps insertion order, unlike DefaultFeatureCollection
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        for (int i = 0; i < values.size(); i++) {
+            features.add(fb.buildFeature(String.valueOf(i), values.get(i)));
+        }
+        return new GeoToolsFeatureCollection(new Collection("test", List.of()), features);
+    }
+}
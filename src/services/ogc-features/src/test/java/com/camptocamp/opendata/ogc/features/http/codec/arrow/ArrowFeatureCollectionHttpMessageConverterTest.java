@@ -0,0 +1,161 @@
+package com.camptocamp.opendata.ogc.features.http.codec.arrow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.io.WKBReader;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.camptocamp.opendata.ogc.features.http.codec.TestFeatures;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+
+/**
+ * Reads the encoded streams back with Arrow's {@link ArrowStreamReader}
+ */
+class ArrowFeatureCollectionHttpMessageConverterTest {
+
+    private MockHttpOutputMessage output;
+
+    private BufferAllocator allocator;
+
+    @BeforeEach
+    void setup() {
+        output = new MockHttpOutputMessage();
+        allocator = new RootAllocator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        allocator.close();
+    }
+
+    @Test
+    void testSchema() throws Exception {
+        new ArrowFeatureCollectionHttpMessageConverter().writeInternal(featureCollection(20), null, output);
+
+        try (ArrowStreamReader reader = reader()) {
+            Schema schema = reader.getVectorSchemaRoot().getSchema();
+            assertThat(schema.getFields()).extracting(Field::getName).containsExactly("FID", "name", "count",
+                    "location");
+
+            Field fid = schema.findField("FID");
+            assertThat(fid.isNullable()).isFalse();
+            assertThat(fid.getType()).isEqualTo(ArrowType.Utf8.INSTANCE);
+
+            Field name = schema.findField("name");
+            assertThat(name.isNullable()).isTrue();
+            assertThat(name.getType()).isEqualTo(ArrowType.Utf8.INSTANCE);
+
+            assertThat(schema.findField("count").getType()).isEqualTo(new ArrowType.Int(32, true));
+
+            Field location = schema.findField("location");
+            assertThat(location.getType()).isEqualTo(ArrowType.Binary.INSTANCE);
+            assertThat(location.getMetadata()).containsEntry("ARROW:extension:name", "geoarrow.wkb").containsEntry(
+                    "ARROW:extension:metadata", "{\"crs\":\"OGC:CRS84\",\"crs_type\":\"authority_code\"}");
+        }
+    }
+
+    @Test
+    void testRecordBatches() throws Exception {
+        new ArrowFeatureCollectionHttpMessageConverter(8, Long.MAX_VALUE).writeInternal(featureCollection(20), null,
+                output);
+
+        try (ArrowStreamReader reader = reader()) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            List<Integer> lengths = new ArrayList<>();
+            int feature = 0;
+            while (reader.loadNextBatch()) {
+                lengths.add(root.getRowCount());
+                VarCharVector fids = (VarCharVector) root.getVector("FID");
+                VarCharVector names = (VarCharVector) root.getVector("name");
+                IntVector counts = (IntVector) root.getVector("count");
+                VarBinaryVector locations = (VarBinaryVector) root.getVector("location");
+                for (int row = 0; row < root.getRowCount(); row++, feature++) {
+                    assertThat(string(fids, row)).isEqualTo(String.valueOf(feature));
+                    if (feature % 5 == 0) {
+                        assertThat(names.isNull(row)).as("name of feature %d", feature).isTrue();
+                    } else {
+                        assertThat(string(names, row)).isEqualTo("name " + (feature % 3));
+                    }
+                    assertThat(counts.get(row)).isEqualTo(feature);
+                    assertThat(new WKBReader().read(locations.get(row)).getCoordinate())
+                            .isEqualTo(new Coordinate(feature, 1));
+                }
+                assertThat(counts.getNullCount()).isZero();
+                assertThat(fids.getNullCount()).isZero();
+
+                if (lengths.size() == 2) {
+                    // features 8 to 15, the names of features 10 and 15 are null
+                    assertThat(names.getNullCount()).isEqualTo(2);
+                    assertThat(names.getValidityBuffer().getByte(0)).isEqualTo((byte) 0b0111_1011);
+                    // FIDs 8 to 15, one then two characters long
+                    assertThat(offsets(fids, 9)).containsExactly(0, 1, 2, 4, 6, 8, 10, 12, 14);
+                    // null values take no room
+                    assertThat(offsets(names, 9)).containsExactly(0, 6, 12, 12, 18, 24, 30, 36, 36);
+                }
+            }
+            assertThat(lengths).containsExactly(8, 8, 4);
+            assertThat(feature).isEqualTo(20);
+        }
+    }
+
+    @Test
+    void testEmptyCollection() throws Exception {
+        new ArrowFeatureCollectionHttpMessageConverter().writeInternal(featureCollection(0), null, output);
+
+        try (ArrowStreamReader reader = reader()) {
+            assertThat(reader.getVectorSchemaRoot().getSchema().getFields()).hasSize(4);
+            assertThat(reader.loadNextBatch()).isFalse();
+        }
+    }
+
+    private ArrowStreamReader reader() {
+        return new ArrowStreamReader(new ByteArrayInputStream(output.getBodyAsBytes()), allocator);
+    }
+
+    private String string(VarCharVector vector, int row) {
+        return new String(vector.get(row), StandardCharsets.UTF_8);
+    }
+
+    private List<Integer> offsets(BaseVariableWidthVector vector, int count) {
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            offsets.add(vector.getOffsetBuffer().getInt((long) i * BaseVariableWidthVector.OFFSET_WIDTH));
+        }
+        return offsets;
+    }
+
+    /**
+     * @return the {@link TestFeatures test features}, with a null name every five
+     *         features
+     */
+    private FeatureCollection featureCollection(int size) {
+        return TestFeatures.featureCollection(IntStream.range(0, size).mapToObj(i -> {
+            Object[] values = TestFeatures.values(i);
+            if (i % 5 == 0) {
+                values[0] = null;
+            }
+            return values;
+        }).toList());
+    }
+}
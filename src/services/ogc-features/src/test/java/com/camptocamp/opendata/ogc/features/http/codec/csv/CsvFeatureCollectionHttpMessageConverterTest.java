@@ -0,0 +1,74 @@
+package com.camptocamp.opendata.ogc.features.http.codec.csv;
+
+import static com.camptocamp.opendata.ogc.features.http.codec.TestFeatures.point;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.camptocamp.opendata.ogc.features.http.codec.TestFeatures;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+
+class CsvFeatureCollectionHttpMessageConverterTest {
+
+    private ExecutorService executor;
+    private MockHttpOutputMessage output;
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newFixedThreadPool(4);
+        output = new MockHttpOutputMessage();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testRowsKeepTheirOrder() throws Exception {
+        CsvFeatureCollectionHttpMessageConverter converter = new CsvFeatureCollectionHttpMessageConverter(executor,
+                7, 3);
+        converter.writeInternal(featureCollection(1000), null, output);
+
+        List<String> lines = output.getBodyAsString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(1001);
+        assertThat(lines.get(0)).isEqualTo("\"name\",\"count\",\"location\"");
+        for (int i = 0; i < 1000; i++) {
+            assertThat(lines.get(i + 1)).isEqualTo("Été %d,%d,POINT (%d 1)".formatted(i, i, i));
+        }
+    }
+
+    @Test
+    void testEmptyCollection() throws Exception {
+        new CsvFeatureCollectionHttpMessageConverter().writeInternal(featureCollection(0), null, output);
+        assertThat(output.getBodyAsBytes()).isEmpty();
+    }
+
+    @Test
+    void testNullValues() throws Exception {
+        List<Object[]> values = List.<Object[]>of(new Object[] { null, null, null });
+
+        new CsvFeatureCollectionHttpMessageConverter().writeInternal(TestFeatures.featureCollection(values), null,
+                output);
+
+        List<String> lines = output.getBodyAsString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).containsExactly("\"name\",\"count\",\"location\"", ",,");
+    }
+
+    /**
+     * @return the {@link TestFeatures test features}, with non ASCII names
+     */
+    private FeatureCollection featureCollection(int size) {
+        return TestFeatures.featureCollection(
+                IntStream.range(0, size).mapToObj(i -> new Object[] { "Été " + i, i, point(i) }).toList());
+    }
+}
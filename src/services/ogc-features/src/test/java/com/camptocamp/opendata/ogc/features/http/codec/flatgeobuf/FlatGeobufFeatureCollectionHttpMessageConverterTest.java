@@ -0,0 +1,167 @@
+package com.camptocamp.opendata.ogc.features.http.codec.flatgeobuf;
+
+import static com.camptocamp.opendata.ogc.features.http.codec.TestFeatures.featureCollection;
+import static com.camptocamp.opendata.ogc.features.http.codec.TestFeatures.point;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.api.data.FileDataStore;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.SimpleFeatureSource;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.api.filter.Filter;
+import org.geotools.api.filter.FilterFactory;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Point;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Reads the encoded files back with the GeoTools FlatGeobuf data store
+ */
+class FlatGeobufFeatureCollectionHttpMessageConverterTest {
+
+    private static final byte[] MAGIC = { 'f', 'g', 'b', 3, 'f', 'g', 'b', 0 };
+
+    private static final FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+    private @TempDir Path tmpdir;
+
+    private MockHttpOutputMessage output;
+
+    @BeforeEach
+    void setup() {
+        output = new MockHttpOutputMessage();
+    }
+
+    @Test
+    void testIndexed() throws Exception {
+        new FlatGeobufFeatureCollectionHttpMessageConverter(4).writeInternal(featureCollection(20), null, output);
+
+        FileDataStore store = dataStore();
+        try {
+            SimpleFeatureSource source = store.getFeatureSource();
+            assertSchema(source.getSchema());
+            assertThat(source.getCount(Query.ALL)).isEqualTo(20);
+            ReferencedEnvelope bounds = source.getBounds();
+            assertThat(new double[] { bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY() })
+                    .containsExactly(0, 1, 19, 1);
+
+            Map<String, SimpleFeature> features = read(source, Filter.INCLUDE);
+            assertThat(features).hasSize(20);
+            for (int i = 0; i < 20; i++) {
+                SimpleFeature feature = features.get(String.valueOf(i));
+                assertThat(feature).as("feature %d", i).isNotNull();
+                assertThat(feature.getAttribute("name")).isEqualTo("name " + (i % 3));
+                assertThat(feature.getAttribute("count")).isEqualTo(i);
+                assertThat(feature.getDefaultGeometry()).isEqualTo(point(i));
+            }
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    void testBboxQueryThroughSpatialIndex() throws Exception {
+        new FlatGeobufFeatureCollectionHttpMessageConverter(4).writeInternal(featureCollection(20), null, output);
+
+        FileDataStore store = dataStore();
+        try {
+            SimpleFeatureSource source = store.getFeatureSource();
+            String geometry = source.getSchema().getGeometryDescriptor().getLocalName();
+            Filter bbox = ff.bbox(geometry, 4.5, 0, 9.5, 2, "EPSG:4326");
+
+            Map<String, SimpleFeature> features = read(source, bbox);
+            assertThat(features).containsOnlyKeys("5", "6", "7", "8", "9");
+            assertThat(features.get("7").getDefaultGeometry()).isEqualTo(point(7));
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    void testStreaming() throws Exception {
+        new FlatGeobufFeatureCollectionHttpMessageConverter(0).writeInternal(featureCollection(20), null, output);
+
+        FileDataStore store = dataStore();
+        try {
+            assertSchema(store.getSchema());
+        } finally {
+            store.dispose();
+        }
+
+        // no index, size prefixed features right after the header
+        ByteBuffer file = ByteBuffer.wrap(output.getBodyAsBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = 8 + 4 + file.getInt(8);
+        int count = 0;
+        while (pos < file.limit()) {
+            pos += 4 + file.getInt(pos);
+            count++;
+        }
+        assertThat(pos).isEqualTo(file.limit());
+        assertThat(count).isEqualTo(20);
+    }
+
+    @Test
+    void testEmptyCollection() throws Exception {
+        new FlatGeobufFeatureCollectionHttpMessageConverter().writeInternal(featureCollection(0), null, output);
+
+        FileDataStore store = dataStore();
+        try {
+            SimpleFeatureSource source = store.getFeatureSource();
+            assertThat(source.getSchema().getAttributeDescriptors()).extracting(d -> d.getLocalName())
+                    .contains("FID", "name", "count");
+            assertThat(read(source, Filter.INCLUDE)).isEmpty();
+        } finally {
+            store.dispose();
+        }
+    }
+
+    private void assertSchema(SimpleFeatureType schema) throws Exception {
+        assertThat(schema.getDescriptor("FID").getType().getBinding()).isEqualTo(String.class);
+        assertThat(schema.getDescriptor("name").getType().getBinding()).isEqualTo(String.class);
+        assertThat(schema.getDescriptor("count").getType().getBinding()).isEqualTo(Integer.class);
+        assertThat(schema.getGeometryDescriptor().getType().getBinding()).isEqualTo(Point.class);
+        assertThat(CRS.lookupEpsgCode(schema.getCoordinateReferenceSystem(), false)).isEqualTo(4326);
+    }
+
+    private FileDataStore dataStore() throws IOException {
+        byte[] bytes = output.getBodyAsBytes();
+        assertThat(Arrays.copyOfRange(bytes, 0, 8)).isEqualTo(MAGIC);
+        Path file = Files.write(tmpdir.resolve("test.fgb"), bytes);
+        FileDataStore store = FileDataStoreFinder.getDataStore(file.toFile());
+        assertThat(store).isNotNull();
+        return store;
+    }
+
+    /**
+     * @return the features matching {@code filter} by their {@literal FID}
+     *         attribute
+     */
+    private Map<String, SimpleFeature> read(SimpleFeatureSource source, Filter filter) throws IOException {
+        Map<String, SimpleFeature> features = new HashMap<>();
+        try (SimpleFeatureIterator it = source.getFeatures(filter).features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                features.put((String) feature.getAttribute("FID"), feature);
+            }
+        }
+        return features;
+    }
+}
@@ -0,0 +1,105 @@
+package com.camptocamp.opendata.ogc.features.http.codec.json;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.camptocamp.opendata.jackson.geojson.GeoRecordToGeoJsonFeatureModule;
+import com.camptocamp.opendata.jackson.geojson.JtsGeoJsonModule;
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.benchmark.CountingOutputStream;
+import com.camptocamp.opendata.ogc.features.benchmark.EncodedSize;
+import com.camptocamp.opendata.ogc.features.sampledata.SampleData;
+import com.camptocamp.opendata.processor.geotools.GeoToolsProcessors;
+import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Compares the GeoJSON encoding time of the sample data layers, reprojected to
+ * {@literal EPSG:4326} as served by the API, at full coordinate precision and
+ * rounded to {@link JtsGeoJsonModule#COORDINATE_PRECISION 7 decimals}. The
+ * encoded size of each layer is reported as {@link EncodedSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoordinatePrecisionBenchmark {
+
+    @Param({ "comptages-velo", "locations" })
+    public String layer;
+
+    /**
+     * Number of decimals, or {@literal full} for full precision
+     */
+    @Param({ "full", "7" })
+    public String precision;
+
+    private List<GeodataRecord> records;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() throws IOException {
+        SampleData sampleData = new SampleData();
+        try {
+            SimpleFeatureCollection features = sampleData.get().getFeatureSource(layer).getFeatures();
+            records = reproject(features);
+        } finally {
+            sampleData.destroy();
+        }
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json()
+                .modules(new JtsGeoJsonModule(), new GeoRecordToGeoJsonFeatureModule()).build();
+        writer = mapper.writer();
+        if (!"full".equals(precision)) {
+            writer = writer.withAttribute(JtsGeoJsonModule.COORDINATE_PRECISION, Integer.valueOf(precision));
+        }
+    }
+
+    private List<GeodataRecord> reproject(SimpleFeatureCollection features) {
+        FeatureToRecord toRecord = new FeatureToRecord();
+        Stream.Builder<GeodataRecord> builder = Stream.builder();
+        try (SimpleFeatureIterator it = features.features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                builder.add(toRecord.apply(feature));
+            }
+        }
+        return new GeoToolsProcessors().reproject("EPSG:4326").apply(builder.build()).toList();
+    }
+
+    @Benchmark
+    public void encode(EncodedSize size) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.writeValue(out, records);
+        size.bytes = out.getCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(CoordinatePrecisionBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,129 @@
+package com.camptocamp.opendata.ogc.features.http.codec.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.camptocamp.opendata.jackson.geojson.GeoRecordToGeoJsonFeatureModule;
+import com.camptocamp.opendata.jackson.geojson.JtsGeoJsonModule;
+import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.camptocamp.opendata.ogc.features.model.CountMode;
+import com.camptocamp.opendata.ogc.features.model.GeoToolsFeatureCollection;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class GeoJsonFeatureCollectionHttpMessageConverterTest {
+
+    private ObjectMapper mapper;
+    private GeoJsonFeatureCollectionHttpMessageConverter converter;
+
+    @BeforeEach
+    void before() {
+        // as configured in application.yml
+        mapper = Jackson2ObjectMapperBuilder.json().serializationInclusion(Include.NON_EMPTY)
+                .modules(new JtsGeoJsonModule(), new GeoRecordToGeoJsonFeatureModule()).build();
+        converter = new GeoJsonFeatureCollectionHttpMessageConverter(mapper);
+    }
+
+    private GeoToolsFeatureCollection featureCollection(Coordinate... points) {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("test");
+        builder.add("geom", Point.class);
+        SimpleFeatureType type = builder.buildFeatureType();
+
+        DefaultFeatureCollection features = new DefaultFeatureCollection(null, type);
+        GeometryFactory gf = new GeometryFactory();
+        for (int i = 0; i < points.length; i++) {
+            features.add(SimpleFeatureBuilder.build(type, new Object[] { gf.createPoint(points[i]) }, "test." + i));
+        }
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("test", List.of()),
+                features);
+        collection.setNumberMatched(2L);
+        collection.setNumberMatchedMode(CountMode.EXACT);
+        return collection;
+    }
+
+    @Test
+    void testWritesBackendEncodedFeatures() throws Exception {
+        GeoToolsFeatureCollection collection = featureCollection();
+        collection.setGeoJsonFeatureWriter(generator -> {
+            for (int i = 1; i <= 2; i++) {
+                generator.writeRawValue("""
+                        {"type":"Feature","@id":"%d","geometry":null,"properties":{}}""".formatted(i));
+            }
+            return 2;
+        });
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.writeInternal(collection, null, message);
+
+        JsonNode json = mapper.readTree(message.getBodyAsString());
+        assertThat(json.get("type").asText()).isEqualTo("FeatureCollection");
+        assertThat(json.get("numberMatched").asLong()).isEqualTo(2);
+        assertThat(json.get("numberMatchedMode").asText()).isEqualTo("exact");
+        assertThat(json.get("numberReturned").asLong()).isEqualTo(2);
+        assertThat(json.get("features")).hasSize(2);
+        assertThat(json.get("features").get(1).get("@id").asText()).isEqualTo("2");
+    }
+
+    @Test
+    void testEnvelopeMatchesObjectMapperOutput() throws Exception {
+        GeoToolsFeatureCollection collection = featureCollection();
+        MockHttpOutputMessage fallback = new MockHttpOutputMessage();
+        converter.writeInternal(collection, null, fallback);
+
+        collection = featureCollection();
+        collection.setGeoJsonFeatureWriter(generator -> 0);
+        MockHttpOutputMessage pushedDown = new MockHttpOutputMessage();
+        converter.writeInternal(collection, null, pushedDown);
+
+        assertThat(fieldNames(pushedDown)).isEqualTo(fieldNames(fallback));
+    }
+
+    @Test
+    void testCoordinatePrecision() throws Exception {
+        GeoToolsFeatureCollection collection = featureCollection(new Coordinate(2.123456789, -48.9876),
+                new Coordinate(1.5, -0.00001), new Coordinate(1e20, 3));
+        collection.setCoordinatePrecision(3);
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.writeInternal(collection, null, message);
+
+        String body = message.getBodyAsString();
+        assertThat(body).contains("\"coordinates\":[2.123,-48.988]");
+        // trailing and negative zeros dropped
+        assertThat(body).contains("\"coordinates\":[1.5,0]");
+        // too large to be rounded
+        assertThat(body).contains("\"coordinates\":[1.0E20,3]");
+    }
+
+    @Test
+    void testFullCoordinatePrecisionByDefault() throws Exception {
+        GeoToolsFeatureCollection collection = featureCollection(new Coordinate(2.123456789, -48.9876));
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.writeInternal(collection, null, message);
+
+        assertThat(message.getBodyAsString()).contains("\"coordinates\":[2.123456789,-48.9876]");
+    }
+
+    private List<String> fieldNames(MockHttpOutputMessage message) throws Exception {
+        List<String> names = new ArrayList<>();
+        mapper.readTree(message.getBodyAsString()).fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,180 @@
+package com.camptocamp.opendata.ogc.features.http.codec.parquet;
+
+import static com.camptocamp.opendata.ogc.features.http.codec.TestFeatures.featureCollection;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.camptocamp.opendata.ogc.features.http.codec.TestFeatures;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class GeoParquetFeatureCollectionHttpMessageConverterTest {
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    private MockHttpOutputMessage output;
+
+    @BeforeEach
+    void setup() {
+        output = new MockHttpOutputMessage();
+    }
+
+    @Test
+    void testFileStructure() throws Exception {
+        new GeoParquetFeatureCollectionHttpMessageConverter(7, GeoParquetWriter.DEFAULT_ROW_GROUP_BYTES)
+                .writeInternal(featureCollection(20), null, output);
+
+        byte[] file = output.getBodyAsBytes();
+        assertThat(Arrays.copyOfRange(file, 0, 4)).isEqualTo(MAGIC);
+        assertThat(Arrays.copyOfRange(file, file.length - 4, file.length)).isEqualTo(MAGIC);
+
+        int footerLength = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        String footer = new String(file, file.length - 8 - footerLength, footerLength, StandardCharsets.ISO_8859_1);
+        assertThat(footer).contains("FID", "name", "count", "location", "bbox", "xmin", "ymax")
+                .contains(GeoParquetWriteSupport.WRITER_NAME);
+    }
+
+    @Test
+    void testReadBack() throws Exception {
+        List<Object[]> values = new ArrayList<>(IntStream.range(0, 20).mapToObj(TestFeatures::values).toList());
+        values.add(new Object[] { null, null, null });
+        new GeoParquetFeatureCollectionHttpMessageConverter(7, GeoParquetWriter.DEFAULT_ROW_GROUP_BYTES)
+                .writeInternal(featureCollection(values), null, output);
+
+        byte[] file = output.getBodyAsBytes();
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile(file))) {
+            ParquetMetadata footer = reader.getFooter();
+            assertThat(footer.getBlocks()).extracting(b -> b.getRowCount()).containsExactly(7L, 7L, 7L);
+            assertThat(footer.getFileMetaData().getKeyValueMetaData()).containsEntry("writer.model.name",
+                    GeoParquetWriteSupport.WRITER_NAME);
+            MessageType schema = footer.getFileMetaData().getSchema();
+            assertThat(schema.getFields()).extracting(f -> f.getName()).containsExactly("FID", "name", "count",
+                    "location", "bbox");
+
+            List<Group> rows = readRows(reader, schema);
+            assertThat(rows).hasSize(21);
+            for (int i = 0; i < 20; i++) {
+                Group row = rows.get(i);
+                assertThat(row.getString("FID", 0)).isEqualTo(String.valueOf(i));
+                assertThat(row.getString("name", 0)).isEqualTo("name " + (i % 3));
+                assertThat(row.getInteger("count", 0)).isEqualTo(i);
+                assertThat(wkb(row.getBinary("location", 0).getBytes())).isEqualTo(values.get(i)[2]);
+                Group bbox = row.getGroup("bbox", 0);
+                assertThat(bbox.getDouble("xmin", 0)).isEqualTo(i);
+                assertThat(bbox.getDouble("ymin", 0)).isEqualTo(1);
+                assertThat(bbox.getDouble("xmax", 0)).isEqualTo(i);
+                assertThat(bbox.getDouble("ymax", 0)).isEqualTo(1);
+            }
+            Group nulls = rows.get(20);
+            assertThat(nulls.getString("FID", 0)).isEqualTo("20");
+            for (String column : List.of("name", "count", "location", "bbox")) {
+                assertThat(nulls.getFieldRepetitionCount(column)).as(column).isZero();
+            }
+        }
+    }
+
+    @Test
+    void testGeoMetadata() throws Exception {
+        new GeoParquetFeatureCollectionHttpMessageConverter().writeInternal(featureCollection(20), null, output);
+
+        JsonNode geo = geoMetadata(output.getBodyAsBytes());
+        assertThat(geo.get("version").asText()).isEqualTo("1.1.0");
+        assertThat(geo.get("primary_column").asText()).isEqualTo("location");
+
+        JsonNode column = geo.get("columns").get("location");
+        assertThat(column.get("encoding").asText()).isEqualTo("WKB");
+        assertThat(column.get("geometry_types").toString()).isEqualTo("[\"Point\"]");
+        assertThat(column.get("bbox").toString()).isEqualTo("[0.0,1.0,19.0,1.0]");
+        // CRS84 is the default
+        assertThat(column.has("crs")).isFalse();
+        assertThat(column.get("covering").get("bbox").get("xmin").toString()).isEqualTo("[\"bbox\",\"xmin\"]");
+    }
+
+    @Test
+    void testEmptyCollection() throws Exception {
+        new GeoParquetFeatureCollectionHttpMessageConverter().writeInternal(featureCollection(0), null, output);
+
+        byte[] file = output.getBodyAsBytes();
+        assertThat(Arrays.copyOfRange(file, 0, 4)).isEqualTo(MAGIC);
+        JsonNode column = geoMetadata(file).get("columns").get("location");
+        assertThat(column.get("geometry_types")).isEmpty();
+        assertThat(column.has("bbox")).isFalse();
+    }
+
+    private JsonNode geoMetadata(byte[] file) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(inputFile(file))) {
+            String geo = reader.getFooter().getFileMetaData().getKeyValueMetaData().get("geo");
+            assertThat(geo).isNotNull();
+            return new ObjectMapper().readTree(geo);
+        }
+    }
+
+    private List<Group> readRows(ParquetFileReader reader, MessageType schema) throws IOException {
+        List<Group> rows = new ArrayList<>();
+        PageReadStore rowGroup;
+        while (null != (rowGroup = reader.readNextRowGroup())) {
+            RecordReader<Group> records = new ColumnIOFactory().getColumnIO(schema).getRecordReader(rowGroup,
+                    new GroupRecordConverter(schema));
+            for (long i = 0; i < rowGroup.getRowCount(); i++) {
+                rows.add(records.read());
+            }
+        }
+        return rows;
+    }
+
+    private static Object wkb(byte[] wkb) throws ParseException {
+        return new WKBReader().read(wkb);
+    }
+
+    private static InputFile inputFile(byte[] file) {
+        return new InputFile() {
+            @Override
+            public long getLength() {
+                return file.length;
+            }
+
+            @Override
+            public SeekableInputStream newStream() {
+                ByteArrayInputStream in = new ByteArrayInputStream(file);
+                return new DelegatingSeekableInputStream(in) {
+                    @Override
+                    public long getPos() {
+                        return file.length - in.available();
+                    }
+
+                    @Override
+                    public void seek(long newPos) {
+                        in.reset();
+                        in.skip(newPos);
+                    }
+                };
+            }
+        };
+    }
+}
@@ -5,6 +5,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
@@ -20,6 +22,7 @@ import org.geotools.api.feature.simple.SimpleFeature;
 import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.geotools.api.feature.type.AttributeDescriptor;
 import org.geotools.api.feature.type.GeometryDescriptor;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.collection.ListFeatureCollection;
 import org.geotools.data.shapefile.ShapefileDataStore;
 import org.geotools.data.simple.SimpleFeatureCollection;
@@ -27,6 +30,7 @@ import org.geotools.data.store.ContentFeatureCollection;
 import org.geotools.feature.DefaultFeatureCollection;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.CRS;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -70,6 +74,60 @@ class ShapefileFeatureCollectionHttpMessageConverterTest {
         assertFeatureCollectionContents(expected, actual, "date");
     }
 
+    @Test
+    void testNullGeometry() throws Exception {
+        SimpleFeatureType schema = featureType();
+        DefaultFeatureCollection features = new DefaultFeatureCollection("col", schema);
+        features.add(feature(schema, "1", "no geom", 1, null, null));
+        features.add(feature(schema, "2", "some geom", 2, null, geom("POINT(1 2)")));
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("col-id", List.of()),
+                features);
+
+        Type unused = null;
+        converter.writeInternal(collection, unused, output);
+
+        SimpleFeatureCollection actual = extractShapefile(schema.getTypeName(), output.getBodyAsBytes());
+        assertFeatureCollectionContents(features, actual, "int");
+    }
+
+    @Test
+    void testKeepsNativeCrsUnlessRequested() throws Exception {
+        SimpleFeatureType schema = SimpleFeatureTypeBuilder.retype(featureType(), CRS.decode("EPSG:3857", true));
+        DefaultFeatureCollection features = new DefaultFeatureCollection("col", schema);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        fb.set("string", "native");
+        fb.set("int", 1);
+        fb.set("pointProperty", geom("POINT(1000000 2000000)"));
+        features.add(fb.buildFeature("1"));
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("col-id", List.of()),
+                features);
+
+        converter.writeInternal(collection, null, output);
+
+        ShapefileDataStore shapefile = unzipAndGetShapefile(schema.getTypeName(), output.getBodyAsBytes());
+        try {
+            assertThat(CRS.lookupEpsgCode(shapefile.getSchema().getCoordinateReferenceSystem(), true))
+                    .isEqualTo(3857);
+            SimpleFeatureCollection actual = new ListFeatureCollection(shapefile.getFeatureSource().getFeatures());
+            assertFeatureCollectionContents(features, actual, "int");
+        } finally {
+            shapefile.dispose();
+        }
+    }
+
+    @Test
+    void testRequestedCrs() throws Exception {
+        GeoToolsFeatureCollection collection = (GeoToolsFeatureCollection) featureCollection();
+        collection.setTargetCrs("3857");
+
+        converter.writeInternal(collection, null, output);
+
+        SimpleFeatureCollection actual = extractShapefile("test", output.getBodyAsBytes());
+        Point point = (Point) DataUtilities.first(actual).getDefaultGeometry();
+        assertThat(point.getX()).isZero();
+        assertThat(point.getY()).isGreaterThan(1_000_000);
+    }
+
     private void assertFeatureCollectionContents(SimpleFeatureCollection expected, SimpleFeatureCollection actual,
             String sortProperty) {
         List<SimpleFeature> fExpected = sortedContents(expected, sortProperty);
@@ -128,7 +186,18 @@ class ShapefileFeatureCollectionHttpMessageConverterTest {
         assertThat(unzipped).isEqualTo(expectedFiles);
 
         Path shp = unzipFolder.resolve("%s.shp".formatted(typeName));
-        return ShapefileFeatureCollectionHttpMessageConverter.createDataStore(shp);
+        return createDataStore(shp);
+    }
+
+    private ShapefileDataStore createDataStore(Path shp) throws MalformedURLException {
+        // avoid searching for other extensions when missing.
+        boolean skipScan = true;
+        ShapefileDataStore ds = new ShapefileDataStore(shp.toUri().toURL(), skipScan);
+        ds.setCharset(StandardCharsets.UTF_8);
+        ds.setFidIndexed(false);
+        ds.setIndexed(false);
+        ds.setIndexCreationEnabled(false);
+        return ds;
     }
 
     private Set<Path> unzip(byte[] shapeZip) throws IOException {
@@ -0,0 +1,98 @@
+package com.camptocamp.opendata.ogc.features.http.codec.xls;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.model.SimpleProperty;
+import com.camptocamp.opendata.ogc.features.benchmark.CountingOutputStream;
+import com.camptocamp.opendata.ogc.features.benchmark.EncodedSize;
+import com.camptocamp.opendata.ogc.features.http.codec.xls.StreamingWorkbookWriter.StreamingRow;
+import com.camptocamp.opendata.ogc.features.sampledata.SampleData;
+import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
+
+/**
+ * Compares the OOXML encoding time of the sample data layers with the shared
+ * strings table enabled, and with all text written as inline strings like the
+ * writer used to. The workbook size of each layer is reported as
+ * {@link EncodedSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingWorkbookWriterBenchmark {
+
+    @Param({ "comptages-velo", "locations" })
+    public String layer;
+
+    /**
+     * Maximum number of shared strings, {@literal 0} for inline strings only
+     */
+    @Param({ "0", "32768" })
+    public int sharedStrings;
+
+    private List<GeodataRecord> records;
+
+    @Setup
+    public void setUp() throws IOException {
+        SampleData sampleData = new SampleData();
+        try {
+            SimpleFeatureCollection features = sampleData.get().getFeatureSource(layer).getFeatures();
+            records = new ArrayList<>();
+            FeatureToRecord toRecord = new FeatureToRecord();
+            try (SimpleFeatureIterator it = features.features()) {
+                while (it.hasNext()) {
+                    records.add(toRecord.apply(it.next()));
+                }
+            }
+        } finally {
+            sampleData.destroy();
+        }
+    }
+
+    @Benchmark
+    public void encode(EncodedSize size) {
+        CountingOutputStream out = new CountingOutputStream();
+        StreamingWorkbookWriter writer = new StreamingWorkbookWriter(out, sharedStrings);
+        for (GeodataRecord rec : records) {
+            StreamingRow row = writer.newRow();
+            row.addColumnValue(rec.getId());
+            rec.getProperties().stream().map(SimpleProperty::getValue).forEach(row::addColumnValue);
+            if (null != rec.getGeometry()) {
+                row.addColumnValue(rec.getGeometry().getValue());
+            }
+            row.end();
+        }
+        writer.finish();
+        size.bytes = out.getCount();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(StreamingWorkbookWriterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.camptocamp.opendata.ogc.features.http.codec.xls;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.TimeZone;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.camptocamp.opendata.ogc.features.http.codec.xls.StreamingWorkbookWriter.StreamingRow;
+
+class StreamingWorkbookWriterTest {
+
+    @Test
+    void testCellTypes() throws IOException {
+        Map<String, String> entries = write(SharedStrings.DEFAULT_MAX_ENTRIES);
+
+        String sheet = entries.get("xl/worksheets/sheet1.xml");
+        assertThat(sheet).contains("<dimension ref=\"A1:F3\"");
+        // header row strings come first in the table
+        assertThat(sheet).contains("<c r=\"A1\" t=\"s\"><v>0</v></c>");
+        assertThat(sheet).contains("<c r=\"A2\" t=\"s\"><v>2</v></c>");
+        assertThat(sheet).contains("<c r=\"A3\" t=\"s\"><v>2</v></c>");
+        assertThat(sheet).contains("<c r=\"B2\"><v>42</v></c>");
+        assertThat(sheet).contains("<c r=\"C2\" t=\"b\"><v>1</v></c>");
+        assertThat(sheet).contains("<c r=\"D2\" s=\"1\"><v>45414</v></c>");
+        assertThat(sheet).contains("<c r=\"E2\" s=\"2\"><v>45414.5</v></c>");
+        assertThat(sheet).doesNotContain("F2");
+        assertThat(sheet).contains("<c r=\"F3\" t=\"s\"><v>3</v></c>");
+
+        String sst = entries.get("xl/sharedStrings.xml");
+        assertThat(sst).contains("count=\"5\" uniqueCount=\"4\"");
+        assertThat(sst).contains("<si><t>repeated</t></si><si><t xml:space=\"preserve\"> padded </t></si></sst>");
+
+        assertThat(entries.get("xl/styles.xml")).contains("formatCode=\"yyyy-mm-dd\"")
+                .contains("formatCode=\"yyyy-mm-dd hh:mm:ss\"");
+        assertThat(entries).containsKeys("[Content_Types].xml", "xl/workbook.xml", "xl/_rels/workbook.xml.rels");
+    }
+
+    @Test
+    void testInlineStrings() throws IOException {
+        Map<String, String> entries = write(0);
+
+        String sheet = entries.get("xl/worksheets/sheet1.xml");
+        assertThat(sheet).contains("<c r=\"A2\" t=\"inlineStr\"><is><t>repeated</t></is></c>");
+        assertThat(entries.get("xl/sharedStrings.xml")).contains("count=\"0\" uniqueCount=\"0\"");
+    }
+
+    @Test
+    void testSheetRollover() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingWorkbookWriter writer = new StreamingWorkbookWriter(out, 0, 3).header(List.of("id", "value"))
+                .dimension(5, 2);
+        for (int i = 1; i <= 5; i++) {
+            writer.newRow().addColumnValue(i).addColumnValue(i * 10).end();
+        }
+        writer.finish();
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        String sheet1 = entries.get("xl/worksheets/sheet1.xml");
+        String sheet2 = entries.get("xl/worksheets/sheet2.xml");
+        String sheet3 = entries.get("xl/worksheets/sheet3.xml");
+        assertThat(entries).doesNotContainKey("xl/worksheets/sheet4.xml");
+
+        assertThat(sheet1).contains("<dimension ref=\"A1:B3\"").contains("<c r=\"A1\" t=\"inlineStr\">")
+                .contains("<c r=\"A3\"><v>2</v></c>").doesNotContain("r=\"4\"");
+        assertThat(sheet2).contains("<dimension ref=\"A1:B3\"").contains("<c r=\"A1\" t=\"inlineStr\">")
+                .contains("<c r=\"A2\"><v>3</v></c>").contains("<c r=\"A3\"><v>4</v></c>");
+        assertThat(sheet3).contains("<dimension ref=\"A1:B2\"").contains("<c r=\"B2\"><v>50</v></c>");
+
+        String workbook = entries.get("xl/workbook.xml");
+        assertThat(workbook).contains("<sheet name=\"Sheet 1\" sheetId=\"1\" r:id=\"rId3\"")
+                .contains("<sheet name=\"Sheet 3\" sheetId=\"3\" r:id=\"rId5\"");
+        assertThat(entries.get("xl/_rels/workbook.xml.rels")).contains("Id=\"rId5\" Target=\"worksheets/sheet3.xml\"");
+        assertThat(entries.get("[Content_Types].xml")).contains("PartName=\"/xl/worksheets/sheet3.xml\"");
+    }
+
+    @Test
+    void testTimestampsAreWrittenInUTC() throws IOException {
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Argentina/Buenos_Aires"));
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            StreamingWorkbookWriter writer = new StreamingWorkbookWriter(out);
+            writer.newRow().addColumnValue(Timestamp.from(Instant.parse("2024-05-02T12:00:00Z"))).end();
+            writer.finish();
+
+            String sheet = unzip(out.toByteArray()).get("xl/worksheets/sheet1.xml");
+            assertThat(sheet).contains("<c r=\"A1\" s=\"2\"><v>45414.5</v></c>");
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    void testColumnLetters() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingWorkbookWriter writer = new StreamingWorkbookWriter(out);
+        StreamingRow row = writer.newRow();
+        for (int i = 0; i < 703; i++) {
+            row.addColumnValue(i);
+        }
+        writer.finish();
+
+        String sheet = unzip(out.toByteArray()).get("xl/worksheets/sheet1.xml");
+        assertThat(sheet).contains("<c r=\"Z1\"><v>25</v></c>").contains("<c r=\"AA1\"><v>26</v></c>")
+                .contains("<c r=\"ZZ1\"><v>701</v></c>").contains("<c r=\"AAA1\"><v>702</v></c>");
+    }
+
+    private Map<String, String> write(int sharedStrings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingWorkbookWriter writer = new StreamingWorkbookWriter(out, sharedStrings).dimension(3, 6);
+        writer.newRow().addColumnValue("name").addColumnValue("count").end();
+        writer.newRow().addColumnValue("repeated").addColumnValue(42).addColumnValue(true)
+                .addColumnValue(LocalDate.of(2024, 5, 2)).addColumnValue(LocalDateTime.of(2024, 5, 2, 12, 0))
+                .addColumnValue(null).end();
+        writer.newRow().addColumnValue("repeated").addColumnValue(null).addColumnValue(null).addColumnValue(null)
+                .addColumnValue(null).addColumnValue(" padded ").end();
+        writer.finish();
+        return unzip(out.toByteArray());
+    }
+
+    private Map<String, String> unzip(byte[] zip) throws IOException {
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while (null != (entry = in.getNextEntry())) {
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
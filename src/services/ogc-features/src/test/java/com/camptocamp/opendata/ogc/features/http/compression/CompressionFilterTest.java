@@ -0,0 +1,109 @@
+package com.camptocamp.opendata.ogc.features.http.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+
+class CompressionFilterTest {
+
+    private static final String BODY = "{\"type\":\"FeatureCollection\",\"features\":[]}".repeat(1000);
+
+    private SimpleMeterRegistry registry;
+    private CompressionFilter filter;
+
+    @BeforeEach
+    void before() {
+        registry = new SimpleMeterRegistry();
+        CompressionConfiguration config = new CompressionConfiguration();
+        config.setFlushSize(DataSize.ofKilobytes(1));
+        filter = new CompressionFilter(config, registry);
+    }
+
+    private MockHttpServletResponse filter(String acceptEncoding, String contentType) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ogcapi/collections/locations/items");
+        if (null != acceptEncoding) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            res.setContentType(contentType);
+            ((HttpServletResponse) res).setHeader("ETag", "\"abc\"");
+            OutputStream out = res.getOutputStream();
+            byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+            for (int off = 0; off < bytes.length; off += 100) {
+                out.write(bytes, off, Math.min(100, bytes.length - off));
+            }
+            out.flush();
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    void testCompressesWhenAccepted() throws Exception {
+        MockHttpServletResponse response = filter("deflate, gzip;q=0.8", "application/geo+json");
+
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getHeaders("Vary")).contains("Accept-Encoding");
+        assertThat(response.getContentAsByteArray().length).isLessThan(BODY.length());
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+
+        assertThat(registry.get("http.server.compression.ratio").tag("format", "geojson").summary().mean())
+                .isGreaterThan(1);
+        assertThat(registry.get("http.server.compression.time").tag("format", "geojson").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testNotAccepted() throws Exception {
+        assertNotCompressed(filter(null, "application/geo+json"));
+        assertNotCompressed(filter("gzip;q=0", "application/geo+json"));
+        assertNotCompressed(filter("br", "application/geo+json"));
+    }
+
+    @Test
+    void testSkipsCompressedFormats() throws Exception {
+        assertNotCompressed(filter("gzip", "application/x-shapefile"));
+        assertNotCompressed(filter("gzip", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        assertNotCompressed(filter("gzip", "image/png"));
+    }
+
+    @Test
+    void testCompressesOtherTextualFormats() throws Exception {
+        MockHttpServletResponse response = filter("*", "text/csv;charset=UTF-8");
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+    }
+
+    @Test
+    void testStrongETagMadeWeakWhenCompressed() throws Exception {
+        assertThat(filter("gzip", "application/geo+json").getHeader("ETag")).isEqualTo("W/\"abc\"");
+        assertThat(filter(null, "application/geo+json").getHeader("ETag")).isEqualTo("\"abc\"");
+        assertThat(filter("gzip", "application/x-shapefile").getHeader("ETag")).isEqualTo("\"abc\"");
+    }
+
+    private void assertNotCompressed(MockHttpServletResponse response) throws IOException {
+        assertThat(response.getHeader("Content-Encoding")).isNull();
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8)).isEqualTo(BODY);
+    }
+
+    private String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.camptocamp.opendata.ogc.features.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.feature.collection.DecoratingSimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.model.GeometryProperty;
+import com.camptocamp.opendata.model.SimpleProperty;
+import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
+
+class GeoToolsFeatureCollectionTest {
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    @Test
+    void testRecordsMatchFeatureToRecord() {
+        ListFeatureCollection features = features();
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("test", List.of()),
+                features);
+
+        List<GeodataRecord> records = collection.getFeatures().toList();
+        List<GeodataRecord> expected = DataUtilities.list(features).stream().map(new FeatureToRecord()).toList();
+
+        assertThat(records).hasSize(2);
+        for (int i = 0; i < records.size(); i++) {
+            GeodataRecord rec = records.get(i);
+            GeodataRecord exp = expected.get(i);
+            assertThat(rec.getId()).isEqualTo(exp.getId());
+            assertThat(rec.getTypeName()).isEqualTo(exp.getTypeName());
+            assertThat(rec.getProperties()).extracting(SimpleProperty::getName).containsExactly("name", "count",
+                    "track");
+            assertThat(rec.getProperties()).extracting(SimpleProperty::getValue)
+                    .containsExactlyElementsOf(exp.getProperties().stream().map(SimpleProperty::getValue).toList());
+            assertThat(rec.getProperties().get(2)).isInstanceOf(GeometryProperty.class);
+            assertThat(rec.getGeometry().getName()).isEqualTo("location");
+            assertThat(rec.getGeometry().getValue()).isEqualTo(exp.getGeometry().getValue());
+            assertThat(rec.getGeometry().getSrs()).isEqualTo("EPSG:4326");
+        }
+        assertThat(records.get(0).getId()).isEqualTo("1");
+        assertThat(records.get(1).getProperty("name").orElseThrow().getValue()).isNull();
+        assertThat(records.get(1).getProperty("location")).isEmpty();
+        assertThat(collection.getNumberReturned()).isEqualTo(2);
+    }
+
+    @Test
+    void testReprojectedRecords() {
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("test", List.of()),
+                features());
+        collection.setTargetCrs("3857");
+
+        GeodataRecord rec = collection.getFeatures().findFirst().orElseThrow();
+        assertThat(rec.getGeometry().getSrs()).isEqualTo("EPSG:3857");
+        Coordinate coordinate = rec.getGeometry().getValue().getCoordinate();
+        assertThat(coordinate.x).isCloseTo(111_319.49, within(0.01));
+        assertThat(coordinate.y).isCloseTo(0, within(0.01));
+        // only the default geometry is reprojected
+        assertThat(((LineString) rec.getProperties().get(2).getValue()).getCoordinateN(1).x).isEqualTo(1);
+    }
+
+    @Test
+    void testRecordsReprojectedByTheBackend() {
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("test", List.of()),
+                features());
+        collection.setTargetCrs("3857");
+        collection.setReprojected(true);
+
+        GeodataRecord rec = collection.getFeatures().findFirst().orElseThrow();
+        assertThat(rec.getGeometry().getSrs()).isEqualTo("EPSG:3857");
+        assertThat(rec.getGeometry().getValue().getCoordinate()).isEqualTo(new Coordinate(1, 0));
+    }
+
+    @Test
+    void testCancel() {
+        AtomicBoolean backendCancelled = new AtomicBoolean();
+        GeoToolsFeatureCollection collection = new GeoToolsFeatureCollection(new Collection("test", List.of()),
+                new CancellableFeatures(features(), () -> backendCancelled.set(true)));
+        collection.setNumberReturned(2L);
+        AtomicLong remaining = new AtomicLong(-1);
+        collection.setCancellationListener(remaining::set);
+
+        try (Stream<GeodataRecord> records = collection.getFeatures()) {
+            Iterator<GeodataRecord> it = records.iterator();
+            it.next();
+            collection.cancel();
+            collection.cancel();
+        }
+        assertThat(backendCancelled).isTrue();
+        assertThat(remaining).hasValue(1);
+        assertThatIllegalStateException().isThrownBy(collection::getFeatures);
+    }
+
+    private static class CancellableFeatures extends DecoratingSimpleFeatureCollection implements Cancellable {
+
+        private final Runnable onCancel;
+
+        CancellableFeatures(SimpleFeatureCollection delegate, Runnable onCancel) {
+            super(delegate);
+            this.onCancel = onCancel;
+        }
+
+        @Override
+        public void cancel() {
+            onCancel.run();
+        }
+    }
+
+    private ListFeatureCollection features() {
+        SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+        builder.setName("test");
+        builder.setSRS("EPSG:4326");
+        builder.add("name", String.class);
+        builder.add("location", Point.class);
+        builder.add("count", Integer.class);
+        builder.add("track", LineString.class);
+        builder.setDefaultGeometry("location");
+        SimpleFeatureType schema = builder.buildFeatureType();
+
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        LineString track = gf.createLineString(new Coordinate[] { new Coordinate(0, 0), new Coordinate(1, 1) });
+        ListFeatureCollection features = new ListFeatureCollection(schema);
+        features.add(fb.buildFeature("test.1", new Object[] { "a", gf.createPoint(new Coordinate(1, 0)), 1, track }));
+        features.add(fb.buildFeature("test.2", new Object[] { null, gf.createPoint(new Coordinate(2, 0)), 2, null }));
+        return features;
+    }
+}
@@ -0,0 +1,120 @@
+package com.camptocamp.opendata.ogc.features.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.model.GeometryProperty;
+import com.camptocamp.opendata.model.SimpleProperty;
+import com.camptocamp.opendata.ogc.features.sampledata.SampleData;
+import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
+import com.camptocamp.opendata.producer.geotools.SimpleFeatureRecordMapper;
+
+/**
+ * Compares the cost of mapping the sample data features to
+ * {@link GeodataRecord}s and reading them back the way the encoders do, by
+ * copying them with {@link FeatureToRecord} and then again for the reprojected
+ * geometry, or with lazy {@link SimpleFeatureRecordMapper views}.
+ * <p>
+ * Each operation maps one feature, so the {@literal gc.alloc.rate.norm}
+ * reported by the GC profiler is the number of bytes allocated per feature.
+ * Geometries are not actually reprojected, to only account for the records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeodataRecordBenchmark {
+
+    @Param({ "comptages-velo", "locations" })
+    public String layer;
+
+    private SimpleFeature[] features;
+    private int next;
+
+    private Function<SimpleFeature, GeodataRecord> copy;
+    private Function<SimpleFeature, GeodataRecord> view;
+
+    @Setup
+    public void setUp() throws IOException {
+        SampleData sampleData = new SampleData();
+        List<SimpleFeature> list = new ArrayList<>();
+        try (SimpleFeatureIterator it = sampleData.get().getFeatureSource(layer).getFeatures().features()) {
+            while (it.hasNext()) {
+                list.add(it.next());
+            }
+        } finally {
+            sampleData.destroy();
+        }
+        features = list.toArray(SimpleFeature[]::new);
+
+        FeatureToRecord toRecord = new FeatureToRecord();
+        // as RecordReprojectFunction does, minus the actual reprojection
+        copy = toRecord.andThen(rec -> {
+            GeometryProperty geom = rec.getGeometry();
+            return rec.withGeometry(geom.withValue(geom.getValue()).withSrs("EPSG:4326"));
+        });
+        view = new SimpleFeatureRecordMapper("EPSG:4326");
+    }
+
+    private SimpleFeature nextFeature() {
+        SimpleFeature feature = features[next];
+        next = (next + 1) % features.length;
+        return feature;
+    }
+
+    @Benchmark
+    public void copy(Blackhole blackhole) {
+        consume(copy.apply(nextFeature()), blackhole);
+    }
+
+    @Benchmark
+    public void view(Blackhole blackhole) {
+        consume(view.apply(nextFeature()), blackhole);
+    }
+
+    /**
+     * Reads the record like the CSV and OOXML encoders do
+     */
+    private void consume(GeodataRecord rec, Blackhole blackhole) {
+        blackhole.consume(rec.getId());
+        for (SimpleProperty<?> property : rec.getProperties()) {
+            blackhole.consume(property.getName());
+            blackhole.consume(property.getValue());
+        }
+        GeometryProperty geometry = rec.getGeometry();
+        blackhole.consume(geometry.getValue());
+        blackhole.consume(geometry.getSrs());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(GeodataRecordBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
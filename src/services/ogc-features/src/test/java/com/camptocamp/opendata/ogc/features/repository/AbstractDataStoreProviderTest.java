@@ -0,0 +1,171 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.api.data.FeatureReader;
+import org.geotools.api.data.Query;
+import org.geotools.api.data.Transaction;
+import org.geotools.api.feature.simple.SimpleFeature;
+import org.geotools.api.feature.simple.SimpleFeatureType;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.memory.MemoryDataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lombok.NonNull;
+
+class AbstractDataStoreProviderTest {
+
+    private static final Duration DISPOSE_DELAY = Duration.ofMillis(200);
+
+    private AtomicInteger created;
+    private AtomicInteger disposed;
+    private AbstractDataStoreProvider provider;
+
+    @BeforeEach
+    void before() {
+        created = new AtomicInteger();
+        disposed = new AtomicInteger();
+        provider = new AbstractDataStoreProvider() {
+            @Override
+            protected @NonNull DataStore create() {
+                created.incrementAndGet();
+                MemoryDataStore store = new MemoryDataStore() {
+                    @Override
+                    public void dispose() {
+                        disposed.incrementAndGet();
+                        super.dispose();
+                    }
+                };
+                try {
+                    SimpleFeatureType type = DataUtilities.createType("items", "name:String");
+                    store.addFeature(DataUtilities.createFeature(type, "item.1=first"));
+                    store.addFeature(DataUtilities.createFeature(type, "item.2=second"));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return store;
+            }
+        };
+        provider.setDisposeDelay(DISPOSE_DELAY);
+    }
+
+    @AfterEach
+    void after() {
+        provider.destroy();
+    }
+
+    @Test
+    void testGetCreatesOnce() throws Exception {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<DataStore>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return provider.get();
+            }));
+        }
+        start.countDown();
+        DataStore first = results.get(0).get();
+        for (Future<DataStore> result : results) {
+            assertThat(result.get()).isSameAs(first);
+        }
+        executor.shutdown();
+        assertThat(created).hasValue(1);
+    }
+
+    @Test
+    void testReInitRetiresGenerationOnce() throws Exception {
+        DataStore first = provider.get();
+        long generation = provider.generation();
+
+        provider.reInit(generation);
+        DataStore second = provider.get();
+        assertThat(second).isNotSameAs(first);
+        assertThat(provider.generation()).isGreaterThan(generation);
+        awaitDisposed(1);
+
+        // a concurrent caller that found the same generation faulty
+        provider.reInit(generation);
+        assertThat(provider.get()).isSameAs(second);
+        assertThat(created).hasValue(2);
+        assertThat(disposed).hasValue(1);
+    }
+
+    @Test
+    void testReInitDefersDisposalOfStoreInUse() throws Exception {
+        DataStore first = provider.get();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = first.getFeatureReader(new Query("items"),
+                Transaction.AUTO_COMMIT)) {
+            assertThat(reader.next().getAttribute("name")).isEqualTo("first");
+
+            // a query on the new store found the retired one faulty, this one is still reading
+            provider.reInit(provider.generation());
+            assertThat(provider.get()).isNotSameAs(first);
+            assertThat(disposed).as("retired store disposed while in use").hasValue(0);
+
+            assertThat(reader.next().getAttribute("name")).isEqualTo("second");
+            assertThat(reader.hasNext()).isFalse();
+        }
+        awaitDisposed(1);
+    }
+
+    @Test
+    void testDestroyDisposesRetiredStores() {
+        provider.setDisposeDelay(Duration.ofHours(1));
+        provider.get();
+        provider.reInit(provider.generation());
+        assertThat(disposed).hasValue(0);
+
+        provider.destroy();
+        assertThat(disposed).hasValue(2);
+    }
+
+    @Test
+    void testZeroDisposeDelay() {
+        provider.setDisposeDelay(Duration.ZERO);
+        provider.get();
+        provider.reInit(provider.generation());
+        assertThat(disposed).hasValue(1);
+    }
+
+    private void awaitDisposed(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (disposed.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(disposed).hasValue(expected);
+    }
+
+    @Test
+    void testReInitNotifiesListeners() {
+        AtomicInteger notified = new AtomicInteger();
+        provider.addSchemaChangeListener(notified::incrementAndGet);
+        long generation = provider.generation();
+        provider.reInit(generation);
+        provider.reInit(generation);
+        assertThat(notified).hasValue(1);
+    }
+
+    @Test
+    void testDestroy() {
+        provider.get();
+        provider.destroy();
+        assertThat(disposed).hasValue(1);
+        provider.get();
+        assertThat(created).hasValue(2);
+    }
+}
@@ -0,0 +1,110 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.geotools.api.data.DataStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.camptocamp.geotools.data.decorate.DecoratingDataStore;
+import com.camptocamp.opendata.ogc.features.model.Collection;
+import com.camptocamp.opendata.ogc.features.model.Link;
+import com.camptocamp.opendata.ogc.features.sampledata.SampleData;
+import com.camptocamp.opendata.producer.geotools.FeatureToRecord;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.NonNull;
+
+class DataStoreCollectionRepositoryTest {
+
+    private static SampleData sampleData;
+
+    private AbstractDataStoreProvider provider;
+    private DataStoreCollectionRepository repository;
+    private SimpleMeterRegistry registry;
+
+    @BeforeAll
+    static void createSampleData() {
+        sampleData = new SampleData();
+        sampleData.get();
+    }
+
+    @AfterAll
+    static void deleteSampleData() throws IOException {
+        sampleData.destroy();
+    }
+
+    @BeforeEach
+    void before() {
+        provider = new AbstractDataStoreProvider() {
+            @Override
+            protected @NonNull DataStore create() {
+                // the sample data store is shared, don't dispose it on reInit()
+                return new DecoratingDataStore(sampleData.get()) {
+                    @Override
+                    public void dispose() {
+                        // no-op
+                    }
+                };
+            }
+        };
+        repository = new DataStoreCollectionRepository(provider, new FeatureToRecord());
+        registry = new SimpleMeterRegistry();
+        repository.bindTo(registry);
+    }
+
+    @Test
+    void testCollectionMetadataCached() {
+        Collection first = repository.findCollection("locations").orElseThrow();
+        assertThat(misses()).isEqualTo(1);
+        assertThat(hits()).isZero();
+
+        first.addLinksItem(new Link("http://localhost/collections/locations"));
+
+        Collection second = repository.findCollection("locations").orElseThrow();
+        assertThat(misses()).isEqualTo(1);
+        assertThat(hits()).isEqualTo(1);
+        assertThat(second).as("cached collections shall not be shared").isNotSameAs(first);
+        assertThat(second.getLinks()).isEmpty();
+        assertThat(second.getItemType()).isEqualTo(first.getItemType());
+        assertThat(second.getCrs()).isEqualTo(first.getCrs());
+    }
+
+    @Test
+    void testCollectionMetadataNotFoundNotCached() {
+        assertThat(repository.findCollection("nonexistent")).isEmpty();
+        assertThat(repository.findCollection("nonexistent")).isEmpty();
+        assertThat(misses()).isEqualTo(2);
+    }
+
+    @Test
+    void testCollectionMetadataInvalidatedOnReInit() {
+        repository.getCollections();
+        double loaded = misses();
+        assertThat(loaded).isPositive();
+
+        repository.getCollections();
+        assertThat(misses()).isEqualTo(loaded);
+
+        provider.reInit();
+        repository.getCollections();
+        assertThat(misses()).isEqualTo(2 * loaded);
+    }
+
+    private double hits() {
+        return cacheGets("hit");
+    }
+
+    private double misses() {
+        return cacheGets("miss");
+    }
+
+    private double cacheGets(String result) {
+        return registry.get("cache.gets").tag("cache", CollectionMetadataCache.CACHE_NAME).tag("result", result)
+                .functionCounter().count();
+    }
+}
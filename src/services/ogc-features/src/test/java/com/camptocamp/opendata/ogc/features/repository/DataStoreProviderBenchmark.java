@@ -0,0 +1,134 @@
+package com.camptocamp.opendata.ogc.features.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.geotools.api.data.DataStore;
+import org.geotools.data.memory.MemoryDataStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import lombok.NonNull;
+
+/**
+ * Compares the throughput of {@link DataStoreProvider#get()} under many
+ * concurrent readers between {@link AbstractDataStoreProvider} and the former
+ * read-write lock based implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStoreProviderBenchmark {
+
+    /**
+     * The read-write lock based provider {@link AbstractDataStoreProvider} used to
+     * be, kept as the baseline
+     */
+    static class ReadWriteLockDataStoreProvider implements DataStoreProvider {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private DataStore store;
+
+        @Override
+        public DataStore get() {
+            lock.readLock().lock();
+            try {
+                if (null != store) {
+                    return store;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                if (null == store) {
+                    store = new MemoryDataStore();
+                }
+                return store;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void reInit() {
+            lock.writeLock().lock();
+            try {
+                if (null != store) {
+                    store.dispose();
+                }
+                store = new MemoryDataStore();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private DataStoreProvider readWriteLock;
+    private AbstractDataStoreProvider atomicReference;
+
+    @Setup
+    public void setUp() {
+        readWriteLock = new ReadWriteLockDataStoreProvider();
+        atomicReference = new AbstractDataStoreProvider() {
+            @Override
+            protected @NonNull DataStore create() {
+                return new MemoryDataStore();
+            }
+        };
+        readWriteLock.get();
+        atomicReference.get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        atomicReference.destroy();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public DataStore readWriteLock64() {
+        return readWriteLock.get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public DataStore atomicReference64() {
+        return atomicReference.get();
+    }
+
+    @Benchmark
+    @Threads(256)
+    public DataStore readWriteLock256() {
+        return readWriteLock.get();
+    }
+
+    @Benchmark
+    @Threads(256)
+    public DataStore atomicReference256() {
+        return atomicReference.get();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(DataStoreProviderBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
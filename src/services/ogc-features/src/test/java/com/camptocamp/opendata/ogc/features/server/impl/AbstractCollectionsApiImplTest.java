@@ -1,6 +1,7 @@
 package com.camptocamp.opendata.ogc.features.server.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
 import java.util.ArrayList;
@@ -21,16 +22,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.camptocamp.opendata.model.DataQuery.SortBy;
 import com.camptocamp.opendata.model.GeodataRecord;
 import com.camptocamp.opendata.ogc.features.model.Collection;
 import com.camptocamp.opendata.ogc.features.model.Collections;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.tiles.MvtEncoder;
+import com.camptocamp.opendata.ogc.features.tiles.Tile;
 import com.google.common.base.Splitter;
 
 import lombok.Cleanup;
@@ -202,6 +207,27 @@ public abstract class AbstractCollectionsApiImplTest {
         assertThat(features2.count()).isEqualTo(expected);
     }
 
+    @Test
+    protected void testGetTile() throws Exception {
+        ResponseEntity<Resource> response = dataApi.getTile("locations", Tile.WEB_MERCATOR_QUAD, 0, 0, 0);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getHeaders().getContentType()).hasToString(MvtEncoder.MEDIA_TYPE);
+        assertThat(response.getBody().contentLength()).isPositive();
+    }
+
+    @Test
+    protected void testGetTileErrors() {
+        assertThat(dataApi.getTile("locations", "WorldCRS84Quad", 0, 0, 0).getStatusCode().value()).isEqualTo(404);
+
+        assertThatThrownBy(() -> dataApi.getTile("locations", Tile.WEB_MERCATOR_QUAD, 1, 0, 2))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(400));
+        assertThatThrownBy(() -> dataApi.getTile("nonexistent", Tile.WEB_MERCATOR_QUAD, 0, 0, 0))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(404));
+    }
+
     private void assertECQL_FilterCanBeParsed(final String propetyName, final String filter) {
         Filter ff = assertDoesNotThrow(() -> ECQL.toFilter(filter));
         assertThat(ff).isInstanceOf(PropertyIsEqualTo.class);
@@ -0,0 +1,130 @@
+package com.camptocamp.opendata.ogc.features.server.impl;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.camptocamp.opendata.ogc.features.app.OgcFeaturesApp;
+import com.camptocamp.opendata.ogc.features.http.codec.ClientDisconnectWatchdog;
+import com.camptocamp.opendata.ogc.features.repository.JdbcDataStoreProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Checks a query still executing in the database, before the first row is
+ * returned, is cancelled when the client goes away.
+ *
+ * @see ClientDisconnectWatchdog
+ */
+@SpringBootTest(classes = OgcFeaturesApp.class, webEnvironment = WebEnvironment.RANDOM_PORT, properties = { //
+        "postgis.schemas.include[0].schema=opendataindex", //
+        "postgis.schemas.include[0].prefix-tables=false", //
+        "collections.overrides[slow_items].number-matched=none", //
+})
+@ActiveProfiles("postgis")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ClientDisconnectPostgisIT {
+
+    static PostgisTestSupport support;
+
+    private @LocalServerPort int port;
+
+    private @Autowired JdbcDataStoreProvider pgDataStoreProvider;
+    private @Autowired MeterRegistry registry;
+
+    @BeforeAll
+    static void setUpContainer(@TempDir Path tmpdir) throws IOException, SQLException {
+        support = PostgisTestSupport.init(tmpdir);
+        // sorting the view takes a minute before returning the first row
+        support.runSql("""
+                CREATE FUNCTION opendataindex.sleepy(i int) RETURNS int LANGUAGE plpgsql AS $$
+                BEGIN
+                  PERFORM pg_sleep(0.1);
+                  RETURN i;
+                END $$;
+                CREATE VIEW opendataindex.slow_items AS
+                SELECT opendataindex.sleepy(i) AS id, 'name ' || i AS name,
+                  ST_SetSRID(ST_MakePoint(i, i), 4326) AS geom
+                FROM generate_series(1, 600) AS i;
+                """);
+    }
+
+    @DynamicPropertySource
+    static void setUpPostgisProperties(DynamicPropertyRegistry registry) {
+        support.setUpDefaultSpringDataSource(registry);
+    }
+
+    @BeforeEach
+    void beforeEeach() {
+        support.beforeEeach(pgDataStoreProvider);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "json", "geojson" })
+    void testClientAbortCancelsExecutingQuery(String format) throws Exception {
+        final double cancelled = registry.get("collections.queries.cancelled").functionCounter().count();
+
+        try (Socket client = new Socket("localhost", port)) {
+            OutputStream request = client.getOutputStream();
+            request.write("""
+                    GET /ogcapi/collections/slow_items/items?f=%s&sortby=-name HTTP/1.1\r
+                    Host: localhost\r
+                    \r
+                    """.formatted(format).getBytes(US_ASCII));
+            request.flush();
+            awaitExecutingQueries(1, Duration.ofSeconds(10));
+        }
+        // the client went away while the query is still executing
+        awaitExecutingQueries(0, Duration.ofSeconds(15));
+
+        assertThat(registry.get("collections.queries.cancelled").functionCounter().count())
+                .isEqualTo(cancelled + 1);
+    }
+
+    private void awaitExecutingQueries(int expected, Duration timeout) throws SQLException, InterruptedException {
+        final Instant deadline = Instant.now().plus(timeout);
+        int executing = executingQueries();
+        while (executing != expected && Instant.now().isBefore(deadline)) {
+            Thread.sleep(100);
+            executing = executingQueries();
+        }
+        assertThat(executing).as("queries on slow_items executing").isEqualTo(expected);
+    }
+
+    private int executingQueries() throws SQLException {
+        String sql = """
+                SELECT count(*) FROM pg_stat_activity
+                WHERE state = 'active' AND query LIKE '%slow_items%' AND pid <> pg_backend_pid()
+                """;
+        try (Connection c = DriverManager.getConnection(support.postgis.getJdbcUrl(), support.postgis.getUsername(),
+                support.postgis.getPassword()); Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
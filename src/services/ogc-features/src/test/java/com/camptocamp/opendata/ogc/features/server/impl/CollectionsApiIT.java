@@ -99,6 +99,24 @@ class CollectionsApiIT {
                              "rel":"alternate",
                              "type":"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
                              "title":"This document as Excel 2007 / OOXML"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&f=parquet",
+                             "rel":"alternate",
+                             "type":"application/vnd.apache.parquet",
+                             "title":"This document as GeoParquet"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&f=fgb",
+                             "rel":"alternate",
+                             "type":"application/flatgeobuf",
+                             "title":"This document as FlatGeobuf"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&f=arrow",
+                             "rel":"alternate",
+                             "type":"application/vnd.apache.arrow.stream",
+                             "title":"This document as Apache Arrow"
                          }
                      ]
                 }
@@ -169,6 +187,24 @@ class CollectionsApiIT {
                              "rel":"alternate",
                              "type":"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
                              "title":"This document as Excel 2007 / OOXML"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&f=parquet",
+                             "rel":"alternate",
+                             "type":"application/vnd.apache.parquet",
+                             "title":"This document as GeoParquet"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&f=fgb",
+                             "rel":"alternate",
+                             "type":"application/flatgeobuf",
+                             "title":"This document as FlatGeobuf"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&f=arrow",
+                             "rel":"alternate",
+                             "type":"application/vnd.apache.arrow.stream",
+                             "title":"This document as Apache Arrow"
                          }
                      ]
                 }
@@ -242,6 +278,24 @@ class CollectionsApiIT {
                              "rel":"alternate",
                              "type":"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
                              "title":"This document as Excel 2007 / OOXML"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&crs=2154&f=parquet",
+                             "rel":"alternate",
+                             "type":"application/vnd.apache.parquet",
+                             "title":"This document as GeoParquet"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&crs=2154&f=fgb",
+                             "rel":"alternate",
+                             "type":"application/flatgeobuf",
+                             "title":"This document as FlatGeobuf"
+                         },
+                         {
+                             "href":"http://localhost:<port>/ogcapi/collections/locations/items?offset=0&limit=2&crs=2154&f=arrow",
+                             "rel":"alternate",
+                             "type":"application/vnd.apache.arrow.stream",
+                             "title":"This document as Apache Arrow"
                          }
                      ]
                 }
@@ -309,6 +363,24 @@ class CollectionsApiIT {
                       "rel": "alternate",
                       "type": "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
                       "title": "This document as Excel 2007 / OOXML"
+                    },
+                    {
+                      "href": "http://localhost:<port>/ogcapi/collections/locations/items?bbox=-2.416992,42.908160,8.613281,51.508742&f=parquet",
+                      "rel": "alternate",
+                      "type": "application/vnd.apache.parquet",
+                      "title": "This document as GeoParquet"
+                    },
+                    {
+                      "href": "http://localhost:<port>/ogcapi/collections/locations/items?bbox=-2.416992,42.908160,8.613281,51.508742&f=fgb",
+                      "rel": "alternate",
+                      "type": "application/flatgeobuf",
+                      "title": "This document as FlatGeobuf"
+                    },
+                    {
+                      "href": "http://localhost:<port>/ogcapi/collections/locations/items?bbox=-2.416992,42.908160,8.613281,51.508742&f=arrow",
+                      "rel": "alternate",
+                      "type": "application/vnd.apache.arrow.stream",
+                      "title": "This document as Apache Arrow"
                     }
                   ]
                 }
@@ -1,15 +1,19 @@
 package com.camptocamp.opendata.ogc.features.server.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.geotools.api.data.DataStore;
+import org.geotools.api.feature.simple.SimpleFeatureType;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +29,7 @@ import org.springframework.test.context.DynamicPropertySource;
 
 import com.camptocamp.opendata.model.GeodataRecord;
 import com.camptocamp.opendata.ogc.features.app.OgcFeaturesApp;
+import com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisCatalogChangeDetector;
 import com.camptocamp.opendata.ogc.features.model.Collection;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
 import com.camptocamp.opendata.ogc.features.repository.JdbcDataStoreProvider;
@@ -36,6 +41,8 @@ import lombok.Cleanup;
         // schema in this test suite
         "postgis.schemas.include[0].schema=opendataindex", //
         "postgis.schemas.include[0].prefix-tables=false",//
+        // table changes are polled for explicitly by the tests
+        "postgis.schemas.change-detection.interval=PT1H",//
 })
 @ActiveProfiles("postgis")
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -44,6 +51,7 @@ class CollectionsApiImplPostgisIT extends AbstractCollectionsApiImplTest {
     static PostgisTestSupport support;
 
     private @Autowired JdbcDataStoreProvider pgDataStoreProvider;
+    private @Autowired PostgisCatalogChangeDetector changeDetector;
 
     private final String pgSchema = "opendataindex";
 
@@ -155,6 +163,9 @@ class CollectionsApiImplPostgisIT extends AbstractCollectionsApiImplTest {
         assertThat(features).hasSize(10);
 
         support.renameColumn(pgSchema, "locations", "year", "año");
+        // features are streamed out lazily, the change must have been detected
+        // before querying
+        changeDetector.poll();
 
         response = dataApi.getFeatures(query);
         @Cleanup
@@ -162,6 +173,7 @@ class CollectionsApiImplPostgisIT extends AbstractCollectionsApiImplTest {
         assertThat(features1).hasSize(10);
 
         support.dropColumn(pgSchema, "locations", "año");
+        changeDetector.poll();
 
         response = dataApi.getFeatures(query);
 
@@ -170,6 +182,23 @@ class CollectionsApiImplPostgisIT extends AbstractCollectionsApiImplTest {
         assertThat(features2).hasSize(10);
     }
 
+    @Test
+    void testTableChangeDetected(TestInfo testInfo) throws Exception {
+        final String table = testInfo.getDisplayName();
+        support.createTestTable(pgSchema, table);
+
+        DataStore store = pgDataStoreProvider.get();
+        assertThat(store.getSchema(table).getDescriptor("name")).isNotNull();
+
+        support.renameColumn(pgSchema, table, "name", "nombre");
+        assertThat(store.getSchema(table).getDescriptor("nombre")).as("cached until polled").isNull();
+
+        changeDetector.poll();
+        SimpleFeatureType schema = store.getSchema(table);
+        assertThat(schema.getDescriptor("name")).isNull();
+        assertThat(schema.getDescriptor("nombre")).isNotNull();
+    }
+
     @Test
     void testGetItem_survives_table_schema_change() throws SQLException {
         FeaturesQuery query = FeaturesQuery.of("locations").withLimit(1);
@@ -191,4 +220,45 @@ class CollectionsApiImplPostgisIT extends AbstractCollectionsApiImplTest {
         after = dataApi.getFeature("locations", id).getBody();
         assertThat(after.getProperty("número")).isEmpty();
     }
+
+    @Test
+    void testGetItems_conditional_on_table_changes() throws SQLException {
+        FeaturesQuery query = FeaturesQuery.of("locations").withLimit(10);
+        String etag = dataApi.getFeatures(query).getHeaders().getETag();
+        assertThat(etag).as("responses differ by their timeStamp").startsWith("W/\"");
+        assertThat(dataApi.getFeatures(query.withLimit(5)).getHeaders().getETag()).isNotEqualTo(etag);
+
+        actualRequest.addHeader("If-None-Match", etag);
+        ResponseEntity<FeatureCollection> notModified = dataApi.getFeatures(query);
+        assertThat(notModified.getStatusCode().value()).isEqualTo(304);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(etag);
+
+        support.runSql("UPDATE opendataindex.locations SET year = year");
+
+        // statistics are reported asynchronously
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            ResponseEntity<FeatureCollection> modified = dataApi.getFeatures(query);
+            assertThat(modified.getStatusCode().value()).isEqualTo(200);
+            assertThat(modified.getHeaders().getETag()).isNotEqualTo(etag);
+        });
+    }
+
+    @Test
+    void testDescribeCollection_conditional_on_table_changes() throws SQLException {
+        String etag = capabilitiesApi.describeCollection("locations").getHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        actualRequest.addHeader("If-None-Match", etag);
+        assertThat(capabilitiesApi.describeCollection("locations").getStatusCode().value()).isEqualTo(304);
+
+        support.renameColumn(pgSchema, "locations", "year", "año");
+        try {
+            ResponseEntity<Collection> modified = capabilitiesApi.describeCollection("locations");
+            assertThat(modified.getStatusCode().value()).isEqualTo(200);
+            assertThat(modified.getHeaders().getETag()).isNotEqualTo(etag);
+        } finally {
+            support.renameColumn(pgSchema, "locations", "año", "year");
+        }
+    }
 }
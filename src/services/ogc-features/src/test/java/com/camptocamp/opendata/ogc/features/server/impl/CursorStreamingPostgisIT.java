@@ -0,0 +1,144 @@
+package com.camptocamp.opendata.ogc.features.server.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.context.request.NativeWebRequest;
+
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.app.OgcFeaturesApp;
+import com.camptocamp.opendata.ogc.features.autoconfigure.postgis.PostgisFetchConfiguration;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.repository.JdbcDataStoreProvider;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Checks unlimited queries are streamed through a cursor, taking a bounded
+ * amount of memory whatever the table size.
+ *
+ * @see PostgisFetchConfiguration
+ */
+@SpringBootTest(classes = OgcFeaturesApp.class, properties = { //
+        "postgis.schemas.include[0].schema=opendataindex", //
+        "postgis.schemas.include[0].prefix-tables=false", //
+})
+@ActiveProfiles("postgis")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CursorStreamingPostgisIT {
+
+    private static final String TABLE = "bulk_items";
+    private static final int ROWS = 100_000;
+
+    /**
+     * About the size of the table contents, each row holding a 1KB string
+     */
+    private static final long TABLE_BYTES = ROWS * 1024L;
+
+    static PostgisTestSupport support;
+
+    private @Autowired JdbcDataStoreProvider pgDataStoreProvider;
+    private @Autowired DataApiImpl dataApi;
+    private @Autowired NativeWebRequest req;
+    private @Autowired MeterRegistry registry;
+
+    @BeforeAll
+    static void setUpContainer(@TempDir Path tmpdir) throws IOException, SQLException {
+        support = PostgisTestSupport.init(tmpdir);
+        support.runSql("""
+                CREATE TABLE opendataindex.%s AS
+                SELECT i AS id, repeat(md5(i::text), 32) AS payload,
+                  ST_SetSRID(ST_MakePoint(i %% 360 - 180, i %% 180 - 90), 4326) AS geom
+                FROM generate_series(1, %d) AS i;
+                ALTER TABLE opendataindex.%s ADD PRIMARY KEY (id);
+                """.formatted(TABLE, ROWS, TABLE));
+    }
+
+    @DynamicPropertySource
+    static void setUpPostgisProperties(DynamicPropertyRegistry registry) {
+        support.setUpDefaultSpringDataSource(registry);
+    }
+
+    @BeforeEach
+    void beforeEeach() {
+        support.beforeEeach(pgDataStoreProvider);
+        MockHttpServletRequest actualRequest = (MockHttpServletRequest) req.getNativeRequest();
+        actualRequest.addHeader("Accept", "application/json");
+    }
+
+    @Test
+    void testUnlimitedQueryStreamsInBoundedMemory() {
+        final long baseline = usedHeap();
+        long peak = 0;
+        long count = 0;
+
+        FeatureCollection collection = dataApi.getFeatures(FeaturesQuery.of(TABLE)).getBody();
+        try (Stream<GeodataRecord> features = collection.getFeatures()) {
+            Iterator<GeodataRecord> it = features.iterator();
+            while (it.hasNext()) {
+                assertThat(it.next().getProperty("payload")).isPresent();
+                if (++count % 10_000 == 1) {
+                    peak = Math.max(peak, usedHeap() - baseline);
+                }
+            }
+        }
+        assertThat(count).isEqualTo(ROWS);
+        assertThat(peak).as("heap used while streaming, the result set takes ~%,d bytes", TABLE_BYTES)
+                .isLessThan(TABLE_BYTES / 4);
+    }
+
+    @Test
+    void testLimitedQueryUnaffected() {
+        FeatureCollection collection = dataApi.getFeatures(FeaturesQuery.of(TABLE).withLimit(10)).getBody();
+        try (Stream<GeodataRecord> features = collection.getFeatures()) {
+            assertThat(features.map(GeodataRecord::getId)).hasSize(10);
+        }
+    }
+
+    @Test
+    void testCancelReleasesTheConnection() {
+        double cancelled = registry.get("collections.queries.cancelled").functionCounter().count();
+        double unread = registry.get("collections.queries.cancelled.features.estimated").functionCounter().count();
+
+        FeatureCollection collection = dataApi.getFeatures(FeaturesQuery.of(TABLE)).getBody();
+        try (Stream<GeodataRecord> features = collection.getFeatures()) {
+            Iterator<GeodataRecord> it = features.iterator();
+            for (int i = 0; i < 10; i++) {
+                it.next();
+            }
+            collection.cancel();
+            HikariDataSource dataSource = (HikariDataSource) pgDataStoreProvider.getDataSource();
+            assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isZero();
+        }
+        assertThat(registry.get("collections.queries.cancelled").functionCounter().count())
+                .isEqualTo(cancelled + 1);
+        assertThat(registry.get("collections.queries.cancelled.features.estimated").functionCounter().count())
+                .isGreaterThan(unread);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -2,23 +2,42 @@ package com.camptocamp.opendata.ogc.features.server.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.camptocamp.opendata.model.GeodataRecord;
 import com.camptocamp.opendata.ogc.features.app.OgcFeaturesApp;
+import com.camptocamp.opendata.ogc.features.model.CountMode;
 import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
 import com.camptocamp.opendata.ogc.features.model.Link;
+import com.camptocamp.opendata.ogc.features.model.StatusInfo;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration.CollectionConfiguration;
+
+import lombok.Cleanup;
 
 @SpringBootTest(classes = OgcFeaturesApp.class)
 @ActiveProfiles("sample-data")
 class DataApiImplTest extends AbstractCollectionsApiImplTest {
 
+    private @Autowired CollectionsConfiguration collectionsConfig;
+
+    @AfterEach
+    void restoreCollectionsConfig() {
+        collectionsConfig.setOverrides(Map.of());
+    }
+
     @Override
     protected Comparator<GeodataRecord> fidComparator() {
         Comparator<GeodataRecord> fidComparator = (r1, r2) -> r1.getId().compareTo(r2.getId());
@@ -64,4 +83,112 @@ class DataApiImplTest extends AbstractCollectionsApiImplTest {
         assertThat(nextLink.getHref()).contains("f=ooxml");
     }
 
+    @Test
+    void testNumberMatchedExactByDefault() {
+        FeatureCollection fc = dataApi.getFeatures(FeaturesQuery.of("locations").withLimit(10)).getBody();
+        assertThat(fc.getNumberMatchedMode()).isEqualTo(CountMode.EXACT);
+        assertThat(fc.getNumberMatched()).isEqualTo(16L);
+        assertThat(fc.getNumberReturned()).as("numberReturned should be known before streaming").isEqualTo(10L);
+    }
+
+    @Test
+    void testNumberMatchedNone() {
+        setNumberMatched("locations", CountMode.NONE);
+
+        FeatureCollection fc = dataApi.getFeatures(FeaturesQuery.of("locations").withLimit(10)).getBody();
+        assertThat(fc.getNumberMatchedMode()).isEqualTo(CountMode.NONE);
+        assertThat(fc.getNumberMatched()).isNull();
+        assertThat(fc.getNumberReturned()).isNull();
+        assertThat(fc.getLinks()).noneMatch(l -> "next".equals(l.getRel()));
+
+        @Cleanup
+        Stream<GeodataRecord> features = fc.getFeatures();
+        assertThat(features.count()).isEqualTo(10L);
+        assertThat(fc.getNumberReturned()).as("numberReturned should be computed while streaming").isEqualTo(10L);
+        assertThat(fc.getLinks()).as("next link expected after streaming a full page")
+                .anyMatch(l -> "next".equals(l.getRel()));
+    }
+
+    @Test
+    void testNumberMatchedNoneLastPage() {
+        setNumberMatched("locations", CountMode.NONE);
+        actualRequest.setParameter("offset", "10");
+
+        FeatureCollection fc = dataApi.getFeatures(FeaturesQuery.of("locations").withOffset(10).withLimit(10))
+                .getBody();
+        @Cleanup
+        Stream<GeodataRecord> features = fc.getFeatures();
+        assertThat(features.count()).isEqualTo(6);
+        assertThat(fc.getNumberReturned()).isEqualTo(6L);
+        assertThat(fc.getLinks()).noneMatch(l -> "next".equals(l.getRel()));
+    }
+
+    @Test
+    void testNumberMatchedCached() {
+        setNumberMatched("locations", CountMode.CACHED);
+
+        FeatureCollection fc = dataApi.getFeatures(FeaturesQuery.of("locations").withLimit(10)).getBody();
+        assertThat(fc.getNumberMatchedMode()).isEqualTo(CountMode.CACHED);
+        assertThat(fc.getNumberMatched()).isEqualTo(16L);
+        assertThat(fc.getLinks()).anyMatch(l -> "next".equals(l.getRel()));
+    }
+
+    @Test
+    void testNumberMatchedEstimatedFallsBackToExact() {
+        setNumberMatched("locations", CountMode.ESTIMATED);
+
+        FeatureCollection fc = dataApi.getFeatures(FeaturesQuery.of("locations").withLimit(10)).getBody();
+        assertThat(fc.getNumberMatchedMode()).as("sample data backend can't estimate").isEqualTo(CountMode.EXACT);
+        assertThat(fc.getNumberMatched()).isEqualTo(16L);
+    }
+
+    @Test
+    void testGetItemsCacheControl() {
+        CollectionConfiguration override = new CollectionConfiguration();
+        override.setCacheControl("public, max-age=60");
+        collectionsConfig.setOverrides(Map.of("locations", override));
+
+        ResponseEntity<FeatureCollection> response = dataApi.getFeatures(FeaturesQuery.of("locations").withLimit(1));
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("public, max-age=60");
+        assertThat(response.getHeaders().getETag()).as("sample data backend can't tell changes").isNull();
+
+        response = dataApi.getFeatures(FeaturesQuery.of("comptages-velo").withLimit(1));
+        assertThat(response.getHeaders().getCacheControl()).isNull();
+    }
+
+    @Test
+    void testGetItemsRespondAsync() throws Exception {
+        actualRequest.setRequestURI("/ogcapi/collections/locations/items");
+        actualRequest.removeHeader("Accept");
+        actualRequest.addHeader("Accept", "text/csv");
+        actualRequest.addHeader("Prefer", "respond-async");
+
+        ResponseEntity<FeatureCollection> response = dataApi.getFeatures(FeaturesQuery.of("locations"));
+        assertThat(response.getStatusCode().value()).isEqualTo(202);
+        assertThat(response.getHeaders().getFirst("Preference-Applied")).isEqualTo("respond-async");
+        String location = response.getHeaders().getLocation().toString();
+        assertThat(location).startsWith("http://localhost/ogcapi/jobs/");
+        String jobId = location.substring(location.lastIndexOf('/') + 1);
+
+        StatusInfo status = dataApi.getJob(jobId).getBody();
+        Instant timeout = Instant.now().plusSeconds(10);
+        while (status.getStatus() != StatusInfo.StatusEnum.SUCCESSFUL && Instant.now().isBefore(timeout)) {
+            Thread.sleep(10);
+            status = dataApi.getJob(jobId).getBody();
+        }
+        assertThat(status.getStatus()).isEqualTo(StatusInfo.StatusEnum.SUCCESSFUL);
+        assertThat(status.getLinks()).anyMatch(l -> l.getHref().equals(location + "/results"));
+
+        dataApi.getJobResults(jobId);
+        MockHttpServletResponse results = req.getNativeResponse(MockHttpServletResponse.class);
+        assertThat(results.getContentType()).startsWith("text/csv");
+        assertThat(results.getStatus()).isEqualTo(200);
+        assertThat(results.getContentAsByteArray()).hasSize((int) results.getContentLengthLong()).isNotEmpty();
+    }
+
+    private void setNumberMatched(String collectionId, CountMode mode) {
+        CollectionConfiguration override = new CollectionConfiguration();
+        override.setNumberMatched(mode);
+        collectionsConfig.setOverrides(Map.of(collectionId, override));
+    }
 }
@@ -0,0 +1,183 @@
+package com.camptocamp.opendata.ogc.features.server.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.geotools.api.data.DataStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.camptocamp.opendata.model.GeodataRecord;
+import com.camptocamp.opendata.ogc.features.app.OgcFeaturesApp;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.model.Link;
+import com.camptocamp.opendata.ogc.features.repository.JdbcDataStoreProvider;
+
+import lombok.Cleanup;
+
+@SpringBootTest(classes = OgcFeaturesApp.class, properties = { //
+        "postgis.schemas.include[0].schema=opendataindex", //
+        "postgis.schemas.include[0].prefix-tables=false", //
+        "collections.defaults.paging=keyset", //
+        "collections.overrides[offset_paged].paging=offset", //
+})
+@ActiveProfiles("postgis")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class KeysetPagingPostgisIT {
+
+    static PostgisTestSupport support;
+
+    private @Autowired JdbcDataStoreProvider pgDataStoreProvider;
+    private @Autowired DataApiImpl dataApi;
+    private @Autowired NativeWebRequest req;
+
+    private MockHttpServletRequest actualRequest;
+
+    @BeforeAll
+    static void setUpContainer(@TempDir Path tmpdir) throws IOException, SQLException {
+        support = PostgisTestSupport.init(tmpdir);
+        support.runSql("""
+                CREATE TABLE opendataindex.composite_key AS
+                SELECT i % 10 AS region, i AS code, 'name ' || i AS name,
+                  ST_SetSRID(ST_MakePoint(i, i), 4326) AS geom
+                FROM generate_series(1, 20) AS i;
+                ALTER TABLE opendataindex.composite_key ADD PRIMARY KEY (region, code);
+                CREATE TABLE opendataindex.offset_paged AS
+                SELECT i AS id, 'name ' || i AS name FROM generate_series(1, 20) AS i;
+                ALTER TABLE opendataindex.offset_paged ADD PRIMARY KEY (id);
+                CREATE TABLE opendataindex.numbered AS
+                SELECT i AS id, (i * 7) % 23 AS rank, i / 3.0 AS score FROM generate_series(1, 30) AS i;
+                ALTER TABLE opendataindex.numbered ADD PRIMARY KEY (id);
+                """);
+    }
+
+    @DynamicPropertySource
+    static void setUpPostgisProperties(DynamicPropertyRegistry registry) {
+        support.setUpDefaultSpringDataSource(registry);
+    }
+
+    @BeforeEach
+    void beforeEeach() {
+        support.beforeEeach(pgDataStoreProvider);
+        actualRequest = (MockHttpServletRequest) req.getNativeRequest();
+        actualRequest.addHeader("Accept", "application/json");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "locations", "locations:-city", "comptages-velo:commune,-date et heure", "numbered",
+            "numbered:rank", "numbered:-score" })
+    void testPagingConsistency(String layerAndSortSpec) {
+        int sep = layerAndSortSpec.indexOf(':');
+        String layerName = sep == -1 ? layerAndSortSpec : layerAndSortSpec.substring(0, sep);
+        List<String> sortby = sep == -1 ? null : List.of(layerAndSortSpec.substring(sep + 1).split(","));
+
+        final int total = dataApi.getFeatures(FeaturesQuery.of(layerName)).getBody().getNumberMatched().intValue();
+        final int pageSize = Math.max(1, total / 7);
+
+        List<String> offsetPaged = new ArrayList<>();
+        @Cleanup
+        Stream<GeodataRecord> all = dataApi.getFeatures(FeaturesQuery.of(layerName).withSortby(sortby)).getBody()
+                .getFeatures();
+        all.map(GeodataRecord::getId).forEach(offsetPaged::add);
+
+        List<String> keysetPaged = new ArrayList<>();
+        FeaturesQuery query = FeaturesQuery.of(layerName).withSortby(sortby).withLimit(pageSize);
+        Optional<String> cursor = Optional.empty();
+        do {
+            FeatureCollection page = dataApi.getFeatures(query.withCursor(cursor.orElse(null))).getBody();
+            assertThat(page.getNumberMatched()).isEqualTo(total);
+            try (Stream<GeodataRecord> features = page.getFeatures()) {
+                features.forEach(rec -> {
+                    assertThat(rec.getProperty("fid")).as("primary key shall not be published").isEmpty();
+                    keysetPaged.add(rec.getId());
+                });
+            }
+            cursor = nextCursor(page);
+        } while (cursor.isPresent());
+
+        assertThat(keysetPaged).hasSize(total).doesNotHaveDuplicates().isEqualTo(offsetPaged);
+    }
+
+    @Test
+    void testCompositePrimaryKeyIsNotPublished() {
+        FeatureCollection page = dataApi.getFeatures(FeaturesQuery.of("composite_key").withLimit(5)).getBody();
+        try (Stream<GeodataRecord> features = page.getFeatures()) {
+            List<GeodataRecord> records = features.toList();
+            assertThat(records).hasSize(5).allSatisfy(rec -> {
+                assertThat(rec.getProperty("name")).isPresent();
+                assertThat(rec.getProperty("region")).as("primary key shall not be published").isEmpty();
+                assertThat(rec.getProperty("code")).as("primary key shall not be published").isEmpty();
+            });
+        }
+        assertThat(nextCursor(page)).as("multi-column keys fall back to offset paging").isEmpty();
+    }
+
+    @Test
+    void testPrimaryKeysExposedForKeysetPagedTablesOnly() throws IOException {
+        DataStore dataStore = pgDataStoreProvider.get();
+        assertThat(dataStore.getSchema("locations").getDescriptor("fid")).isNotNull();
+        assertThat(dataStore.getSchema("offset_paged").getDescriptor("id")).isNull();
+
+        FeatureCollection page = dataApi.getFeatures(FeaturesQuery.of("offset_paged").withLimit(5)).getBody();
+        try (Stream<GeodataRecord> features = page.getFeatures()) {
+            assertThat(features.count()).isEqualTo(5);
+        }
+        assertThat(page.getLinks()).filteredOn(l -> "next".equals(l.getRel())).singleElement()
+                .satisfies(next -> assertThat(next.getHref()).contains("offset=5").doesNotContain("cursor="));
+    }
+
+    @Test
+    void testInvalidCursor() {
+        FeaturesQuery query = FeaturesQuery.of("locations").withLimit(10).withCursor("not-a-cursor");
+        assertThrows(IllegalArgumentException.class, () -> dataApi.getFeatures(query));
+    }
+
+    @Test
+    void testCursorDoesNotMatchAttributeTypes() {
+        String json = "{\"k\":[\"+fid\"],\"t\":[\"string\"],\"v\":[\"1\"]}";
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(UTF_8));
+        FeaturesQuery query = FeaturesQuery.of("locations").withLimit(2).withCursor(cursor);
+        assertThrows(IllegalArgumentException.class, () -> dataApi.getFeatures(query));
+    }
+
+    @Test
+    void testCursorDoesNotMatchSortOrder() {
+        FeatureCollection page = dataApi.getFeatures(FeaturesQuery.of("locations").withLimit(2)).getBody();
+        try (Stream<GeodataRecord> features = page.getFeatures()) {
+            assertThat(features.count()).isEqualTo(2);
+        }
+        String cursor = nextCursor(page).orElseThrow();
+
+        FeaturesQuery query = FeaturesQuery.of("locations").withSortby(List.of("city")).withLimit(2)
+                .withCursor(cursor);
+        assertThrows(IllegalArgumentException.class, () -> dataApi.getFeatures(query));
+    }
+
+    private Optional<String> nextCursor(FeatureCollection page) {
+        return page.getLinks().stream().filter(l -> "next".equals(l.getRel())).findFirst().map(Link::getHref)
+                .map(href -> UriComponentsBuilder.fromUriString(href).build().getQueryParams().getFirst("cursor"));
+    }
+}
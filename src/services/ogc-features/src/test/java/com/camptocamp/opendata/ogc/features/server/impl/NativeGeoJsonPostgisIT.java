@@ -0,0 +1,117 @@
+package com.camptocamp.opendata.ogc.features.server.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import com.camptocamp.opendata.ogc.features.app.OgcFeaturesApp;
+import com.camptocamp.opendata.ogc.features.http.codec.json.GeoJsonFeatureCollectionHttpMessageConverter;
+import com.camptocamp.opendata.ogc.features.model.FeatureCollection;
+import com.camptocamp.opendata.ogc.features.repository.CollectionsConfiguration;
+import com.camptocamp.opendata.ogc.features.repository.JdbcDataStoreProvider;
+
+/**
+ * Verifies the GeoJSON documents encoded by PostGIS with
+ * {@code collections.native-geojson} enabled are the same, byte for byte but
+ * the time stamps, as the ones encoded from the features read through the data
+ * store: feature ids, geometry {@literal @name} and {@literal @srs} members,
+ * date and number formatting, and member order.
+ */
+@SpringBootTest(classes = OgcFeaturesApp.class, properties = { //
+        "postgis.schemas.include[0].schema=opendataindex" //
+})
+@ActiveProfiles("postgis")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class NativeGeoJsonPostgisIT {
+
+    static PostgisTestSupport support;
+
+    private @Autowired JdbcDataStoreProvider pgDataStoreProvider;
+    private @Autowired DataApiImpl dataApi;
+    private @Autowired NativeWebRequest req;
+    private @Autowired CollectionsConfiguration config;
+    private @Autowired GeoJsonFeatureCollectionHttpMessageConverter converter;
+
+    private MockHttpServletRequest actualRequest;
+
+    @BeforeAll
+    static void setUpContainer(@TempDir Path tmpdir) throws IOException, SQLException {
+        support = PostgisTestSupport.init(tmpdir);
+    }
+
+    @DynamicPropertySource
+    static void setUpPostgisProperties(DynamicPropertyRegistry registry) {
+        support.setUpDefaultSpringDataSource(registry);
+    }
+
+    @BeforeEach
+    void beforeEeach() {
+        support.beforeEeach(pgDataStoreProvider);
+        actualRequest = (MockHttpServletRequest) req.getNativeRequest();
+        actualRequest.addHeader("Accept", "application/geo+json");
+    }
+
+    @AfterEach
+    void restoreNativeGeoJson() {
+        config.setNativeGeoJson(true);
+    }
+
+    static Stream<FeaturesQuery> queries() {
+        return Stream.of(//
+                FeaturesQuery.of("opendataindex:locations"), //
+                FeaturesQuery.of("opendataindex:locations").withOffset(3).withLimit(5), //
+                FeaturesQuery.of("opendataindex:locations").withFilter("number > 100")
+                        .withSortby(List.of("-city")), //
+                FeaturesQuery.of("opendataindex:locations").withCrs("2154"), //
+                FeaturesQuery.of("opendataindex:comptages-velo").withLimit(20), //
+                FeaturesQuery.of("opendataindex:base-sirene-v3").withLimit(20));
+    }
+
+    @ParameterizedTest
+    @MethodSource("queries")
+    void testSameDocumentAsDataStoreEncoding(FeaturesQuery query) throws IOException {
+        config.setNativeGeoJson(true);
+        FeatureCollection collection = dataApi.getFeatures(query).getBody();
+        assertThat(collection.getGeoJsonFeatureWriter()).as("expected the query to be pushed down").isPresent();
+        String pushedDown = encode(collection);
+
+        config.setNativeGeoJson(false);
+        collection = dataApi.getFeatures(query).getBody();
+        assertThat(collection.getGeoJsonFeatureWriter()).isEmpty();
+        String dataStore = encode(collection);
+
+        String srs = null == query.getCrs() ? "4326" : query.getCrs();
+        assertThat(pushedDown).contains("\"@srs\":\"EPSG:%s\"".formatted(srs));
+        assertThat(withoutTimeStamp(pushedDown)).isEqualTo(withoutTimeStamp(dataStore));
+    }
+
+    private String encode(FeatureCollection collection) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(collection, null, message);
+        return message.getBodyAsString();
+    }
+
+    private static String withoutTimeStamp(String geojson) {
+        return geojson.replaceFirst("\"timeStamp\":(\"[^\"]*\"|[-+.0-9eE]+)", "\"timeStamp\":null");
+    }
+}
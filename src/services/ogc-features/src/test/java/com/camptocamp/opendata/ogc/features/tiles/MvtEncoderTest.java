@@ -0,0 +1,113 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKTReader;
+
+class MvtEncoderTest {
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    @Test
+    void testPoint() throws Exception {
+        MvtEncoder encoder = new MvtEncoder(new Tile(0, 0, 0, 4096, 64), "l");
+        encoder.add(geom("POINT(0 0)"), Map.of("name", "a"));
+
+        // the world center is at 2048,2048, zigzag encoded as 4096 (0x80 0x20)
+        int[] feature = { 0x12, 0x02, 0x00, 0x00, // tags: key 0, value 0
+                0x18, 0x01, // type: POINT
+                0x22, 0x05, 0x09, 0x80, 0x20, 0x80, 0x20 // geometry: MoveTo(1) 2048,2048
+        };
+        int[] layer = concat(new int[] { 0x78, 0x02, // version 2
+                0x0A, 0x01, 'l', // name
+                0x12, feature.length }, feature, new int[] { //
+                        0x1A, 0x04, 'n', 'a', 'm', 'e', // keys
+                        0x22, 0x03, 0x0A, 0x01, 'a', // values
+                        0x28, 0x80, 0x20 // extent 4096
+                });
+        int[] tile = concat(new int[] { 0x1A, layer.length }, layer);
+
+        assertThat(unsigned(encoder.encode())).containsExactly(tile);
+    }
+
+    @Test
+    void testEmpty() throws Exception {
+        MvtEncoder encoder = new MvtEncoder(new Tile(1, 0, 0, 4096, 64), "l");
+        // south-east quadrant, outside the north-west tile buffer
+        encoder.add(geom("POINT(10000000 -10000000)"), Map.of());
+        encoder.add(geom("LINESTRING(1000000 -1000000, 2000000 -2000000)"), Map.of());
+        encoder.add(gf.createPoint(), Map.of());
+
+        assertThat(encoder.isEmpty()).isTrue();
+        assertThat(encoder.encode()).isEmpty();
+    }
+
+    @Test
+    void testPolygonClippedToBuffer() throws Exception {
+        MvtEncoder encoder = new MvtEncoder(new Tile(1, 0, 0, 4096, 64), "l");
+        // covers the whole world, clipped to the 4096 + 2 * 64 square
+        encoder.add(gf.toGeometry(new Envelope(-3e7, 3e7, -3e7, 3e7)), Map.of());
+
+        int[] bytes = unsigned(encoder.encode());
+        assertThat(bytes).containsSequence(0x18, 0x03); // type: POLYGON
+        // a 4224 side, zigzag encoded as 8448 (0x80 0x42)
+        assertThat(bytes).containsSequence(0x80, 0x42);
+        // ClosePath, then the layer extent
+        assertThat(bytes).containsSequence(0x0F, 0x28, 0x80, 0x20);
+    }
+
+    @Test
+    void testMixedGeometryCollection() throws Exception {
+        MvtEncoder encoder = new MvtEncoder(new Tile(0, 0, 0, 4096, 64), "l");
+        encoder.add(geom("GEOMETRYCOLLECTION(POINT(0 0), LINESTRING(0 0, 1000000 1000000))"), Map.of());
+
+        // reduced to the line
+        assertThat(unsigned(encoder.encode())).containsSequence(0x18, 0x02);
+    }
+
+    @Test
+    void testTileBounds() {
+        Tile tile = new Tile(1, 1, 0, 4096, 64);
+        assertThat(tile.envelope()).isEqualTo(new Envelope(0, Tile.HALF_WORLD, 0, Tile.HALF_WORLD));
+        assertThat(tile.bufferedEnvelope().getWidth()).isCloseTo(Tile.HALF_WORLD * (4096 + 128) / 4096,
+                within(1e-6));
+        assertThat(tile).hasToString("1/0/1");
+
+        assertThatThrownBy(() -> new Tile(1, 2, 0, 4096, 64)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Tile(25, 0, 0, 4096, 64)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Geometry geom(String wkt) throws Exception {
+        return new WKTReader(gf).read(wkt);
+    }
+
+    private static int[] concat(int[]... arrays) {
+        int length = 0;
+        for (int[] a : arrays) {
+            length += a.length;
+        }
+        int[] result = new int[length];
+        int offset = 0;
+        for (int[] a : arrays) {
+            System.arraycopy(a, 0, result, offset, a.length);
+            offset += a.length;
+        }
+        return result;
+    }
+
+    private static int[] unsigned(byte[] bytes) {
+        int[] unsigned = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            unsigned[i] = bytes[i] & 0xFF;
+        }
+        return unsigned;
+    }
+}
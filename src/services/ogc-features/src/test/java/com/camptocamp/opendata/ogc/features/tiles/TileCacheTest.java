@@ -0,0 +1,172 @@
+package com.camptocamp.opendata.ogc.features.tiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class TileCacheTest {
+
+    private @TempDir Path directory;
+
+    private TilesConfiguration.CacheSettings settings;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Tile tile = new Tile(1, 0, 0, 4096, 64);
+
+    @BeforeEach
+    void setUp() {
+        settings = new TilesConfiguration().getCache();
+        settings.getDisk().setDirectory(directory.resolve("tiles"));
+    }
+
+    @Test
+    void testMemoryCache() {
+        TileCache cache = new TileCache(settings);
+
+        assertThat(cache.get("layer", tile, loader(10))).hasSize(10);
+        assertThat(cache.get("layer", tile, loader(10))).hasSize(10);
+        assertThat(loads).hasValue(1);
+
+        cache.get("other", tile, loader(10));
+        cache.get("layer", new Tile(1, 1, 0, 4096, 64), loader(10));
+        assertThat(loads).hasValue(3);
+
+        cache.invalidateAll();
+        cache.get("layer", tile, loader(10));
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void testLoadFailureNotCached() {
+        TileCache cache = new TileCache(settings);
+
+        assertThatThrownBy(() -> cache.get("layer", tile, () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("failed");
+
+        assertThat(cache.get("layer", tile, loader(10))).hasSize(10);
+    }
+
+    @Test
+    void testDiskCache() throws Exception {
+        settings.setMemoryMaxSize(DataSize.ofBytes(0));
+        settings.getDisk().setEnabled(true);
+        TileCache cache = new TileCache(settings);
+
+        assertThat(cache.get("layer", tile, loader(10))).hasSize(10);
+        assertThat(cache.get("layer", tile, loader(10))).hasSize(10);
+        assertThat(loads).as("expected to be read from disk").hasValue(1);
+        assertThat(files()).hasSize(1);
+
+        cache.invalidateAll();
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void testDiskCacheEviction() throws Exception {
+        settings.setMemoryMaxSize(DataSize.ofBytes(0));
+        settings.getDisk().setEnabled(true);
+        settings.getDisk().setMaxSize(DataSize.ofBytes(25));
+        TileCache cache = new TileCache(settings);
+
+        cache.get("a", tile, loader(10));
+        cache.get("b", tile, loader(10));
+        // a is now the most recently used
+        cache.get("a", tile, loader(10));
+        cache.get("c", tile, loader(10));
+        assertThat(loads).hasValue(3);
+        assertThat(files()).hasSize(2);
+
+        cache.get("a", tile, loader(10));
+        cache.get("c", tile, loader(10));
+        assertThat(loads).hasValue(3);
+        cache.get("b", tile, loader(10));
+        assertThat(loads).as("b expected to be evicted").hasValue(4);
+    }
+
+    @Test
+    void testDiskCacheExpiry() {
+        settings.setMemoryMaxSize(DataSize.ofBytes(0));
+        settings.getDisk().setEnabled(true);
+        settings.setTtl(Duration.ofMinutes(5));
+        MutableClock clock = new MutableClock();
+        TileCache cache = new TileCache(settings, clock);
+
+        cache.get("layer", tile, loader(10));
+        clock.now = clock.now.plus(Duration.ofMinutes(4));
+        cache.get("layer", tile, loader(10));
+        assertThat(loads).hasValue(1);
+
+        clock.now = clock.now.plus(Duration.ofMinutes(2));
+        cache.get("layer", tile, loader(10));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void testOnlyOwnFilesAreDeleted() throws Exception {
+        Path other = Files.createDirectories(directory.resolve("tiles").resolve("00")).resolve("0.mvt");
+        Files.write(other, new byte[10]);
+        settings.setMemoryMaxSize(DataSize.ofBytes(0));
+        settings.getDisk().setEnabled(true);
+
+        TileCache cache = new TileCache(settings);
+        cache.get("layer", tile, loader(10));
+        assertThat(other).exists();
+        assertThat(files()).hasSize(2);
+        Path cached = files().stream().filter(file -> !file.equals(other)).findFirst().orElseThrow();
+        assertThat(cached.getParent().getParent().getFileName().toString()).startsWith("data-api-tiles-");
+
+        cache.destroy();
+        assertThat(cached.getParent().getParent()).doesNotExist();
+        assertThat(files()).containsExactly(other);
+    }
+
+    private Supplier<byte[]> loader(int size) {
+        return () -> {
+            loads.incrementAndGet();
+            return new byte[size];
+        };
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        Instant now = Instant.now();
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}